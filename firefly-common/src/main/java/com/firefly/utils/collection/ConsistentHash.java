@@ -83,7 +83,7 @@ public class ConsistentHash<T> {
 			return null;
 
 		int hash = hashFunction.hash(key);
-		T t = circle.get(key);
+		T t = circle.get(hash);
 		if (t != null)
 			return t;
 
@@ -0,0 +1,1007 @@
+package com.firefly.utils.collection;
+
+import com.firefly.utils.collection.ConcurrentLinkedHashMap.MapEventListener;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The TinyLFUCache is a bounded concurrent cache that uses the W-TinyLFU eviction policy.
+ * <p>
+ * The entries are stored in a ConcurrentHashMap, the get method doesn't take any lock,
+ * it records the access in a striped ring buffer, and the writes record their changes in a write buffer.
+ * The buffers are replayed against the eviction policy by one thread at a time under a try lock,
+ * so the readers never wait for each other. The access records are dropped when the read buffer is full,
+ * it is acceptable for a cache policy.
+ * <p>
+ * The new entries enter a small LRU window (1% of the maximum size), the entries leaving the window
+ * compete with the least recently used entry of the main space. The main space is a segmented LRU
+ * (probation 20%, protected 80%), and a count-min sketch estimates the access frequency of the keys,
+ * the candidate is admitted only if it has been used more frequently than the victim.
+ * The frequency counters are halved periodically, so the popularity of the old keys decays.
+ * <p>
+ * The entries can expire after a fixed duration since they are written or last accessed.
+ * The expired entries are invisible immediately, and they are removed in the next maintenance.
+ * <p>
+ * It uses the same {@link MapEventListener} callbacks as the {@link ConcurrentLinkedHashMap}.
+ * The eliminating event is triggered when an entry is evicted or expires. If the listener returns false
+ * for an evicted entry, the entry is retained and it is moved to the most recently used position.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @author Pengtao Qiu
+ */
+public class TinyLFUCache<K, V> implements Map<K, V> {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private static final int IDLE = 0;
+    private static final int REQUIRED = 1;
+    private static final int PROCESSING = 2;
+
+    private static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    private final ConcurrentHashMap<K, Node<K, V>> data;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final MapEventListener<K, V> mapEventListener;
+    private final Executor executor;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final AtomicInteger drainStatus = new AtomicInteger();
+    private final ReadBuffer<K, V> readBuffer = new ReadBuffer<>();
+    private final ConcurrentLinkedQueue<Runnable> writeBuffer = new ConcurrentLinkedQueue<>();
+
+    // the eviction policy states are guarded by the eviction lock
+    private final FrequencySketch sketch;
+    private final NodeDeque<K, V> window = new NodeDeque<>(false);
+    private final NodeDeque<K, V> probation = new NodeDeque<>(false);
+    private final NodeDeque<K, V> protectedDeque = new NodeDeque<>(false);
+    private final NodeDeque<K, V> writeOrder = new NodeDeque<>(true);
+    private final int maximumSize;
+    private final int windowMaximum;
+    private final int protectedMaximum;
+    private int windowSize;
+    private int protectedSize;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * @param maximumSize the maximum number of entries
+     */
+    public TinyLFUCache(int maximumSize) {
+        this(maximumSize, new MapEventListener<K, V>() {
+
+            @Override
+            public boolean onEliminateEntry(K key, V value) {
+                return true;
+            }
+
+            @Override
+            public V onGetEntry(K key, V value) {
+                return value;
+            }
+
+            @Override
+            public V onPutEntry(K key, V value, V previousValue) {
+                return previousValue;
+            }
+
+            @Override
+            public V onRemoveEntry(K key, V value) {
+                return value;
+            }
+        });
+    }
+
+    /**
+     * @param maximumSize      the maximum number of entries
+     * @param mapEventListener the callback method of map's operations
+     */
+    public TinyLFUCache(int maximumSize, MapEventListener<K, V> mapEventListener) {
+        this(maximumSize, 0, 0, TimeUnit.MILLISECONDS, mapEventListener, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param maximumSize       the maximum number of entries
+     * @param expireAfterWrite  the entry expires after this duration since it is created or replaced,
+     *                          0 means the entry doesn't expire
+     * @param expireAfterAccess the entry expires after this duration since it is last read or written,
+     *                          0 means the entry doesn't expire
+     * @param unit              the time unit of the expiration durations
+     * @param mapEventListener  the callback method of map's operations
+     * @param executor          the executor loads the values asynchronously
+     */
+    public TinyLFUCache(int maximumSize,
+                        long expireAfterWrite,
+                        long expireAfterAccess,
+                        TimeUnit unit,
+                        MapEventListener<K, V> mapEventListener,
+                        Executor executor) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("the maximum size must be positive");
+        }
+        if (expireAfterWrite < 0 || expireAfterAccess < 0) {
+            throw new IllegalArgumentException("the expiration duration must not be negative");
+        }
+        this.maximumSize = maximumSize;
+        this.windowMaximum = Math.max(1, maximumSize / 100);
+        this.protectedMaximum = (int) ((maximumSize - windowMaximum) * 0.8);
+        this.expireAfterWriteNanos = unit.toNanos(expireAfterWrite);
+        this.expireAfterAccessNanos = unit.toNanos(expireAfterAccess);
+        this.mapEventListener = mapEventListener;
+        this.executor = executor;
+        this.data = new ConcurrentHashMap<>(Math.min(maximumSize, 1 << 16));
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    static final class Node<K, V> {
+        final K key;
+        volatile V value;
+        volatile long writeTime;
+        volatile long accessTime;
+        boolean alive = true; // guarded by the node
+
+        // the links are guarded by the eviction lock
+        int queueType = -1;
+        Node<K, V> prev;
+        Node<K, V> next;
+        Node<K, V> writePrev;
+        Node<K, V> writeNext;
+
+        Node(K key, V value, long now) {
+            this.key = key;
+            this.value = value;
+            this.writeTime = now;
+            this.accessTime = now;
+        }
+    }
+
+    /**
+     * The intrusive doubly linked list of the nodes, the head is the least recently used node.
+     */
+    static final class NodeDeque<K, V> {
+        private final boolean writeOrder;
+        private Node<K, V> first;
+        private Node<K, V> last;
+
+        NodeDeque(boolean writeOrder) {
+            this.writeOrder = writeOrder;
+        }
+
+        Node<K, V> peekFirst() {
+            return first;
+        }
+
+        boolean contains(Node<K, V> node) {
+            return (writeOrder ? node.writePrev : node.prev) != null || first == node;
+        }
+
+        void addLast(Node<K, V> node) {
+            if (writeOrder) {
+                node.writePrev = last;
+                node.writeNext = null;
+                if (last == null) {
+                    first = node;
+                } else {
+                    last.writeNext = node;
+                }
+            } else {
+                node.prev = last;
+                node.next = null;
+                if (last == null) {
+                    first = node;
+                } else {
+                    last.next = node;
+                }
+            }
+            last = node;
+        }
+
+        void remove(Node<K, V> node) {
+            Node<K, V> prev = writeOrder ? node.writePrev : node.prev;
+            Node<K, V> next = writeOrder ? node.writeNext : node.next;
+            if (prev == null) {
+                first = next;
+            } else if (writeOrder) {
+                prev.writeNext = next;
+            } else {
+                prev.next = next;
+            }
+            if (next == null) {
+                last = prev;
+            } else if (writeOrder) {
+                next.writePrev = prev;
+            } else {
+                next.prev = prev;
+            }
+            if (writeOrder) {
+                node.writePrev = null;
+                node.writeNext = null;
+            } else {
+                node.prev = null;
+                node.next = null;
+            }
+        }
+
+        void moveToBack(Node<K, V> node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void clear() {
+            first = null;
+            last = null;
+        }
+    }
+
+    /**
+     * The striped lossy ring buffers record the accesses, each thread offers to the stripe of its own.
+     */
+    static final class ReadBuffer<K, V> {
+        static final int BUFFER_SIZE = 16;
+        static final int BUFFER_MASK = BUFFER_SIZE - 1;
+
+        static final int SUCCESS = 0;
+        static final int FAILED = 1;
+        static final int FULL = 2;
+
+        private final AtomicReferenceArray<Node<K, V>>[] buffers;
+        private final AtomicLong[] writeCounters;
+        private final AtomicLongArray readCounters;
+        private final int stripeMask;
+
+        @SuppressWarnings("unchecked")
+        ReadBuffer() {
+            int stripes = 1;
+            while (stripes < NCPU) {
+                stripes <<= 1;
+            }
+            stripeMask = stripes - 1;
+            buffers = new AtomicReferenceArray[stripes];
+            writeCounters = new AtomicLong[stripes];
+            readCounters = new AtomicLongArray(stripes);
+            for (int i = 0; i < stripes; i++) {
+                buffers[i] = new AtomicReferenceArray<>(BUFFER_SIZE);
+                writeCounters[i] = new AtomicLong();
+            }
+        }
+
+        int offer(Node<K, V> node) {
+            long id = Thread.currentThread().getId();
+            int stripe = (int) (id ^ (id >>> 16)) * 0x9E3779B9 >>> 16 & stripeMask;
+            AtomicLong writeCounter = writeCounters[stripe];
+            long tail = writeCounter.get();
+            long size = tail - readCounters.get(stripe);
+            if (size >= BUFFER_SIZE) {
+                return FULL;
+            }
+            if (writeCounter.compareAndSet(tail, tail + 1)) {
+                buffers[stripe].lazySet((int) (tail & BUFFER_MASK), node);
+                return size + 1 >= BUFFER_SIZE ? FULL : SUCCESS;
+            }
+            return FAILED;
+        }
+
+        void drainTo(Consumer<Node<K, V>> consumer) {
+            for (int stripe = 0; stripe < buffers.length; stripe++) {
+                AtomicReferenceArray<Node<K, V>> buffer = buffers[stripe];
+                long head = readCounters.get(stripe);
+                long tail = writeCounters[stripe].get();
+                while (head < tail) {
+                    int index = (int) (head & BUFFER_MASK);
+                    Node<K, V> node = buffer.get(index);
+                    if (node == null) {
+                        // the slot is claimed but it is not published yet
+                        break;
+                    }
+                    buffer.lazySet(index, null);
+                    consumer.accept(node);
+                    head++;
+                }
+                readCounters.lazySet(stripe, head);
+            }
+        }
+    }
+
+    /**
+     * The count-min sketch with 4-bit counters, each long holds 16 counters. The counters are halved
+     * when the number of increments reaches 10 times of the maximum size, so the history decays.
+     */
+    static final class FrequencySketch {
+        private static final long[] SEED = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private static final long ONE_MASK = 0x1111111111111111L;
+
+        private final long[] table;
+        private final int tableMask;
+        private final int sampleSize;
+        private int size;
+
+        FrequencySketch(int maximumSize) {
+            int length = 1;
+            while (length < maximumSize && length < (1 << 30)) {
+                length <<= 1;
+            }
+            table = new long[length];
+            tableMask = length - 1;
+            sampleSize = (int) Math.min(10L * maximumSize, Integer.MAX_VALUE);
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int start = (hash & 3) << 2;
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                added |= incrementAt(indexOf(hash, i), start + i);
+            }
+            if (added && ++size >= sampleSize) {
+                reset();
+            }
+        }
+
+        private boolean incrementAt(int i, int j) {
+            int offset = j << 2;
+            long mask = 0xfL << offset;
+            if ((table[i] & mask) != mask) {
+                table[i] += 1L << offset;
+                return true;
+            }
+            return false;
+        }
+
+        private void reset() {
+            int count = 0;
+            for (int i = 0; i < table.length; i++) {
+                count += Long.bitCount(table[i] & ONE_MASK);
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            size = (size - (count >>> 2)) >>> 1;
+        }
+
+        private int indexOf(int item, int i) {
+            long hash = (item + SEED[i]) * SEED[i];
+            hash += hash >>> 32;
+            return ((int) hash) & tableMask;
+        }
+
+        private static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+
+        void clear() {
+            Arrays.fill(table, 0L);
+            size = 0;
+        }
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return (expireAfterWriteNanos > 0 && now - node.writeTime >= expireAfterWriteNanos)
+                || (expireAfterAccessNanos > 0 && now - node.accessTime >= expireAfterAccessNanos);
+    }
+
+    private V getIfPresent(Object key, boolean recordStats) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            if (recordStats) {
+                missCount.increment();
+            }
+            return null;
+        }
+        long now = System.nanoTime();
+        if (isExpired(node, now)) {
+            if (recordStats) {
+                missCount.increment();
+            }
+            scheduleDrain();
+            return null;
+        }
+        V value = node.value;
+        if (expireAfterAccessNanos > 0) {
+            node.accessTime = now;
+        }
+        if (recordStats) {
+            hitCount.increment();
+        }
+        if (readBuffer.offer(node) == ReadBuffer.FULL || drainStatus.get() == REQUIRED) {
+            scheduleDrain();
+        }
+        return value;
+    }
+
+    private void afterWrite(Runnable task) {
+        writeBuffer.offer(task);
+        scheduleDrain();
+    }
+
+    /**
+     * Replay the buffers if no other thread is doing it. The thread that holds the eviction lock
+     * checks the drain status again after releasing the lock, so the pending writes are not stranded.
+     */
+    private void scheduleDrain() {
+        drainStatus.set(REQUIRED);
+        while (drainStatus.get() == REQUIRED && evictionLock.tryLock()) {
+            try {
+                drainStatus.set(PROCESSING);
+                maintenance();
+            } finally {
+                drainStatus.compareAndSet(PROCESSING, IDLE);
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void maintenance() {
+        readBuffer.drainTo(this::onAccess);
+        Runnable task;
+        while ((task = writeBuffer.poll()) != null) {
+            task.run();
+        }
+        expireEntries();
+        evictEntries();
+    }
+
+    private void onAccess(Node<K, V> node) {
+        sketch.increment(node.key);
+        switch (node.queueType) {
+            case WINDOW:
+                window.moveToBack(node);
+                break;
+            case PROBATION:
+                // the entry is accessed again in the main space, it is promoted to the protected segment
+                probation.remove(node);
+                node.queueType = PROTECTED;
+                protectedDeque.addLast(node);
+                protectedSize++;
+                while (protectedSize > protectedMaximum) {
+                    Node<K, V> demoted = protectedDeque.peekFirst();
+                    protectedDeque.remove(demoted);
+                    protectedSize--;
+                    demoted.queueType = PROBATION;
+                    probation.addLast(demoted);
+                }
+                break;
+            case PROTECTED:
+                protectedDeque.moveToBack(node);
+                break;
+            default:
+                // the node has not been added or it has been removed
+                break;
+        }
+    }
+
+    private void onAdd(Node<K, V> node) {
+        synchronized (node) {
+            if (!node.alive) {
+                return;
+            }
+        }
+        sketch.increment(node.key);
+        node.queueType = WINDOW;
+        window.addLast(node);
+        windowSize++;
+        writeOrder.addLast(node);
+    }
+
+    private void onUpdate(Node<K, V> node) {
+        if (node.queueType < 0) {
+            return;
+        }
+        onAccess(node);
+        writeOrder.moveToBack(node);
+    }
+
+    private void unlink(Node<K, V> node) {
+        switch (node.queueType) {
+            case WINDOW:
+                window.remove(node);
+                windowSize--;
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            case PROTECTED:
+                protectedDeque.remove(node);
+                protectedSize--;
+                break;
+            default:
+                return;
+        }
+        writeOrder.remove(node);
+        node.queueType = -1;
+    }
+
+    private void expireEntries() {
+        if (expireAfterWriteNanos <= 0 && expireAfterAccessNanos <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (expireAfterWriteNanos > 0) {
+            expire(writeOrder, now);
+        }
+        if (expireAfterAccessNanos > 0) {
+            expire(window, now);
+            expire(probation, now);
+            expire(protectedDeque, now);
+        }
+    }
+
+    private void expire(NodeDeque<K, V> deque, long now) {
+        Node<K, V> node;
+        while ((node = deque.peekFirst()) != null && isExpired(node, now)) {
+            V value = node.value;
+            if (retire(node, value)) {
+                mapEventListener.onEliminateEntry(node.key, value);
+            } else if (node.queueType >= 0) {
+                // the entry is updated by a racing put, the update task moves it later
+                break;
+            }
+        }
+    }
+
+    /**
+     * Remove the node from the map and the policy. The node is kept if a put has replaced its value
+     * after the node is selected, so the racing put is not lost.
+     *
+     * @param node  the node
+     * @param value the value of the node when it is selected
+     * @return true, if the node is removed from the map by this method.
+     */
+    private boolean retire(Node<K, V> node, V value) {
+        boolean removed;
+        synchronized (node) {
+            if (node.alive && node.value != value) {
+                return false;
+            }
+            removed = data.remove(node.key, node);
+            if (removed) {
+                node.alive = false;
+            }
+        }
+        unlink(node);
+        return removed;
+    }
+
+    private void evictEntries() {
+        // the entries leaving the window become the candidates at the tail of the probation segment
+        Node<K, V> candidate = null;
+        while (windowSize > windowMaximum) {
+            Node<K, V> node = window.peekFirst();
+            window.remove(node);
+            windowSize--;
+            node.queueType = PROBATION;
+            probation.addLast(node);
+            if (candidate == null) {
+                candidate = node;
+            }
+        }
+
+        int attempts = data.size();
+        while (data.size() > maximumSize && attempts-- > 0) {
+            Node<K, V> victim = probation.peekFirst();
+            if (victim == null) {
+                victim = protectedDeque.peekFirst();
+            }
+            if (victim == null) {
+                victim = window.peekFirst();
+            }
+            if (victim == null) {
+                // the writes that have not been replayed
+                return;
+            }
+
+            Node<K, V> evicted = victim;
+            if (candidate != null && candidate != victim && candidate.queueType == PROBATION
+                    && victim.queueType == PROBATION) {
+                // the candidate is admitted only if it is more popular than the victim
+                if (sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                    evicted = candidate;
+                }
+            }
+            if (evicted == candidate) {
+                candidate = candidate.next;
+            }
+            evict(evicted);
+        }
+    }
+
+    private void evict(Node<K, V> node) {
+        V value = node.value;
+        if (!mapEventListener.onEliminateEntry(node.key, value)) {
+            // the listener retains the entry, it becomes the most recently used one
+            onAccess(node);
+            return;
+        }
+        if (retire(node, value)) {
+            evictionCount.increment();
+        } else if (node.queueType >= 0) {
+            // the entry is updated by a racing put, it becomes the most recently used one
+            onAccess(node);
+        }
+    }
+
+    /**
+     * Performs the pending maintenance operations, such as replaying the access records,
+     * evicting the entries exceeding the maximum size and removing the expired entries.
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            drainStatus.set(PROCESSING);
+            maintenance();
+        } finally {
+            drainStatus.compareAndSet(PROCESSING, IDLE);
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the entry's number, it may contain the expired entries that have not been removed.
+     *
+     * @return entry's number
+     */
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * Returns <tt>true</tt>, if the map doesn't contain any entry.
+     *
+     * @return <tt>true</tt> if this map contains no key-value mappings.
+     */
+    @Override
+    public boolean isEmpty() {
+        return data.isEmpty();
+    }
+
+    /**
+     * Returns <tt>true</tt>, if this map contains an unexpired mapping for the specified key.
+     * It doesn't record the access.
+     *
+     * @return <tt>true</tt>, if this map contains a mapping for the specified key.
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        Node<K, V> node = data.get(key);
+        return node != null && !isExpired(node, System.nanoTime());
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map maps one or more keys to the specified value.
+     *
+     * @return <tt>true</tt> if this map maps one or more keys to the specified value.
+     */
+    @Override
+    public boolean containsValue(Object value) {
+        long now = System.nanoTime();
+        for (Node<K, V> node : data.values()) {
+            if (Objects.equals(node.value, value) && !isExpired(node, now)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a value which the specified key is mapped. It doesn't take any lock.
+     * At the same time, this method will call the callback interface, the getting entry event will be triggered.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key or the entry has expired
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(Object key) {
+        return mapEventListener.onGetEntry((K) key, getIfPresent(key, true));
+    }
+
+    /**
+     * Returns the value which the specified key is mapped, the value is computed by the loader if it is absent.
+     * The concurrent loading requests of the same key are merged into one.
+     *
+     * @param key    the key whose associated value is to be returned
+     * @param loader the function computes the value, it is called in the current thread
+     * @return the value which the specified key is mapped, or {@code null} if the loader returns {@code null}
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> future = load(key, k -> {
+            try {
+                return CompletableFuture.completedFuture(loader.apply(k));
+            } catch (Throwable t) {
+                CompletableFuture<V> failed = new CompletableFuture<>();
+                failed.completeExceptionally(t);
+                return failed;
+            }
+        });
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the future of the value which the specified key is mapped. If the value is absent,
+     * it is computed by the loader in the executor, and the value is put into the map when it completes.
+     * The concurrent loading requests of the same key share the same future.
+     *
+     * @param key    the key whose associated value is to be returned
+     * @param loader the function computes the value
+     * @return the future of the value
+     */
+    public CompletableFuture<V> getAsync(K key, Function<? super K, ? extends V> loader) {
+        return load(key, k -> CompletableFuture.supplyAsync(() -> loader.apply(k), executor));
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<V> load(K key, Function<K, CompletableFuture<? extends V>> mapping) {
+        V value = getIfPresent(key, true);
+        if (value != null) {
+            return CompletableFuture.completedFuture(mapEventListener.onGetEntry(key, value));
+        }
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = loading.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture<? extends V> result;
+        try {
+            result = mapping.apply(key);
+        } catch (Throwable t) {
+            loading.remove(key, future);
+            future.completeExceptionally(t);
+            return future;
+        }
+        result.whenComplete((v, t) -> {
+            if (t == null && v != null) {
+                put(key, v);
+            }
+            loading.remove(key, future);
+            if (t == null) {
+                future.complete(v);
+            } else {
+                future.completeExceptionally(t instanceof CompletionException ? t.getCause() : t);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the key existed in the map, the entry will be replaced by specified entry.
+     * This method will call the putting entry event when the method is called.
+     *
+     * @param key   key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with <tt>key</tt>, or
+     * <tt>null</tt> if there was no mapping for <tt>key</tt>.
+     */
+    @Override
+    public V put(K key, V value) {
+        Objects.requireNonNull(value);
+        long now = System.nanoTime();
+        Node<K, V> node = new Node<>(key, value, now);
+        for (; ; ) {
+            Node<K, V> prior = data.putIfAbsent(key, node);
+            if (prior == null) {
+                afterWrite(() -> onAdd(node));
+                return mapEventListener.onPutEntry(key, value, null);
+            }
+
+            V previousValue;
+            synchronized (prior) {
+                if (!prior.alive) {
+                    // the entry is being removed, retry
+                    continue;
+                }
+                previousValue = isExpired(prior, now) ? null : prior.value;
+                prior.value = value;
+                prior.writeTime = now;
+                prior.accessTime = now;
+            }
+            afterWrite(() -> onUpdate(prior));
+            return mapEventListener.onPutEntry(key, value, previousValue);
+        }
+    }
+
+    /**
+     * Remove a entry from this map. The removing event will be called.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the previous value associated with <tt>key</tt>, or
+     * <tt>null</tt> if there was no mapping for <tt>key</tt>.
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public V remove(Object key) {
+        Node<K, V> node = data.remove(key);
+        V value = null;
+        if (node != null) {
+            synchronized (node) {
+                node.alive = false;
+                value = isExpired(node, System.nanoTime()) ? null : node.value;
+            }
+            afterWrite(() -> unlink(node));
+        }
+        return mapEventListener.onRemoveEntry((K) key, value);
+    }
+
+    /**
+     * Puts another map into this map.
+     *
+     * @param m mappings to be stored in this map
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * clear all map's entries, but it dosen't trigger the remove callback method
+     */
+    @Override
+    public void clear() {
+        evictionLock.lock();
+        try {
+            for (Node<K, V> node : data.values()) {
+                if (data.remove(node.key, node)) {
+                    synchronized (node) {
+                        node.alive = false;
+                    }
+                }
+            }
+            readBuffer.drainTo(node -> {
+            });
+            Runnable task;
+            while ((task = writeBuffer.poll()) != null) {
+                task.run();
+            }
+            window.clear();
+            probation.clear();
+            protectedDeque.clear();
+            writeOrder.clear();
+            windowSize = 0;
+            protectedSize = 0;
+            sketch.clear();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the all key in this map.
+     *
+     * @return a set view of the keys contained in this map
+     */
+    @Override
+    public Set<K> keySet() {
+        Set<K> set = new HashSet<>();
+        long now = System.nanoTime();
+        data.forEach((k, node) -> {
+            if (!isExpired(node, now)) {
+                set.add(k);
+            }
+        });
+        return set;
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this map.
+     *
+     * @return a collection view of the values contained in this map
+     */
+    @Override
+    public Collection<V> values() {
+        Collection<V> collection = new ArrayList<>();
+        long now = System.nanoTime();
+        data.forEach((k, node) -> {
+            if (!isExpired(node, now)) {
+                collection.add(node.value);
+            }
+        });
+        return collection;
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        Set<Map.Entry<K, V>> set = new HashSet<>();
+        long now = System.nanoTime();
+        data.forEach((k, node) -> {
+            if (!isExpired(node, now)) {
+                set.add(new AbstractMap.SimpleImmutableEntry<>(k, node.value));
+            }
+        });
+        return set;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Get the number of the get operations that find the value.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Get the number of the get operations that don't find the value.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Get the ratio of the hit count to the request count.
+     *
+     * @return the hit rate
+     */
+    public double getHitRate() {
+        long hit = getHitCount();
+        long request = hit + getMissCount();
+        return request == 0 ? 1.0 : (double) hit / request;
+    }
+
+    /**
+     * Get the number of the entries that are evicted because of the maximum size.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "TinyLFUCache{size=" + data.size() + ", maximumSize=" + maximumSize
+                + ", hitRate=" + getHitRate() + ", evictionCount=" + getEvictionCount() + "}";
+    }
+}
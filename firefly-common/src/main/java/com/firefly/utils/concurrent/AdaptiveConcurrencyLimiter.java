@@ -0,0 +1,165 @@
+package com.firefly.utils.concurrent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An adaptive concurrency limiter based on the TCP Vegas congestion control algorithm.
+ * <p>
+ * It keeps the minimum observed latency as the no-load latency, and estimates the queue size by
+ * limit * (1 - noLoadLatency / latency). If the estimated queue is small, the limit increases, and if
+ * the estimated queue is large or a request is dropped, the limit decreases. The no-load latency is
+ * re-probed periodically, so the limiter can follow the latency changes of the downstream.
+ *
+ * @author Pengtao Qiu
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final int probeMultiplier;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+    private double estimatedLimit;
+    private long noLoadLatency;
+    private long sampleCount;
+
+    public AdaptiveConcurrencyLimiter() {
+        this(20, 1, 1000);
+    }
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, 1.0, 30);
+    }
+
+    /**
+     * Create an adaptive concurrency limiter.
+     *
+     * @param initialLimit    The initial concurrency limit.
+     * @param minLimit        The min concurrency limit.
+     * @param maxLimit        The max concurrency limit.
+     * @param smoothing       The smoothing factor of the limit changes, it is in (0, 1].
+     * @param probeMultiplier The no-load latency is re-probed after probeMultiplier * limit samples.
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      double smoothing, int probeMultiplier) {
+        if (minLimit <= 0 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("the limit range [" + minLimit + ", " + maxLimit + "] is illegal");
+        }
+        if (smoothing <= 0 || smoothing > 1) {
+            throw new IllegalArgumentException("the smoothing must be in (0, 1]");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.probeMultiplier = probeMultiplier;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.estimatedLimit = limit;
+    }
+
+    /**
+     * Try to acquire a permit.
+     *
+     * @return If return false, the in-flight requests reach the limit and the request should be rejected.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Release a permit and record the request latency.
+     *
+     * @param latency The request latency. The time unit is nanosecond.
+     * @param dropped If it is true, the request fails because of overload, such as timeout.
+     */
+    public void release(long latency, boolean dropped) {
+        int current = inFlight.getAndDecrement();
+        update(latency, current, dropped);
+    }
+
+    /**
+     * Release a permit without recording the latency. It is used when the request is aborted before it completes.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    private synchronized void update(long latency, int currentInFlight, boolean dropped) {
+        if (latency <= 0) {
+            return;
+        }
+
+        sampleCount++;
+        if (probeMultiplier > 0 && sampleCount >= (long) probeMultiplier * limit) {
+            sampleCount = 0;
+            noLoadLatency = latency;
+            return;
+        }
+
+        if (noLoadLatency == 0 || latency < noLoadLatency) {
+            noLoadLatency = latency;
+            return;
+        }
+
+        double log10Limit = Math.log10(Math.max(estimatedLimit, 1));
+        double newLimit;
+        if (dropped) {
+            newLimit = estimatedLimit - log10Limit;
+        } else if (currentInFlight * 2 < estimatedLimit) {
+            // the application does not use up the limit, so the latency does not tell the capacity
+            return;
+        } else {
+            int queueSize = (int) Math.ceil(estimatedLimit * (1 - (double) noLoadLatency / latency));
+            double alpha = 3 * log10Limit;
+            double beta = 6 * log10Limit;
+            if (queueSize <= log10Limit) {
+                newLimit = estimatedLimit + beta;
+            } else if (queueSize < alpha) {
+                newLimit = estimatedLimit + log10Limit;
+            } else if (queueSize > beta) {
+                newLimit = estimatedLimit - log10Limit;
+            } else {
+                return;
+            }
+        }
+
+        newLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        estimatedLimit = (1 - smoothing) * estimatedLimit + smoothing * newLimit;
+        limit = (int) estimatedLimit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveConcurrencyLimiter{" +
+                "limit=" + limit +
+                ", inFlight=" + inFlight.get() +
+                ", minLimit=" + minLimit +
+                ", maxLimit=" + maxLimit +
+                '}';
+    }
+}
@@ -1,6 +1,7 @@
 package com.firefly.utils.concurrent;
 
 import com.firefly.utils.lang.AbstractLifeCycle;
+import com.firefly.utils.time.HierarchicalTimingWheel;
 
 import java.util.concurrent.*;
 
@@ -68,4 +69,20 @@ abstract public class Schedulers {
     public static Scheduler computation() {
         return createScheduler(coreSize);
     }
+
+    /**
+     * Create a hierarchical timing wheel. It is cheaper than the ScheduledThreadPoolExecutor
+     * when a lot of timers are scheduled and cancelled, such as the idle timeouts.
+     *
+     * @param tick The tick duration, it is the accuracy of the timers.
+     * @param unit The tick time unit.
+     * @return The timing wheel scheduler, the expired tasks are executed in the common fork join pool.
+     */
+    public static Scheduler createTimingWheel(long tick, TimeUnit unit) {
+        return new HierarchicalTimingWheel(tick, unit, 512, 4, ForkJoinPool.commonPool());
+    }
+
+    public static Scheduler createTimingWheel() {
+        return new HierarchicalTimingWheel();
+    }
 }
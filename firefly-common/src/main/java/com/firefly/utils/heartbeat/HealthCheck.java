@@ -39,7 +39,7 @@ public class HealthCheck extends AbstractLifeCycle {
      * @param unit         The time unit of the initialDelay and delay parameters
      */
     public HealthCheck(long initialDelay, long delay, TimeUnit unit) {
-        this(Schedulers.createScheduler(), initialDelay, delay, unit);
+        this(Schedulers.createTimingWheel(100, TimeUnit.MILLISECONDS), initialDelay, delay, unit);
     }
 
     /**
@@ -0,0 +1,405 @@
+package com.firefly.utils.time;
+
+import com.firefly.utils.concurrent.Scheduler;
+import com.firefly.utils.lang.AbstractLifeCycle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A multi-level hierarchical timing wheel. The level 0 wheel has wheelSize slots of one tick,
+ * and each slot of the level n wheel covers a whole turn of the level n - 1 wheel. When the lower wheel
+ * finishes a turn, the timers of the next higher slot are cascaded into the lower wheels.
+ * <p>
+ * The worker thread parks until the System.nanoTime() deadline of the next tick, and it processes all
+ * the ticks that have elapsed, so the clock does not drift by the sleep inaccuracy or the execution time.
+ * When the wheel has no timer, the worker thread parks until a timer is added, and the wheel skips
+ * the idle ticks, so an idle wheel does not wake up the worker thread on every tick.
+ * The timers are intrusive doubly linked nodes of the slots, cancelling a timer unlinks the node in O(1).
+ * The expired tasks are dispatched to the executor, the worker thread only moves the timers.
+ *
+ * @author Pengtao Qiu
+ */
+public class HierarchicalTimingWheel extends AbstractLifeCycle implements Scheduler {
+
+    private static final int PENDING = 0;
+    private static final int EXPIRED = 1;
+    private static final int CANCELLED = 2;
+
+    private final long tickNanos;
+    private final int wheelBits;
+    private final int mask;
+    private final int levels;
+    private final long maxSpan;
+    private final Executor executor;
+    private final String name;
+
+    private final Object lock = new Object();
+    private Slot[][] wheels;
+    private long currentTick;
+    private long startNanos;
+    private int size;
+    private boolean idle;
+    private volatile boolean running;
+    private Thread worker;
+
+    /**
+     * Create a timing wheel with 1 millisecond tick, 512 slots per level and 4 levels.
+     * The expired tasks are executed in the common fork join pool.
+     */
+    public HierarchicalTimingWheel() {
+        this(1, TimeUnit.MILLISECONDS, 512, 4, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a timing wheel.
+     *
+     * @param tick      The tick duration, it is the accuracy of the timers.
+     * @param unit      The tick time unit.
+     * @param wheelSize The slot number of each level, it is rounded up to the power of 2.
+     * @param levels    The level number. The wheels cover tick * wheelSize ^ levels,
+     *                  the longer timers are cascaded again when they reach the top level.
+     * @param executor  The executor runs the expired tasks.
+     */
+    public HierarchicalTimingWheel(long tick, TimeUnit unit, int wheelSize, int levels, Executor executor) {
+        this(tick, unit, wheelSize, levels, executor, "firefly timing wheel");
+    }
+
+    /**
+     * Create a timing wheel.
+     *
+     * @param tick      The tick duration, it is the accuracy of the timers.
+     * @param unit      The tick time unit.
+     * @param wheelSize The slot number of each level, it is rounded up to the power of 2.
+     * @param levels    The level number. The wheels cover tick * wheelSize ^ levels,
+     *                  the longer timers are cascaded again when they reach the top level.
+     * @param executor  The executor runs the expired tasks.
+     * @param name      The worker thread name.
+     */
+    public HierarchicalTimingWheel(long tick, TimeUnit unit, int wheelSize, int levels, Executor executor, String name) {
+        if (tick <= 0) {
+            throw new IllegalArgumentException("the tick must be positive");
+        }
+        if (wheelSize < 2 || wheelSize > (1 << 16)) {
+            throw new IllegalArgumentException("the wheel size must be in [2, 65536]");
+        }
+        if (levels < 1 || (32 - Integer.numberOfLeadingZeros(wheelSize - 1)) * levels > 62) {
+            throw new IllegalArgumentException("the level number is illegal: " + levels);
+        }
+        this.tickNanos = unit.toNanos(tick);
+        this.wheelBits = 32 - Integer.numberOfLeadingZeros(wheelSize - 1);
+        this.mask = (1 << wheelBits) - 1;
+        this.levels = levels;
+        this.maxSpan = 1L << (wheelBits * levels);
+        this.executor = executor;
+        this.name = name;
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    public int getWheelSize() {
+        return mask + 1;
+    }
+
+    public int getLevels() {
+        return levels;
+    }
+
+    @Override
+    public Future schedule(Runnable task, long delay, TimeUnit unit) {
+        return add(new Timer(task, 0), unit.toNanos(delay));
+    }
+
+    @Override
+    public Future scheduleWithFixedDelay(Runnable task, long initialDelay, long delay, TimeUnit unit) {
+        if (delay <= 0) {
+            throw new IllegalArgumentException("the delay must be positive");
+        }
+        return add(new Timer(task, -unit.toNanos(delay)), unit.toNanos(initialDelay));
+    }
+
+    @Override
+    public Future scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("the period must be positive");
+        }
+        return add(new Timer(task, unit.toNanos(period)), unit.toNanos(initialDelay));
+    }
+
+    private Timer add(Timer timer, long delayNanos) {
+        start();
+        synchronized (lock) {
+            timer.deadlineNanos = System.nanoTime() - startNanos + Math.max(0, delayNanos);
+            schedule(timer);
+        }
+        return timer;
+    }
+
+    /**
+     * Put the timer into the wheel and wake up the idle worker thread, the caller holds the lock.
+     *
+     * @param timer The timer.
+     */
+    private void schedule(Timer timer) {
+        if (size == 0) {
+            // the wheel is empty, it skips the idle ticks
+            currentTick = Math.max(currentTick, (System.nanoTime() - startNanos) / tickNanos);
+        }
+        if (!insert(timer)) {
+            timer.state = EXPIRED;
+            dispatch(timer);
+        } else if (idle) {
+            idle = false;
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * Put the timer into a slot, the caller holds the lock.
+     *
+     * @param timer The timer.
+     * @return If false, the timer has expired.
+     */
+    private boolean insert(Timer timer) {
+        // the timer expires at the first tick that is not earlier than the deadline
+        long deadline = (timer.deadlineNanos + tickNanos - 1) / tickNanos;
+        timer.deadline = deadline;
+        long delay = deadline - currentTick;
+        if (delay <= 0) {
+            return false;
+        }
+        if (delay >= maxSpan) {
+            // the top level can not hold the timer, it is put into the farthest slot and cascaded again
+            delay = maxSpan - 1;
+        }
+        long tick = currentTick + delay;
+        for (int level = 0; level < levels; level++) {
+            if (delay < (1L << (wheelBits * (level + 1)))) {
+                wheels[level][(int) (tick >>> (wheelBits * level)) & mask].add(timer);
+                return true;
+            }
+        }
+        throw new IllegalStateException("the timer delay is out of range");
+    }
+
+    private void advance(long tick, List<Timer> expired) {
+        currentTick = tick;
+        // cascade the higher levels from the top, the timers fall into the lower levels
+        for (int level = levels - 1; level > 0; level--) {
+            long levelMask = (1L << (wheelBits * level)) - 1;
+            if ((tick & levelMask) == 0) {
+                Slot slot = wheels[level][(int) (tick >>> (wheelBits * level)) & mask];
+                reinsert(slot, expired);
+            }
+        }
+        reinsert(wheels[0][(int) tick & mask], expired);
+    }
+
+    private void reinsert(Slot slot, List<Timer> expired) {
+        Timer timer = slot.poll();
+        while (timer != null) {
+            if (!insert(timer)) {
+                timer.state = EXPIRED;
+                expired.add(timer);
+            }
+            timer = slot.poll();
+        }
+    }
+
+    private void dispatch(Timer timer) {
+        try {
+            executor.execute(timer);
+        } catch (RejectedExecutionException e) {
+            timer.state = CANCELLED;
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            List<Timer> expired = new ArrayList<>();
+            while (running) {
+                long now = System.nanoTime();
+                long deadline;
+                boolean park;
+                synchronized (lock) {
+                    long elapsedTick = (now - startNanos) / tickNanos;
+                    while (currentTick < elapsedTick && size > 0) {
+                        advance(currentTick + 1, expired);
+                    }
+                    if (size == 0) {
+                        currentTick = Math.max(currentTick, elapsedTick);
+                    }
+                    idle = park = size == 0;
+                    deadline = startNanos + (currentTick + 1) * tickNanos;
+                }
+                for (Timer timer : expired) {
+                    dispatch(timer);
+                }
+                expired.clear();
+
+                if (park) {
+                    LockSupport.park(this);
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining > 0) {
+                        LockSupport.parkNanos(this, remaining);
+                    }
+                }
+            }
+        }
+    }
+
+    private final class Slot {
+        private final Timer head = new Timer(null, 0);
+
+        Slot() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        void add(Timer timer) {
+            Timer tail = head.prev;
+            timer.prev = tail;
+            timer.next = head;
+            tail.next = timer;
+            head.prev = timer;
+            timer.slot = this;
+            size++;
+        }
+
+        Timer poll() {
+            Timer timer = head.next;
+            if (timer == head) {
+                return null;
+            }
+            timer.unlink();
+            return timer;
+        }
+    }
+
+    private final class Timer implements Future, Runnable {
+        private final Runnable task;
+        private final long period; // 0: one shot, > 0: fixed rate, < 0: fixed delay
+
+        private long deadlineNanos;
+        private long deadline;
+        private int state = PENDING;
+        private Timer prev;
+        private Timer next;
+        private Slot slot;
+
+        Timer(Runnable task, long period) {
+            this.task = task;
+            this.period = period;
+        }
+
+        void unlink() {
+            size--;
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+            slot = null;
+        }
+
+        @Override
+        public boolean cancel() {
+            synchronized (lock) {
+                switch (state) {
+                    case PENDING:
+                        if (slot != null) {
+                            unlink();
+                        }
+                        state = CANCELLED;
+                        return true;
+                    case EXPIRED:
+                        if (period != 0) {
+                            // the periodic task is running, it will not be rescheduled
+                            state = CANCELLED;
+                            return true;
+                        }
+                        return false;
+                    default:
+                        return false;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            if (period == 0) {
+                task.run();
+                return;
+            }
+
+            try {
+                task.run();
+            } catch (Throwable t) {
+                // the periodic task stops when it throws an exception, it is the same as the ScheduledExecutorService
+                synchronized (lock) {
+                    state = CANCELLED;
+                }
+                throw t;
+            }
+
+            synchronized (lock) {
+                if (state != EXPIRED || !running) {
+                    return;
+                }
+                state = PENDING;
+                if (period > 0) {
+                    deadlineNanos += period;
+                } else {
+                    deadlineNanos = System.nanoTime() - startNanos - period;
+                }
+                schedule(this);
+            }
+        }
+    }
+
+    @Override
+    protected void init() {
+        synchronized (lock) {
+            wheels = new Slot[levels][mask + 1];
+            for (Slot[] wheel : wheels) {
+                for (int i = 0; i < wheel.length; i++) {
+                    wheel[i] = new Slot();
+                }
+            }
+            currentTick = 0;
+            size = 0;
+            idle = false;
+            startNanos = System.nanoTime();
+        }
+        running = true;
+        worker = new Thread(new Worker(), name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    protected void destroy() {
+        running = false;
+        LockSupport.unpark(worker);
+        synchronized (lock) {
+            for (Slot[] wheel : wheels) {
+                for (Slot slot : wheel) {
+                    Timer timer = slot.poll();
+                    while (timer != null) {
+                        timer.state = CANCELLED;
+                        timer = slot.poll();
+                    }
+                }
+            }
+        }
+    }
+}
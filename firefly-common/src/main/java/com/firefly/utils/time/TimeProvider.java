@@ -12,7 +12,8 @@ public class TimeProvider extends AbstractLifeCycle {
     }
 
     public long currentTimeMillis() {
-        return current;
+        // the stopped provider does not update the time, it falls back to the system clock
+        return start ? current : System.currentTimeMillis();
     }
 
     @Override
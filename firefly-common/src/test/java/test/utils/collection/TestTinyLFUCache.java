@@ -0,0 +1,225 @@
+package test.utils.collection;
+
+import com.firefly.utils.collection.ConcurrentLinkedHashMap.MapEventListener;
+import com.firefly.utils.collection.TinyLFUCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestTinyLFUCache {
+
+    @Test
+    public void testMaximumSize() {
+        TinyLFUCache<String, String> cache = new TinyLFUCache<>(100);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("" + i, "v" + i);
+        }
+        cache.cleanUp();
+        Assert.assertThat(cache.size(), is(100));
+        Assert.assertThat(cache.getEvictionCount(), is(900L));
+    }
+
+    @Test
+    public void testFrequentKeysSurviveScan() {
+        TinyLFUCache<String, String> cache = new TinyLFUCache<>(100);
+        for (int i = 0; i < 50; i++) {
+            cache.put("hot" + i, "v" + i);
+        }
+        for (int j = 0; j < 5; j++) {
+            for (int i = 0; i < 50; i++) {
+                Assert.assertThat(cache.get("hot" + i), is("v" + i));
+            }
+            cache.cleanUp();
+        }
+
+        // the keys of the scan are used only once, they can not replace the hot keys
+        for (int i = 0; i < 10000; i++) {
+            cache.put("scan" + i, "v" + i);
+        }
+        cache.cleanUp();
+
+        int hit = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get("hot" + i) != null) {
+                hit++;
+            }
+        }
+        Assert.assertThat(hit, greaterThanOrEqualTo(45));
+        Assert.assertThat(cache.size(), lessThanOrEqualTo(100));
+    }
+
+    @Test
+    public void testExpiration() throws InterruptedException {
+        TinyLFUCache<String, String> writeCache = new TinyLFUCache<>(100, 100, 0, TimeUnit.MILLISECONDS,
+                new Listener(), ForkJoinPool.commonPool());
+        writeCache.put("a", "1");
+        Thread.sleep(60);
+        Assert.assertThat(writeCache.get("a"), is("1"));
+        Thread.sleep(60);
+        Assert.assertThat(writeCache.get("a"), nullValue());
+        writeCache.cleanUp();
+        Assert.assertThat(writeCache.size(), is(0));
+
+        Listener listener = new Listener();
+        TinyLFUCache<String, String> accessCache = new TinyLFUCache<>(100, 0, 100, TimeUnit.MILLISECONDS,
+                listener, ForkJoinPool.commonPool());
+        accessCache.put("a", "1");
+        accessCache.put("b", "2");
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(50);
+            Assert.assertThat(accessCache.get("a"), is("1"));
+        }
+        Assert.assertThat(accessCache.get("b"), nullValue());
+        accessCache.cleanUp();
+        Assert.assertThat(accessCache.keySet(), contains("a"));
+        Assert.assertThat(listener.eliminated, contains("b"));
+    }
+
+    @Test
+    public void testListener() {
+        Listener listener = new Listener();
+        listener.retained = "keep";
+        TinyLFUCache<String, String> cache = new TinyLFUCache<>(10, listener);
+        Assert.assertThat(cache.put("keep", "v0"), nullValue());
+        Assert.assertThat(cache.put("keep", "v1"), is("v0"));
+        for (int i = 0; i < 100; i++) {
+            cache.put("" + i, "v" + i);
+        }
+        cache.cleanUp();
+        Assert.assertThat(cache.get("keep"), is("v1"));
+        Assert.assertThat(listener.eliminated.size(), is(91));
+        Assert.assertThat(listener.eliminated.contains("keep"), is(false));
+        Assert.assertThat(cache.remove("keep"), is("v1"));
+        Assert.assertThat(cache.remove("keep"), nullValue());
+    }
+
+    @Test
+    public void testAsyncLoading() throws Exception {
+        TinyLFUCache<String, String> cache = new TinyLFUCache<>(100);
+        AtomicInteger loaderCount = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(1);
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(cache.getAsync("a", k -> {
+                loaderCount.incrementAndGet();
+                try {
+                    latch.await();
+                } catch (InterruptedException ignored) {
+                }
+                return k + "-value";
+            }));
+        }
+        latch.countDown();
+        for (CompletableFuture<String> future : futures) {
+            Assert.assertThat(future.get(5, TimeUnit.SECONDS), is("a-value"));
+        }
+        Assert.assertThat(loaderCount.get(), is(1));
+        Assert.assertThat(cache.get("a"), is("a-value"));
+        Assert.assertThat(cache.get("b", k -> k + "-value"), is("b-value"));
+        Assert.assertThat(cache.get("b", k -> "other"), is("b-value"));
+    }
+
+    @Test
+    public void testLoadingFailure() throws Exception {
+        TinyLFUCache<String, String> cache = new TinyLFUCache<>(100, 0, 0, TimeUnit.MILLISECONDS,
+                new Listener(), r -> {
+            throw new RejectedExecutionException();
+        });
+        for (int i = 0; i < 2; i++) {
+            CompletableFuture<String> future = cache.getAsync("a", k -> k + "-value");
+            Assert.assertThat(future.isCompletedExceptionally(), is(true));
+        }
+        Assert.assertThat(cache.get("a", k -> k + "-value"), is("a-value"));
+    }
+
+    @Test
+    public void testPutRacingWithEviction() {
+        Listener listener = new Listener() {
+            @Override
+            public boolean onEliminateEntry(String key, String value) {
+                if (key.equals("a") && value.equals("v0")) {
+                    // the value is replaced by another thread after the entry is selected as the victim
+                    CompletableFuture.runAsync(() -> cache.put("a", "v1")).join();
+                }
+                return super.onEliminateEntry(key, value);
+            }
+        };
+        listener.cache = new TinyLFUCache<>(10, listener);
+        listener.cache.put("a", "v0");
+        for (int i = 0; i < 100; i++) {
+            listener.cache.put("" + i, "v" + i);
+        }
+        listener.cache.cleanUp();
+        Assert.assertThat(listener.eliminated.contains("a"), is(true));
+        Assert.assertThat(listener.cache.get("a"), is("v1"));
+        Assert.assertThat(listener.cache.size(), lessThanOrEqualTo(10));
+    }
+
+    @Test
+    public void testConcurrentAccess() throws InterruptedException {
+        TinyLFUCache<Integer, Integer> cache = new TinyLFUCache<>(500);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 20000; i++) {
+                    int key = (i + seed) % 10 == 0 ? random.nextInt(10000) : random.nextInt(200);
+                    Integer value = cache.get(key);
+                    if (value == null) {
+                        cache.put(key, key);
+                    } else {
+                        Assert.assertThat(value, is(key));
+                    }
+                }
+                latch.countDown();
+            });
+        }
+        Assert.assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+        executor.shutdown();
+        cache.cleanUp();
+        Assert.assertThat(cache.size(), lessThanOrEqualTo(500));
+        Assert.assertThat(cache.getHitRate(), greaterThan(0.5));
+    }
+
+    private static class Listener implements MapEventListener<String, String> {
+        final List<String> eliminated = new CopyOnWriteArrayList<>();
+        String retained;
+        TinyLFUCache<String, String> cache;
+
+        @Override
+        public boolean onEliminateEntry(String key, String value) {
+            if (key.equals(retained)) {
+                return false;
+            }
+            eliminated.add(key);
+            return true;
+        }
+
+        @Override
+        public String onGetEntry(String key, String value) {
+            return value;
+        }
+
+        @Override
+        public String onPutEntry(String key, String value, String previousValue) {
+            return previousValue;
+        }
+
+        @Override
+        public String onRemoveEntry(String key, String value) {
+            return value;
+        }
+    }
+}
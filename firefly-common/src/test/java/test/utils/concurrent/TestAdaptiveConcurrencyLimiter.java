@@ -0,0 +1,68 @@
+package test.utils.concurrent;
+
+import com.firefly.utils.concurrent.AdaptiveConcurrencyLimiter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestAdaptiveConcurrencyLimiter {
+
+    @Test
+    public void testAcquire() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertThat(limiter.tryAcquire(), is(true));
+        }
+        Assert.assertThat(limiter.tryAcquire(), is(false));
+        Assert.assertThat(limiter.getInFlight(), is(10));
+
+        limiter.release();
+        Assert.assertThat(limiter.getInFlight(), is(9));
+        Assert.assertThat(limiter.tryAcquire(), is(true));
+    }
+
+    @Test
+    public void testIncreaseLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 1.0, 0);
+        for (int i = 0; i < 20; i++) {
+            fill(limiter);
+            limiter.release(1000_000L, false);
+        }
+        Assert.assertThat(limiter.getLimit(), greaterThan(10));
+        Assert.assertThat(limiter.getLimit(), lessThanOrEqualTo(100));
+    }
+
+    @Test
+    public void testDecreaseLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(50, 1, 100, 1.0, 0);
+        fill(limiter);
+        limiter.release(1000_000L, false);
+        int limit = limiter.getLimit();
+        for (int i = 0; i < 20; i++) {
+            fill(limiter);
+            limiter.release(100 * 1000_000L, false);
+        }
+        Assert.assertThat(limiter.getLimit(), lessThan(limit));
+        Assert.assertThat(limiter.getLimit(), greaterThanOrEqualTo(1));
+    }
+
+    @Test
+    public void testDrop() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(50, 10, 100, 1.0, 0);
+        fill(limiter);
+        limiter.release(1000_000L, false);
+        for (int i = 0; i < 100; i++) {
+            fill(limiter);
+            limiter.release(1000_000L, true);
+        }
+        Assert.assertThat(limiter.getLimit(), is(10));
+    }
+
+    private void fill(AdaptiveConcurrencyLimiter limiter) {
+        while (limiter.tryAcquire()) ;
+    }
+}
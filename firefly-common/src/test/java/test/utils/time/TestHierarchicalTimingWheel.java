@@ -0,0 +1,141 @@
+package test.utils.time;
+
+import com.firefly.utils.concurrent.Scheduler;
+import com.firefly.utils.time.HierarchicalTimingWheel;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestHierarchicalTimingWheel {
+
+    private HierarchicalTimingWheel wheel;
+
+    @After
+    public void after() {
+        if (wheel != null) {
+            wheel.stop();
+        }
+    }
+
+    @Test
+    public void testSchedule() throws InterruptedException {
+        wheel = new HierarchicalTimingWheel(1, TimeUnit.MILLISECONDS, 8, 3, Runnable::run);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(4);
+        long[] elapsed = new long[1];
+        long start = System.nanoTime();
+
+        // the delays cover the level 0, the level 1, the level 2 and the longer than the wheels
+        wheel.schedule(() -> {
+            order.add(3);
+            elapsed[0] = System.nanoTime() - start;
+            latch.countDown();
+        }, 600, TimeUnit.MILLISECONDS);
+        wheel.schedule(() -> {
+            order.add(2);
+            latch.countDown();
+        }, 300, TimeUnit.MILLISECONDS);
+        wheel.schedule(() -> {
+            order.add(1);
+            latch.countDown();
+        }, 20, TimeUnit.MILLISECONDS);
+        wheel.schedule(() -> {
+            order.add(0);
+            latch.countDown();
+        }, 5, TimeUnit.MILLISECONDS);
+
+        assertThat(latch.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(order.toString(), is("[0, 1, 2, 3]"));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(elapsed[0]), greaterThanOrEqualTo(600L));
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        wheel = new HierarchicalTimingWheel();
+        AtomicInteger count = new AtomicInteger();
+        List<Scheduler.Future> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            futures.add(wheel.schedule(count::incrementAndGet, 50 + i % 100, TimeUnit.MILLISECONDS));
+        }
+        for (int i = 0; i < futures.size(); i += 2) {
+            assertThat(futures.get(i).cancel(), is(true));
+            assertThat(futures.get(i).cancel(), is(false));
+        }
+
+        CountDownLatch latch = new CountDownLatch(1);
+        wheel.schedule(latch::countDown, 300, TimeUnit.MILLISECONDS);
+        assertThat(latch.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(count.get(), is(500));
+        assertThat(futures.get(1).cancel(), is(false));
+    }
+
+    @Test
+    public void testFixedRate() throws InterruptedException {
+        wheel = new HierarchicalTimingWheel(1, TimeUnit.MILLISECONDS, 16, 2, Runnable::run);
+        CountDownLatch latch = new CountDownLatch(10);
+        AtomicInteger count = new AtomicInteger();
+        Scheduler.Future future = wheel.scheduleAtFixedRate(() -> {
+            count.incrementAndGet();
+            latch.countDown();
+        }, 0, 10, TimeUnit.MILLISECONDS);
+        assertThat(latch.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(future.cancel(), is(true));
+
+        int c = count.get();
+        Thread.sleep(50);
+        assertThat(count.get(), is(c));
+    }
+
+    @Test
+    public void testIdle() throws InterruptedException {
+        wheel = new HierarchicalTimingWheel(1, TimeUnit.MILLISECONDS, 16, 2, Runnable::run, "idle timing wheel");
+        CountDownLatch latch = new CountDownLatch(1);
+        wheel.schedule(latch::countDown, 5, TimeUnit.MILLISECONDS);
+        assertThat(latch.await(5, TimeUnit.SECONDS), is(true));
+
+        // the worker thread parks without the timeout when the wheel is empty
+        Thread worker = Thread.getAllStackTraces().keySet().stream()
+                              .filter(t -> t.getName().equals("idle timing wheel"))
+                              .findFirst().orElseThrow(IllegalStateException::new);
+        long start = System.nanoTime();
+        while (worker.getState() != Thread.State.WAITING && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5)) {
+            Thread.sleep(10);
+        }
+        assertThat(worker.getState(), is(Thread.State.WAITING));
+
+        // the wheel skips the idle ticks and the new timer does not expire early
+        Thread.sleep(300);
+        CountDownLatch next = new CountDownLatch(1);
+        long[] elapsed = new long[1];
+        long scheduled = System.nanoTime();
+        wheel.schedule(() -> {
+            elapsed[0] = System.nanoTime() - scheduled;
+            next.countDown();
+        }, 50, TimeUnit.MILLISECONDS);
+        assertThat(next.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(elapsed[0]), greaterThanOrEqualTo(49L));
+    }
+
+    @Test
+    public void testFixedDelay() throws InterruptedException {
+        wheel = new HierarchicalTimingWheel(1, TimeUnit.MILLISECONDS, 16, 2, Runnable::run);
+        CountDownLatch latch = new CountDownLatch(3);
+        long start = System.nanoTime();
+        Scheduler.Future future = wheel.scheduleWithFixedDelay(latch::countDown, 10, 20, TimeUnit.MILLISECONDS);
+        assertThat(latch.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), greaterThanOrEqualTo(50L));
+        assertThat(future.cancel(), is(true));
+    }
+}
@@ -5,7 +5,7 @@ import com.firefly.db.jdbc.helper.JDBCHelper;
 import com.firefly.db.jdbc.helper.namedparam.ParsedSql;
 import com.firefly.db.jdbc.helper.namedparam.PreparedSqlAndValues;
 import com.firefly.utils.BeanUtils;
-import com.firefly.utils.collection.ConcurrentLinkedHashMap;
+import com.firefly.utils.collection.TinyLFUCache;
 import com.firefly.utils.concurrent.Promise.Completable;
 import com.firefly.utils.function.Func1;
 import com.firefly.utils.lang.bean.PropertyAccess;
@@ -28,7 +28,7 @@ public class JDBCConnection implements SQLConnection {
 
     private static Logger log = LoggerFactory.getLogger("firefly-system");
 
-    protected static final Map<String, ParsedSql> namedParamCache = new ConcurrentLinkedHashMap<>(true, 256);
+    protected static final Map<String, ParsedSql> namedParamCache = new TinyLFUCache<>(256);
 
     private final JDBCHelper jdbcHelper;
     private final Connection connection;
@@ -1,5 +1,6 @@
 package com.firefly.net;
 
+import com.firefly.net.tcp.TcpPerformanceParameter;
 import com.firefly.utils.ServiceUtils;
 
 public class Config {
@@ -20,6 +21,20 @@ public class Config {
     private Handler handler;
 
     private boolean monitorEnable = true;
+
+    private boolean tcpNoDelay;
+    private boolean flushConsolidationEnable;
+    private boolean affinityEnable;
+    private int affinityPoolSize = defaultPoolSize;
+
+    // socket options
+    private boolean keepAlive = true;
+    private boolean reuseAddress = true;
+    private int receiveBufferSize = -1;
+    private int sendBufferSize = -1;
+    private int soLinger = -1;
+    private int backlog = TcpPerformanceParameter.BACKLOG;
+    private int acceptorNumber = 1;
     private MetricReporterFactory metricReporterFactory = ServiceUtils.loadService(MetricReporterFactory.class, new DefaultMetricReporterFactory());
 
     /**
@@ -187,11 +202,241 @@ public class Config {
         this.monitorEnable = monitorEnable;
     }
 
+    /**
+     * If the tcpNoDelay is true, the socket disables the Nagle's algorithm, the small segments are sent immediately.
+     * Enable it together with the flush consolidation to get the low latency without the small writes.
+     *
+     * @return tcpNoDelay The default value is false.
+     */
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    /**
+     * If the tcpNoDelay is true, the socket disables the Nagle's algorithm, the small segments are sent immediately.
+     * Enable it together with the flush consolidation to get the low latency without the small writes.
+     *
+     * @param tcpNoDelay tcpNoDelay. The default value is false.
+     */
+    public void setTcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+    }
+
+    /**
+     * If the flush consolidation is enabled, the data that are written while the session decodes the received data
+     * are not written immediately, they are merged into one gathering write when the decoding completes.
+     * The writes issued by the other threads are written immediately.
+     *
+     * @return flushConsolidationEnable The default value is false.
+     */
+    public boolean isFlushConsolidationEnable() {
+        return flushConsolidationEnable;
+    }
+
+    /**
+     * If the flush consolidation is enabled, the data that are written while the session decodes the received data
+     * are not written immediately, they are merged into one gathering write when the decoding completes.
+     * The writes issued by the other threads are written immediately.
+     *
+     * @param flushConsolidationEnable flushConsolidationEnable. The default value is false.
+     */
+    public void setFlushConsolidationEnable(boolean flushConsolidationEnable) {
+        this.flushConsolidationEnable = flushConsolidationEnable;
+    }
+
+    /**
+     * If the affinity is enabled, the channels run in the single-thread channel groups instead of the shared I/O
+     * thread pool, so the socket operations, the decoding, the event callbacks and the output flushing of a session
+     * run in one thread without the handoff. The server binds every acceptor in one of these groups, and the accepted
+     * sessions inherit the group of their acceptor. Set the acceptor number to the affinity pool size to use all groups.
+     * The client distributes the connections to the groups by the session id. The blocking handler blocks all sessions
+     * of the same thread, so it should not be used in this mode.
+     *
+     * @return If return true, the sessions are pinned to the affinity threads. The default value is false.
+     */
+    public boolean isAffinityEnable() {
+        return affinityEnable;
+    }
+
+    /**
+     * If the affinity is enabled, the channels run in the single-thread channel groups instead of the shared I/O
+     * thread pool, see {@link #isAffinityEnable()}.
+     *
+     * @param affinityEnable If it is true, the sessions are pinned to the affinity threads. The default value is false.
+     */
+    public void setAffinityEnable(boolean affinityEnable) {
+        this.affinityEnable = affinityEnable;
+    }
+
+    /**
+     * Get the number of the single-thread channel groups that are used when the affinity is enabled.
+     *
+     * @return The affinity thread number. The default value equals the processor number.
+     */
+    public int getAffinityPoolSize() {
+        return affinityPoolSize;
+    }
+
+    /**
+     * Set the number of the single-thread channel groups that are used when the affinity is enabled.
+     *
+     * @param affinityPoolSize The affinity thread number. The default value equals the processor number.
+     */
+    public void setAffinityPoolSize(int affinityPoolSize) {
+        this.affinityPoolSize = affinityPoolSize;
+    }
+
+    /**
+     * If the keepAlive is true, the socket sends the keep-alive probes when the connection is idle.
+     *
+     * @return keepAlive The default value is true.
+     */
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * If the keepAlive is true, the socket sends the keep-alive probes when the connection is idle.
+     *
+     * @param keepAlive keepAlive. The default value is true.
+     */
+    public void setKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    /**
+     * If the reuseAddress is true, the socket can bind the address that is in the TIME_WAIT state.
+     *
+     * @return reuseAddress The default value is true.
+     */
+    public boolean isReuseAddress() {
+        return reuseAddress;
+    }
+
+    /**
+     * If the reuseAddress is true, the socket can bind the address that is in the TIME_WAIT state.
+     *
+     * @param reuseAddress reuseAddress. The default value is true.
+     */
+    public void setReuseAddress(boolean reuseAddress) {
+        this.reuseAddress = reuseAddress;
+    }
+
+    /**
+     * Get the socket receive buffer size (SO_RCVBUF). The server sets it before binding the address,
+     * so the accepted sockets can use the large TCP window.
+     *
+     * @return The receive buffer size. The default value is -1, the socket uses the operating system default value.
+     */
+    public int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    /**
+     * Set the socket receive buffer size (SO_RCVBUF). The server sets it before binding the address,
+     * so the accepted sockets can use the large TCP window.
+     *
+     * @param receiveBufferSize The receive buffer size. The default value is -1, the socket uses the operating system default value.
+     */
+    public void setReceiveBufferSize(int receiveBufferSize) {
+        this.receiveBufferSize = receiveBufferSize;
+    }
+
+    /**
+     * Get the socket send buffer size (SO_SNDBUF).
+     *
+     * @return The send buffer size. The default value is -1, the socket uses the operating system default value.
+     */
+    public int getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    /**
+     * Set the socket send buffer size (SO_SNDBUF).
+     *
+     * @param sendBufferSize The send buffer size. The default value is -1, the socket uses the operating system default value.
+     */
+    public void setSendBufferSize(int sendBufferSize) {
+        this.sendBufferSize = sendBufferSize;
+    }
+
+    /**
+     * Get the linger time (SO_LINGER). If it is not negative, closing the socket waits the unsent data
+     * for the linger seconds, and if it is 0, closing the socket resets the connection.
+     * It is ignored when the socket channel does not support the SO_LINGER option.
+     *
+     * @return The linger time (second). The default value is -1, the linger is disabled.
+     */
+    public int getSoLinger() {
+        return soLinger;
+    }
+
+    /**
+     * Set the linger time (SO_LINGER). If it is not negative, closing the socket waits the unsent data
+     * for the linger seconds, and if it is 0, closing the socket resets the connection.
+     * It is ignored when the socket channel does not support the SO_LINGER option.
+     *
+     * @param soLinger The linger time (second). The default value is -1, the linger is disabled.
+     */
+    public void setSoLinger(int soLinger) {
+        this.soLinger = soLinger;
+    }
+
+    /**
+     * Get the max number of the pending connections of the server socket.
+     *
+     * @return The backlog. The default value is 16384.
+     */
+    public int getBacklog() {
+        return backlog;
+    }
+
+    /**
+     * Set the max number of the pending connections of the server socket.
+     *
+     * @param backlog The backlog. The default value is 16384.
+     */
+    public void setBacklog(int backlog) {
+        this.backlog = backlog;
+    }
+
+    /**
+     * Get the number of the server sockets that bind the same address. Each server socket has an accept loop
+     * of its own, and the operating system balances the connections between them. It needs the SO_REUSEPORT option,
+     * if the JDK or the operating system does not support it, the server binds one socket.
+     *
+     * @return The acceptor number. The default value is 1.
+     */
+    public int getAcceptorNumber() {
+        return acceptorNumber;
+    }
+
+    /**
+     * Set the number of the server sockets that bind the same address. Each server socket has an accept loop
+     * of its own, and the operating system balances the connections between them. It needs the SO_REUSEPORT option,
+     * if the JDK or the operating system does not support it, the server binds one socket.
+     *
+     * @param acceptorNumber The acceptor number. The default value is 1.
+     */
+    public void setAcceptorNumber(int acceptorNumber) {
+        this.acceptorNumber = acceptorNumber;
+    }
+
     @Override
     public String toString() {
         return "Firefly asynchronous TCP configuration {" +
                 "timeout=" + timeout +
                 ", asynchronousCorePoolSize=" + asynchronousCorePoolSize +
+                ", tcpNoDelay=" + tcpNoDelay +
+                ", flushConsolidationEnable=" + flushConsolidationEnable +
+                ", affinityEnable=" + affinityEnable +
+                ", affinityPoolSize=" + affinityPoolSize +
+                ", keepAlive=" + keepAlive +
+                ", receiveBufferSize=" + receiveBufferSize +
+                ", sendBufferSize=" + sendBufferSize +
+                ", soLinger=" + soLinger +
+                ", backlog=" + backlog +
+                ", acceptorNumber=" + acceptorNumber +
                 '}';
     }
 }
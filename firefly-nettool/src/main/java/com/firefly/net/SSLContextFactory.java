@@ -1,6 +1,7 @@
 package com.firefly.net;
 
 import com.firefly.utils.lang.Pair;
+import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.SSLEngine;
 
@@ -10,4 +11,25 @@ public interface SSLContextFactory {
 
     Pair<SSLEngine, ApplicationProtocolSelector> createSSLEngine(boolean clientMode, String peerHost, int peerPort);
 
+    /**
+     * Get the TLS session resumption configuration.
+     *
+     * @return The TLS session resumption configuration. If it is null, the factory does not support
+     * the resumption configuration, and the sessions use the default settings of the provider.
+     */
+    default SSLResumptionConfiguration getResumptionConfiguration() {
+        return null;
+    }
+
+    /**
+     * Set the TLS session resumption configuration. The JDK and Conscrypt SSL context factories apply it.
+     * By default, the configuration is ignored with a warning, and the sessions use the default settings of the provider.
+     *
+     * @param resumptionConfiguration The TLS session resumption configuration.
+     */
+    default void setResumptionConfiguration(SSLResumptionConfiguration resumptionConfiguration) {
+        LoggerFactory.getLogger("firefly-system").warn("The SSL context factory {} does not support the resumption configuration, it is ignored",
+                getClass().getName());
+    }
+
 }
@@ -0,0 +1,101 @@
+package com.firefly.net;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+
+/**
+ * The TLS session resumption configuration. The client caches the sessions by the peer host and port,
+ * and the server resumes the sessions from the session cache or the session tickets.
+ *
+ * @author Pengtao Qiu
+ */
+public class SSLResumptionConfiguration {
+
+    private int sessionCacheSize = 20480;
+    private int sessionTimeout = 300;
+    private int ticketKeyRotationInterval = 3600;
+
+    /**
+     * Get the max number of the cached sessions.
+     *
+     * @return The session cache size. 0 means no limit.
+     */
+    public int getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    /**
+     * Set the max number of the cached sessions.
+     *
+     * @param sessionCacheSize The session cache size. 0 means no limit.
+     */
+    public void setSessionCacheSize(int sessionCacheSize) {
+        this.sessionCacheSize = sessionCacheSize;
+    }
+
+    /**
+     * Get the timeout of the cached sessions. The unit is second.
+     *
+     * @return The session timeout.
+     */
+    public int getSessionTimeout() {
+        return sessionTimeout;
+    }
+
+    /**
+     * Set the timeout of the cached sessions. The unit is second.
+     *
+     * @param sessionTimeout The session timeout.
+     */
+    public void setSessionTimeout(int sessionTimeout) {
+        this.sessionTimeout = sessionTimeout;
+    }
+
+    /**
+     * Get the interval that the server generates the new session ticket key. The unit is second.
+     * The tickets that are encrypted by the previous key are still accepted until the next rotation.
+     * The OpenSSL server rotates the ticket keys with this interval, the JDK and Conscrypt providers
+     * rotate the ticket keys by themselves.
+     *
+     * @return The ticket key rotation interval. If it is less than or equal to 0, the ticket keys are not rotated.
+     */
+    public int getTicketKeyRotationInterval() {
+        return ticketKeyRotationInterval;
+    }
+
+    /**
+     * Set the interval that the server generates the new session ticket key. The unit is second.
+     *
+     * @param ticketKeyRotationInterval The ticket key rotation interval. If it is less than or equal to 0,
+     *                                  the ticket keys are not rotated.
+     */
+    public void setTicketKeyRotationInterval(int ticketKeyRotationInterval) {
+        this.ticketKeyRotationInterval = ticketKeyRotationInterval;
+    }
+
+    /**
+     * Set the session cache size and timeout of the SSL context.
+     *
+     * @param sslContext The SSL context.
+     */
+    public void configure(SSLContext sslContext) {
+        configure(sslContext.getClientSessionContext());
+        configure(sslContext.getServerSessionContext());
+    }
+
+    private void configure(SSLSessionContext sessionContext) {
+        if (sessionContext != null) {
+            sessionContext.setSessionCacheSize(sessionCacheSize);
+            sessionContext.setSessionTimeout(sessionTimeout);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SSLResumptionConfiguration{" +
+                "sessionCacheSize=" + sessionCacheSize +
+                ", sessionTimeout=" + sessionTimeout +
+                ", ticketKeyRotationInterval=" + ticketKeyRotationInterval +
+                '}';
+    }
+}
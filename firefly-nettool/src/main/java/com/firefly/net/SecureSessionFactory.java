@@ -14,4 +14,10 @@ public interface SecureSessionFactory {
                          String peerHost, int peerPort,
                          SecureSessionHandshakeListener secureSessionHandshakeListener) throws IOException;
 
+    /**
+     * Release the resources of the factory, such as the scheduled tasks. The server calls it when the server stops.
+     */
+    default void stop() {
+    }
+
 }
@@ -2,6 +2,7 @@ package com.firefly.net;
 
 import com.firefly.net.buffer.FileRegion;
 import com.firefly.utils.concurrent.Callback;
+import com.firefly.utils.function.Action0;
 
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
@@ -19,6 +20,14 @@ public interface Session {
 
     void encode(Object message);
 
+    /**
+     * Decode the data by the decoder of the session, such as resuming the decoding of the data that is buffered
+     * by the TLS session. It is called by the threads other than the I/O thread.
+     *
+     * @param buffer The data.
+     */
+    void decode(ByteBuffer buffer);
+
     void write(OutputEntry<?> entry);
 
     void write(ByteBuffer byteBuffer, Callback callback);
@@ -72,4 +81,48 @@ public interface Session {
     long getIdleTimeout();
 
     long getMaxIdleTimeout();
+
+    /**
+     * Stop reading the data from the channel. The data that has been read is still decoded, the next read
+     * is not issued until the reading is resumed. It is used to apply the backpressure to the peer.
+     * The session that does not support it keeps reading.
+     */
+    default void suspendRead() {
+    }
+
+    /**
+     * Resume reading the data from the channel.
+     */
+    default void resumeRead() {
+    }
+
+    /**
+     * Whether reading the data is suspended.
+     *
+     * @return If return true, the session does not read the data from the channel.
+     */
+    default boolean isReadSuspended() {
+        return false;
+    }
+
+    /**
+     * Get the size of the data that has been submitted to the session but has not been written to the channel.
+     *
+     * @return The pending output bytes. The session that does not track them returns 0.
+     */
+    default long getPendingOutputBytes() {
+        return 0;
+    }
+
+    /**
+     * Run the callback once when the pending output bytes are less than or equal to the threshold,
+     * or the session is closed. If the pending output bytes are already less than or equal to the threshold,
+     * the callback runs immediately.
+     *
+     * @param threshold The pending output bytes threshold.
+     * @param callback  The callback.
+     */
+    default void onOutputDrained(long threshold, Action0 callback) {
+        callback.call();
+    }
 }
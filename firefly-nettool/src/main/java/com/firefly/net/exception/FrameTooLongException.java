@@ -0,0 +1,15 @@
+package com.firefly.net.exception;
+
+/**
+ * The frame length exceeds the max frame length of the decoder.
+ *
+ * @author Pengtao Qiu
+ */
+public class FrameTooLongException extends NetException {
+
+    private static final long serialVersionUID = -2592446016539236171L;
+
+    public FrameTooLongException(String msg) {
+        super(msg);
+    }
+}
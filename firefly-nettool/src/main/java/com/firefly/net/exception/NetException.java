@@ -7,4 +7,8 @@ public class NetException extends RuntimeException {
 	public NetException(String msg) {
 		super(msg);
 	}
+
+	public NetException(String msg, Throwable cause) {
+		super(msg, cause);
+	}
 }
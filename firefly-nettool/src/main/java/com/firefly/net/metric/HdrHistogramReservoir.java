@@ -0,0 +1,212 @@
+package com.firefly.net.metric;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The reservoir records the values with the HdrHistogram recorder. The recorder does not lock the writers,
+ * and the snapshot drains the recorded values into an interval histogram.
+ * <p>
+ * The snapshot contains the values of the current interval and the previous interval, so the percentiles
+ * reflect the recent values instead of the whole process lifetime. The interval is rotated when a snapshot
+ * is taken, and the reporter takes the snapshot periodically. The reservoir also keeps the sum of all recorded values,
+ * the exporters use it as the cumulative sum of the summary.
+ *
+ * @author Pengtao Qiu
+ */
+public class HdrHistogramReservoir implements Reservoir {
+
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final LongAdder sum = new LongAdder();
+    private final long intervalNanos;
+    private org.HdrHistogram.Histogram intervalHistogram;
+    private org.HdrHistogram.Histogram current = new org.HdrHistogram.Histogram(SIGNIFICANT_DIGITS);
+    private org.HdrHistogram.Histogram previous = new org.HdrHistogram.Histogram(SIGNIFICANT_DIGITS);
+    private long currentStartTime = System.nanoTime();
+
+    public HdrHistogramReservoir() {
+        this(60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Create the reservoir.
+     *
+     * @param interval The interval that the recorded values are kept in the snapshot.
+     * @param unit     The interval time unit.
+     */
+    public HdrHistogramReservoir(long interval, TimeUnit unit) {
+        this.intervalNanos = unit.toNanos(interval);
+    }
+
+    /**
+     * Create a timer that records the latency with the HdrHistogram reservoir.
+     *
+     * @return The timer.
+     */
+    public static Timer newTimer() {
+        return new HdrTimer(new HdrHistogramReservoir());
+    }
+
+    /**
+     * Create a histogram that records the values with the HdrHistogram reservoir.
+     *
+     * @return The histogram.
+     */
+    public static Histogram newHistogram() {
+        return new HdrHistogram(new HdrHistogramReservoir());
+    }
+
+    /**
+     * Get the sum of all recorded values since the reservoir is created.
+     *
+     * @return The sum of the recorded values.
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * The timer keeps the sum of the recorded durations (nanosecond).
+     */
+    public static class HdrTimer extends Timer {
+
+        private final HdrHistogramReservoir reservoir;
+
+        public HdrTimer(HdrHistogramReservoir reservoir) {
+            super(reservoir);
+            this.reservoir = reservoir;
+        }
+
+        public long getSum() {
+            return reservoir.getSum();
+        }
+    }
+
+    /**
+     * The histogram keeps the sum of the recorded values.
+     */
+    public static class HdrHistogram extends Histogram {
+
+        private final HdrHistogramReservoir reservoir;
+
+        public HdrHistogram(HdrHistogramReservoir reservoir) {
+            super(reservoir);
+            this.reservoir = reservoir;
+        }
+
+        public long getSum() {
+            return reservoir.getSum();
+        }
+    }
+
+    @Override
+    public int size() {
+        return getSnapshot().size();
+    }
+
+    @Override
+    public void update(long value) {
+        long v = Math.max(value, 0);
+        recorder.recordValue(v);
+        sum.add(v);
+    }
+
+    @Override
+    public synchronized Snapshot getSnapshot() {
+        intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+        current.add(intervalHistogram);
+
+        long now = System.nanoTime();
+        if (now - currentStartTime >= intervalNanos) {
+            org.HdrHistogram.Histogram tmp = previous;
+            previous = current;
+            current = tmp;
+            current.reset();
+            currentStartTime = now;
+        }
+
+        org.HdrHistogram.Histogram histogram = previous.copy();
+        histogram.add(current);
+        return new HdrSnapshot(histogram);
+    }
+
+    private static class HdrSnapshot extends Snapshot {
+
+        private final org.HdrHistogram.Histogram histogram;
+
+        private HdrSnapshot(org.HdrHistogram.Histogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            return histogram.getValueAtPercentile(quantile * 100D);
+        }
+
+        /**
+         * Get the distinct recorded values. The values that are in the same histogram bucket are merged.
+         *
+         * @return The distinct recorded values.
+         */
+        @Override
+        public long[] getValues() {
+            long[] values = new long[16];
+            int size = 0;
+            for (HistogramIterationValue value : histogram.recordedValues()) {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, size << 1);
+                }
+                values[size++] = value.getValueIteratedTo();
+            }
+            return Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(histogram.getTotalCount(), Integer.MAX_VALUE);
+        }
+
+        @Override
+        public long getMax() {
+            return histogram.getMaxValue();
+        }
+
+        @Override
+        public double getMean() {
+            return histogram.getMean();
+        }
+
+        @Override
+        public long getMin() {
+            return histogram.getMinValue();
+        }
+
+        @Override
+        public double getStdDev() {
+            return histogram.getStdDeviation();
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                for (long value : getValues()) {
+                    out.printf("%d%n", value);
+                }
+            }
+        }
+    }
+}
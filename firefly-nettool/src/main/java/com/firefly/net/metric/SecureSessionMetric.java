@@ -0,0 +1,133 @@
+package com.firefly.net.metric;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.firefly.net.SecureSessionHandshakeListener;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Count the full and resumed TLS handshakes. If the SSL context counts the resumed handshakes, such as the session
+ * hits of the OpenSSL server context, the counter is used. The JDK and Conscrypt engines do not expose whether
+ * the session is resumed, in this case the resumed session is recognized by the creation time. The resumed session
+ * is created before the handshake starts, so the handshake is resumed if the creation time of the negotiated session
+ * is earlier than the start time.
+ *
+ * @author Pengtao Qiu
+ */
+public class SecureSessionMetric {
+
+    private final Meter fullHandshake;
+    private final Meter resumedHandshake;
+
+    public SecureSessionMetric(MetricRegistry metrics) {
+        fullHandshake = metrics.meter("tls.handshake.full");
+        resumedHandshake = metrics.meter("tls.handshake.resumed");
+    }
+
+    /**
+     * Wrap the handshake listener to count the handshake type when the handshake is complete.
+     *
+     * @param sslEngine The SSL engine.
+     * @param listener  The handshake listener.
+     * @return The handshake listener that counts the handshake type.
+     */
+    public SecureSessionHandshakeListener record(SSLEngine sslEngine, SecureSessionHandshakeListener listener) {
+        return record(sslEngine, listener, 1L);
+    }
+
+    /**
+     * Wrap the handshake listener to count the handshake type when the handshake is complete.
+     *
+     * @param sslEngine              The SSL engine.
+     * @param listener               The handshake listener.
+     * @param creationTimeResolution The resolution of the session creation time. The unit is millisecond.
+     *                               For example, the OpenSSL session creation time is accurate to the second.
+     * @return The handshake listener that counts the handshake type.
+     */
+    public SecureSessionHandshakeListener record(SSLEngine sslEngine, SecureSessionHandshakeListener listener,
+                                                 long creationTimeResolution) {
+        long startTime = System.currentTimeMillis() / creationTimeResolution * creationTimeResolution;
+        return secureSession -> {
+            SSLSession session = sslEngine.getSession();
+            if (session != null && session.getCreationTime() < startTime) {
+                resumedHandshake.mark();
+            } else {
+                fullHandshake.mark();
+            }
+            listener.complete(secureSession);
+        };
+    }
+
+    /**
+     * Wrap the handshake listener to count the handshake type by the resumed handshake counter of the SSL context.
+     *
+     * @param counter  The resumed handshake counter of the SSL context.
+     * @param listener The handshake listener.
+     * @return The handshake listener that counts the handshake type.
+     */
+    public SecureSessionHandshakeListener record(ResumptionCounter counter, SecureSessionHandshakeListener listener) {
+        return secureSession -> {
+            if (counter.poll()) {
+                resumedHandshake.mark();
+            } else {
+                fullHandshake.mark();
+            }
+            listener.complete(secureSession);
+        };
+    }
+
+    public Meter getFullHandshake() {
+        return fullHandshake;
+    }
+
+    public Meter getResumedHandshake() {
+        return resumedHandshake;
+    }
+
+    /**
+     * The resumed handshakes that are counted by the SSL context. The counter is not bound to a connection,
+     * so a completed handshake takes one of the resumed handshakes that have not been taken. The total number of
+     * the resumed handshakes is accurate, the concurrent handshakes may be swapped.
+     */
+    public static class ResumptionCounter {
+
+        private final LongSupplier resumedHandshakes;
+        private final AtomicLong observed;
+        private final AtomicLong taken;
+
+        /**
+         * Create the counter. The handshakes that have been resumed before are not counted.
+         *
+         * @param resumedHandshakes The total number of the resumed handshakes of the SSL context.
+         */
+        public ResumptionCounter(LongSupplier resumedHandshakes) {
+            this.resumedHandshakes = resumedHandshakes;
+            long count = resumedHandshakes.getAsLong();
+            observed = new AtomicLong(count);
+            taken = new AtomicLong(count);
+        }
+
+        /**
+         * Take a resumed handshake.
+         *
+         * @return If true, a resumed handshake is taken.
+         */
+        public boolean poll() {
+            long count = resumedHandshakes.getAsLong();
+            observed.accumulateAndGet(count, Math::max);
+            while (true) {
+                long n = taken.get();
+                if (n >= observed.get()) {
+                    return false;
+                }
+                if (taken.compareAndSet(n, n + 1)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -1,16 +1,20 @@
 package com.firefly.net.tcp;
 
 import com.firefly.net.Client;
+import com.firefly.net.SecureSession;
 import com.firefly.net.SecureSessionFactory;
+import com.firefly.net.SecureSessionHandshakeListener;
 import com.firefly.net.Session;
 import com.firefly.net.tcp.aio.AsynchronousTcpClient;
 import com.firefly.utils.concurrent.Promise;
 import com.firefly.utils.function.Action1;
 import com.firefly.utils.lang.AbstractLifeCycle;
 
+import java.net.InetSocketAddress;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class SimpleTcpClient extends AbstractLifeCycle {
 
@@ -18,6 +22,7 @@ public class SimpleTcpClient extends AbstractLifeCycle {
     private TcpConfiguration config;
 
     private Map<Integer, Promise<TcpConnection>> context = new ConcurrentHashMap<>();
+    private final AtomicInteger sessionId = new AtomicInteger(0);
 
     public SimpleTcpClient() {
         this(new TcpConfiguration());
@@ -67,9 +72,10 @@ public class SimpleTcpClient extends AbstractLifeCycle {
 
     public void connect(String host, int port, Promise<TcpConnection> promise) {
         start();
-        int sessionId = client.connect(host, port);
-
-        context.put(sessionId, promise);
+        // the promise is put before connecting, the connecting failure may be notified before the connect method returns
+        int id = sessionId.getAndIncrement();
+        context.put(id, promise);
+        client.connect(host, port, id);
     }
 
     public abstract class AbstractHandler extends AbstractSimpleHandler {
@@ -126,13 +132,19 @@ public class SimpleTcpClient extends AbstractLifeCycle {
                 @Override
                 public void sessionOpened(Session session) throws Throwable {
                     SecureSessionFactory factory = config.getSecureSessionFactory();
-                    session.attachObject(new SecureTcpConnectionImpl(session, factory.create(session, true, ssl -> {
+                    SecureSessionHandshakeListener listener = ssl -> {
                         Object o = session.getAttachment();
                         if (o != null && o instanceof SecureTcpConnectionImpl) {
                             SecureTcpConnectionImpl c = (SecureTcpConnectionImpl) o;
                             sessionOpen(session, c);
                         }
-                    })));
+                    };
+                    // the client resumes the TLS session that is cached by the peer host and port
+                    InetSocketAddress address = session.getRemoteAddress();
+                    SecureSession secureSession = address != null
+                            ? factory.create(session, true, address.getHostString(), address.getPort(), listener)
+                            : factory.create(session, true, listener);
+                    session.attachObject(new SecureTcpConnectionImpl(session, secureSession));
                 }
             });
         }
@@ -100,6 +100,9 @@ public class SimpleTcpServer extends AbstractLifeCycle {
     @Override
     protected void destroy() {
         server.stop();
+        if (config != null && config.isSecureConnectionEnabled()) {
+            config.getSecureSessionFactory().stop();
+        }
     }
 
 }
@@ -31,11 +31,26 @@ abstract public class AbstractTcpLifeCycle extends AbstractLifeCycle {
     protected AtomicInteger sessionId = new AtomicInteger();
     protected AsynchronousChannelGroup group;
     protected ExecutorService netExecutorService;
+    protected AsynchronousChannelGroup[] affinityGroups;
     protected AsynchronousTcpWorker worker;
     protected ScheduledReporter reporter;
 
     abstract protected String getThreadName();
 
+    /**
+     * Get the channel group that runs the channel. If the affinity is enabled, it is one of the single-thread
+     * channel groups, otherwise it is the shared I/O thread group.
+     *
+     * @param index The index that selects the group, such as the acceptor index or the session id.
+     * @return The channel group.
+     */
+    protected AsynchronousChannelGroup getChannelGroup(int index) {
+        if (affinityGroups == null) {
+            return group;
+        }
+        return affinityGroups[(index & Integer.MAX_VALUE) % affinityGroups.length];
+    }
+
     public ExecutorService getNetExecutorService() {
         return netExecutorService;
     }
@@ -54,6 +69,17 @@ abstract public class AbstractTcpLifeCycle extends AbstractLifeCycle {
                     }, null, true);
             group = AsynchronousChannelGroup.withThreadPool(netExecutorService);
             log.info(config.toString());
+            if (config.isAffinityEnable()) {
+                affinityGroups = new AsynchronousChannelGroup[Math.max(config.getAffinityPoolSize(), 1)];
+                for (int i = 0; i < affinityGroups.length; i++) {
+                    String threadName = getThreadName() + "affinity-" + i;
+                    affinityGroups[i] = AsynchronousChannelGroup.withFixedThreadPool(1, r -> {
+                        Thread thread = new Thread(r, threadName);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
             EventManager eventManager = new DefaultEventManager(config);
             worker = new AsynchronousTcpWorker(config, eventManager);
             if (config.isMonitorEnable()) {
@@ -78,6 +104,15 @@ abstract public class AbstractTcpLifeCycle extends AbstractLifeCycle {
                 log.error("aio tcp thread group shutdown exception -> {}", e.getMessage());
             }
         }
+        if (affinityGroups != null) {
+            for (AsynchronousChannelGroup affinityGroup : affinityGroups) {
+                try {
+                    affinityGroup.shutdown();
+                } catch (Exception e) {
+                    log.error("aio tcp affinity thread group shutdown exception -> {}", e.getMessage());
+                }
+            }
+        }
         if (config.isMonitorEnable()) {
             try {
                 reporter.stop();
@@ -5,7 +5,6 @@ import com.firefly.net.*;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.net.StandardSocketOptions;
 import java.nio.channels.AsynchronousSocketChannel;
 import java.nio.channels.CompletionHandler;
 
@@ -53,10 +52,9 @@ public class AsynchronousTcpClient extends AbstractTcpLifeCycle implements Clien
                                 .getMetricRegistry()
                                 .timer("aio.AsynchronousTcpClient.connect:```" + host + ":" + port + "```");
             Timer.Context context = timer.time();
-            final AsynchronousSocketChannel socketChannel = AsynchronousSocketChannel.open(group);
-            socketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
-            socketChannel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
-            socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, false);
+            final AsynchronousSocketChannel socketChannel = AsynchronousSocketChannel.open(getChannelGroup(id));
+            // set the receive buffer before connecting, the TCP window scale is negotiated in the handshake
+            AsynchronousTcpWorker.setSocketOptions(socketChannel, config);
             socketChannel.connect(new InetSocketAddress(host, port), id, new CompletionHandler<Void, Integer>() {
 
                 @Override
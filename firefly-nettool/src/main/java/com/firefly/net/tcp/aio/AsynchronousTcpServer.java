@@ -1,17 +1,37 @@
 package com.firefly.net.tcp.aio;
 
 import com.firefly.net.*;
+import com.firefly.net.exception.NetException;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.SocketOption;
 import java.net.StandardSocketOptions;
+import java.nio.channels.AsynchronousChannelGroup;
 import java.nio.channels.AsynchronousServerSocketChannel;
 import java.nio.channels.AsynchronousSocketChannel;
 import java.nio.channels.CompletionHandler;
-
-import static com.firefly.net.tcp.TcpPerformanceParameter.BACKLOG;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class AsynchronousTcpServer extends AbstractTcpLifeCycle implements Server {
 
+    /**
+     * The SO_REUSEPORT option is added in JDK 9, it is null when the JDK does not support it.
+     */
+    private static final SocketOption<Boolean> SO_REUSEPORT = getReusePortOption();
+
+    private final List<AsynchronousServerSocketChannel> serverSocketChannels = new CopyOnWriteArrayList<>();
+
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> getReusePortOption() {
+        try {
+            return (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     public AsynchronousTcpServer() {
     }
 
@@ -39,21 +59,75 @@ public class AsynchronousTcpServer extends AbstractTcpLifeCycle implements Serve
         this.config = config;
     }
 
+    /**
+     * Bind the server sockets and accept the connections. If the acceptor number is greater than 1,
+     * the server binds the sockets with the SO_REUSEPORT option.
+     *
+     * @param host The host.
+     * @param port The port.
+     * @throws NetException If no server socket can be bound, such as the port is in use.
+     */
     @Override
     public void listen(String host, int port) {
         start();
-        listen(bind(host, port));
-        log.info("start server. host: {}, port: {}", host, port);
+        int acceptorNumber = Math.max(config.getAcceptorNumber(), 1);
+        if (acceptorNumber > 1 && !isReusePortSupported()) {
+            log.warn("the SO_REUSEPORT option is not supported, the server binds one socket");
+            acceptorNumber = 1;
+        }
+        int bound = 0;
+        for (int i = 0; i < acceptorNumber; i++) {
+            AsynchronousServerSocketChannel serverSocketChannel;
+            try {
+                serverSocketChannel = bind(host, port, acceptorNumber > 1, getChannelGroup(i));
+            } catch (IOException e) {
+                if (bound == 0) {
+                    throw new NetException("the server can not bind " + host + ":" + port, e);
+                }
+                log.warn("the server binds {} of {} acceptors, {}:{}. {}", bound, acceptorNumber, host, port, e.getMessage());
+                break;
+            }
+            serverSocketChannels.add(serverSocketChannel);
+            listen(serverSocketChannel);
+            bound++;
+        }
+        log.info("start server. host: {}, port: {}, acceptors: {}", host, port, bound);
+    }
+
+    private boolean isReusePortSupported() {
+        if (SO_REUSEPORT == null) {
+            return false;
+        }
+        try (AsynchronousServerSocketChannel serverSocketChannel = AsynchronousServerSocketChannel.open(group)) {
+            return serverSocketChannel.supportedOptions().contains(SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
     }
 
-    private AsynchronousServerSocketChannel bind(String host, int port) {
+    private AsynchronousServerSocketChannel bind(String host, int port, boolean reusePort,
+                                                 AsynchronousChannelGroup channelGroup) throws IOException {
         AsynchronousServerSocketChannel serverSocketChannel = null;
         try {
-            serverSocketChannel = AsynchronousServerSocketChannel.open(group);
-            serverSocketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
-            serverSocketChannel.bind(new InetSocketAddress(host, port), BACKLOG);
-        } catch (Exception e) {
-            log.error("ServerSocket bind error", e);
+            // the accepted channels inherit the channel group of the server socket
+            serverSocketChannel = AsynchronousServerSocketChannel.open(channelGroup);
+            if (reusePort) {
+                serverSocketChannel.setOption(SO_REUSEPORT, true);
+            }
+            serverSocketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, config.isReuseAddress());
+            if (config.getReceiveBufferSize() > 0) {
+                // the accepted sockets inherit the receive buffer size of the server socket
+                serverSocketChannel.setOption(StandardSocketOptions.SO_RCVBUF, config.getReceiveBufferSize());
+            }
+            serverSocketChannel.bind(new InetSocketAddress(host, port), config.getBacklog());
+        } catch (IOException | RuntimeException e) {
+            if (serverSocketChannel != null) {
+                try {
+                    serverSocketChannel.close();
+                } catch (IOException ignored) {
+                }
+            }
+            throw e;
         }
         return serverSocketChannel;
     }
@@ -63,11 +137,9 @@ public class AsynchronousTcpServer extends AbstractTcpLifeCycle implements Serve
 
             @Override
             public void completed(AsynchronousSocketChannel socketChannel, Integer sessionId) {
-                try {
-                    worker.registerChannel(socketChannel, sessionId);
-                } finally {
-                    listen(serverSocketChannel);
-                }
+                // accept the next connection before registering this one, the session opening task does not delay the accept loop
+                listen(serverSocketChannel);
+                worker.registerChannel(socketChannel, sessionId);
             }
 
             @Override
@@ -80,12 +152,37 @@ public class AsynchronousTcpServer extends AbstractTcpLifeCycle implements Serve
                     }
                     log.error("server accepts channel {} error occurs", t, sessionId);
                 } finally {
-                    listen(serverSocketChannel);
+                    if (serverSocketChannel.isOpen()) {
+                        listen(serverSocketChannel);
+                    }
                 }
             }
         });
     }
 
+    /**
+     * Get the bound server sockets. If the SO_REUSEPORT option is supported,
+     * the server binds the acceptor number of the sockets, otherwise the server binds one socket.
+     *
+     * @return The bound server sockets.
+     */
+    public List<AsynchronousServerSocketChannel> getServerSocketChannels() {
+        return serverSocketChannels;
+    }
+
+    @Override
+    protected void destroy() {
+        for (AsynchronousServerSocketChannel serverSocketChannel : serverSocketChannels) {
+            try {
+                serverSocketChannel.close();
+            } catch (IOException e) {
+                log.error("close server socket exception", e);
+            }
+        }
+        serverSocketChannels.clear();
+        super.destroy();
+    }
+
     @Override
     protected String getThreadName() {
         return "firefly-aio-tcp-server-";
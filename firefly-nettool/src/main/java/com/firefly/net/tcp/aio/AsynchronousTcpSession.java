@@ -7,6 +7,9 @@ import com.firefly.net.buffer.FileRegion;
 import com.firefly.net.exception.NetException;
 import com.firefly.net.metric.SessionMetric;
 import com.firefly.utils.concurrent.Callback;
+import com.firefly.utils.concurrent.Scheduler;
+import com.firefly.utils.concurrent.Schedulers;
+import com.firefly.utils.function.Action0;
 import com.firefly.utils.io.BufferUtils;
 import com.firefly.utils.time.Millisecond100Clock;
 import com.firefly.utils.time.SafeSimpleDateFormat;
@@ -20,6 +23,7 @@ import java.nio.channels.*;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -27,11 +31,18 @@ public class AsynchronousTcpSession implements Session {
 
     private static Logger log = LoggerFactory.getLogger("firefly-system");
 
+    /**
+     * All sessions share the timing wheel to detect the idle timeout, the ticks are as coarse as the session clock.
+     */
+    private static final Scheduler idleTimeoutScheduler = Schedulers.createTimingWheel(100, TimeUnit.MILLISECONDS);
+
     private final int sessionId;
     private final long openTime;
     private long closeTime;
-    private long lastReadTime;
-    private long lastWrittenTime;
+    private volatile long lastReadTime;
+    private volatile long lastWrittenTime;
+    private volatile long writingStartTime;
+    private volatile Scheduler.Future idleTimeoutFuture;
     private long readBytes = 0;
     private long writtenBytes = 0;
     private final SessionMetric sessionMetric;
@@ -49,9 +60,19 @@ public class AsynchronousTcpSession implements Session {
     private volatile Object attachment;
 
     private final Lock outputLock = new ReentrantLock();
-    private boolean isWriting = false;
+    private volatile boolean isWriting = false;
     private final Queue<OutputEntry<?>> outputBuffer = new LinkedList<>();
+    // the thread that is decoding the input data, its writes are consolidated until the decoding completes
+    private volatile Thread decodingThread;
+    private boolean consolidating;
     private final BufferSizePredictor bufferSizePredictor = new AdaptiveBufferSizePredictor();
+    private final AtomicLong pendingOutputBytes = new AtomicLong();
+    private final List<OutputDrainedListener> outputDrainedListeners = new ArrayList<>(1);
+    private volatile boolean readSuspended;
+    private final AtomicBoolean readStopped = new AtomicBoolean(false);
+
+    // the I/O thread and the resumed decoding deliver the data in order
+    private final Object decodeLock = new Object();
 
     AsynchronousTcpSession(int sessionId, Config config, EventManager eventManager, AsynchronousSocketChannel socketChannel) {
         this.sessionId = sessionId;
@@ -62,6 +83,34 @@ public class AsynchronousTcpSession implements Session {
         MetricRegistry metrics = config.getMetricReporterFactory().getMetricRegistry();
         sessionMetric = new SessionMetric(metrics, "aio.tcpSession");
         sessionMetric.getActiveSessionCount().inc();
+        scheduleIdleTimeout(config.getTimeout());
+    }
+
+    private void scheduleIdleTimeout(long delay) {
+        if (config.getTimeout() > 0 && isOpen()) {
+            idleTimeoutFuture = idleTimeoutScheduler.schedule(this::checkIdleTimeout, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void checkIdleTimeout() {
+        if (isClosed()) {
+            return;
+        }
+
+        long maxIdleTimeout = getMaxIdleTimeout();
+        long now = Millisecond100Clock.currentTimeMillis();
+        long idleTime = now - getLastActiveTime();
+        long writingTime = isWriting ? now - Math.max(lastWrittenTime, writingStartTime) : 0;
+        if (idleTime >= maxIdleTimeout) {
+            log.info("The session {} is timeout. The idle time: {} - {}. It will force to close.", getSessionId(), idleTime, maxIdleTimeout);
+            closeNow();
+        } else if (writingTime >= maxIdleTimeout) {
+            // closing the channel fails the pending writing, the writing callback receives the exception
+            log.info("The session {} writing data is timeout. The writing time: {} - {}. It will force to close.", getSessionId(), writingTime, maxIdleTimeout);
+            closeNow();
+        } else {
+            scheduleIdleTimeout(maxIdleTimeout - Math.max(idleTime, writingTime));
+        }
     }
 
     private ByteBuffer allocateReadBuffer() {
@@ -76,7 +125,8 @@ public class AsynchronousTcpSession implements Session {
             if (log.isDebugEnabled()) {
                 log.debug("The session {} allocates buffer. Its size is {}", getSessionId(), buf.remaining());
             }
-            socketChannel.read(buf, config.getTimeout(), TimeUnit.MILLISECONDS, this, new InputCompletionHandler(buf));
+            // the idle timeout is detected by the timing wheel, the reading does not schedule a timeout
+            socketChannel.read(buf, this, new InputCompletionHandler(buf));
         } catch (Exception e) {
             log.warn("register read event exception. {}", e.getMessage());
             closeNow();
@@ -108,26 +158,18 @@ public class AsynchronousTcpSession implements Session {
             session.readBytes += currentReadBytes;
             buf.flip();
             try {
-                config.getDecoder().decode(buf, session);
+                decodeAndFlush(buf);
             } catch (Throwable t) {
                 eventManager.executeExceptionTask(session, t);
             } finally {
-                _read();
+                continueReading();
             }
         }
 
         @Override
         public void failed(Throwable t, AsynchronousTcpSession session) {
-            if (t instanceof InterruptedByTimeoutException) {
-                long idleTime = getIdleTimeout();
-                log.info("The session {} reading data is timeout. The idle time: {} - {}", getSessionId(), idleTime, getMaxIdleTimeout());
-                if (idleTime >= getIdleTimeout()) {
-                    log.info("The session {} is timeout. It will force to close.", getSessionId());
-                    closeNow();
-                } else {
-                    // The session is active. Register the read event.
-                    _read();
-                }
+            if (session.isClosed()) {
+                log.info("The session {} reading data is interrupted. The session is closed", session.getSessionId());
             } else {
                 log.warn("The session {} reading data exception. It will force to close.", t, session.getSessionId());
                 closeNow();
@@ -148,7 +190,7 @@ public class AsynchronousTcpSession implements Session {
             lastWrittenTime = Millisecond100Clock.currentTimeMillis();
             if (log.isDebugEnabled()) {
                 log.debug("The session {} completed writing {} bytes, remaining {} bytes",
-                        session.getSessionId(),
+                        getSessionId(),
                         currentWrittenBytes, entry.remaining());
             }
 
@@ -163,6 +205,7 @@ public class AsynchronousTcpSession implements Session {
                 log.debug("The session {} writes {} bytes", getSessionId(), currentWrittenBytes);
             }
             writtenBytes += w;
+            outputWritten(w);
 
             if (entry.remaining() > 0) {
                 _write(entry);
@@ -187,31 +230,7 @@ public class AsynchronousTcpSession implements Session {
                 } else if (outputBuffer.size() <= 2) {
                     _write(outputBuffer.poll());
                 } else {
-                    // merge ByteBuffer to ByteBuffer Array
-                    List<Callback> callbackList = new LinkedList<>();
-                    List<ByteBuffer> byteBufferList = new LinkedList<>();
-                    OutputEntry<?> obj;
-                    while ((obj = outputBuffer.peek()) != null
-                            && obj.getOutputEntryType() != OutputEntryType.DISCONNECTION) {
-                        outputBuffer.poll();
-                        callbackList.add(obj.getCallback());
-                        switch (obj.getOutputEntryType()) {
-                            case BYTE_BUFFER:
-                                ByteBufferOutputEntry byteBufferOutputEntry = (ByteBufferOutputEntry) obj;
-                                byteBufferList.add(byteBufferOutputEntry.getData());
-                                break;
-                            case BYTE_BUFFER_ARRAY:
-                                ByteBufferArrayOutputEntry byteBufferArrayOutputEntry = (ByteBufferArrayOutputEntry) obj;
-                                byteBufferList.addAll(Arrays.asList(byteBufferArrayOutputEntry.getData()));
-                                break;
-                            case MERGED_BUFFER:
-                                MergedOutputEntry mergedOutputEntry = (MergedOutputEntry) obj;
-                                byteBufferList.addAll(Arrays.asList(mergedOutputEntry.getData()));
-                                break;
-                        }
-                    }
-                    sessionMetric.getMergedOutputBufferSize().update(callbackList.size());
-                    _write(new MergedOutputEntry(callbackList, byteBufferList));
+                    writeMergedOutputEntry();
                 }
             } finally {
                 outputLock.unlock();
@@ -219,17 +238,12 @@ public class AsynchronousTcpSession implements Session {
         }
 
         private void writingFailedCallback(Callback callback, Throwable t) {
-            if (t instanceof InterruptedByTimeoutException) {
-                long idleTime = getIdleTimeout();
-                log.info("The session {} writing data is timeout. The idle time: {} - {}", getSessionId(), idleTime, getMaxIdleTimeout());
-                if (idleTime >= getIdleTimeout()) {
-                    log.info("The session {} is timeout. It will close.", getSessionId());
-                    _writingFailedCallback(callback, t);
-                }
+            if (isClosed()) {
+                log.info("The session {} writing data is interrupted. The session is closed", getSessionId());
             } else {
                 log.warn("The session {} writing data exception. It will close.", t, getSessionId());
-                _writingFailedCallback(callback, t);
             }
+            _writingFailedCallback(callback, t);
         }
 
         private void _writingFailedCallback(Callback callback, Throwable t) {
@@ -243,31 +257,102 @@ public class AsynchronousTcpSession implements Session {
             } finally {
                 outputLock.unlock();
             }
+            pendingOutputBytes.set(0);
+            fireOutputDrainedListeners(true);
             callback.failed(t);
         }
     }
 
+    /**
+     * Merge the buffered output entries into a gathering write, the caller holds the output lock.
+     */
+    private void writeMergedOutputEntry() {
+        // merge ByteBuffer to ByteBuffer Array
+        List<Callback> callbackList = new LinkedList<>();
+        List<ByteBuffer> byteBufferList = new LinkedList<>();
+        OutputEntry<?> obj;
+        while ((obj = outputBuffer.peek()) != null
+                && obj.getOutputEntryType() != OutputEntryType.DISCONNECTION) {
+            outputBuffer.poll();
+            callbackList.add(obj.getCallback());
+            switch (obj.getOutputEntryType()) {
+                case BYTE_BUFFER:
+                    ByteBufferOutputEntry byteBufferOutputEntry = (ByteBufferOutputEntry) obj;
+                    byteBufferList.add(byteBufferOutputEntry.getData());
+                    break;
+                case BYTE_BUFFER_ARRAY:
+                    ByteBufferArrayOutputEntry byteBufferArrayOutputEntry = (ByteBufferArrayOutputEntry) obj;
+                    byteBufferList.addAll(Arrays.asList(byteBufferArrayOutputEntry.getData()));
+                    break;
+                case MERGED_BUFFER:
+                    MergedOutputEntry mergedOutputEntry = (MergedOutputEntry) obj;
+                    byteBufferList.addAll(Arrays.asList(mergedOutputEntry.getData()));
+                    break;
+            }
+        }
+        if (callbackList.isEmpty()) {
+            _write(outputBuffer.poll());
+        } else {
+            sessionMetric.getMergedOutputBufferSize().update(callbackList.size());
+            _write(new MergedOutputEntry(callbackList, byteBufferList));
+        }
+    }
+
+    private void decodeAndFlush(ByteBuffer buf) throws Throwable {
+        synchronized (decodeLock) {
+            decodingThread = Thread.currentThread();
+            try {
+                config.getDecoder().decode(buf, this);
+            } finally {
+                decodingThread = null;
+                flushConsolidatedOutput();
+            }
+        }
+    }
+
+    /**
+     * Write the entries that are buffered in the current decoding.
+     */
+    private void flushConsolidatedOutput() {
+        outputLock.lock();
+        try {
+            if (!consolidating) {
+                return;
+            }
+            consolidating = false;
+            sessionMetric.getOutputBufferQueueSize().update(outputBuffer.size());
+            if (outputBuffer.isEmpty()) {
+                isWriting = false;
+            } else if (outputBuffer.size() == 1) {
+                _write(outputBuffer.poll());
+            } else {
+                writeMergedOutputEntry();
+            }
+        } finally {
+            outputLock.unlock();
+        }
+    }
+
     private void _write(final OutputEntry<?> entry) {
         try {
             switch (entry.getOutputEntryType()) {
                 case BYTE_BUFFER: {
                     ByteBufferOutputEntry byteBufferOutputEntry = (ByteBufferOutputEntry) entry;
-                    socketChannel.write(byteBufferOutputEntry.getData(),
-                            config.getTimeout(), TimeUnit.MILLISECONDS, this,
+                    socketChannel.write(byteBufferOutputEntry.getData(), this,
                             new OutputEntryCompletionHandler<>(byteBufferOutputEntry));
                 }
                 break;
                 case BYTE_BUFFER_ARRAY: {
                     ByteBufferArrayOutputEntry byteBuffersEntry = (ByteBufferArrayOutputEntry) entry;
                     socketChannel.write(byteBuffersEntry.getData(), 0, byteBuffersEntry.getData().length,
-                            config.getTimeout(), TimeUnit.MILLISECONDS, this,
+                            0, TimeUnit.MILLISECONDS, this,
                             new OutputEntryCompletionHandler<>(byteBuffersEntry));
                 }
                 break;
                 case MERGED_BUFFER: {
                     MergedOutputEntry mergedOutputEntry = (MergedOutputEntry) entry;
                     socketChannel.write(mergedOutputEntry.getData(), 0, mergedOutputEntry.getData().length,
-                            config.getTimeout(), TimeUnit.MILLISECONDS, this,
+                            0, TimeUnit.MILLISECONDS, this,
                             new OutputEntryCompletionHandler<>(mergedOutputEntry));
                 }
                 break;
@@ -290,11 +375,21 @@ public class AsynchronousTcpSession implements Session {
         if (entry == null) {
             return;
         }
+        pendingOutputBytes.addAndGet(entry.remaining());
         outputLock.lock();
         try {
             if (!isWriting) {
                 isWriting = true;
-                _write(entry);
+                writingStartTime = Millisecond100Clock.currentTimeMillis();
+                if (config.isFlushConsolidationEnable()
+                        && decodingThread == Thread.currentThread()
+                        && entry.getOutputEntryType() != OutputEntryType.DISCONNECTION) {
+                    // the following writes of the current decoding are merged into one gathering write
+                    consolidating = true;
+                    outputBuffer.offer(entry);
+                } else {
+                    _write(entry);
+                }
             } else {
                 outputBuffer.offer(entry);
             }
@@ -351,6 +446,15 @@ public class AsynchronousTcpSession implements Session {
         }
     }
 
+    @Override
+    public void decode(ByteBuffer buffer) {
+        try {
+            decodeAndFlush(buffer);
+        } catch (Throwable t) {
+            eventManager.executeExceptionTask(this, t);
+        }
+    }
+
     @Override
     public void close() {
         if (isOpen() && waitingForClose.compareAndSet(false, true)) {
@@ -365,6 +469,10 @@ public class AsynchronousTcpSession implements Session {
     public void closeNow() {
         if (closed.compareAndSet(false, true)) {
             closeTime = Millisecond100Clock.currentTimeMillis();
+            Scheduler.Future future = idleTimeoutFuture;
+            if (future != null) {
+                future.cancel();
+            }
             try {
                 socketChannel.close();
                 log.info("The session {} closed", sessionId);
@@ -373,6 +481,7 @@ public class AsynchronousTcpSession implements Session {
             } catch (IOException e) {
                 log.error("The session " + sessionId + " close exception", e);
             } finally {
+                fireOutputDrainedListeners(true);
                 eventManager.executeCloseTask(this);
                 sessionMetric.getActiveSessionCount().dec();
                 sessionMetric.getDuration().update(getDuration());
@@ -533,6 +642,98 @@ public class AsynchronousTcpSession implements Session {
         return config.getTimeout();
     }
 
+    @Override
+    public void suspendRead() {
+        readSuspended = true;
+    }
+
+    @Override
+    public void resumeRead() {
+        readSuspended = false;
+        if (readStopped.compareAndSet(true, false)) {
+            _read();
+        }
+    }
+
+    @Override
+    public boolean isReadSuspended() {
+        return readSuspended;
+    }
+
+    private void continueReading() {
+        if (!readSuspended) {
+            _read();
+            return;
+        }
+
+        readStopped.set(true);
+        // the reading may be resumed before the read loop stops, the resuming thread does not see the stopped flag
+        if (!readSuspended && readStopped.compareAndSet(true, false)) {
+            _read();
+        }
+    }
+
+    @Override
+    public long getPendingOutputBytes() {
+        return pendingOutputBytes.get();
+    }
+
+    @Override
+    public void onOutputDrained(long threshold, Action0 callback) {
+        synchronized (outputDrainedListeners) {
+            outputDrainedListeners.add(new OutputDrainedListener(threshold, callback));
+        }
+        // the pending output may be written before the listener is added
+        fireOutputDrainedListeners(isClosed());
+    }
+
+    private void outputWritten(long bytes) {
+        pendingOutputBytes.addAndGet(-bytes);
+        fireOutputDrainedListeners(false);
+    }
+
+    private void fireOutputDrainedListeners(boolean all) {
+        List<OutputDrainedListener> drained = null;
+        synchronized (outputDrainedListeners) {
+            if (outputDrainedListeners.isEmpty()) {
+                return;
+            }
+
+            long pending = pendingOutputBytes.get();
+            Iterator<OutputDrainedListener> iterator = outputDrainedListeners.iterator();
+            while (iterator.hasNext()) {
+                OutputDrainedListener listener = iterator.next();
+                if (all || pending <= listener.threshold) {
+                    iterator.remove();
+                    if (drained == null) {
+                        drained = new ArrayList<>(1);
+                    }
+                    drained.add(listener);
+                }
+            }
+        }
+
+        if (drained != null) {
+            for (OutputDrainedListener listener : drained) {
+                try {
+                    listener.callback.call();
+                } catch (Throwable t) {
+                    log.error("The session {} output drained callback exception", t, sessionId);
+                }
+            }
+        }
+    }
+
+    private static class OutputDrainedListener {
+        private final long threshold;
+        private final Action0 callback;
+
+        private OutputDrainedListener(long threshold, Action0 callback) {
+            this.threshold = threshold;
+            this.callback = callback;
+        }
+    }
+
     @Override
     public String toString() {
         return "[sessionId=" + sessionId + ", openTime="
@@ -10,6 +10,7 @@ import java.io.IOException;
 import java.net.StandardSocketOptions;
 import java.nio.channels.AsynchronousSocketChannel;
 import java.nio.channels.Channel;
+import java.nio.channels.NetworkChannel;
 
 public class AsynchronousTcpWorker implements Worker {
     private static Logger log = LoggerFactory.getLogger("firefly-system");
@@ -17,6 +18,22 @@ public class AsynchronousTcpWorker implements Worker {
     private final Config config;
     private final EventManager eventManager;
 
+    static void setSocketOptions(NetworkChannel socketChannel, Config config) throws IOException {
+        socketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, config.isReuseAddress());
+        socketChannel.setOption(StandardSocketOptions.SO_KEEPALIVE, config.isKeepAlive());
+        socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, config.isTcpNoDelay());
+        if (config.getReceiveBufferSize() > 0) {
+            socketChannel.setOption(StandardSocketOptions.SO_RCVBUF, config.getReceiveBufferSize());
+        }
+        if (config.getSendBufferSize() > 0) {
+            socketChannel.setOption(StandardSocketOptions.SO_SNDBUF, config.getSendBufferSize());
+        }
+        // the asynchronous socket channel of some JDK versions does not support the SO_LINGER option
+        if (config.getSoLinger() >= 0 && socketChannel.supportedOptions().contains(StandardSocketOptions.SO_LINGER)) {
+            socketChannel.setOption(StandardSocketOptions.SO_LINGER, config.getSoLinger());
+        }
+    }
+
     AsynchronousTcpWorker(Config config, EventManager eventManager) {
         this.config = config;
         this.eventManager = eventManager;
@@ -26,9 +43,7 @@ public class AsynchronousTcpWorker implements Worker {
     public void registerChannel(Channel channel, int sessionId) {
         try {
             AsynchronousSocketChannel socketChannel = (AsynchronousSocketChannel) channel;
-            socketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
-            socketChannel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
-            socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, false);
+            setSocketOptions(socketChannel, config);
 
             AsynchronousTcpSession session = new AsynchronousTcpSession(sessionId, config, eventManager, socketChannel);
             eventManager.executeOpenTask(session);
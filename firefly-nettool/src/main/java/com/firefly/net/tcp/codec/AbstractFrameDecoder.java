@@ -0,0 +1,188 @@
+package com.firefly.net.tcp.codec;
+
+import com.firefly.net.BufferPool;
+import com.firefly.net.buffer.ThreadSafeIOBufferPool;
+import com.firefly.net.exception.FrameTooLongException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The frame decoder splits the received bytes into frames without decoding the charset.
+ * <p>
+ * If a frame is complete in the received buffer, the frame is a slice of the received buffer.
+ * The bytes of an incomplete frame are kept in a cumulation buffer that is acquired from the buffer pool,
+ * and the cumulation buffer is released when all its bytes are consumed. The cumulation buffer grows
+ * geometrically, so a large frame that arrives in many small pieces is not copied many times.
+ * The frames that are sliced from the cumulation buffer are valid until the complete callback returns,
+ * copy the frame if it is used after the callback.
+ * <p>
+ * When the frame length exceeds the max frame length, the exception callback receives a
+ * {@link FrameTooLongException} and the whole frame is skipped, including the bytes that arrive later,
+ * so the next frame is decoded from its first byte. The other decoding failures discard the cumulated bytes,
+ * because the decoder can not find the start of the next frame. Only the decoding failures are passed
+ * to the exception callback, the exception thrown by the complete callback is thrown to the caller.
+ * The decoder is not thread safe, each connection uses a decoder of its own.
+ *
+ * @author Pengtao Qiu
+ */
+abstract public class AbstractFrameDecoder extends AbstractMessageHandler<ByteBuffer, ByteBuffer> {
+
+    private static final BufferPool defaultBufferPool = new ThreadSafeIOBufferPool(false);
+
+    protected final int maxFrameLength;
+    protected final BufferPool bufferPool;
+    private ByteBuffer cumulation;
+    private long bytesToDiscard;
+
+    public AbstractFrameDecoder(int maxFrameLength) {
+        this(maxFrameLength, defaultBufferPool);
+    }
+
+    public AbstractFrameDecoder(int maxFrameLength, BufferPool bufferPool) {
+        if (maxFrameLength <= 0) {
+            throw new IllegalArgumentException("the max frame length must be positive");
+        }
+        this.maxFrameLength = maxFrameLength;
+        this.bufferPool = bufferPool;
+    }
+
+    @Override
+    protected void parse(ByteBuffer buf) {
+        if (cumulation != null) {
+            merge(buf);
+        }
+        ByteBuffer in = cumulation != null ? cumulation : buf;
+        try {
+            decodeFrames(in);
+        } finally {
+            // keep the bytes of the incomplete frame even if the complete callback throws an exception
+            if (in == cumulation) {
+                if (cumulation.hasRemaining()) {
+                    cumulation.compact().flip();
+                } else {
+                    releaseCumulation();
+                }
+            } else if (buf.hasRemaining()) {
+                cumulation = bufferPool.acquire(buf.remaining());
+                cumulation.put(buf).flip();
+            }
+        }
+    }
+
+    private void merge(ByteBuffer buf) {
+        int length = cumulation.remaining() + buf.remaining();
+        if (cumulation.capacity() < length) {
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(length, (long) cumulation.capacity() << 1));
+            ByteBuffer tmp = bufferPool.acquire(capacity);
+            tmp.put(cumulation);
+            bufferPool.release(cumulation);
+            cumulation = tmp;
+        } else {
+            cumulation.compact();
+        }
+        cumulation.put(buf).flip();
+    }
+
+    private void decodeFrames(ByteBuffer in) {
+        while (in.hasRemaining()) {
+            if (bytesToDiscard > 0) {
+                // the rest of the frame that exceeds the max frame length
+                int skip = (int) Math.min(bytesToDiscard, in.remaining());
+                in.position(in.position() + skip);
+                bytesToDiscard -= skip;
+                continue;
+            }
+
+            ByteBuffer frame;
+            try {
+                frame = decode(in);
+            } catch (FrameTooLongException e) {
+                // the decoder has skipped the frame, the next frame is decoded
+                exception.call(e);
+                continue;
+            } catch (Throwable t) {
+                // discard the received bytes, the cumulation buffer is released when the parsing completes
+                in.position(in.limit());
+                bytesToDiscard = 0;
+                reset();
+                exception.call(t);
+                return;
+            }
+            if (frame == null) {
+                break;
+            }
+            action.call(frame);
+        }
+    }
+
+    private void releaseCumulation() {
+        if (cumulation != null) {
+            bufferPool.release(cumulation);
+            cumulation = null;
+        }
+    }
+
+    /**
+     * Get the number of the bytes that wait for the rest of the frame.
+     *
+     * @return The cumulated bytes.
+     */
+    public int getCumulatedBytes() {
+        return cumulation == null ? 0 : cumulation.remaining();
+    }
+
+    /**
+     * Slice a frame from the buffer, and the buffer position moves to the end of the frame.
+     *
+     * @param in     The buffer.
+     * @param offset The frame offset from the buffer position.
+     * @param length The frame length.
+     * @param skip   The byte number that is skipped after the frame, such as the delimiter.
+     * @return The frame that shares the bytes of the buffer.
+     */
+    protected static ByteBuffer slice(ByteBuffer in, int offset, int length, int skip) {
+        int start = in.position() + offset;
+        int limit = in.limit();
+        in.position(start).limit(start + length);
+        ByteBuffer frame = in.slice();
+        in.limit(limit).position(start + length + skip);
+        return frame;
+    }
+
+    /**
+     * Skip the frame if its length exceeds the max frame length. The bytes of the frame that have not been received
+     * are skipped when they arrive.
+     *
+     * @param in         The buffer whose position is the start of the frame.
+     * @param length     The length of the frame content.
+     * @param frameBytes The byte number of the whole frame, including the length field.
+     * @throws FrameTooLongException If the frame length exceeds the max frame length.
+     */
+    protected void checkFrameLength(ByteBuffer in, long length, long frameBytes) {
+        if (length > maxFrameLength) {
+            int skip = (int) Math.min(frameBytes, in.remaining());
+            in.position(in.position() + skip);
+            bytesToDiscard = frameBytes - skip;
+            throw frameTooLong(length);
+        }
+    }
+
+    protected FrameTooLongException frameTooLong(long length) {
+        return new FrameTooLongException("the frame length " + length + " exceeds the max frame length " + maxFrameLength);
+    }
+
+    /**
+     * Discard the decoding states when the cumulated bytes are discarded.
+     */
+    protected void reset() {
+    }
+
+    /**
+     * Decode a frame from the buffer.
+     *
+     * @param in The received bytes.
+     * @return The frame. If it is null, the frame is incomplete, and the buffer position only moves
+     * over the discarded bytes.
+     */
+    abstract protected ByteBuffer decode(ByteBuffer in);
+}
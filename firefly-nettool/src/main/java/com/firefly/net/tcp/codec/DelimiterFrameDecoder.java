@@ -0,0 +1,103 @@
+package com.firefly.net.tcp.codec;
+
+import com.firefly.net.BufferPool;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The frames are separated by a byte pattern, such as "\r\n". The complete callback receives
+ * the frame without the delimiter. The bytes that have been searched are not searched again
+ * when the rest of the frame arrives. The frame that exceeds the max frame length is discarded
+ * until the next delimiter.
+ *
+ * @author Pengtao Qiu
+ */
+public class DelimiterFrameDecoder extends AbstractFrameDecoder {
+
+    private final byte[] delimiter;
+    private int searched;
+    private boolean discarding;
+
+    public DelimiterFrameDecoder(String delimiter, int maxFrameLength) {
+        this(delimiter.getBytes(StandardCharsets.UTF_8), maxFrameLength);
+    }
+
+    public DelimiterFrameDecoder(byte[] delimiter, int maxFrameLength) {
+        super(maxFrameLength);
+        this.delimiter = check(delimiter);
+    }
+
+    public DelimiterFrameDecoder(byte[] delimiter, int maxFrameLength, BufferPool bufferPool) {
+        super(maxFrameLength, bufferPool);
+        this.delimiter = check(delimiter);
+    }
+
+    private static byte[] check(byte[] delimiter) {
+        if (delimiter == null || delimiter.length == 0) {
+            throw new IllegalArgumentException("the delimiter is empty");
+        }
+        return delimiter.clone();
+    }
+
+    @Override
+    protected ByteBuffer decode(ByteBuffer in) {
+        int index = indexOf(in, in.position() + searched);
+        if (discarding) {
+            if (index < 0) {
+                // keep the tail that may be the prefix of the delimiter
+                in.position(Math.max(in.position(), in.limit() - delimiter.length + 1));
+                searched = 0;
+                return null;
+            }
+            // the next frame starts after the delimiter of the discarded frame
+            in.position(index + delimiter.length);
+            discarding = false;
+            searched = 0;
+            index = indexOf(in, in.position());
+        }
+
+        int position = in.position();
+        if (index < 0) {
+            // the tail may be the prefix of the delimiter, it is searched again
+            searched = Math.max(0, in.remaining() - delimiter.length + 1);
+            if (searched > maxFrameLength) {
+                // the frame content has at least the searched bytes, because the delimiter does not start in them
+                discarding = true;
+                in.position(position + searched);
+                searched = 0;
+                throw frameTooLong(in.position() - position);
+            }
+            return null;
+        }
+
+        int length = index - position;
+        searched = 0;
+        checkFrameLength(in, length, length + delimiter.length);
+        return slice(in, 0, length, delimiter.length);
+    }
+
+    @Override
+    protected void reset() {
+        searched = 0;
+        discarding = false;
+    }
+
+    private int indexOf(ByteBuffer in, int from) {
+        byte first = delimiter[0];
+        int last = in.limit() - delimiter.length;
+        for (int i = from; i <= last; i++) {
+            if (in.get(i) != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < delimiter.length && in.get(i + j) == delimiter[j]) {
+                j++;
+            }
+            if (j == delimiter.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,33 @@
+package com.firefly.net.tcp.codec;
+
+import com.firefly.net.BufferPool;
+
+import java.nio.ByteBuffer;
+
+/**
+ * All frames have the same length.
+ *
+ * @author Pengtao Qiu
+ */
+public class FixedLengthFrameDecoder extends AbstractFrameDecoder {
+
+    private final int frameLength;
+
+    public FixedLengthFrameDecoder(int frameLength) {
+        super(frameLength);
+        this.frameLength = frameLength;
+    }
+
+    public FixedLengthFrameDecoder(int frameLength, BufferPool bufferPool) {
+        super(frameLength, bufferPool);
+        this.frameLength = frameLength;
+    }
+
+    @Override
+    protected ByteBuffer decode(ByteBuffer in) {
+        if (in.remaining() < frameLength) {
+            return null;
+        }
+        return slice(in, 0, frameLength, 0);
+    }
+}
@@ -0,0 +1,99 @@
+package com.firefly.net.tcp.codec;
+
+import com.firefly.net.BufferPool;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The frame starts with a fixed length field that is the byte number of the frame content.
+ * The complete callback receives the frame content without the length field.
+ *
+ * @author Pengtao Qiu
+ */
+public class LengthFieldFrameDecoder extends AbstractFrameDecoder {
+
+    private final int lengthFieldLength;
+    private final ByteOrder byteOrder;
+
+    /**
+     * Create a decoder that reads the big endian length field.
+     *
+     * @param lengthFieldLength The byte number of the length field, it is 1, 2, 3, 4 or 8.
+     * @param maxFrameLength    The max length of the frame content.
+     */
+    public LengthFieldFrameDecoder(int lengthFieldLength, int maxFrameLength) {
+        this(lengthFieldLength, ByteOrder.BIG_ENDIAN, maxFrameLength);
+    }
+
+    /**
+     * Create a decoder.
+     *
+     * @param lengthFieldLength The byte number of the length field, it is 1, 2, 3, 4 or 8.
+     * @param byteOrder         The byte order of the length field.
+     * @param maxFrameLength    The max length of the frame content.
+     */
+    public LengthFieldFrameDecoder(int lengthFieldLength, ByteOrder byteOrder, int maxFrameLength) {
+        super(maxFrameLength);
+        this.lengthFieldLength = check(lengthFieldLength);
+        this.byteOrder = byteOrder;
+    }
+
+    /**
+     * Create a decoder.
+     *
+     * @param lengthFieldLength The byte number of the length field, it is 1, 2, 3, 4 or 8.
+     * @param byteOrder         The byte order of the length field.
+     * @param maxFrameLength    The max length of the frame content.
+     * @param bufferPool        The pool of the cumulation buffer.
+     */
+    public LengthFieldFrameDecoder(int lengthFieldLength, ByteOrder byteOrder, int maxFrameLength, BufferPool bufferPool) {
+        super(maxFrameLength, bufferPool);
+        this.lengthFieldLength = check(lengthFieldLength);
+        this.byteOrder = byteOrder;
+    }
+
+    private static int check(int lengthFieldLength) {
+        switch (lengthFieldLength) {
+            case 1:
+            case 2:
+            case 3:
+            case 4:
+            case 8:
+                return lengthFieldLength;
+            default:
+                throw new IllegalArgumentException("the length field length must be 1, 2, 3, 4 or 8: " + lengthFieldLength);
+        }
+    }
+
+    @Override
+    protected ByteBuffer decode(ByteBuffer in) {
+        if (in.remaining() < lengthFieldLength) {
+            return null;
+        }
+
+        long length = readLength(in, in.position());
+        if (length < 0) {
+            throw new IllegalStateException("the frame length is negative: " + length);
+        }
+        checkFrameLength(in, length, lengthFieldLength + length);
+        if (in.remaining() - lengthFieldLength < length) {
+            return null;
+        }
+        return slice(in, lengthFieldLength, (int) length, 0);
+    }
+
+    private long readLength(ByteBuffer in, int index) {
+        boolean bigEndian = byteOrder == ByteOrder.BIG_ENDIAN;
+        long length = 0;
+        for (int i = 0; i < lengthFieldLength; i++) {
+            long b = in.get(index + i) & 0xFF;
+            if (bigEndian) {
+                length = (length << 8) | b;
+            } else {
+                length |= b << (i << 3);
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,75 @@
+package com.firefly.net.tcp.codec;
+
+import com.firefly.net.BufferPool;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The frame starts with a base 128 varint (the protobuf format) that is the byte number of the frame content.
+ * The complete callback receives the frame content without the length field.
+ *
+ * @author Pengtao Qiu
+ */
+public class VarIntFrameDecoder extends AbstractFrameDecoder {
+
+    public VarIntFrameDecoder(int maxFrameLength) {
+        super(maxFrameLength);
+    }
+
+    public VarIntFrameDecoder(int maxFrameLength, BufferPool bufferPool) {
+        super(maxFrameLength, bufferPool);
+    }
+
+    @Override
+    protected ByteBuffer decode(ByteBuffer in) {
+        int index = in.position();
+        int limit = in.limit();
+        long length = 0;
+        int shift = 0;
+        while (true) {
+            if (index >= limit) {
+                return null;
+            }
+            byte b = in.get(index++);
+            length |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+            shift += 7;
+            if (shift > 28) {
+                // the 5th byte completes the 32 bits length
+                throw new IllegalStateException("the varint length field is malformed");
+            }
+        }
+
+        // the length field has 5 bytes at most, so the whole length is read before it is checked
+        int headerLength = index - in.position();
+        checkFrameLength(in, length, headerLength + length);
+        if (limit - index < length) {
+            return null;
+        }
+        return slice(in, headerLength, (int) length, 0);
+    }
+
+    /**
+     * Get the length field of the frame content.
+     *
+     * @param length The byte number of the frame content.
+     * @return The varint bytes.
+     */
+    public static byte[] encodeLength(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("the length is negative");
+        }
+        byte[] tmp = new byte[5];
+        int i = 0;
+        while ((length & ~0x7F) != 0) {
+            tmp[i++] = (byte) ((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        tmp[i++] = (byte) length;
+        byte[] bytes = new byte[i];
+        System.arraycopy(tmp, 0, bytes, 0, i);
+        return bytes;
+    }
+}
@@ -0,0 +1,196 @@
+package com.firefly.net.tcp.pipeline;
+
+import com.firefly.net.tcp.SimpleTcpClient;
+import com.firefly.utils.concurrent.Scheduler;
+import com.firefly.utils.concurrent.Schedulers;
+import com.firefly.utils.lang.AbstractLifeCycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The client sends the pipelined requests by a pool of connections.
+ * Each request is sent by the connection that has the least outstanding requests.
+ * When a connection is closed or a connecting attempt fails, the client creates a new connection
+ * with an exponential backoff delay.
+ * <p>
+ * The client is ready when it has a live connection and no connecting attempt is in progress, so the requests
+ * are spread across the connections that are established together. The requests wait until the client is ready,
+ * and they fail if all connecting attempts fail when the client has no live connection.
+ *
+ * @author Pengtao Qiu
+ */
+public class PipelineClient extends AbstractLifeCycle {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private final SimpleTcpClient client;
+    private final String host;
+    private final int port;
+    private final PipelineConfiguration config;
+    private final List<PipelineConnection> connections = new CopyOnWriteArrayList<>();
+    private final AtomicInteger connectingCount = new AtomicInteger();
+    private final Object readyLock = new Object();
+    private final Scheduler reconnectScheduler = Schedulers.createScheduler();
+    private volatile CompletableFuture<Void> ready = new CompletableFuture<>();
+    private volatile boolean running;
+
+    public PipelineClient(String host, int port) {
+        this(host, port, new PipelineConfiguration());
+    }
+
+    public PipelineClient(String host, int port, PipelineConfiguration config) {
+        this.host = host;
+        this.port = port;
+        this.config = config;
+        this.client = new SimpleTcpClient(config);
+    }
+
+    /**
+     * Send a request. If the connections are being established, the request is sent after they are established.
+     *
+     * @param payload The request payload.
+     * @return The future of the response payload.
+     */
+    public CompletableFuture<ByteBuffer> request(ByteBuffer payload) {
+        start();
+        CompletableFuture<Void> ready = this.ready;
+        if (!ready.isDone()) {
+            return ready.thenCompose(v -> send(payload));
+        }
+        return send(payload);
+    }
+
+    private CompletableFuture<ByteBuffer> send(ByteBuffer payload) {
+        PipelineConnection connection = null;
+        int min = Integer.MAX_VALUE;
+        for (PipelineConnection c : connections) {
+            int count = c.getOutstandingCount();
+            if (count < min && !c.isClosed()) {
+                min = count;
+                connection = c;
+            }
+        }
+        if (connection == null) {
+            CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+            future.completeExceptionally(new ClosedChannelException());
+            return future;
+        }
+        return connection.request(payload);
+    }
+
+    private void connect(int attempts) {
+        connectingCount.incrementAndGet();
+        client.connect(host, port).whenComplete((c, t) -> {
+            connectingCount.decrementAndGet();
+            if (t != null) {
+                log.warn("create the pipelined connection exception, attempts: {}", attempts + 1, t);
+                updateReady(t);
+                reconnect(attempts + 1);
+                return;
+            }
+
+            PipelineConnection connection = new PipelineConnection(c, config);
+            connection.close(() -> {
+                connections.remove(connection);
+                synchronized (readyLock) {
+                    if (connections.isEmpty() && ready.isDone()) {
+                        ready = new CompletableFuture<>();
+                    }
+                }
+                if (running) {
+                    log.info("the pipelined connection {} is closed, create a new connection", c.getSessionId());
+                    connect(0);
+                }
+            });
+            connections.add(connection);
+            updateReady(null);
+            if (!running) {
+                connection.close();
+            }
+        });
+    }
+
+    private void updateReady(Throwable t) {
+        synchronized (readyLock) {
+            if (connectingCount.get() > 0 || ready.isDone()) {
+                return;
+            }
+            if (!connections.isEmpty()) {
+                ready.complete(null);
+            } else {
+                // the waiting requests fail if no connection is live or being established
+                CompletableFuture<Void> failed = ready;
+                ready = new CompletableFuture<>();
+                failed.completeExceptionally(t);
+            }
+        }
+    }
+
+    private void reconnect(int attempts) {
+        if (!running) {
+            return;
+        }
+        long delay = getReconnectDelay(attempts);
+        try {
+            reconnectScheduler.schedule(() -> {
+                if (running) {
+                    connect(attempts);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("the pipelined client is stopped, cancel reconnecting");
+        }
+    }
+
+    private long getReconnectDelay(int attempts) {
+        long delay = config.getReconnectInitialDelay() << Math.min(attempts - 1, 30);
+        return delay > 0 ? Math.min(delay, config.getReconnectMaxDelay()) : config.getReconnectMaxDelay();
+    }
+
+    /**
+     * Get the established connections.
+     *
+     * @return The connections.
+     */
+    public List<PipelineConnection> getConnections() {
+        return connections;
+    }
+
+    /**
+     * Get the number of the live connections.
+     *
+     * @return The live connection number.
+     */
+    public int getLiveConnectionCount() {
+        return connections.size();
+    }
+
+    @Override
+    protected void init() {
+        running = true;
+        int poolSize = config.getConnectionPoolSize();
+        for (int i = 0; i < poolSize; i++) {
+            connect(0);
+        }
+    }
+
+    @Override
+    protected void destroy() {
+        running = false;
+        reconnectScheduler.stop();
+        connections.forEach(PipelineConnection::close);
+        client.stop();
+        synchronized (readyLock) {
+            ready.completeExceptionally(new ClosedChannelException());
+        }
+    }
+}
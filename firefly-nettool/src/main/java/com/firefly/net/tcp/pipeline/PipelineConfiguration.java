@@ -0,0 +1,127 @@
+package com.firefly.net.tcp.pipeline;
+
+import com.firefly.net.tcp.TcpConfiguration;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class PipelineConfiguration extends TcpConfiguration {
+
+    private int connectionPoolSize = 4;
+    private int maxOutstandingRequests = 1024;
+    private long requestTimeout = 10 * 1000;
+    private int maxFrameLength = 16 * 1024 * 1024;
+    private long reconnectInitialDelay = 100;
+    private long reconnectMaxDelay = 10 * 1000;
+
+    /**
+     * Get the number of the connections. The requests are sent by the connection that has the least outstanding requests.
+     *
+     * @return The connection pool size. The default value is 4.
+     */
+    public int getConnectionPoolSize() {
+        return connectionPoolSize;
+    }
+
+    /**
+     * Set the number of the connections. The requests are sent by the connection that has the least outstanding requests.
+     *
+     * @param connectionPoolSize The connection pool size. The default value is 4.
+     */
+    public void setConnectionPoolSize(int connectionPoolSize) {
+        this.connectionPoolSize = connectionPoolSize;
+    }
+
+    /**
+     * Get the max number of the requests that wait for the responses in a connection.
+     * The request fails if all connections reach the limit.
+     *
+     * @return The max outstanding requests. The default value is 1024.
+     */
+    public int getMaxOutstandingRequests() {
+        return maxOutstandingRequests;
+    }
+
+    /**
+     * Set the max number of the requests that wait for the responses in a connection.
+     * The request fails if all connections reach the limit.
+     *
+     * @param maxOutstandingRequests The max outstanding requests. The default value is 1024.
+     */
+    public void setMaxOutstandingRequests(int maxOutstandingRequests) {
+        this.maxOutstandingRequests = maxOutstandingRequests;
+    }
+
+    /**
+     * Get the request timeout. If the response is not received in time, the request fails with the TimeoutException.
+     *
+     * @return The request timeout (millisecond). The default value is 10 seconds. If it is 0, the request never times out.
+     */
+    public long getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /**
+     * Set the request timeout. If the response is not received in time, the request fails with the TimeoutException.
+     *
+     * @param requestTimeout The request timeout (millisecond). The default value is 10 seconds. If it is 0, the request never times out.
+     */
+    public void setRequestTimeout(long requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Get the max byte number of the response frame.
+     *
+     * @return The max frame length. The default value is 16MB.
+     */
+    public int getMaxFrameLength() {
+        return maxFrameLength;
+    }
+
+    /**
+     * Set the max byte number of the response frame.
+     *
+     * @param maxFrameLength The max frame length. The default value is 16MB.
+     */
+    public void setMaxFrameLength(int maxFrameLength) {
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    /**
+     * Get the delay of the first reconnecting attempt after a connecting attempt fails.
+     *
+     * @return The initial reconnect delay (millisecond). The default value is 100ms.
+     */
+    public long getReconnectInitialDelay() {
+        return reconnectInitialDelay;
+    }
+
+    /**
+     * Set the delay of the first reconnecting attempt after a connecting attempt fails.
+     * The delay doubles after each failed attempt until it reaches the max reconnect delay.
+     *
+     * @param reconnectInitialDelay The initial reconnect delay (millisecond). The default value is 100ms.
+     */
+    public void setReconnectInitialDelay(long reconnectInitialDelay) {
+        this.reconnectInitialDelay = reconnectInitialDelay;
+    }
+
+    /**
+     * Get the max delay between the reconnecting attempts.
+     *
+     * @return The max reconnect delay (millisecond). The default value is 10 seconds.
+     */
+    public long getReconnectMaxDelay() {
+        return reconnectMaxDelay;
+    }
+
+    /**
+     * Set the max delay between the reconnecting attempts.
+     *
+     * @param reconnectMaxDelay The max reconnect delay (millisecond). The default value is 10 seconds.
+     */
+    public void setReconnectMaxDelay(long reconnectMaxDelay) {
+        this.reconnectMaxDelay = reconnectMaxDelay;
+    }
+}
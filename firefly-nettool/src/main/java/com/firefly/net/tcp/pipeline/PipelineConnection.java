@@ -0,0 +1,179 @@
+package com.firefly.net.tcp.pipeline;
+
+import com.firefly.net.tcp.TcpConnection;
+import com.firefly.net.tcp.codec.LengthFieldFrameDecoder;
+import com.firefly.utils.concurrent.Scheduler;
+import com.firefly.utils.concurrent.Schedulers;
+import com.firefly.utils.function.Action0;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The pipelined connection sends the requests without waiting for the previous responses.
+ * Each request has a correlation id, and the responses are matched to the requests by the correlation id,
+ * so the server can respond in any order.
+ * <p>
+ * The outstanding requests are kept in a concurrent map, the request timeouts are checked by a shared timing wheel.
+ * The connection takes over the receive and close callbacks of the TCP connection.
+ *
+ * @author Pengtao Qiu
+ */
+public class PipelineConnection {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private static final Scheduler timeoutScheduler = Schedulers.createTimingWheel(10, TimeUnit.MILLISECONDS);
+
+    private final TcpConnection connection;
+    private final int maxOutstandingRequests;
+    private final long requestTimeout;
+    private final ConcurrentHashMap<Integer, PendingRequest> outstanding = new ConcurrentHashMap<>();
+    private final AtomicInteger outstandingCount = new AtomicInteger();
+    private final AtomicInteger idGenerator = new AtomicInteger();
+    private volatile Action0 closeCallback;
+
+    private static class PendingRequest {
+        final int id;
+        final CompletableFuture<ByteBuffer> future;
+        volatile Scheduler.Future timeout;
+
+        PendingRequest(int id, CompletableFuture<ByteBuffer> future) {
+            this.id = id;
+            this.future = future;
+        }
+    }
+
+    public PipelineConnection(TcpConnection connection, PipelineConfiguration config) {
+        this.connection = connection;
+        this.maxOutstandingRequests = config.getMaxOutstandingRequests();
+        this.requestTimeout = config.getRequestTimeout();
+
+        LengthFieldFrameDecoder decoder = PipelineFrame.newDecoder(config.getMaxFrameLength());
+        decoder.complete(this::onResponse).exception(t -> {
+            log.error("the connection {} parses the response exception", connection.getSessionId(), t);
+            connection.closeNow();
+        });
+        connection.receive(decoder::receive)
+                  .close(() -> {
+                      failAll(new ClosedChannelException());
+                      Action0 callback = closeCallback;
+                      if (callback != null) {
+                          callback.call();
+                      }
+                  });
+    }
+
+    /**
+     * Send a request.
+     *
+     * @param payload The request payload.
+     * @return The future of the response payload. It fails with the TimeoutException if the response is not received in time,
+     * and it fails with the RejectedExecutionException if the outstanding requests reach the limit.
+     */
+    public CompletableFuture<ByteBuffer> request(ByteBuffer payload) {
+        CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+        if (connection.isClosed()) {
+            future.completeExceptionally(new ClosedChannelException());
+            return future;
+        }
+        if (outstandingCount.incrementAndGet() > maxOutstandingRequests) {
+            outstandingCount.decrementAndGet();
+            future.completeExceptionally(new RejectedExecutionException("the outstanding requests exceed " + maxOutstandingRequests));
+            return future;
+        }
+
+        PendingRequest request = new PendingRequest(idGenerator.incrementAndGet(), future);
+        outstanding.put(request.id, request);
+        if (requestTimeout > 0) {
+            request.timeout = timeoutScheduler.schedule(
+                    () -> complete(request, null, new TimeoutException("the request " + request.id + " is timeout")),
+                    requestTimeout, TimeUnit.MILLISECONDS);
+        }
+        if (connection.isClosed()) {
+            // the connection is closed before the request is put into the map
+            complete(request, null, new ClosedChannelException());
+            return future;
+        }
+        connection.write(PipelineFrame.encode(request.id, payload), () -> {
+        }, t -> complete(request, null, t));
+        return future;
+    }
+
+    private void onResponse(ByteBuffer frame) {
+        int id = PipelineFrame.getId(frame);
+        PendingRequest request = outstanding.get(id);
+        if (request == null) {
+            log.debug("the connection {} receives the response {}, but the request has completed", connection.getSessionId(), id);
+            return;
+        }
+        // the frame may be a slice of the cumulation buffer, it is copied before it is passed to the other thread
+        ByteBuffer payload = PipelineFrame.getPayload(frame);
+        ByteBuffer response = ByteBuffer.allocate(payload.remaining());
+        response.put(payload).flip();
+        complete(request, response, null);
+    }
+
+    private void complete(PendingRequest request, ByteBuffer response, Throwable t) {
+        if (!outstanding.remove(request.id, request)) {
+            return;
+        }
+        outstandingCount.decrementAndGet();
+        Scheduler.Future timeout = request.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        if (t == null) {
+            request.future.complete(response);
+        } else {
+            request.future.completeExceptionally(t);
+        }
+    }
+
+    private void failAll(Throwable t) {
+        for (PendingRequest request : outstanding.values()) {
+            complete(request, null, t);
+        }
+    }
+
+    /**
+     * Set the callback that is called after the connection closed. The outstanding requests have failed.
+     *
+     * @param closeCallback The close callback.
+     * @return The pipelined connection.
+     */
+    public PipelineConnection close(Action0 closeCallback) {
+        this.closeCallback = closeCallback;
+        return this;
+    }
+
+    public void close() {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            log.warn("close the connection {} exception", connection.getSessionId(), e);
+        }
+    }
+
+    public boolean isClosed() {
+        return connection.isClosed();
+    }
+
+    /**
+     * Get the number of the requests that wait for the responses.
+     *
+     * @return The outstanding requests.
+     */
+    public int getOutstandingCount() {
+        return outstandingCount.get();
+    }
+
+    public TcpConnection getTcpConnection() {
+        return connection;
+    }
+}
@@ -0,0 +1,63 @@
+package com.firefly.net.tcp.pipeline;
+
+import com.firefly.net.tcp.codec.LengthFieldFrameDecoder;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The frame of the pipelined requests and responses. The frame starts with a 4 bytes length field,
+ * the length field is followed by a 4 bytes correlation id and the payload. The length is the byte number
+ * of the correlation id and the payload. The server writes the response with the correlation id of the request.
+ *
+ * @author Pengtao Qiu
+ */
+abstract public class PipelineFrame {
+
+    public static final int LENGTH_FIELD_LENGTH = 4;
+    public static final int ID_LENGTH = 4;
+
+    /**
+     * Encode a frame.
+     *
+     * @param id      The correlation id.
+     * @param payload The payload.
+     * @return The header buffer and the payload buffer.
+     */
+    public static ByteBuffer[] encode(int id, ByteBuffer payload) {
+        ByteBuffer header = ByteBuffer.allocate(LENGTH_FIELD_LENGTH + ID_LENGTH);
+        header.putInt(ID_LENGTH + payload.remaining()).putInt(id).flip();
+        return new ByteBuffer[]{header, payload};
+    }
+
+    /**
+     * Create a decoder that receives the frames without the length field.
+     *
+     * @param maxFrameLength The max byte number of the correlation id and the payload.
+     * @return The frame decoder.
+     */
+    public static LengthFieldFrameDecoder newDecoder(int maxFrameLength) {
+        return new LengthFieldFrameDecoder(LENGTH_FIELD_LENGTH, maxFrameLength);
+    }
+
+    /**
+     * Get the correlation id of the decoded frame.
+     *
+     * @param frame The frame without the length field.
+     * @return The correlation id.
+     */
+    public static int getId(ByteBuffer frame) {
+        return frame.getInt(frame.position());
+    }
+
+    /**
+     * Get the payload of the decoded frame, the payload shares the bytes of the frame.
+     *
+     * @param frame The frame without the length field.
+     * @return The payload.
+     */
+    public static ByteBuffer getPayload(ByteBuffer frame) {
+        ByteBuffer payload = frame.duplicate();
+        payload.position(frame.position() + ID_LENGTH);
+        return payload.slice();
+    }
+}
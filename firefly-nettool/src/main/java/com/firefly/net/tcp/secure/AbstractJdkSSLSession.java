@@ -1,8 +1,10 @@
 package com.firefly.net.tcp.secure;
 
 import com.firefly.net.ApplicationProtocolSelector;
+import com.firefly.net.BufferPool;
 import com.firefly.net.SecureSessionHandshakeListener;
 import com.firefly.net.Session;
+import com.firefly.net.buffer.ThreadSafeIOBufferPool;
 
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLEngineResult;
@@ -14,12 +16,21 @@ import java.nio.ByteBuffer;
  */
 abstract public class AbstractJdkSSLSession extends AbstractSecureSession {
 
+    private static final BufferPool bufferPool = new ThreadSafeIOBufferPool(false);
+
     public AbstractJdkSSLSession(Session session, SSLEngine sslEngine,
                                  ApplicationProtocolSelector applicationProtocolSelector,
                                  SecureSessionHandshakeListener handshakeListener) throws IOException {
         super(session, sslEngine, applicationProtocolSelector, handshakeListener);
     }
 
+    public AbstractJdkSSLSession(Session session, SSLEngine sslEngine,
+                                 ApplicationProtocolSelector applicationProtocolSelector,
+                                 SecureSessionHandshakeListener handshakeListener,
+                                 HandshakeTaskExecutor handshakeTaskExecutor) throws IOException {
+        super(session, sslEngine, applicationProtocolSelector, handshakeListener, handshakeTaskExecutor);
+    }
+
     @Override
     protected SSLEngineResult unwrap(ByteBuffer input) throws IOException {
         if (log.isDebugEnabled()) {
@@ -42,4 +53,9 @@ abstract public class AbstractJdkSSLSession extends AbstractSecureSession {
     protected ByteBuffer newBuffer(int size) {
         return ByteBuffer.allocate(size);
     }
+
+    @Override
+    protected BufferPool getBufferPool() {
+        return bufferPool;
+    }
 }
@@ -1,6 +1,7 @@
 package com.firefly.net.tcp.secure;
 
 import com.firefly.net.ApplicationProtocolSelector;
+import com.firefly.net.BufferPool;
 import com.firefly.net.SecureSession;
 import com.firefly.net.SecureSessionHandshakeListener;
 import com.firefly.net.Session;
@@ -10,6 +11,7 @@ import com.firefly.utils.StringUtils;
 import com.firefly.utils.concurrent.Callback;
 import com.firefly.utils.concurrent.CountingCallback;
 import com.firefly.utils.io.BufferReaderHandler;
+import com.firefly.utils.io.BufferUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,9 +21,23 @@ import javax.net.ssl.SSLException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * The TLS session does not keep the buffers when the connection is idle.
+ * <p>
+ * The plaintext is unwrapped into a buffer that is allocated for each read and handed to the decoder
+ * without copying. The plaintext of a TLS record never exceeds its ciphertext, so the buffer is sized by the
+ * received ciphertext. The packet buffers of the encrypted records are acquired from the buffer pool
+ * and released when the records are written. The received ciphertext of an incomplete record is kept
+ * until the rest of the record arrives.
+ * <p>
+ * If the handshake task executor is set, the delegated tasks of the handshake run in the executor.
+ * The received data are buffered until the tasks are complete, then the session resumes the handshake
+ * by decoding the buffered data.
+ *
  * @author Pengtao Qiu
  */
 abstract public class AbstractSecureSession implements SecureSession {
@@ -34,23 +50,35 @@ abstract public class AbstractSecureSession implements SecureSession {
     protected final SSLEngine sslEngine;
     protected final ApplicationProtocolSelector applicationProtocolSelector;
     protected final SecureSessionHandshakeListener handshakeListener;
+    protected final HandshakeTaskExecutor handshakeTaskExecutor;
+    protected final long handshakeStartTime = System.nanoTime();
 
     protected ByteBuffer receivedPacketBuf;
     protected ByteBuffer receivedAppBuf;
+    protected boolean pooledReceivedPacketBuf;
 
     protected volatile boolean closed = false;
     protected SSLEngineResult.HandshakeStatus initialHSStatus;
     protected boolean initialHSComplete;
+    protected boolean runningDelegatedTasks;
+    protected boolean started;
 
     public AbstractSecureSession(Session session, SSLEngine sslEngine,
                                  ApplicationProtocolSelector applicationProtocolSelector,
                                  SecureSessionHandshakeListener handshakeListener) throws IOException {
+        this(session, sslEngine, applicationProtocolSelector, handshakeListener, null);
+    }
+
+    public AbstractSecureSession(Session session, SSLEngine sslEngine,
+                                 ApplicationProtocolSelector applicationProtocolSelector,
+                                 SecureSessionHandshakeListener handshakeListener,
+                                 HandshakeTaskExecutor handshakeTaskExecutor) throws IOException {
         this.session = session;
         this.sslEngine = sslEngine;
         this.applicationProtocolSelector = applicationProtocolSelector;
         this.handshakeListener = handshakeListener;
+        this.handshakeTaskExecutor = handshakeTaskExecutor;
 
-        receivedAppBuf = newBuffer(sslEngine.getSession().getApplicationBufferSize());
         initialHSComplete = false;
 
         // start tls
@@ -59,6 +87,8 @@ abstract public class AbstractSecureSession implements SecureSession {
         if (sslEngine.getUseClientMode()) {
             doHandshakeResponse();
         }
+        // the session is not attached to the connection in the constructor, so the tasks above run in the current thread
+        started = true;
     }
 
     /**
@@ -80,6 +110,12 @@ abstract public class AbstractSecureSession implements SecureSession {
             return true;
         }
 
+        if (runningDelegatedTasks) {
+            // buffer the received data until the delegated tasks are complete
+            merge(receiveBuffer);
+            return false;
+        }
+
         switch (initialHSStatus) {
             case NOT_HANDSHAKING:
             case FINISHED: {
@@ -104,6 +140,10 @@ abstract public class AbstractSecureSession implements SecureSession {
 
     protected void doHandshakeReceive(ByteBuffer receiveBuffer) throws IOException {
         merge(receiveBuffer);
+        if (receivedPacketBuf == null) {
+            return;
+        }
+
         needIO:
         while (initialHSStatus == SSLEngineResult.HandshakeStatus.NEED_UNWRAP) {
 
@@ -120,6 +160,9 @@ abstract public class AbstractSecureSession implements SecureSession {
                     case OK: {
                         switch (initialHSStatus) {
                             case NEED_TASK:
+                                if (runDelegatedTasks()) {
+                                    break needIO;
+                                }
                                 initialHSStatus = doTasks();
                                 break unwrap;
                             case NOT_HANDSHAKING:
@@ -165,10 +208,14 @@ abstract public class AbstractSecureSession implements SecureSession {
                 }
             }
         }
+        releaseConsumedBuffers();
     }
 
     protected void handshakeFinish() {
         log.info("Session {} handshake success. The application protocol is {}", session.getSessionId(), getApplicationProtocol());
+        if (handshakeTaskExecutor != null) {
+            handshakeTaskExecutor.getHandshakeLatency().update(System.nanoTime() - handshakeStartTime, TimeUnit.NANOSECONDS);
+        }
         initialHSComplete = true;
         handshakeListener.complete(this);
     }
@@ -179,7 +226,7 @@ abstract public class AbstractSecureSession implements SecureSession {
         outer:
         while (initialHSStatus == SSLEngineResult.HandshakeStatus.NEED_WRAP) {
             SSLEngineResult result;
-            ByteBuffer packetBuffer = newBuffer(sslEngine.getSession().getPacketBufferSize());
+            ByteBuffer packetBuffer = getBufferPool().acquire(sslEngine.getSession().getPacketBufferSize());
 
             wrap:
             while (true) {
@@ -197,50 +244,45 @@ abstract public class AbstractSecureSession implements SecureSession {
                         }
                         switch (initialHSStatus) {
                             case NEED_TASK: {
-                                initialHSStatus = doTasks();
-                                if (packetBuffer.hasRemaining()) {
-                                    session.write(packetBuffer, Callback.NOOP);
+                                writePacketBuffer(packetBuffer, Callback.NOOP);
+                                if (!runDelegatedTasks()) {
+                                    initialHSStatus = doTasks();
                                 }
                             }
                             break;
                             case FINISHED: {
                                 if (packetBuffer.hasRemaining()) {
-                                    session.write(packetBuffer, new Callback() {
+                                    writePacketBuffer(packetBuffer, new Callback() {
                                         public void succeeded() {
                                             handshakeFinish();
                                         }
                                     });
                                 } else {
+                                    getBufferPool().release(packetBuffer);
                                     handshakeFinish();
                                 }
                             }
                             break;
                             default: {
-                                if (packetBuffer.hasRemaining()) {
-                                    session.write(packetBuffer, Callback.NOOP);
-                                }
+                                writePacketBuffer(packetBuffer, Callback.NOOP);
                             }
                         }
                     }
                     break wrap;
 
                     case BUFFER_OVERFLOW:
-                        ByteBuffer b = newBuffer(packetBuffer.position() + sslEngine.getSession().getPacketBufferSize());
-                        packetBuffer.flip();
-                        b.put(packetBuffer);
-                        packetBuffer = b;
+                        packetBuffer = growPacketBuffer(packetBuffer, sslEngine.getSession().getPacketBufferSize());
                         break;
 
                     case CLOSED:
                         log.info("Session {} handshake failure. SSLEngine will close inbound", session.getSessionId());
                         packetBuffer.flip();
-                        if (packetBuffer.hasRemaining()) {
-                            session.write(packetBuffer, Callback.NOOP);
-                        }
+                        writePacketBuffer(packetBuffer, Callback.NOOP);
                         closeOutbound();
                         break outer;
 
                     default: // BUFFER_UNDERFLOW
+                        getBufferPool().release(packetBuffer);
                         throw new SecureNetException(StringUtils.replace("Session {} handshake exception. status -> {}", session.getSessionId(), result.getStatus()));
                 }
             }
@@ -255,35 +297,73 @@ abstract public class AbstractSecureSession implements SecureSession {
         receivedAppBuf = b;
     }
 
+    /**
+     * Make sure that the application buffer can hold the plaintext of the received ciphertext.
+     * The plaintext of a TLS record is not larger than its ciphertext.
+     */
+    protected void ensureAppBuffer() {
+        int size = Math.max(receivedPacketBuf.remaining(), 1);
+        if (receivedAppBuf == null) {
+            receivedAppBuf = newBuffer(size);
+        } else if (receivedAppBuf.remaining() < size) {
+            ByteBuffer b = newBuffer(receivedAppBuf.position() + size);
+            receivedAppBuf.flip();
+            b.put(receivedAppBuf);
+            receivedAppBuf = b;
+        }
+    }
+
     protected void merge(ByteBuffer now) {
         if (!now.hasRemaining()) {
             return;
         }
 
-        if (receivedPacketBuf != null) {
-            if (receivedPacketBuf.hasRemaining()) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Session {} read data, merge buffer -> {}, {}", session.getSessionId(),
-                            receivedPacketBuf.remaining(), now.remaining());
-                }
-                ByteBuffer ret = newBuffer(receivedPacketBuf.remaining() + now.remaining());
-                ret.put(receivedPacketBuf).put(now).flip();
-                receivedPacketBuf = ret;
-            } else {
-                receivedPacketBuf = now;
+        if (receivedPacketBuf != null && receivedPacketBuf.hasRemaining()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Session {} read data, merge buffer -> {}, {}", session.getSessionId(),
+                        receivedPacketBuf.remaining(), now.remaining());
             }
+            ByteBuffer ret = getBufferPool().acquire(receivedPacketBuf.remaining() + now.remaining());
+            ret.put(receivedPacketBuf).put(now).flip();
+            releaseReceivedPacketBuf();
+            receivedPacketBuf = ret;
+            pooledReceivedPacketBuf = true;
         } else {
+            releaseReceivedPacketBuf();
             receivedPacketBuf = now;
         }
     }
 
+    protected void releaseReceivedPacketBuf() {
+        if (pooledReceivedPacketBuf) {
+            getBufferPool().release(receivedPacketBuf);
+            pooledReceivedPacketBuf = false;
+        }
+        receivedPacketBuf = null;
+    }
+
+    /**
+     * Release the consumed ciphertext buffer and drop the empty application buffer,
+     * so the idle connection does not keep the buffers.
+     */
+    protected void releaseConsumedBuffers() {
+        if (receivedPacketBuf != null && !receivedPacketBuf.hasRemaining()) {
+            releaseReceivedPacketBuf();
+        }
+        if (receivedAppBuf != null && receivedAppBuf.position() == 0) {
+            receivedAppBuf = null;
+        }
+    }
+
     protected ByteBuffer getReceivedAppBuf() {
-        receivedAppBuf.flip();
-        log.debug("Session {} read data, get app buf -> {}, {}", session.getSessionId(), receivedAppBuf.position(), receivedAppBuf.limit());
-        if (receivedAppBuf.hasRemaining()) {
-            ByteBuffer buf = newBuffer(receivedAppBuf.remaining());
-            buf.put(receivedAppBuf).flip();
-            receivedAppBuf = newBuffer(sslEngine.getSession().getApplicationBufferSize());
+        ByteBuffer buf = receivedAppBuf;
+        receivedAppBuf = null;
+        if (buf == null) {
+            return null;
+        }
+
+        buf.flip();
+        if (buf.hasRemaining()) {
             if (log.isDebugEnabled()) {
                 log.debug("SSL session {} unwrap, app buffer -> {}", session.getSessionId(), buf.remaining());
             }
@@ -293,6 +373,57 @@ abstract public class AbstractSecureSession implements SecureSession {
         }
     }
 
+    protected ByteBuffer growPacketBuffer(ByteBuffer packetBuffer, int packetBufferSize) {
+        ByteBuffer b = getBufferPool().acquire(packetBuffer.position() + packetBufferSize);
+        packetBuffer.flip();
+        b.put(packetBuffer);
+        getBufferPool().release(packetBuffer);
+        return b;
+    }
+
+    /**
+     * Write the encrypted packet. The packet buffer is released to the pool after it is written.
+     *
+     * @param packetBuffer The encrypted packet.
+     * @param callback     The write callback.
+     */
+    protected void writePacketBuffer(ByteBuffer packetBuffer, Callback callback) {
+        if (packetBuffer.hasRemaining()) {
+            session.write(packetBuffer, new ReleaseBufferCallback(callback, Collections.singletonList(packetBuffer)));
+        } else {
+            getBufferPool().release(packetBuffer);
+        }
+    }
+
+    protected class ReleaseBufferCallback extends Callback.Nested {
+
+        private final List<ByteBuffer> buffers;
+
+        protected ReleaseBufferCallback(Callback callback, List<ByteBuffer> buffers) {
+            super(callback);
+            this.buffers = buffers;
+        }
+
+        @Override
+        public void succeeded() {
+            release();
+            super.succeeded();
+        }
+
+        @Override
+        public void failed(Throwable x) {
+            release();
+            super.failed(x);
+        }
+
+        private void release() {
+            BufferPool bufferPool = getBufferPool();
+            for (ByteBuffer buffer : buffers) {
+                bufferPool.release(buffer);
+            }
+        }
+    }
+
     /**
      * Do all the outstanding handshake tasks in the current Thread.
      *
@@ -300,15 +431,44 @@ abstract public class AbstractSecureSession implements SecureSession {
      */
     protected SSLEngineResult.HandshakeStatus doTasks() {
         Runnable runnable;
-
-        // We could run this in a separate thread, but do in the current for
-        // now.
         while ((runnable = sslEngine.getDelegatedTask()) != null) {
             runnable.run();
         }
         return sslEngine.getHandshakeStatus();
     }
 
+    /**
+     * Run the outstanding handshake tasks in the handshake task executor.
+     *
+     * @return If return false, the tasks are not submitted, the caller runs the tasks in the current thread.
+     */
+    protected boolean runDelegatedTasks() {
+        if (handshakeTaskExecutor == null || !started) {
+            return false;
+        }
+
+        runningDelegatedTasks = true;
+        if (handshakeTaskExecutor.execute(sslEngine, this::delegatedTasksComplete)) {
+            return true;
+        } else {
+            runningDelegatedTasks = false;
+            return false;
+        }
+    }
+
+    protected void delegatedTasksComplete() {
+        synchronized (this) {
+            runningDelegatedTasks = false;
+            initialHSStatus = sslEngine.getHandshakeStatus();
+            if (log.isDebugEnabled()) {
+                log.debug("Session {} handshake tasks complete, initialHSStatus -> {}", session.getSessionId(), initialHSStatus);
+            }
+        }
+        // resume the handshake without holding the session lock, the read method unwraps the buffered data
+        // under the lock, and the decrypted data are passed to the connection after the lock is released
+        session.decode(BufferUtils.EMPTY_BUFFER);
+    }
+
     @Override
     public synchronized void close() {
         if (!closed) {
@@ -351,15 +511,11 @@ abstract public class AbstractSecureSession implements SecureSession {
 
     protected ByteBuffer splitBuffer(int netSize) {
         ByteBuffer buf = receivedPacketBuf.duplicate();
-        if (buf.remaining() <= netSize) {
-            return buf;
-        } else {
-            ByteBuffer splitBuf = newBuffer(netSize);
-            byte[] data = new byte[netSize];
-            buf.get(data);
-            splitBuf.put(data).flip();
-            return splitBuf;
+        if (buf.remaining() > netSize) {
+            // the view of the first net size bytes, the unwrap method moves the position of the received buffer
+            buf.limit(buf.position() + netSize);
         }
+        return buf;
     }
 
     abstract protected SSLEngineResult unwrap(ByteBuffer input) throws IOException;
@@ -368,17 +524,22 @@ abstract public class AbstractSecureSession implements SecureSession {
 
     abstract protected ByteBuffer newBuffer(int size);
 
+    /**
+     * Get the buffer pool of the encrypted packets.
+     *
+     * @return The buffer pool.
+     */
+    abstract protected BufferPool getBufferPool();
+
     protected SSLEngineResult unwrap() throws IOException {
         int packetBufferSize = sslEngine.getSession().getPacketBufferSize();
         //split net buffer when the net buffer remaining great than the net size
         ByteBuffer buf = splitBuffer(packetBufferSize);
+        ensureAppBuffer();
         if (log.isDebugEnabled()) {
             log.debug("Session {} read data, buf -> {}, packet -> {}, appBuf -> {}",
                     session.getSessionId(), buf.remaining(), packetBufferSize, receivedAppBuf.remaining());
         }
-        if (!receivedAppBuf.hasRemaining()) {
-            resizeAppBuffer();
-        }
         return unwrap(buf);
     }
 
@@ -390,7 +551,7 @@ abstract public class AbstractSecureSession implements SecureSession {
      * @throws IOException sslEngine error during data read
      */
     @Override
-    public ByteBuffer read(ByteBuffer receiveBuffer) throws IOException {
+    public synchronized ByteBuffer read(ByteBuffer receiveBuffer) throws IOException {
         if (!doHandshake(receiveBuffer))
             return null;
 
@@ -403,8 +564,8 @@ abstract public class AbstractSecureSession implements SecureSession {
         }
 
         merge(receiveBuffer);
-        if (!receivedPacketBuf.hasRemaining()) {
-            return null;
+        if (receivedPacketBuf == null || !receivedPacketBuf.hasRemaining()) {
+            return getReceivedAppBuf();
         }
 
         needIO:
@@ -414,7 +575,7 @@ abstract public class AbstractSecureSession implements SecureSession {
             if (log.isDebugEnabled()) {
                 log.debug("Session {} read data result -> {}, receivedPacketBuf -> {}, appBufSize -> {}",
                         session.getSessionId(), result.toString().replace('\n', ' '),
-                        receivedPacketBuf.remaining(), receivedAppBuf.remaining());
+                        receivedPacketBuf.remaining(), receivedAppBuf.position());
             }
 
             switch (result.getStatus()) {
@@ -454,6 +615,7 @@ abstract public class AbstractSecureSession implements SecureSession {
             }
         }
 
+        releaseConsumedBuffers();
         return getReceivedAppBuf();
     }
 
@@ -495,7 +657,7 @@ abstract public class AbstractSecureSession implements SecureSession {
 
         outer:
         while (ret < remain) {
-            ByteBuffer packetBuffer = newBuffer(packetBufferSize);
+            ByteBuffer packetBuffer = getBufferPool().acquire(packetBufferSize);
 
             wrap:
             while (true) {
@@ -511,16 +673,15 @@ abstract public class AbstractSecureSession implements SecureSession {
                         packetBuffer.flip();
                         if (packetBuffer.hasRemaining()) {
                             pocketBuffers.add(packetBuffer);
+                        } else {
+                            getBufferPool().release(packetBuffer);
                         }
                     }
                     break wrap;
 
                     case BUFFER_OVERFLOW: {
                         packetBufferSize = sslEngine.getSession().getPacketBufferSize();
-                        ByteBuffer b = newBuffer(packetBuffer.position() + packetBufferSize);
-                        packetBuffer.flip();
-                        b.put(packetBuffer);
-                        packetBuffer = b;
+                        packetBuffer = growPacketBuffer(packetBuffer, packetBufferSize);
                     }
                     break; // retry the operation.
 
@@ -529,12 +690,16 @@ abstract public class AbstractSecureSession implements SecureSession {
                         packetBuffer.flip();
                         if (packetBuffer.hasRemaining()) {
                             pocketBuffers.add(packetBuffer);
+                        } else {
+                            getBufferPool().release(packetBuffer);
                         }
                         closeOutput = true;
                     }
                     break outer;
 
                     default: {
+                        getBufferPool().release(packetBuffer);
+                        pocketBuffers.forEach(getBufferPool()::release);
                         SecureNetException ex = new SecureNetException(StringUtils.replace("Session {} SSLEngine writes data exception. status -> {}", session.getSessionId(), result.getStatus()));
                         callback.failed(ex);
                         throw ex;
@@ -543,7 +708,7 @@ abstract public class AbstractSecureSession implements SecureSession {
             }
         }
 
-        session.write(pocketBuffers, callback);
+        session.write(pocketBuffers, new ReleaseBufferCallback(callback, pocketBuffers));
         if (closeOutput) {
             closeOutbound();
         }
@@ -0,0 +1,138 @@
+package com.firefly.net.tcp.secure;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLEngine;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Run the delegated tasks of the TLS handshake, such as the key exchange and the certificate verification,
+ * out of the I/O threads. The secure session resumes the handshake when the tasks are complete.
+ * <p>
+ * The executor keeps at most queueSize handshakes waiting. When the queue is full, the delegated tasks run
+ * in the I/O thread. The executor can be shared by the secure session factories of the clients and servers.
+ *
+ * @author Pengtao Qiu
+ */
+public class HandshakeTaskExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private final ThreadPoolExecutor executor;
+    private final Timer handshakeLatency;
+    private final Timer queueWaitTimer;
+    private final Timer executionTimer;
+    private final Meter rejectedMeter;
+
+    public HandshakeTaskExecutor(MetricRegistry metrics) {
+        this(Runtime.getRuntime().availableProcessors(), 1024, metrics);
+    }
+
+    /**
+     * Create a handshake task executor.
+     *
+     * @param threadNumber The max number of threads that run the delegated tasks.
+     * @param queueSize    The max number of the waiting handshakes.
+     * @param metrics      The metric registry.
+     */
+    public HandshakeTaskExecutor(int threadNumber, int queueSize, MetricRegistry metrics) {
+        if (threadNumber <= 0) {
+            throw new IllegalArgumentException("the thread number must be greater than 0");
+        }
+        if (queueSize <= 0) {
+            throw new IllegalArgumentException("the queue size must be greater than 0");
+        }
+
+        AtomicInteger threadId = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threadNumber, threadNumber,
+                60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize),
+                r -> {
+                    Thread thread = new Thread(r, "firefly-tls-handshake-" + threadId.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+
+        String prefix = "tls.handshake";
+        handshakeLatency = metrics.timer(prefix + ".latency");
+        queueWaitTimer = metrics.timer(prefix + ".taskQueueWait");
+        executionTimer = metrics.timer(prefix + ".taskExecution");
+        rejectedMeter = metrics.meter(prefix + ".taskRejected");
+        // the executors share the metrics, and the gauges report the latest executor
+        metrics.remove(prefix + ".taskQueueSize");
+        metrics.register(prefix + ".taskQueueSize", (Gauge<Integer>) () -> executor.getQueue().size());
+        metrics.remove(prefix + ".taskActiveCount");
+        metrics.register(prefix + ".taskActiveCount", (Gauge<Integer>) executor::getActiveCount);
+    }
+
+    /**
+     * Run all delegated tasks of the SSL engine in the executor.
+     *
+     * @param sslEngine The SSL engine.
+     * @param complete  It is called in the executor thread when the tasks are complete.
+     * @return If return false, the queue is full, the caller runs the delegated tasks in the current thread
+     * and the complete action is not called.
+     */
+    public boolean execute(SSLEngine sslEngine, Runnable complete) {
+        long enqueueTime = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                queueWaitTimer.update(start - enqueueTime, TimeUnit.NANOSECONDS);
+                try {
+                    Runnable task;
+                    while ((task = sslEngine.getDelegatedTask()) != null) {
+                        task.run();
+                    }
+                } catch (Throwable t) {
+                    // the SSL engine reports the failure in the next wrap or unwrap
+                    log.error("run the TLS handshake task exception", t);
+                } finally {
+                    executionTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+                complete.run();
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejectedMeter.mark();
+            return false;
+        }
+    }
+
+    /**
+     * Get the timer of the handshake latency. It measures from the secure session is created
+     * to the handshake is finished.
+     *
+     * @return The handshake latency timer.
+     */
+    public Timer getHandshakeLatency() {
+        return handshakeLatency;
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "HandshakeTaskExecutor{" +
+                "activeCount=" + executor.getActiveCount() +
+                ", queueSize=" + executor.getQueue().size() +
+                '}';
+    }
+}
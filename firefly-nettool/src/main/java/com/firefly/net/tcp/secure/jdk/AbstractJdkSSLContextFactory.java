@@ -2,6 +2,7 @@ package com.firefly.net.tcp.secure.jdk;
 
 import com.firefly.net.ApplicationProtocolSelector;
 import com.firefly.net.SSLContextFactory;
+import com.firefly.net.SSLResumptionConfiguration;
 import com.firefly.utils.lang.Pair;
 import com.firefly.utils.time.Millisecond100Clock;
 import org.slf4j.Logger;
@@ -19,6 +20,9 @@ import java.security.cert.CertificateException;
 abstract public class AbstractJdkSSLContextFactory implements SSLContextFactory {
     protected static final Logger log = LoggerFactory.getLogger("firefly-system");
 
+    private volatile SSLResumptionConfiguration resumptionConfiguration = new SSLResumptionConfiguration();
+    private volatile SSLContext sslContext;
+
     public SSLContext getSSLContextWithManager(KeyManager[] km, TrustManager[] tm, SecureRandom random) throws NoSuchAlgorithmException, KeyManagementException {
         long start = Millisecond100Clock.currentTimeMillis();
         final SSLContext sslContext = SSLContext.getInstance("TLSv1.2");
@@ -62,16 +66,55 @@ abstract public class AbstractJdkSSLContextFactory implements SSLContextFactory
 
     abstract public SSLContext getSSLContext();
 
+    /**
+     * Get the SSL context that creates the SSL engines. The SSL context is created once, because the session cache
+     * is in the SSL context, the sessions can not be resumed if each connection creates a new SSL context.
+     *
+     * @return The SSL context.
+     */
+    public SSLContext getCachedSSLContext() {
+        if (sslContext == null) {
+            synchronized (this) {
+                if (sslContext == null) {
+                    SSLContext context = getSSLContext();
+                    resumptionConfiguration.configure(context);
+                    sslContext = context;
+                }
+            }
+        }
+        return sslContext;
+    }
+
+    @Override
+    public SSLResumptionConfiguration getResumptionConfiguration() {
+        return resumptionConfiguration;
+    }
+
+    /**
+     * Set the TLS session resumption configuration. If the SSL context has been created, the session cache size
+     * and the session timeout are applied to the session contexts of the cached SSL context. The changes of the
+     * configuration object after that are not applied until this method is called again.
+     *
+     * @param resumptionConfiguration The TLS session resumption configuration.
+     */
+    @Override
+    public synchronized void setResumptionConfiguration(SSLResumptionConfiguration resumptionConfiguration) {
+        this.resumptionConfiguration = resumptionConfiguration;
+        if (sslContext != null) {
+            resumptionConfiguration.configure(sslContext);
+        }
+    }
+
     @Override
     public Pair<SSLEngine, ApplicationProtocolSelector> createSSLEngine(boolean clientMode) {
-        SSLEngine sslEngine = getSSLContext().createSSLEngine();
+        SSLEngine sslEngine = getCachedSSLContext().createSSLEngine();
         sslEngine.setUseClientMode(clientMode);
         return new Pair<>(sslEngine, new JettyALPNSelector(sslEngine));
     }
 
     @Override
     public Pair<SSLEngine, ApplicationProtocolSelector> createSSLEngine(boolean clientMode, String peerHost, int peerPort) {
-        SSLEngine sslEngine = getSSLContext().createSSLEngine(peerHost, peerPort);
+        SSLEngine sslEngine = getCachedSSLContext().createSSLEngine(peerHost, peerPort);
         sslEngine.setUseClientMode(clientMode);
         return new Pair<>(sslEngine, new JettyALPNSelector(sslEngine));
     }
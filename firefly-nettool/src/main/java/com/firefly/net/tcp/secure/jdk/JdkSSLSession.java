@@ -4,6 +4,7 @@ import com.firefly.net.ApplicationProtocolSelector;
 import com.firefly.net.SecureSessionHandshakeListener;
 import com.firefly.net.Session;
 import com.firefly.net.tcp.secure.AbstractJdkSSLSession;
+import com.firefly.net.tcp.secure.HandshakeTaskExecutor;
 
 import javax.net.ssl.SSLEngine;
 import java.io.IOException;
@@ -18,4 +19,11 @@ public class JdkSSLSession extends AbstractJdkSSLSession {
                          SecureSessionHandshakeListener handshakeListener) throws IOException {
         super(session, sslEngine, applicationProtocolSelector, handshakeListener);
     }
+
+    public JdkSSLSession(Session session, SSLEngine sslEngine,
+                         ApplicationProtocolSelector applicationProtocolSelector,
+                         SecureSessionHandshakeListener handshakeListener,
+                         HandshakeTaskExecutor handshakeTaskExecutor) throws IOException {
+        super(session, sslEngine, applicationProtocolSelector, handshakeListener, handshakeTaskExecutor);
+    }
 }
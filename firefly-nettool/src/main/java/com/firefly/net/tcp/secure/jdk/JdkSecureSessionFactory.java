@@ -1,6 +1,8 @@
 package com.firefly.net.tcp.secure.jdk;
 
 import com.firefly.net.*;
+import com.firefly.net.metric.SecureSessionMetric;
+import com.firefly.net.tcp.secure.HandshakeTaskExecutor;
 import com.firefly.utils.lang.Pair;
 
 import javax.net.ssl.SSLEngine;
@@ -13,6 +15,8 @@ public class JdkSecureSessionFactory implements SecureSessionFactory {
 
     private SSLContextFactory clientSSLContextFactory = new NoCheckJdkSSLContextFactory();
     private SSLContextFactory serverSSLContextFactory = new DefaultCredentialJdkSSLContextFactory();
+    private HandshakeTaskExecutor handshakeTaskExecutor;
+    private SecureSessionMetric secureSessionMetric;
 
     public JdkSecureSessionFactory() {
     }
@@ -38,18 +42,49 @@ public class JdkSecureSessionFactory implements SecureSessionFactory {
         this.serverSSLContextFactory = serverSSLContextFactory;
     }
 
+    public HandshakeTaskExecutor getHandshakeTaskExecutor() {
+        return handshakeTaskExecutor;
+    }
+
+    /**
+     * Set the executor that runs the delegated tasks of the TLS handshake. If it is null,
+     * the tasks run in the I/O thread.
+     *
+     * @param handshakeTaskExecutor The handshake task executor.
+     */
+    public void setHandshakeTaskExecutor(HandshakeTaskExecutor handshakeTaskExecutor) {
+        this.handshakeTaskExecutor = handshakeTaskExecutor;
+    }
+
+    public SecureSessionMetric getSecureSessionMetric() {
+        return secureSessionMetric;
+    }
+
+    /**
+     * Set the metric that counts the full and resumed handshakes. If it is null, the handshakes are not counted.
+     *
+     * @param secureSessionMetric The secure session metric.
+     */
+    public void setSecureSessionMetric(SecureSessionMetric secureSessionMetric) {
+        this.secureSessionMetric = secureSessionMetric;
+    }
+
     @Override
     public SecureSession create(Session session, boolean clientMode, SecureSessionHandshakeListener secureSessionHandshakeListener) throws IOException {
         SSLContextFactory sslContextFactory = from(clientMode);
         Pair<SSLEngine, ApplicationProtocolSelector> p = sslContextFactory.createSSLEngine(clientMode);
-        return new JdkSSLSession(session, p.first, p.second, secureSessionHandshakeListener);
+        return new JdkSSLSession(session, p.first, p.second, record(p.first, secureSessionHandshakeListener), handshakeTaskExecutor);
     }
 
     @Override
     public SecureSession create(Session session, boolean clientMode, String peerHost, int peerPort, SecureSessionHandshakeListener secureSessionHandshakeListener) throws IOException {
         SSLContextFactory sslContextFactory = from(clientMode);
         Pair<SSLEngine, ApplicationProtocolSelector> p = sslContextFactory.createSSLEngine(clientMode, peerHost, peerPort);
-        return new JdkSSLSession(session, p.first, p.second, secureSessionHandshakeListener);
+        return new JdkSSLSession(session, p.first, p.second, record(p.first, secureSessionHandshakeListener), handshakeTaskExecutor);
+    }
+
+    protected SecureSessionHandshakeListener record(SSLEngine sslEngine, SecureSessionHandshakeListener listener) {
+        return secureSessionMetric != null ? secureSessionMetric.record(sslEngine, listener) : listener;
     }
 
     protected SSLContextFactory from(boolean clientMode) {
@@ -1,7 +1,11 @@
 package com.firefly.net.tcp.secure.openssl;
 
 import com.firefly.net.*;
+import com.firefly.net.metric.SecureSessionMetric;
+import com.firefly.net.tcp.secure.HandshakeTaskExecutor;
 import com.firefly.net.tcp.secure.openssl.nativelib.*;
+import com.firefly.utils.concurrent.Scheduler;
+import com.firefly.utils.concurrent.Schedulers;
 import com.firefly.utils.exception.CommonRuntimeException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,8 +14,10 @@ import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLException;
 import java.io.File;
 import java.io.IOException;
+import java.security.SecureRandom;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Pengtao Qiu
@@ -22,8 +28,20 @@ abstract public class AbstractOpenSSLSecureSessionFactory implements SecureSessi
 
     protected static final List<String> DEFAULT_SUPPORTED_PROTOCOLS = Arrays.asList("h2", "http/1.1");
 
+    /**
+     * All factories share the daemon timing wheel to rotate the session ticket keys, it does not keep the JVM alive.
+     */
+    private static final Scheduler ticketKeyScheduler = Schedulers.createTimingWheel(1, TimeUnit.SECONDS);
+    private static final SecureRandom random = new SecureRandom();
+
     protected List<String> supportedProtocols = DEFAULT_SUPPORTED_PROTOCOLS;
     protected volatile SslContext sslContext;
+    protected HandshakeTaskExecutor handshakeTaskExecutor;
+    protected SecureSessionMetric secureSessionMetric;
+    protected SSLResumptionConfiguration resumptionConfiguration = new SSLResumptionConfiguration();
+    private OpenSslSessionTicketKey currentTicketKey;
+    private Scheduler.Future ticketKeyRotation;
+    private volatile SecureSessionMetric.ResumptionCounter resumptionCounter;
 
     public AbstractOpenSSLSecureSessionFactory() {
 
@@ -39,7 +57,8 @@ abstract public class AbstractOpenSSLSecureSessionFactory implements SecureSessi
         SSLEngine sslEngine = getSslContext(clientMode).newEngine();
         sslEngine.setUseClientMode(clientMode);
         ApplicationProtocolSelector applicationProtocolSelector = (ApplicationProtocolSelector) sslEngine;
-        return new OpenSSLSession(session, sslEngine, applicationProtocolSelector, secureSessionHandshakeListener);
+        return new OpenSSLSession(session, sslEngine, applicationProtocolSelector,
+                record(sslEngine, clientMode, secureSessionHandshakeListener), handshakeTaskExecutor);
     }
 
     @Override
@@ -49,7 +68,23 @@ abstract public class AbstractOpenSSLSecureSessionFactory implements SecureSessi
         SSLEngine sslEngine = getSslContext(clientMode).newEngine(peerHost, peerPort);
         sslEngine.setUseClientMode(clientMode);
         ApplicationProtocolSelector applicationProtocolSelector = (ApplicationProtocolSelector) sslEngine;
-        return new OpenSSLSession(session, sslEngine, applicationProtocolSelector, secureSessionHandshakeListener);
+        return new OpenSSLSession(session, sslEngine, applicationProtocolSelector,
+                record(sslEngine, clientMode, secureSessionHandshakeListener), handshakeTaskExecutor);
+    }
+
+    protected SecureSessionHandshakeListener record(SSLEngine sslEngine, boolean clientMode,
+                                                    SecureSessionHandshakeListener listener) {
+        if (secureSessionMetric == null) {
+            return listener;
+        }
+
+        SecureSessionMetric.ResumptionCounter counter = resumptionCounter;
+        if (!clientMode && counter != null) {
+            return secureSessionMetric.record(counter, listener);
+        } else {
+            // the creation time of the OpenSSL session is accurate to the second
+            return secureSessionMetric.record(sslEngine, listener, 1000L);
+        }
     }
 
     public SslContext createSSLContext(boolean clientMode) {
@@ -58,7 +93,9 @@ abstract public class AbstractOpenSSLSecureSessionFactory implements SecureSessi
                 : SslContextBuilder.forServer(getCertificate(), getPrivateKey());
 
         try {
-            return sslContextBuilder.ciphers(SecurityUtils.CIPHERS, SupportedCipherSuiteFilter.INSTANCE)
+            return sslContextBuilder.sessionCacheSize(resumptionConfiguration.getSessionCacheSize())
+                                    .sessionTimeout(resumptionConfiguration.getSessionTimeout())
+                                    .ciphers(SecurityUtils.CIPHERS, SupportedCipherSuiteFilter.INSTANCE)
                                     .applicationProtocolConfig(new ApplicationProtocolConfig(ApplicationProtocolConfig.Protocol.ALPN,
                                             ApplicationProtocolConfig.SelectorFailureBehavior.CHOOSE_MY_LAST_PROTOCOL,
                                             ApplicationProtocolConfig.SelectedListenerFailureBehavior.CHOOSE_MY_LAST_PROTOCOL,
@@ -77,6 +114,46 @@ abstract public class AbstractOpenSSLSecureSessionFactory implements SecureSessi
         this.supportedProtocols = supportedProtocols;
     }
 
+    public HandshakeTaskExecutor getHandshakeTaskExecutor() {
+        return handshakeTaskExecutor;
+    }
+
+    /**
+     * Set the executor that runs the delegated tasks of the TLS handshake. If it is null,
+     * the tasks run in the I/O thread.
+     *
+     * @param handshakeTaskExecutor The handshake task executor.
+     */
+    public void setHandshakeTaskExecutor(HandshakeTaskExecutor handshakeTaskExecutor) {
+        this.handshakeTaskExecutor = handshakeTaskExecutor;
+    }
+
+    public SecureSessionMetric getSecureSessionMetric() {
+        return secureSessionMetric;
+    }
+
+    /**
+     * Set the metric that counts the full and resumed handshakes. If it is null, the handshakes are not counted.
+     *
+     * @param secureSessionMetric The secure session metric.
+     */
+    public void setSecureSessionMetric(SecureSessionMetric secureSessionMetric) {
+        this.secureSessionMetric = secureSessionMetric;
+    }
+
+    public SSLResumptionConfiguration getResumptionConfiguration() {
+        return resumptionConfiguration;
+    }
+
+    /**
+     * Set the TLS session resumption configuration. It must be set before the SSL context is created.
+     *
+     * @param resumptionConfiguration The TLS session resumption configuration.
+     */
+    public void setResumptionConfiguration(SSLResumptionConfiguration resumptionConfiguration) {
+        this.resumptionConfiguration = resumptionConfiguration;
+    }
+
     public SslContext getSslContext(boolean clientMode) {
         init(clientMode);
         return sslContext;
@@ -86,12 +163,64 @@ abstract public class AbstractOpenSSLSecureSessionFactory implements SecureSessi
         if (sslContext == null) {
             synchronized (this) {
                 if (sslContext == null) {
-                    sslContext = createSSLContext(clientMode);
+                    SslContext context = createSSLContext(clientMode);
+                    if (!clientMode && context.sessionContext() instanceof OpenSslSessionContext) {
+                        OpenSslSessionContext sessionContext = (OpenSslSessionContext) context.sessionContext();
+                        // the session hits contain the sessions that are resumed by the tickets
+                        resumptionCounter = new SecureSessionMetric.ResumptionCounter(() -> sessionContext.stats().hits());
+                        rotateTicketKeys(sessionContext);
+                    }
+                    sslContext = context;
                 }
             }
         }
     }
 
+    /**
+     * Stop rotating the session ticket keys. The server calls it when the server stops,
+     * and the SSL context is created again if the factory creates a new secure session after that.
+     */
+    @Override
+    public synchronized void stop() {
+        if (ticketKeyRotation != null) {
+            ticketKeyRotation.cancel();
+            ticketKeyRotation = null;
+        }
+        currentTicketKey = null;
+        resumptionCounter = null;
+        sslContext = null;
+    }
+
+    private void rotateTicketKeys(OpenSslSessionContext sessionContext) {
+        updateTicketKeys(sessionContext);
+        int interval = resumptionConfiguration.getTicketKeyRotationInterval();
+        if (interval > 0) {
+            ticketKeyRotation = ticketKeyScheduler.scheduleAtFixedRate(() -> updateTicketKeys(sessionContext),
+                    interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    private synchronized void updateTicketKeys(OpenSslSessionContext sessionContext) {
+        // the first key encrypts the new tickets, the previous key still decrypts the tickets that have been issued
+        OpenSslSessionTicketKey newTicketKey = new OpenSslSessionTicketKey(
+                randomBytes(OpenSslSessionTicketKey.NAME_SIZE),
+                randomBytes(OpenSslSessionTicketKey.HMAC_KEY_SIZE),
+                randomBytes(OpenSslSessionTicketKey.AES_KEY_SIZE));
+        if (currentTicketKey == null) {
+            sessionContext.setTicketKeys(newTicketKey);
+        } else {
+            sessionContext.setTicketKeys(newTicketKey, currentTicketKey);
+        }
+        currentTicketKey = newTicketKey;
+        log.debug("rotate the TLS session ticket keys");
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
     abstract public File getCertificate();
 
     abstract public File getPrivateKey();
@@ -1,9 +1,12 @@
 package com.firefly.net.tcp.secure.openssl;
 
 import com.firefly.net.ApplicationProtocolSelector;
+import com.firefly.net.BufferPool;
 import com.firefly.net.SecureSessionHandshakeListener;
 import com.firefly.net.Session;
+import com.firefly.net.buffer.ThreadSafeIOBufferPool;
 import com.firefly.net.tcp.secure.AbstractSecureSession;
+import com.firefly.net.tcp.secure.HandshakeTaskExecutor;
 import com.firefly.utils.io.BufferUtils;
 
 import javax.net.ssl.SSLEngine;
@@ -15,12 +18,22 @@ import java.nio.ByteBuffer;
  * @author Pengtao Qiu
  */
 public class OpenSSLSession extends AbstractSecureSession {
+
+    private static final BufferPool bufferPool = new ThreadSafeIOBufferPool(true);
+
     public OpenSSLSession(Session session, SSLEngine sslEngine,
                           ApplicationProtocolSelector applicationProtocolSelector,
                           SecureSessionHandshakeListener handshakeListener) throws IOException {
         super(session, sslEngine, applicationProtocolSelector, handshakeListener);
     }
 
+    public OpenSSLSession(Session session, SSLEngine sslEngine,
+                          ApplicationProtocolSelector applicationProtocolSelector,
+                          SecureSessionHandshakeListener handshakeListener,
+                          HandshakeTaskExecutor handshakeTaskExecutor) throws IOException {
+        super(session, sslEngine, applicationProtocolSelector, handshakeListener, handshakeTaskExecutor);
+    }
+
     @Override
     protected SSLEngineResult unwrap(ByteBuffer input) throws IOException {
         ByteBuffer tmp = BufferUtils.toDirectBuffer(input);
@@ -42,4 +55,9 @@ public class OpenSSLSession extends AbstractSecureSession {
     protected ByteBuffer newBuffer(int size) {
         return ByteBuffer.allocateDirect(size);
     }
+
+    @Override
+    protected BufferPool getBufferPool() {
+        return bufferPool;
+    }
 }
@@ -0,0 +1,69 @@
+package test.net.metric;
+
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.firefly.net.metric.HdrHistogramReservoir;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestHdrHistogramReservoir {
+
+    @Test
+    public void testSnapshot() {
+        HdrHistogramReservoir reservoir = new HdrHistogramReservoir();
+        for (int i = 1; i <= 100; i++) {
+            reservoir.update(i);
+        }
+        Snapshot snapshot = reservoir.getSnapshot();
+        Assert.assertThat(snapshot.size(), is(100));
+        Assert.assertThat(snapshot.getMin(), is(1L));
+        Assert.assertThat(snapshot.getMax(), is(100L));
+        Assert.assertThat(snapshot.getValue(0.5), is(50D));
+        Assert.assertThat(snapshot.getValue(0.99), is(99D));
+        Assert.assertThat(snapshot.getValues().length, is(100));
+
+        // the values are kept after the snapshot
+        reservoir.update(200);
+        Assert.assertThat(reservoir.getSnapshot().size(), is(101));
+    }
+
+    @Test
+    public void testInterval() throws InterruptedException {
+        HdrHistogramReservoir reservoir = new HdrHistogramReservoir(50, TimeUnit.MILLISECONDS);
+        reservoir.update(10);
+        Assert.assertThat(reservoir.getSnapshot().size(), is(1));
+
+        Thread.sleep(60);
+        // the previous interval is still in the snapshot
+        Assert.assertThat(reservoir.getSnapshot().size(), is(1));
+        reservoir.update(20);
+        Snapshot snapshot = reservoir.getSnapshot();
+        Assert.assertThat(snapshot.size(), is(2));
+
+        Thread.sleep(60);
+        snapshot = reservoir.getSnapshot();
+        Assert.assertThat(snapshot.size(), is(1));
+        Assert.assertThat(snapshot.getMax(), is(20L));
+
+        Thread.sleep(60);
+        Assert.assertThat(reservoir.getSnapshot().size(), is(0));
+    }
+
+    @Test
+    public void testTimer() {
+        Timer timer = HdrHistogramReservoir.newTimer();
+        timer.update(3, TimeUnit.MILLISECONDS);
+        Assert.assertThat(timer.getCount(), is(1L));
+        Assert.assertThat(timer.getSnapshot().size(), is(1));
+        timer.update(2, TimeUnit.MILLISECONDS);
+        // the sum is cumulative, it is not affected by the interval rotation
+        Assert.assertThat(((HdrHistogramReservoir.HdrTimer) timer).getSum(), is(TimeUnit.MILLISECONDS.toNanos(5)));
+    }
+}
@@ -0,0 +1,111 @@
+package test.net.tcp;
+
+import com.codahale.metrics.Histogram;
+import com.firefly.net.tcp.SimpleTcpClient;
+import com.firefly.net.tcp.SimpleTcpServer;
+import com.firefly.net.tcp.TcpConfiguration;
+import com.firefly.net.tcp.TcpServerConfiguration;
+import com.firefly.net.tcp.codec.StringParser;
+import com.firefly.utils.RandomUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestFlushConsolidation {
+
+    @Test
+    public void test() throws InterruptedException {
+        int count = 200;
+        TcpServerConfiguration serverConfig = new TcpServerConfiguration();
+        serverConfig.setTcpNoDelay(true);
+        serverConfig.setFlushConsolidationEnable(true);
+        TcpConfiguration clientConfig = new TcpConfiguration();
+        clientConfig.setTcpNoDelay(true);
+        clientConfig.setFlushConsolidationEnable(true);
+
+        SimpleTcpServer server = new SimpleTcpServer(serverConfig);
+        SimpleTcpClient client = new SimpleTcpClient(clientConfig);
+        int port = (int) RandomUtils.random(1000, 65534);
+
+        server.accept(connection -> {
+            StringParser parser = new StringParser();
+            parser.complete(message -> connection.write("echo " + message + "\n"));
+            connection.receive(parser::receive);
+        }).listen("localhost", port);
+
+        List<String> messages = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(count);
+        client.connect("localhost", port).thenAccept(c -> {
+            StringParser parser = new StringParser();
+            parser.complete(message -> {
+                messages.add(message);
+                latch.countDown();
+            });
+            c.receive(parser::receive);
+            for (int i = 0; i < count; i++) {
+                c.write("hello " + i + "\n");
+            }
+        });
+
+        Assert.assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+        for (int i = 0; i < count; i++) {
+            Assert.assertThat(messages.get(i), is("echo hello " + i));
+        }
+        client.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testMergedWrites() throws InterruptedException {
+        int count = 10;
+        TcpServerConfiguration serverConfig = new TcpServerConfiguration();
+        serverConfig.setFlushConsolidationEnable(true);
+        SimpleTcpServer server = new SimpleTcpServer(serverConfig);
+        SimpleTcpClient client = new SimpleTcpClient();
+        int port = (int) RandomUtils.random(1000, 65534);
+
+        server.accept(connection -> {
+            StringParser parser = new StringParser();
+            parser.complete(message -> connection.write("echo " + message + "\n"));
+            connection.receive(parser::receive);
+        }).listen("localhost", port);
+
+        List<String> messages = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(count);
+        client.connect("localhost", port).thenAccept(c -> {
+            StringParser parser = new StringParser();
+            parser.complete(message -> {
+                messages.add(message);
+                latch.countDown();
+            });
+            c.receive(parser::receive);
+            StringBuilder data = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                data.append("hello ").append(i).append("\n");
+            }
+            c.write(data.toString());
+        });
+
+        Assert.assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+        for (int i = 0; i < count; i++) {
+            Assert.assertThat(messages.get(i), is("echo hello " + i));
+        }
+
+        // the echoes of one read are merged into one gathering write
+        Histogram merged = serverConfig.getMetricReporterFactory().getMetricRegistry()
+                                       .histogram("aio.tcpSession.mergedOutputBufferSize");
+        Assert.assertThat(merged.getCount(), is(1L));
+        Assert.assertThat(merged.getSnapshot().getMax(), is((long) count));
+        client.stop();
+        server.stop();
+    }
+}
@@ -0,0 +1,159 @@
+package test.net.tcp;
+
+import com.codahale.metrics.MetricRegistry;
+import com.firefly.net.Session;
+import com.firefly.net.tcp.secure.HandshakeTaskExecutor;
+import com.firefly.net.tcp.secure.jdk.FileJdkSSLContextFactory;
+import com.firefly.net.tcp.secure.jdk.JdkSSLSession;
+import com.firefly.utils.concurrent.Callback;
+import com.firefly.utils.io.BufferUtils;
+import com.firefly.utils.io.ClassPathResource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestHandshakeTaskExecutor {
+
+    @Test
+    public void test() throws Exception {
+        ClassPathResource resource = new ClassPathResource("/fireflySecureKeys.jks");
+        SSLContext sslContext = new FileJdkSSLContextFactory(resource.getFile().getAbsolutePath(),
+                "123456", "654321").getSSLContext();
+        MetricRegistry metrics = new MetricRegistry();
+        HandshakeTaskExecutor executor = new HandshakeTaskExecutor(2, 16, metrics);
+
+        Peer server = new Peer(1, sslContext, false, executor);
+        Peer client = new Peer(2, sslContext, true, executor);
+
+        long timeout = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!client.secureSession.isHandshakeFinished() || !server.secureSession.isHandshakeFinished()) {
+            Assert.assertThat(System.nanoTime() < timeout, is(true));
+            if (!client.transferTo(server) & !server.transferTo(client)) {
+                Thread.sleep(1L);
+            }
+        }
+
+        client.secureSession.write(BufferUtils.toBuffer("hello", StandardCharsets.UTF_8), Callback.NOOP);
+        while (server.received.length() < "hello".length()) {
+            Assert.assertThat(System.nanoTime() < timeout, is(true));
+            if (!client.transferTo(server) & !server.transferTo(client)) {
+                Thread.sleep(1L);
+            }
+        }
+        Assert.assertThat(server.received.toString(), is("hello"));
+
+        // the delegated tasks run in the executor, and the sessions resume the handshake
+        Assert.assertThat(metrics.timer("tls.handshake.taskExecution").getCount(), greaterThan(0L));
+        Assert.assertThat(metrics.timer("tls.handshake.latency").getCount(), is(2L));
+        Assert.assertThat(metrics.getGauges().containsKey("tls.handshake.taskQueueSize"), is(true));
+        Assert.assertThat(client.resumedWithLock.get() || server.resumedWithLock.get(), is(false));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testSharedMetricRegistry() {
+        MetricRegistry metrics = new MetricRegistry();
+        HandshakeTaskExecutor first = new HandshakeTaskExecutor(1, 4, metrics);
+        HandshakeTaskExecutor second = new HandshakeTaskExecutor(2, 4, metrics);
+        Assert.assertThat((Integer) metrics.getGauges().get("tls.handshake.taskActiveCount").getValue(), is(0));
+        first.shutdown();
+        second.shutdown();
+    }
+
+    private static class Peer {
+        private final Queue<ByteBuffer> output = new ConcurrentLinkedQueue<>();
+        private final StringBuffer received = new StringBuffer();
+        private final JdkSSLSession secureSession;
+        private final AtomicBoolean resumedWithLock = new AtomicBoolean();
+
+        private Peer(int sessionId, SSLContext sslContext, boolean clientMode, HandshakeTaskExecutor executor) throws IOException {
+            SSLEngine sslEngine = sslContext.createSSLEngine();
+            sslEngine.setUseClientMode(clientMode);
+            AtomicReference<JdkSSLSession> ref = new AtomicReference<>();
+            secureSession = new JdkSSLSession(newSession(sessionId, ref), sslEngine,
+                    Collections::emptyList, s -> {
+            }, executor);
+            ref.set(secureSession);
+        }
+
+        private boolean transferTo(Peer peer) throws IOException {
+            boolean transferred = false;
+            ByteBuffer buf;
+            while ((buf = output.poll()) != null) {
+                peer.read(buf);
+                transferred = true;
+            }
+            return transferred;
+        }
+
+        private void read(ByteBuffer buf) throws IOException {
+            ByteBuffer plaintext = secureSession.read(buf);
+            if (plaintext != null) {
+                received.append(BufferUtils.toString(plaintext, StandardCharsets.UTF_8));
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private Session newSession(int sessionId, AtomicReference<JdkSSLSession> ref) {
+            return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "write": {
+                        Collection<ByteBuffer> buffers = args[0] instanceof ByteBuffer
+                                ? Collections.singletonList((ByteBuffer) args[0])
+                                : (Collection<ByteBuffer>) args[0];
+                        for (ByteBuffer buffer : buffers) {
+                            output.offer(ByteBuffer.wrap(BufferUtils.toArray(buffer)));
+                        }
+                        ((Callback) args[1]).succeeded();
+                        return null;
+                    }
+                    case "decode": {
+                        // the secure session resumes the handshake in the executor thread without holding its lock
+                        if (Thread.holdsLock(ref.get())) {
+                            resumedWithLock.set(true);
+                        }
+                        ByteBuffer plaintext = ref.get().read((ByteBuffer) args[0]);
+                        if (plaintext != null) {
+                            received.append(BufferUtils.toString(plaintext, StandardCharsets.UTF_8));
+                        }
+                        return null;
+                    }
+                    case "getSessionId":
+                        return sessionId;
+                    case "isOpen":
+                        return true;
+                    default: {
+                        Class<?> type = method.getReturnType();
+                        if (type == boolean.class) {
+                            return false;
+                        } else if (type == long.class) {
+                            return 0L;
+                        } else if (type == int.class) {
+                            return 0;
+                        } else {
+                            return null;
+                        }
+                    }
+                }
+            });
+        }
+    }
+}
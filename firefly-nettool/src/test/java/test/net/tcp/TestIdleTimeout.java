@@ -0,0 +1,66 @@
+package test.net.tcp;
+
+import com.firefly.net.tcp.SimpleTcpClient;
+import com.firefly.net.tcp.SimpleTcpServer;
+import com.firefly.net.tcp.TcpConfiguration;
+import com.firefly.net.tcp.TcpServerConfiguration;
+import com.firefly.utils.RandomUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestIdleTimeout {
+
+    @Test
+    public void test() throws InterruptedException {
+        TcpServerConfiguration serverConfig = new TcpServerConfiguration();
+        serverConfig.setTimeout(1000);
+        SimpleTcpServer server = new SimpleTcpServer(serverConfig);
+        SimpleTcpClient client = new SimpleTcpClient(new TcpConfiguration());
+        int port = (int) RandomUtils.random(1000, 65534);
+
+        CountDownLatch activeClosed = new CountDownLatch(1);
+        CountDownLatch idleClosed = new CountDownLatch(1);
+        long[] closeTime = new long[2];
+        server.accept(connection -> {
+            long start = System.currentTimeMillis();
+            connection.receive(buf -> {
+                // the active connection receives data, it is not closed
+            }).close(() -> {
+                closeTime[0] = System.currentTimeMillis() - start;
+                idleClosed.countDown();
+            });
+        }).listen("localhost", port);
+
+        client.connect("localhost", port).thenAccept(c -> {
+            long start = System.currentTimeMillis();
+            c.close(() -> {
+                closeTime[1] = System.currentTimeMillis() - start;
+                activeClosed.countDown();
+            });
+            for (int i = 0; i < 6; i++) {
+                c.write("ping\r\n");
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+
+        Assert.assertThat(idleClosed.await(10, TimeUnit.SECONDS), is(true));
+        Assert.assertThat(activeClosed.await(10, TimeUnit.SECONDS), is(true));
+        // the client writes data for 1.8 seconds, then the server session is idle for 1 second
+        Assert.assertThat(closeTime[0], greaterThanOrEqualTo(2000L));
+        Assert.assertThat(closeTime[0], lessThan(5000L));
+
+        client.stop();
+        server.stop();
+    }
+}
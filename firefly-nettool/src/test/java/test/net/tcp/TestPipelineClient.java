@@ -0,0 +1,139 @@
+package test.net.tcp;
+
+import com.firefly.net.tcp.SimpleTcpServer;
+import com.firefly.net.tcp.TcpServerConfiguration;
+import com.firefly.net.tcp.codec.LengthFieldFrameDecoder;
+import com.firefly.net.tcp.pipeline.PipelineClient;
+import com.firefly.net.tcp.pipeline.PipelineConfiguration;
+import com.firefly.net.tcp.pipeline.PipelineConnection;
+import com.firefly.net.tcp.pipeline.PipelineFrame;
+import com.firefly.utils.RandomUtils;
+import com.firefly.utils.io.BufferUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestPipelineClient {
+
+    @Test
+    public void test() throws Exception {
+        ScheduledExecutorService delayExecutor = Executors.newScheduledThreadPool(2);
+        CountDownLatch slowLatch = new CountDownLatch(1);
+        SimpleTcpServer server = new SimpleTcpServer(new TcpServerConfiguration());
+        int port = (int) RandomUtils.random(1000, 65534);
+        server.accept(connection -> {
+            LengthFieldFrameDecoder decoder = PipelineFrame.newDecoder(1024);
+            decoder.complete(frame -> {
+                int id = PipelineFrame.getId(frame);
+                String request = BufferUtils.toUTF8String(PipelineFrame.getPayload(frame));
+                ByteBuffer[] response = PipelineFrame.encode(id, BufferUtils.toBuffer("echo " + request));
+                if (request.equals("never")) {
+                    return;
+                }
+                // the responses are out of order
+                if (request.startsWith("slow")) {
+                    delayExecutor.execute(() -> {
+                        try {
+                            slowLatch.await();
+                        } catch (InterruptedException ignored) {
+                        }
+                        connection.write(response);
+                    });
+                } else {
+                    delayExecutor.execute(() -> connection.write(response));
+                }
+            });
+            connection.receive(decoder::receive);
+        }).listen("localhost", port);
+
+        PipelineConfiguration config = new PipelineConfiguration();
+        config.setConnectionPoolSize(2);
+        config.setRequestTimeout(500);
+        PipelineClient client = new PipelineClient("localhost", port, config);
+
+        CompletableFuture<ByteBuffer> slow = client.request(BufferUtils.toBuffer("slow request"));
+        List<CompletableFuture<ByteBuffer>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(client.request(BufferUtils.toBuffer("hello " + i)));
+        }
+        for (int i = 0; i < 100; i++) {
+            Assert.assertThat(BufferUtils.toUTF8String(futures.get(i).get(5, TimeUnit.SECONDS)), is("echo hello " + i));
+        }
+        Assert.assertThat(slow.isDone(), is(false));
+        slowLatch.countDown();
+        Assert.assertThat(BufferUtils.toUTF8String(slow.get(5, TimeUnit.SECONDS)), is("echo slow request"));
+
+        // the requests are spread across the connections
+        Assert.assertThat(client.getConnections().size(), is(2));
+        for (PipelineConnection connection : client.getConnections()) {
+            Assert.assertThat(connection.getTcpConnection().getWrittenBytes(), greaterThan(0L));
+            Assert.assertThat(connection.getOutstandingCount(), is(0));
+        }
+
+        CompletableFuture<ByteBuffer> never = client.request(BufferUtils.toBuffer("never"));
+        try {
+            never.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertThat(e.getCause(), instanceOf(TimeoutException.class));
+        }
+
+        client.stop();
+        server.stop();
+        delayExecutor.shutdown();
+    }
+
+    @Test
+    public void testReconnect() throws Exception {
+        int port = (int) RandomUtils.random(1000, 65534);
+        PipelineConfiguration config = new PipelineConfiguration();
+        config.setConnectionPoolSize(2);
+        config.setReconnectInitialDelay(20);
+        config.setReconnectMaxDelay(200);
+        PipelineClient client = new PipelineClient("localhost", port, config);
+
+        // the requests fail when no connection can be established
+        try {
+            client.request(BufferUtils.toBuffer("hello")).get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertThat(client.getLiveConnectionCount(), is(0));
+        }
+
+        SimpleTcpServer server = new SimpleTcpServer(new TcpServerConfiguration());
+        server.accept(connection -> {
+            LengthFieldFrameDecoder decoder = PipelineFrame.newDecoder(1024);
+            decoder.complete(frame -> {
+                String request = BufferUtils.toUTF8String(PipelineFrame.getPayload(frame));
+                connection.write(PipelineFrame.encode(PipelineFrame.getId(frame), BufferUtils.toBuffer("echo " + request)));
+            });
+            connection.receive(decoder::receive);
+        }).listen("localhost", port);
+
+        // the client retries with the backoff delay until the server is available
+        long start = System.currentTimeMillis();
+        while (client.getLiveConnectionCount() < 2 && System.currentTimeMillis() - start < 5000) {
+            Thread.sleep(20);
+        }
+        Assert.assertThat(client.getLiveConnectionCount(), is(2));
+        Assert.assertThat(BufferUtils.toUTF8String(client.request(BufferUtils.toBuffer("hello")).get(5, TimeUnit.SECONDS)), is("echo hello"));
+
+        client.stop();
+        server.stop();
+    }
+}
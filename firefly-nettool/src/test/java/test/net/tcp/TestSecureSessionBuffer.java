@@ -0,0 +1,141 @@
+package test.net.tcp;
+
+import com.firefly.net.Session;
+import com.firefly.net.tcp.secure.jdk.FileJdkSSLContextFactory;
+import com.firefly.net.tcp.secure.jdk.JdkSSLSession;
+import com.firefly.utils.concurrent.Callback;
+import com.firefly.utils.io.BufferUtils;
+import com.firefly.utils.io.ClassPathResource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.Queue;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestSecureSessionBuffer {
+
+    @Test
+    public void test() throws Exception {
+        ClassPathResource resource = new ClassPathResource("/fireflySecureKeys.jks");
+        SSLContext sslContext = new FileJdkSSLContextFactory(resource.getFile().getAbsolutePath(),
+                "123456", "654321").getSSLContext();
+
+        Queue<ByteBuffer> clientOutput = new LinkedList<>();
+        Queue<ByteBuffer> serverOutput = new LinkedList<>();
+        TestSSLSession server = new TestSSLSession(newSession(1, serverOutput), newEngine(sslContext, false));
+        TestSSLSession client = new TestSSLSession(newSession(2, clientOutput), newEngine(sslContext, true));
+
+        ByteArrayOutputStream serverReceived = new ByteArrayOutputStream();
+        ByteArrayOutputStream clientReceived = new ByteArrayOutputStream();
+        transfer(clientOutput, server, serverReceived, serverOutput, client, clientReceived);
+        Assert.assertThat(client.isHandshakeFinished(), is(true));
+        Assert.assertThat(server.isHandshakeFinished(), is(true));
+        Assert.assertThat(client.isIdle(), is(true));
+        Assert.assertThat(server.isIdle(), is(true));
+
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            message.append("hello world ").append(i).append("\r\n");
+        }
+        client.write(BufferUtils.toBuffer(message.toString(), StandardCharsets.UTF_8), Callback.NOOP);
+        server.write(BufferUtils.toBuffer("bye!", StandardCharsets.UTF_8), Callback.NOOP);
+        transfer(clientOutput, server, serverReceived, serverOutput, client, clientReceived);
+
+        Assert.assertThat(new String(serverReceived.toByteArray(), StandardCharsets.UTF_8), is(message.toString()));
+        Assert.assertThat(new String(clientReceived.toByteArray(), StandardCharsets.UTF_8), is("bye!"));
+
+        // the sessions do not keep the buffers after the received records are decrypted
+        Assert.assertThat(client.isIdle(), is(true));
+        Assert.assertThat(server.isIdle(), is(true));
+    }
+
+    private static void transfer(Queue<ByteBuffer> clientOutput, TestSSLSession server, ByteArrayOutputStream serverReceived,
+                                 Queue<ByteBuffer> serverOutput, TestSSLSession client, ByteArrayOutputStream clientReceived) throws IOException {
+        while (!clientOutput.isEmpty() || !serverOutput.isEmpty()) {
+            deliver(clientOutput, server, serverReceived);
+            deliver(serverOutput, client, clientReceived);
+        }
+    }
+
+    private static void deliver(Queue<ByteBuffer> output, TestSSLSession peer, ByteArrayOutputStream received) throws IOException {
+        ByteBuffer buf;
+        while ((buf = output.poll()) != null) {
+            // the TLS records are split into the small packets
+            while (buf.hasRemaining()) {
+                int size = Math.min(buf.remaining(), 1000);
+                byte[] packet = new byte[size];
+                buf.get(packet);
+                ByteBuffer plaintext = peer.read(ByteBuffer.wrap(packet));
+                if (plaintext != null) {
+                    received.write(BufferUtils.toArray(plaintext));
+                }
+            }
+        }
+    }
+
+    private static SSLEngine newEngine(SSLContext sslContext, boolean clientMode) {
+        SSLEngine sslEngine = sslContext.createSSLEngine();
+        sslEngine.setUseClientMode(clientMode);
+        return sslEngine;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Session newSession(int sessionId, Queue<ByteBuffer> output) {
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "write": {
+                    Collection<ByteBuffer> buffers = args[0] instanceof ByteBuffer
+                            ? Collections.singletonList((ByteBuffer) args[0])
+                            : (Collection<ByteBuffer>) args[0];
+                    for (ByteBuffer buffer : buffers) {
+                        output.offer(ByteBuffer.wrap(BufferUtils.toArray(buffer)));
+                    }
+                    ((Callback) args[1]).succeeded();
+                    return null;
+                }
+                case "getSessionId":
+                    return sessionId;
+                case "isOpen":
+                    return true;
+                default: {
+                    Class<?> type = method.getReturnType();
+                    if (type == boolean.class) {
+                        return false;
+                    } else if (type == long.class) {
+                        return 0L;
+                    } else if (type == int.class) {
+                        return 0;
+                    } else {
+                        return null;
+                    }
+                }
+            }
+        });
+    }
+
+    private static class TestSSLSession extends JdkSSLSession {
+
+        private TestSSLSession(Session session, SSLEngine sslEngine) throws IOException {
+            super(session, sslEngine, Collections::emptyList, secureSession -> {
+            });
+        }
+
+        private boolean isIdle() {
+            return receivedAppBuf == null && receivedPacketBuf == null;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package test.net.tcp;
+
+import com.codahale.metrics.MetricRegistry;
+import com.firefly.net.SSLResumptionConfiguration;
+import com.firefly.net.SecureSession;
+import com.firefly.net.Session;
+import com.firefly.net.metric.SecureSessionMetric;
+import com.firefly.net.tcp.secure.jdk.FileJdkSSLContextFactory;
+import com.firefly.net.tcp.secure.jdk.JdkSecureSessionFactory;
+import com.firefly.utils.concurrent.Callback;
+import com.firefly.utils.io.BufferUtils;
+import com.firefly.utils.io.ClassPathResource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestSecureSessionResumption {
+
+    @Test
+    public void test() throws Exception {
+        String path = new ClassPathResource("/fireflySecureKeys.jks").getFile().getAbsolutePath();
+        FileJdkSSLContextFactory sslContextFactory = new FileJdkSSLContextFactory(path, "123456", "654321");
+        sslContextFactory.getResumptionConfiguration().setSessionTimeout(60);
+        JdkSecureSessionFactory factory = new JdkSecureSessionFactory(sslContextFactory, sslContextFactory);
+        MetricRegistry metrics = new MetricRegistry();
+        SecureSessionMetric metric = new SecureSessionMetric(metrics);
+        factory.setSecureSessionMetric(metric);
+
+        handshake(factory, "localhost", 8443);
+        Assert.assertThat(metric.getFullHandshake().getCount(), is(2L));
+        Assert.assertThat(metric.getResumedHandshake().getCount(), is(0L));
+
+        // the SSL context is cached, the client resumes the session of the same origin
+        Thread.sleep(5L);
+        handshake(factory, "localhost", 8443);
+        Assert.assertThat(metric.getFullHandshake().getCount(), is(2L));
+        Assert.assertThat(metric.getResumedHandshake().getCount(), is(2L));
+
+        // the different origin uses the full handshake
+        handshake(factory, "localhost", 8444);
+        Assert.assertThat(metric.getFullHandshake().getCount(), is(4L));
+        Assert.assertThat(metric.getResumedHandshake().getCount(), is(2L));
+        Assert.assertThat(sslContextFactory.getCachedSSLContext().getServerSessionContext().getSessionTimeout(), is(60));
+
+        // the configuration is applied to the cached SSL context
+        SSLResumptionConfiguration resumptionConfiguration = new SSLResumptionConfiguration();
+        resumptionConfiguration.setSessionTimeout(30);
+        sslContextFactory.setResumptionConfiguration(resumptionConfiguration);
+        Assert.assertThat(sslContextFactory.getCachedSSLContext().getServerSessionContext().getSessionTimeout(), is(30));
+        Assert.assertThat(sslContextFactory.getCachedSSLContext().getClientSessionContext().getSessionTimeout(), is(30));
+    }
+
+    @Test
+    public void testResumptionCounter() {
+        AtomicLong hits = new AtomicLong(3);
+        SecureSessionMetric metric = new SecureSessionMetric(new MetricRegistry());
+        SecureSessionMetric.ResumptionCounter counter = new SecureSessionMetric.ResumptionCounter(hits::get);
+
+        metric.record(counter, s -> {
+        }).complete(null);
+        Assert.assertThat(metric.getFullHandshake().getCount(), is(1L));
+        Assert.assertThat(metric.getResumedHandshake().getCount(), is(0L));
+
+        // two concurrent handshakes are resumed
+        hits.addAndGet(2);
+        metric.record(counter, s -> {
+        }).complete(null);
+        metric.record(counter, s -> {
+        }).complete(null);
+        metric.record(counter, s -> {
+        }).complete(null);
+        Assert.assertThat(metric.getFullHandshake().getCount(), is(2L));
+        Assert.assertThat(metric.getResumedHandshake().getCount(), is(2L));
+    }
+
+    private static void handshake(JdkSecureSessionFactory factory, String host, int port) throws IOException {
+        Queue<ByteBuffer> clientOutput = new LinkedList<>();
+        Queue<ByteBuffer> serverOutput = new LinkedList<>();
+        SecureSession server = factory.create(newSession(1, serverOutput), false, s -> {
+        });
+        SecureSession client = factory.create(newSession(2, clientOutput), true, host, port, s -> {
+        });
+        while (!clientOutput.isEmpty() || !serverOutput.isEmpty()) {
+            deliver(clientOutput, server);
+            deliver(serverOutput, client);
+        }
+        Assert.assertThat(client.isHandshakeFinished(), is(true));
+        Assert.assertThat(server.isHandshakeFinished(), is(true));
+    }
+
+    private static void deliver(Queue<ByteBuffer> output, SecureSession peer) throws IOException {
+        ByteBuffer buf;
+        while ((buf = output.poll()) != null) {
+            peer.read(buf);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Session newSession(int sessionId, Queue<ByteBuffer> output) {
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "write": {
+                    Collection<ByteBuffer> buffers = args[0] instanceof ByteBuffer
+                            ? Collections.singletonList((ByteBuffer) args[0])
+                            : (Collection<ByteBuffer>) args[0];
+                    for (ByteBuffer buffer : buffers) {
+                        output.offer(ByteBuffer.wrap(BufferUtils.toArray(buffer)));
+                    }
+                    ((Callback) args[1]).succeeded();
+                    return null;
+                }
+                case "getSessionId":
+                    return sessionId;
+                case "isOpen":
+                    return true;
+                default: {
+                    Class<?> type = method.getReturnType();
+                    if (type == boolean.class) {
+                        return false;
+                    } else if (type == long.class) {
+                        return 0L;
+                    } else if (type == int.class) {
+                        return 0;
+                    } else {
+                        return null;
+                    }
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,74 @@
+package test.net.tcp;
+
+import com.firefly.net.tcp.SimpleTcpClient;
+import com.firefly.net.tcp.SimpleTcpServer;
+import com.firefly.net.tcp.TcpConfiguration;
+import com.firefly.net.tcp.TcpServerConfiguration;
+import com.firefly.net.tcp.codec.StringParser;
+import com.firefly.utils.RandomUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestSessionAffinity {
+
+    @Test
+    public void test() throws InterruptedException {
+        int connections = 4;
+        int count = 100;
+        TcpServerConfiguration serverConfig = new TcpServerConfiguration();
+        serverConfig.setAffinityEnable(true);
+        serverConfig.setAffinityPoolSize(2);
+        serverConfig.setAcceptorNumber(2);
+        TcpConfiguration clientConfig = new TcpConfiguration();
+        clientConfig.setAffinityEnable(true);
+
+        SimpleTcpServer server = new SimpleTcpServer(serverConfig);
+        SimpleTcpClient client = new SimpleTcpClient(clientConfig);
+        int port = (int) RandomUtils.random(1000, 65534);
+
+        // the connection id -> the threads that receive the messages and complete the writes
+        Map<Integer, Set<String>> serverThreads = new ConcurrentHashMap<>();
+        server.accept(connection -> {
+            Set<String> threads = serverThreads.computeIfAbsent(connection.getSessionId(), k -> ConcurrentHashMap.newKeySet());
+            StringParser parser = new StringParser();
+            parser.complete(message -> {
+                threads.add(Thread.currentThread().getName());
+                connection.write("echo " + message + "\n", () -> threads.add(Thread.currentThread().getName()));
+            });
+            connection.receive(parser::receive);
+        }).listen("localhost", port);
+
+        CountDownLatch latch = new CountDownLatch(connections * count);
+        for (int i = 0; i < connections; i++) {
+            client.connect("localhost", port).thenAccept(c -> {
+                StringParser parser = new StringParser();
+                parser.complete(message -> latch.countDown());
+                c.receive(parser::receive);
+                for (int j = 0; j < count; j++) {
+                    c.write("hello " + j + "\n");
+                }
+            });
+        }
+
+        Assert.assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+        Assert.assertThat(serverThreads.size(), is(connections));
+        serverThreads.values().forEach(threads -> {
+            // all events of the connection run in the thread of its channel group, there is no handoff
+            Assert.assertThat(threads.size(), is(1));
+            Assert.assertThat(threads.iterator().next(), containsString("affinity"));
+        });
+        client.stop();
+        server.stop();
+    }
+}
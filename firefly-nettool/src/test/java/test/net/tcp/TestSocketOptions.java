@@ -0,0 +1,85 @@
+package test.net.tcp;
+
+import com.firefly.net.exception.NetException;
+import com.firefly.net.tcp.SimpleTcpClient;
+import com.firefly.net.tcp.SimpleTcpServer;
+import com.firefly.net.tcp.TcpConfiguration;
+import com.firefly.net.tcp.TcpServerConfiguration;
+import com.firefly.net.tcp.codec.StringParser;
+import com.firefly.utils.RandomUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestSocketOptions {
+
+    @Test
+    public void test() throws InterruptedException {
+        int count = 50;
+        TcpServerConfiguration serverConfig = new TcpServerConfiguration();
+        serverConfig.setAcceptorNumber(4);
+        serverConfig.setBacklog(128);
+        serverConfig.setReceiveBufferSize(128 * 1024);
+        serverConfig.setSendBufferSize(128 * 1024);
+        serverConfig.setSoLinger(0);
+        TcpConfiguration clientConfig = new TcpConfiguration();
+        clientConfig.setTcpNoDelay(true);
+        clientConfig.setKeepAlive(false);
+        clientConfig.setReceiveBufferSize(64 * 1024);
+
+        SimpleTcpServer server = new SimpleTcpServer(serverConfig);
+        SimpleTcpClient client = new SimpleTcpClient(clientConfig);
+        int port = (int) RandomUtils.random(1000, 65534);
+
+        server.accept(connection -> {
+            StringParser parser = new StringParser();
+            parser.complete(message -> connection.write("echo " + message + "\n"));
+            connection.receive(parser::receive);
+        }).listen("localhost", port);
+
+        CountDownLatch latch = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            String request = "hello " + i;
+            client.connect("localhost", port).thenAccept(c -> {
+                StringParser parser = new StringParser();
+                parser.complete(message -> {
+                    if (message.equals("echo " + request)) {
+                        latch.countDown();
+                    }
+                });
+                c.receive(parser::receive);
+                c.write(request + "\n");
+            });
+        }
+
+        Assert.assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+        client.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testBindFailure() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getByName("localhost"))) {
+            SimpleTcpServer server = new SimpleTcpServer(new TcpServerConfiguration());
+            try {
+                server.accept(connection -> {
+                }).listen("localhost", serverSocket.getLocalPort());
+                Assert.fail();
+            } catch (NetException e) {
+                Assert.assertThat(e.getCause() instanceof IOException, is(true));
+            } finally {
+                server.stop();
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package test.net.tcp.codec;
+
+import com.firefly.net.BufferPool;
+import com.firefly.net.exception.FrameTooLongException;
+import com.firefly.net.tcp.codec.*;
+import com.firefly.utils.io.BufferUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class FrameDecoderTest {
+
+    private static List<String> collect(AbstractFrameDecoder decoder, List<Throwable> errors) {
+        List<String> frames = new ArrayList<>();
+        decoder.complete(frame -> frames.add(BufferUtils.toUTF8String(frame)))
+               .exception(errors::add);
+        return frames;
+    }
+
+    private static void receiveByteByByte(AbstractFrameDecoder decoder, byte[] bytes) {
+        for (byte b : bytes) {
+            decoder.receive(ByteBuffer.wrap(new byte[]{b}));
+        }
+    }
+
+    private static byte[] lengthFieldFrames(String... messages) {
+        ByteBuffer buf = ByteBuffer.allocate(1024);
+        for (String message : messages) {
+            byte[] content = message.getBytes(StandardCharsets.UTF_8);
+            buf.putShort((short) content.length).put(content);
+        }
+        buf.flip();
+        return BufferUtils.toArray(buf);
+    }
+
+    @Test
+    public void testLengthField() {
+        List<Throwable> errors = new ArrayList<>();
+        LengthFieldFrameDecoder decoder = new LengthFieldFrameDecoder(2, 1024);
+        List<String> frames = collect(decoder, errors);
+
+        ByteBuffer buf = ByteBuffer.wrap(lengthFieldFrames("hello", "", "world"));
+        byte[] array = buf.array();
+        decoder.complete(frame -> {
+            // the complete frames are the slices of the received buffer
+            Assert.assertThat(frame.array() == array, is(true));
+            frames.add(BufferUtils.toUTF8String(frame));
+        });
+        decoder.receive(buf);
+        Assert.assertThat(frames, contains("hello", "", "world"));
+
+        LengthFieldFrameDecoder byteByByteDecoder = new LengthFieldFrameDecoder(2, 1024);
+        List<String> byteByByteFrames = collect(byteByByteDecoder, errors);
+        receiveByteByByte(byteByByteDecoder, lengthFieldFrames("测试", "firefly"));
+        Assert.assertThat(byteByByteFrames, contains("测试", "firefly"));
+        Assert.assertThat(byteByByteDecoder.getCumulatedBytes(), is(0));
+        Assert.assertThat(errors.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testLittleEndianLengthField() {
+        List<Throwable> errors = new ArrayList<>();
+        LengthFieldFrameDecoder decoder = new LengthFieldFrameDecoder(4, ByteOrder.LITTLE_ENDIAN, 1024);
+        List<String> frames = collect(decoder, errors);
+        ByteBuffer buf = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(3).put("abc".getBytes(StandardCharsets.UTF_8)).putInt(2);
+        buf.flip();
+        decoder.receive(buf);
+        Assert.assertThat(decoder.getCumulatedBytes(), is(4));
+        decoder.receive(ByteBuffer.wrap("de".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertThat(frames, contains("abc", "de"));
+    }
+
+    @Test
+    public void testVarInt() {
+        Assert.assertArrayEquals(new byte[]{(byte) 0xAC, 0x02}, VarIntFrameDecoder.encodeLength(300));
+
+        List<Throwable> errors = new ArrayList<>();
+        VarIntFrameDecoder decoder = new VarIntFrameDecoder(1024);
+        List<String> frames = collect(decoder, errors);
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            s.append('a');
+        }
+        ByteBuffer buf = ByteBuffer.allocate(512);
+        buf.put(VarIntFrameDecoder.encodeLength(300)).put(s.toString().getBytes(StandardCharsets.UTF_8));
+        buf.put(VarIntFrameDecoder.encodeLength(1)).put((byte) 'b');
+        buf.flip();
+        receiveByteByByte(decoder, BufferUtils.toArray(buf));
+        Assert.assertThat(frames, contains(s.toString(), "b"));
+        Assert.assertThat(errors.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testDelimiter() {
+        List<Throwable> errors = new ArrayList<>();
+        DelimiterFrameDecoder decoder = new DelimiterFrameDecoder("\r\n", 1024);
+        List<String> frames = collect(decoder, errors);
+        decoder.receive(ByteBuffer.wrap("hello\r\nwor".getBytes(StandardCharsets.UTF_8)));
+        decoder.receive(ByteBuffer.wrap("ld\r".getBytes(StandardCharsets.UTF_8)));
+        decoder.receive(ByteBuffer.wrap("\n\r\n哈哈\r\n".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertThat(frames, contains("hello", "world", "", "哈哈"));
+
+        frames.clear();
+        receiveByteByByte(decoder, "a\r\nbc\r\r\n".getBytes(StandardCharsets.UTF_8));
+        Assert.assertThat(frames, contains("a", "bc\r"));
+        Assert.assertThat(decoder.getCumulatedBytes(), is(0));
+        Assert.assertThat(errors.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testFixedLength() {
+        List<Throwable> errors = new ArrayList<>();
+        FixedLengthFrameDecoder decoder = new FixedLengthFrameDecoder(3);
+        List<String> frames = collect(decoder, errors);
+        decoder.receive(ByteBuffer.wrap("abcd".getBytes(StandardCharsets.UTF_8)));
+        decoder.receive(ByteBuffer.wrap("efghi".getBytes(StandardCharsets.UTF_8)));
+        decoder.receive(ByteBuffer.wrap("j".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertThat(frames, contains("abc", "def", "ghi"));
+        Assert.assertThat(decoder.getCumulatedBytes(), is(1));
+    }
+
+    @Test
+    public void testCompleteCallbackException() {
+        List<Throwable> errors = new ArrayList<>();
+        LengthFieldFrameDecoder decoder = new LengthFieldFrameDecoder(2, 1024);
+        List<String> frames = new ArrayList<>();
+        decoder.complete(frame -> {
+            String message = BufferUtils.toUTF8String(frame);
+            if (message.equals("bad")) {
+                throw new IllegalArgumentException(message);
+            }
+            frames.add(message);
+        }).exception(errors::add);
+
+        byte[] bytes = lengthFieldFrames("bad", "ok");
+        decoder.receive(ByteBuffer.wrap(bytes, 0, 4));
+        try {
+            decoder.receive(ByteBuffer.wrap(bytes, 4, 3));
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertThat(e.getMessage(), is("bad"));
+        }
+        // the exception of the complete callback is not a decoding failure, the rest bytes are kept
+        Assert.assertThat(errors.isEmpty(), is(true));
+        Assert.assertThat(decoder.getCumulatedBytes(), is(2));
+        decoder.receive(ByteBuffer.wrap(bytes, 7, bytes.length - 7));
+        Assert.assertThat(frames, contains("ok"));
+    }
+
+    @Test
+    public void testCumulationGrowth() {
+        AtomicInteger acquired = new AtomicInteger();
+        BufferPool bufferPool = new BufferPool() {
+            @Override
+            public ByteBuffer acquire(int size) {
+                acquired.incrementAndGet();
+                return ByteBuffer.allocate(size);
+            }
+
+            @Override
+            public void release(ByteBuffer buffer) {
+            }
+
+            @Override
+            public int size() {
+                return 0;
+            }
+        };
+        List<Throwable> errors = new ArrayList<>();
+        LengthFieldFrameDecoder decoder = new LengthFieldFrameDecoder(4, ByteOrder.BIG_ENDIAN, 64 * 1024, bufferPool);
+        List<String> frames = collect(decoder, errors);
+        ByteBuffer buf = ByteBuffer.allocate(4 + 32 * 1024);
+        buf.putInt(32 * 1024);
+        while (buf.hasRemaining()) {
+            buf.put((byte) 'a');
+        }
+        receiveByteByByte(decoder, buf.array());
+        Assert.assertThat(frames.size(), is(1));
+        Assert.assertThat(frames.get(0).length(), is(32 * 1024));
+        // the cumulation buffer doubles its capacity instead of growing by the received bytes
+        Assert.assertThat(acquired.get(), lessThanOrEqualTo(17));
+    }
+
+    @Test
+    public void testMaxFrameLength() {
+        List<Throwable> errors = new ArrayList<>();
+        LengthFieldFrameDecoder decoder = new LengthFieldFrameDecoder(2, 4);
+        List<String> frames = collect(decoder, errors);
+        decoder.receive(ByteBuffer.wrap(new byte[]{0, 5, 1}));
+        Assert.assertThat(errors.size(), is(1));
+        Assert.assertThat(errors.get(0), instanceOf(FrameTooLongException.class));
+        // the rest of the oversized frame is skipped
+        decoder.receive(ByteBuffer.wrap(new byte[]{2, 3, 4, 5}));
+        decoder.receive(ByteBuffer.wrap(lengthFieldFrames("ok")));
+        Assert.assertThat(frames, contains("ok"));
+        Assert.assertThat(errors.size(), is(1));
+
+        errors.clear();
+        DelimiterFrameDecoder delimiterDecoder = new DelimiterFrameDecoder("\n", 8);
+        frames = collect(delimiterDecoder, errors);
+        delimiterDecoder.receive(ByteBuffer.wrap("0123".getBytes(StandardCharsets.UTF_8)));
+        delimiterDecoder.receive(ByteBuffer.wrap("456789".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertThat(errors.size(), is(1));
+        Assert.assertThat(errors.get(0), instanceOf(FrameTooLongException.class));
+        Assert.assertThat(delimiterDecoder.getCumulatedBytes(), is(0));
+        // the tail of the oversized frame is discarded until the delimiter
+        delimiterDecoder.receive(ByteBuffer.wrap("abc\nde".getBytes(StandardCharsets.UTF_8)));
+        delimiterDecoder.receive(ByteBuffer.wrap("f\n".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertThat(frames, contains("def"));
+        Assert.assertThat(errors.size(), is(1));
+    }
+
+    @Test
+    public void testOversizedPayloadInLaterReads() {
+        List<Throwable> errors = new ArrayList<>();
+        LengthFieldFrameDecoder decoder = new LengthFieldFrameDecoder(2, 4);
+        List<String> frames = collect(decoder, errors);
+        byte[] payload = new byte[300];
+        for (int i = 0; i < payload.length; i++) {
+            // the payload looks like the length fields of the small frames
+            payload[i] = (byte) (i % 2 == 0 ? 0 : 1);
+        }
+        ByteBuffer oversized = ByteBuffer.allocate(2 + payload.length);
+        oversized.putShort((short) payload.length).put(payload).flip();
+        byte[] bytes = BufferUtils.toArray(oversized);
+        decoder.receive(ByteBuffer.wrap(bytes, 0, 2));
+        decoder.receive(ByteBuffer.wrap(bytes, 2, 100));
+        decoder.receive(ByteBuffer.wrap(bytes, 102, bytes.length - 102));
+        receiveByteByByte(decoder, lengthFieldFrames("ok"));
+        Assert.assertThat(errors.size(), is(1));
+        Assert.assertThat(frames, contains("ok"));
+
+        VarIntFrameDecoder varIntDecoder = new VarIntFrameDecoder(4);
+        errors.clear();
+        frames = collect(varIntDecoder, errors);
+        varIntDecoder.receive(ByteBuffer.wrap(VarIntFrameDecoder.encodeLength(200)));
+        varIntDecoder.receive(ByteBuffer.wrap(payload, 0, 200));
+        varIntDecoder.receive(ByteBuffer.wrap(VarIntFrameDecoder.encodeLength(2)));
+        varIntDecoder.receive(ByteBuffer.wrap("ok".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertThat(errors.size(), is(1));
+        Assert.assertThat(frames, contains("ok"));
+
+        DelimiterFrameDecoder delimiterDecoder = new DelimiterFrameDecoder("\r\n", 4);
+        errors.clear();
+        frames = collect(delimiterDecoder, errors);
+        receiveByteByByte(delimiterDecoder, "0123456789\r\nabcd\r\nabcde\r\n".getBytes(StandardCharsets.UTF_8));
+        // the frame of the max length is accepted, the longer frames are discarded as a whole
+        Assert.assertThat(frames, contains("abcd"));
+        Assert.assertThat(errors.size(), is(2));
+    }
+}
@@ -58,6 +58,8 @@ public class HTTP2Client extends AbstractLifeCycle {
         HTTP2ClientContext context = new HTTP2ClientContext();
         context.promise = promise;
         context.listener = listener;
+        context.host = host;
+        context.port = port;
         int id = sessionId.getAndIncrement();
         http2ClientContext.put(id, context);
         client.connect(host, port, id);
@@ -6,4 +6,6 @@ import com.firefly.utils.concurrent.Promise;
 public class HTTP2ClientContext {
     public Promise<HTTPClientConnection> promise;
     public Listener listener;
+    public String host;
+    public int port;
 }
@@ -32,7 +32,8 @@ public class HTTP2ClientHandler extends AbstractHTTPHandler {
 
         if (config.isSecureConnectionEnabled()) {
             SecureSessionFactory factory = config.getSecureSessionFactory();
-            session.attachObject(factory.create(session, true, sslSession -> {
+            // the TLS session is cached by the origin, so the next connection to the same origin resumes it
+            session.attachObject(factory.create(session, true, context.host, context.port, sslSession -> {
                 String protocol = Optional.ofNullable(sslSession.getApplicationProtocol())
                                           .filter(StringUtils::hasText)
                                           .orElse("http/1.1");
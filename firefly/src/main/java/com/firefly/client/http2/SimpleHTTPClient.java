@@ -5,6 +5,7 @@ import com.firefly.codec.http2.encode.UrlEncoded;
 import com.firefly.codec.http2.model.*;
 import com.firefly.codec.http2.model.MetaData.Response;
 import com.firefly.codec.http2.stream.HTTPOutputStream;
+import com.firefly.net.metric.HdrHistogramReservoir;
 import com.firefly.utils.CollectionUtils;
 import com.firefly.utils.StringUtils;
 import com.firefly.utils.concurrent.Promise;
@@ -36,6 +37,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 public class SimpleHTTPClient extends AbstractLifeCycle {
@@ -48,6 +50,8 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
     private final Timer responseTimer;
     private final Meter errorMeter;
     private final Counter leakedConnectionCounter;
+    private final ConcurrentHashMap<RequestBuilder, OriginMetric> originMetricMap = new ConcurrentHashMap<>();
+    private final MetricRegistry metrics;
 
     public SimpleHTTPClient() {
         this(new SimpleHTTPClientConfiguration());
@@ -56,7 +60,7 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
     public SimpleHTTPClient(SimpleHTTPClientConfiguration http2Configuration) {
         this.config = http2Configuration;
         http2Client = new HTTP2Client(http2Configuration);
-        MetricRegistry metrics = http2Configuration.getTcpConfiguration().getMetricReporterFactory().getMetricRegistry();
+        metrics = http2Configuration.getTcpConfiguration().getMetricReporterFactory().getMetricRegistry();
         responseTimer = metrics.timer("http2.SimpleHTTPClient.response.time");
         errorMeter = metrics.meter("http2.SimpleHTTPClient.error.count");
         leakedConnectionCounter = metrics.counter("http2.SimpleHTTPClient.leak.count");
@@ -86,6 +90,7 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
 
         Action3<Integer, String, Response> badMessage;
         Action1<Response> earlyEof;
+        Promise<HTTPClientConnection> connection;
 
         Promise<HTTPOutputStream> promise;
         Action1<HTTPOutputStream> output;
@@ -95,6 +100,9 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
         Promise.Completable<SimpleResponse> future;
         SimpleResponse simpleResponse;
 
+        long startTime;
+        OriginMetric originMetric;
+
         protected RequestBuilder() {
 
         }
@@ -445,6 +453,18 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
             return this;
         }
 
+        /**
+         * Set the connection promise.
+         *
+         * @param connection The connection promise. It succeeds with the pooled connection before the request is sent,
+         *                   and fails if the HTTP client can not get a connection.
+         * @return RequestBuilder
+         */
+        public RequestBuilder connection(Promise<HTTPClientConnection> connection) {
+            this.connection = connection;
+            return this;
+        }
+
         /**
          * Submit an HTTP request.
          *
@@ -735,6 +755,8 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
 
     protected void send(RequestBuilder reqBuilder) {
         Timer.Context resTimerCtx = responseTimer.time();
+        reqBuilder.startTime = System.nanoTime();
+        reqBuilder.originMetric = originMetricMap.computeIfAbsent(reqBuilder, r -> new OriginMetric(metrics, r.host, r.port));
         getPool(reqBuilder).take().thenAccept(pooledConn -> {
             HTTPClientConnection connection = pooledConn.getObject();
             connection.close(conn -> pooledConn.release())
@@ -746,11 +768,13 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
             if (log.isDebugEnabled()) {
                 log.debug("take the connection {} from pool, released: {}, {}", connection.getSessionId(), pooledConn.isReleased(), connection.getHttpVersion());
             }
+            Optional.ofNullable(reqBuilder.connection).ifPresent(c -> c.succeeded(connection));
             send(reqBuilder, resTimerCtx, connection, createClientHTTPHandler(reqBuilder, resTimerCtx, pooledConn));
         }).exceptionally(e -> {
             log.error("SimpleHTTPClient sends message exception", e);
-            resTimerCtx.stop();
+            stopTimer(reqBuilder, resTimerCtx);
             errorMeter.mark();
+            Optional.ofNullable(reqBuilder.connection).ifPresent(c -> c.failed(e));
             return null;
         });
     }
@@ -785,7 +809,7 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
                 }
             }).exceptionally(t -> {
                 log.error("SimpleHTTPClient gets output stream exception", t);
-                resTimerCtx.stop();
+                stopTimer(reqBuilder, resTimerCtx);
                 errorMeter.mark();
                 return null;
             });
@@ -802,6 +826,8 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
                                                         Timer.Context resTimerCtx,
                                                         PooledObject<HTTPClientConnection> pooledConn) {
         return new ClientHTTPHandler.Adapter().headerComplete((req, resp, outputStream, conn) -> {
+            Optional.ofNullable(reqBuilder.originMetric).ifPresent(m -> m.timeToFirstByte.update(
+                    System.nanoTime() - reqBuilder.startTime, TimeUnit.NANOSECONDS));
             Optional.ofNullable(reqBuilder.headerComplete).ifPresent(header -> header.call(resp));
             if (reqBuilder.future != null) {
                 if (reqBuilder.simpleResponse == null) {
@@ -829,7 +855,7 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
                 }
             } finally {
                 errorMeter.mark();
-                resTimerCtx.stop();
+                stopTimer(reqBuilder, resTimerCtx);
                 IO.close(pooledConn.getObject());
                 pooledConn.release();
                 if (log.isDebugEnabled()) {
@@ -847,7 +873,7 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
                 }
             } finally {
                 errorMeter.mark();
-                resTimerCtx.stop();
+                stopTimer(reqBuilder, resTimerCtx);
                 IO.close(pooledConn.getObject());
                 pooledConn.release();
                 if (log.isDebugEnabled()) {
@@ -866,7 +892,7 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
             Optional.ofNullable(reqBuilder.future).ifPresent(f -> f.succeeded(reqBuilder.simpleResponse));
             return true;
         } finally {
-            resTimerCtx.stop();
+            stopTimer(reqBuilder, resTimerCtx);
             pooledConn.release();
             if (log.isDebugEnabled()) {
                 log.debug("complete request of the connection {} , released: {}", pooledConn.getObject().getSessionId(), pooledConn.isReleased());
@@ -874,6 +900,28 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
         }
     }
 
+    private void stopTimer(RequestBuilder reqBuilder, Timer.Context resTimerCtx) {
+        resTimerCtx.stop();
+        Optional.ofNullable(reqBuilder.originMetric).ifPresent(m -> m.responseTime.update(
+                System.nanoTime() - reqBuilder.startTime, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * The latency histograms of an origin. The response time is measured from the request is sent
+     * to the response is complete, and the time to first byte is measured from the request is sent
+     * to the response header is received.
+     */
+    private static class OriginMetric {
+        private final Timer responseTime;
+        private final Timer timeToFirstByte;
+
+        private OriginMetric(MetricRegistry metrics, String host, int port) {
+            String prefix = "http2.SimpleHTTPClient.origin." + host + ":" + port;
+            responseTime = metrics.timer(prefix + ".response.time", HdrHistogramReservoir::newTimer);
+            timeToFirstByte = metrics.timer(prefix + ".ttfb", HdrHistogramReservoir::newTimer);
+        }
+    }
+
     protected AsynchronousPool<HTTPClientConnection> getPool(RequestBuilder request) {
         return poolMap.computeIfAbsent(request, this::createConnectionPool);
     }
@@ -0,0 +1,287 @@
+package com.firefly.codec.http2.decode;
+
+import com.firefly.utils.io.BufferUtils;
+import com.firefly.utils.lang.Utf8StringBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A push based, non-blocking multipart parser (RFC 2046, RFC 7578).
+ * <p>
+ * The parser consumes the ByteBuffers as they arrive and calls the {@link Handler} for every part.
+ * The part content is passed to the handler as slices of the input buffer without copying, so the handler must
+ * consume the content before the {@link #parse(ByteBuffer, boolean)} method returns.
+ *
+ * @author Pengtao Qiu
+ */
+public class MultiPartParser {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    public static final int DEFAULT_MAX_HEADER_SIZE = 8 * 1024;
+
+    public enum State {
+        PREAMBLE,
+        DELIMITER_CLOSE,
+        DELIMITER_CLOSE_DASH,
+        DELIMITER_PADDING,
+        BODY_PART,
+        PART,
+        END
+    }
+
+    /**
+     * The multipart event handler.
+     */
+    public interface Handler {
+
+        default void startPart() {
+        }
+
+        default void parsedField(String name, String value) {
+        }
+
+        default void headerComplete() {
+        }
+
+        /**
+         * Receive the part content.
+         *
+         * @param buffer The part content slice. It is only valid during this call.
+         * @param last   If it is true, the current part is complete.
+         */
+        default void content(ByteBuffer buffer, boolean last) {
+        }
+
+        default void messageComplete() {
+        }
+
+        default void earlyEOF() {
+        }
+
+        default void badMessage(String reason) {
+        }
+    }
+
+    private final Handler handler;
+    private final byte[] delimiter;
+    private final int maxHeaderSize;
+    private final Utf8StringBuilder line = new Utf8StringBuilder(128);
+    private State state = State.PREAMBLE;
+    private int partialMatch;
+    private int headerSize;
+
+    public MultiPartParser(Handler handler, String boundary) {
+        this(handler, boundary, DEFAULT_MAX_HEADER_SIZE);
+    }
+
+    public MultiPartParser(Handler handler, String boundary, int maxHeaderSize) {
+        if (boundary == null || boundary.isEmpty()) {
+            throw new IllegalArgumentException("the multipart boundary is empty");
+        }
+        this.handler = handler;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.maxHeaderSize = maxHeaderSize;
+        // the first delimiter may be at the beginning of the body without the leading CRLF
+        this.partialMatch = 2;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isComplete() {
+        return state == State.END;
+    }
+
+    /**
+     * Parse the multipart content.
+     *
+     * @param buffer The multipart content. The buffer is consumed completely.
+     * @param last   If it is true, there is no more content.
+     */
+    public void parse(ByteBuffer buffer, boolean last) {
+        while (buffer.hasRemaining() && state != State.END) {
+            switch (state) {
+                case PREAMBLE:
+                case PART:
+                    parseDelimitedContent(buffer);
+                    break;
+                case DELIMITER_CLOSE: {
+                    byte b = buffer.get();
+                    if (b == '-') {
+                        state = State.DELIMITER_CLOSE_DASH;
+                    } else if (b == '\n') {
+                        startPart();
+                    } else {
+                        state = State.DELIMITER_PADDING;
+                    }
+                }
+                break;
+                case DELIMITER_CLOSE_DASH: {
+                    byte b = buffer.get();
+                    if (b == '-') {
+                        state = State.END;
+                        handler.messageComplete();
+                    } else {
+                        badMessage("the multipart close delimiter is illegal");
+                    }
+                }
+                break;
+                case DELIMITER_PADDING: {
+                    byte b = buffer.get();
+                    if (b == '\n') {
+                        startPart();
+                    } else if (b != '\r' && b != ' ' && b != '\t') {
+                        badMessage("the multipart delimiter padding is illegal");
+                    }
+                }
+                break;
+                case BODY_PART:
+                    parseField(buffer);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // ignore the epilogue
+        buffer.position(buffer.limit());
+
+        if (last && state != State.END) {
+            log.debug("the multipart content is incomplete, state: {}", state);
+            state = State.END;
+            handler.earlyEOF();
+        }
+    }
+
+    private void startPart() {
+        state = State.BODY_PART;
+        headerSize = 0;
+        line.reset();
+        handler.startPart();
+    }
+
+    private void badMessage(String reason) {
+        state = State.END;
+        handler.badMessage(reason);
+    }
+
+    private void parseField(ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (++headerSize > maxHeaderSize) {
+                badMessage("the multipart header is too large");
+                return;
+            }
+
+            if (b == '\n') {
+                String field = line.toReplacedString();
+                line.reset();
+                int length = field.length();
+                if (length > 0 && field.charAt(length - 1) == '\r') {
+                    field = field.substring(0, length - 1);
+                }
+
+                if (field.isEmpty()) {
+                    state = State.PART;
+                    partialMatch = 0;
+                    handler.headerComplete();
+                } else {
+                    int colon = field.indexOf(':');
+                    if (colon > 0) {
+                        handler.parsedField(field.substring(0, colon).trim(), field.substring(colon + 1).trim());
+                    } else {
+                        log.debug("ignore the illegal multipart header: {}", field);
+                    }
+                }
+                return;
+            } else {
+                line.append(b);
+            }
+        }
+    }
+
+    private void parseDelimitedContent(ByteBuffer buffer) {
+        if (partialMatch > 0) {
+            // continue to match the delimiter that is split by the previous buffer
+            while (partialMatch < delimiter.length && buffer.hasRemaining()
+                    && buffer.get(buffer.position()) == delimiter[partialMatch]) {
+                buffer.position(buffer.position() + 1);
+                partialMatch++;
+            }
+
+            if (partialMatch == delimiter.length) {
+                delimiterFound();
+                return;
+            }
+
+            if (!buffer.hasRemaining()) {
+                return;
+            }
+
+            // mismatch, the matched bytes are content. The boundary does not contain CR,
+            // so the matched bytes can not overlap with the next delimiter
+            if (state == State.PART) {
+                handler.content(ByteBuffer.wrap(delimiter, 0, partialMatch), false);
+            }
+            partialMatch = 0;
+        }
+
+        int start = buffer.position();
+        int limit = buffer.limit();
+        for (int i = start; i < limit; i++) {
+            if (buffer.get(i) != delimiter[0]) {
+                continue;
+            }
+
+            int matched = 1;
+            while (matched < delimiter.length && i + matched < limit && buffer.get(i + matched) == delimiter[matched]) {
+                matched++;
+            }
+
+            if (matched == delimiter.length) {
+                emitContent(buffer, start, i);
+                buffer.position(i + matched);
+                delimiterFound();
+                return;
+            } else if (i + matched == limit) {
+                // the delimiter may be split by the next buffer
+                emitContent(buffer, start, i);
+                buffer.position(limit);
+                partialMatch = matched;
+                return;
+            }
+        }
+
+        emitContent(buffer, start, limit);
+        buffer.position(limit);
+    }
+
+    private void emitContent(ByteBuffer buffer, int start, int end) {
+        if (state == State.PART && end > start) {
+            ByteBuffer content = buffer.duplicate();
+            content.limit(end).position(start);
+            handler.content(content, false);
+        }
+    }
+
+    private void delimiterFound() {
+        partialMatch = 0;
+        if (state == State.PART) {
+            handler.content(BufferUtils.EMPTY_BUFFER, true);
+        }
+        state = State.DELIMITER_CLOSE;
+    }
+
+    @Override
+    public String toString() {
+        return "MultiPartParser{" +
+                "state=" + state +
+                ", delimiter=" + new String(delimiter, StandardCharsets.ISO_8859_1).trim() +
+                '}';
+    }
+}
@@ -29,7 +29,8 @@ public class Http1FieldPreEncoder implements HttpFieldPreEncoder {
 		byte[] v = value.getBytes(UTF_8);
 		byte[] bytes = Arrays.copyOf(n, n.length + 2 + v.length + 2);
 		bytes[n.length] = (byte) ':';
-		bytes[n.length] = (byte) ' ';
+		bytes[n.length + 1] = (byte) ' ';
+		System.arraycopy(v, 0, bytes, n.length + 2, v.length);
 		bytes[bytes.length - 2] = (byte) '\r';
 		bytes[bytes.length - 1] = (byte) '\n';
 		return bytes;
@@ -69,6 +69,7 @@ public class HttpGenerator {
     private Supplier<HttpFields> _trailers = null;
 
     private final int _send;
+    private final boolean _sendDate;
     private final static int SEND_SERVER = 0x01;
     private final static int SEND_XPOWEREDBY = 0x02;
     private final static Trie<Boolean> __assumedContentMethods = new ArrayTrie<>(8);
@@ -97,7 +98,18 @@ public class HttpGenerator {
 
     /* ------------------------------------------------------------------------------- */
     public HttpGenerator(boolean sendServerVersion, boolean sendXPoweredBy) {
+        this(sendServerVersion, sendXPoweredBy, false);
+    }
+
+    /* ------------------------------------------------------------------------------- */
+    public HttpGenerator(boolean sendServerVersion, boolean sendXPoweredBy, boolean sendDate) {
         _send = (sendServerVersion ? SEND_SERVER : 0) | (sendXPoweredBy ? SEND_XPOWEREDBY : 0);
+        _sendDate = sendDate;
+    }
+
+    /* ------------------------------------------------------------ */
+    public boolean isSendDate() {
+        return _sendDate;
     }
 
     /* ------------------------------------------------------------------------------- */
@@ -550,6 +562,7 @@ public class HttpGenerator {
         boolean content_type = false;
         long content_length = info.getContentLength();
         boolean content_length_field = false;
+        boolean date = false;
 
         // Generate fields
         HttpFields fields = info.getFields();
@@ -610,6 +623,12 @@ public class HttpGenerator {
                             break;
                         }
 
+                        case DATE: {
+                            date = true;
+                            putTo(field, header);
+                            break;
+                        }
+
                         default:
                             putTo(field, header);
                     }
@@ -702,8 +721,11 @@ public class HttpGenerator {
 
         // Send server?
         int status = response != null ? response.getStatus() : -1;
-        if (status > 199)
+        if (status > 199) {
             header.put(SEND[send]);
+            if (_sendDate && !date)
+                PreEncodedHttpFields.getDateField().putTo(header, HttpVersion.HTTP_1_0);
+        }
 
         // end the header.
         header.put(HttpTokens.CRLF);
@@ -818,6 +840,7 @@ public class HttpGenerator {
     }
 
     public static void putTo(HttpField field, ByteBuffer bufferInFillMode) {
+        field = PreEncodedHttpFields.preEncode(field);
         if (field instanceof PreEncodedHttpField) {
             ((PreEncodedHttpField) field).putTo(bufferInFillMode, HttpVersion.HTTP_1_0);
         } else {
@@ -0,0 +1,295 @@
+package com.firefly.codec.http2.encode;
+
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * The parameter map of the query string and the form. The names and values are kept in the arrays,
+ * and the name is found by the linear search. It is smaller and faster than the hash map for the typical requests
+ * that have a few parameters. When the map has more than 8 names, they are indexed by a hash map,
+ * so the request that has many parameters can not make the decoding quadratic.
+ * <p>
+ * The single value is kept as a String, the list is created when the name has multiple values
+ * or the values are accessed.
+ *
+ * @author Pengtao Qiu
+ */
+public class ParameterMap extends AbstractMap<String, List<String>> {
+
+    private static final int INITIAL_CAPACITY = 4;
+    private static final int HASH_THRESHOLD = 8;
+
+    private String[] names;
+    private Object[] values;
+    private int size;
+    private Map<String, Integer> index;
+
+    /**
+     * Decode the url encoded content and add the parameters.
+     *
+     * @param content The url encoded content, such as the query string.
+     * @param charset The charset of the content.
+     */
+    public void decode(String content, Charset charset) {
+        if (content == null || content.isEmpty()) {
+            return;
+        }
+
+        String key = null;
+        int mark = -1;
+        boolean encoded = false;
+        int length = content.length();
+        for (int i = 0; i < length; i++) {
+            char c = content.charAt(i);
+            switch (c) {
+                case '&': {
+                    String value = decodeString(content, mark + 1, i, encoded, charset);
+                    if (key != null) {
+                        add(key, value);
+                    } else if (value.length() > 0) {
+                        add(value, "");
+                    }
+                    key = null;
+                    mark = i;
+                    encoded = false;
+                    break;
+                }
+                case '=': {
+                    if (key == null) {
+                        key = decodeString(content, mark + 1, i, encoded, charset);
+                        mark = i;
+                        encoded = false;
+                    }
+                    break;
+                }
+                case '+':
+                case '%':
+                    encoded = true;
+                    break;
+            }
+        }
+
+        String value = decodeString(content, mark + 1, length, encoded, charset);
+        if (key != null) {
+            add(key, value);
+        } else if (value.length() > 0) {
+            add(value, "");
+        }
+    }
+
+    private static String decodeString(String content, int start, int end, boolean encoded, Charset charset) {
+        if (start >= end) {
+            return "";
+        }
+        return encoded ? UrlEncoded.decodeString(content, start, end - start, charset) : content.substring(start, end);
+    }
+
+    /**
+     * Add a value of the name.
+     *
+     * @param name  The parameter name.
+     * @param value The parameter value.
+     */
+    @SuppressWarnings("unchecked")
+    public void add(String name, String value) {
+        int i = indexOf(name);
+        if (i < 0) {
+            append(name, value);
+        } else if (values[i] instanceof List) {
+            ((List<String>) values[i]).add(value);
+        } else {
+            List<String> list = new ArrayList<>(2);
+            list.add((String) values[i]);
+            list.add(value);
+            values[i] = list;
+        }
+    }
+
+    /**
+     * Get the value of the name. If the name has multiple values, they are joined by the comma.
+     *
+     * @param name The parameter name.
+     * @return The parameter value, or null if the name does not exist.
+     */
+    @SuppressWarnings("unchecked")
+    public String getString(String name) {
+        int i = indexOf(name);
+        if (i < 0) {
+            return null;
+        }
+
+        Object value = values[i];
+        if (value instanceof List) {
+            return String.join(",", (List<String>) value);
+        } else {
+            return (String) value;
+        }
+    }
+
+    /**
+     * Get the values of the name. The list is backed by the map, the changes of the list are visible in the map.
+     *
+     * @param name The parameter name.
+     * @return The parameter values, or null if the name does not exist.
+     */
+    public List<String> getValues(String name) {
+        int i = indexOf(name);
+        return i < 0 ? null : valueList(i);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> valueList(int i) {
+        Object value = values[i];
+        if (value instanceof List) {
+            return (List<String>) value;
+        } else {
+            List<String> list = new ArrayList<>(2);
+            list.add((String) value);
+            values[i] = list;
+            return list;
+        }
+    }
+
+    private int indexOf(Object name) {
+        if (index != null) {
+            Integer i = index.get(name);
+            return i != null ? i : -1;
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void append(String name, Object value) {
+        ensureCapacity();
+        names[size] = name;
+        values[size] = value;
+        size++;
+        if (index != null) {
+            index.put(name, size - 1);
+        } else if (size > HASH_THRESHOLD) {
+            createIndex();
+        }
+    }
+
+    private void createIndex() {
+        index = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            index.put(names[i], i);
+        }
+    }
+
+    private void ensureCapacity() {
+        if (names == null) {
+            names = new String[INITIAL_CAPACITY];
+            values = new Object[INITIAL_CAPACITY];
+        } else if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public List<String> get(Object key) {
+        int i = indexOf(key);
+        return i < 0 ? null : valueList(i);
+    }
+
+    @Override
+    public List<String> put(String key, List<String> value) {
+        int i = indexOf(key);
+        if (i < 0) {
+            append(key, new ArrayList<>(value));
+            return null;
+        } else {
+            List<String> old = valueList(i);
+            values[i] = new ArrayList<>(value);
+            return old;
+        }
+    }
+
+    @Override
+    public List<String> remove(Object key) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+
+        List<String> old = valueList(i);
+        int moved = size - i - 1;
+        if (moved > 0) {
+            System.arraycopy(names, i + 1, names, i, moved);
+            System.arraycopy(values, i + 1, values, i, moved);
+        }
+        size--;
+        names[size] = null;
+        values[size] = null;
+        if (index != null) {
+            if (size > HASH_THRESHOLD) {
+                index.remove(key);
+                for (int j = i; j < size; j++) {
+                    index.put(names[j], j);
+                }
+            } else {
+                index = null;
+            }
+        }
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            names[i] = null;
+            values[i] = null;
+        }
+        size = 0;
+        index = null;
+    }
+
+    @Override
+    public Set<Entry<String, List<String>>> entrySet() {
+        return new AbstractSet<Entry<String, List<String>>>() {
+            @Override
+            public Iterator<Entry<String, List<String>>> iterator() {
+                return new Iterator<Entry<String, List<String>>>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < size;
+                    }
+
+                    @Override
+                    public Entry<String, List<String>> next() {
+                        if (index >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<String, List<String>> entry = new SimpleImmutableEntry<>(names[index], valueList(index));
+                        index++;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
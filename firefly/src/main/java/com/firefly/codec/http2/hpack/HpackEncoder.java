@@ -27,7 +27,7 @@ public class HpackEncoder {
     final static EnumSet<HttpHeader> __DO_NOT_INDEX =
             EnumSet.of(
                     // HttpHeader.C_PATH,  // TODO more data needed
-                    // HttpHeader.DATE,    // TODO more data needed
+                    HttpHeader.DATE,    // the value changes every second and would evict the stable entries
                     HttpHeader.AUTHORIZATION,
                     HttpHeader.CONTENT_MD5,
                     HttpHeader.CONTENT_RANGE,
@@ -226,11 +226,12 @@ public class HpackEncoder {
             } else {
                 // Select encoding strategy for known header names
                 Entry name = _context.get(header);
+                HttpField preEncoded = PreEncodedHttpFields.preEncode(field);
 
-                if (field instanceof PreEncodedHttpField) {
+                if (preEncoded instanceof PreEncodedHttpField) {
                     // Preencoded field
                     int i = buffer.position();
-                    ((PreEncodedHttpField) field).putTo(buffer, HttpVersion.HTTP_2);
+                    ((PreEncodedHttpField) preEncoded).putTo(buffer, HttpVersion.HTTP_2);
                     byte b = buffer.get(i);
                     indexed = b < 0 || b >= 0x40;
                     if (_debug)
@@ -45,6 +45,11 @@ public class HttpURI {
 	private String _query;
 	private String _fragment;
 
+	// the query string is kept as the offsets of the parsed uri, and the substring is created on demand
+	private String _queryUri;
+	private int _queryStart;
+	private int _queryEnd;
+
 	String _uri;
 	String _decodedPath;
 
@@ -90,7 +95,7 @@ public class HttpURI {
 	}
 
 	public HttpURI(HttpURI uri) {
-		this(uri._scheme, uri._host, uri._port, uri._path, uri._param, uri._query, uri._fragment);
+		this(uri._scheme, uri._host, uri._port, uri._path, uri._param, uri.getQuery(), uri._fragment);
 		_uri = uri._uri;
 	}
 
@@ -419,7 +424,7 @@ public class HttpURI {
 
 			case QUERY: {
 				if (c == '#') {
-					_query = uri.substring(mark, i);
+					setRawQuery(uri, mark, i);
 					mark = i + 1;
 					state = State.FRAGMENT;
 				}
@@ -479,7 +484,7 @@ public class HttpURI {
 			break;
 
 		case QUERY:
-			_query = uri.substring(mark, end);
+			setRawQuery(uri, mark, end);
 			break;
 		}
 
@@ -525,11 +530,24 @@ public class HttpURI {
 		return _param;
 	}
 
+	private void setRawQuery(String uri, int start, int end) {
+		_query = null;
+		_queryUri = uri;
+		_queryStart = start;
+		_queryEnd = end;
+	}
+
 	public String getQuery() {
+		if (_queryUri != null) {
+			_query = _queryUri.substring(_queryStart, _queryEnd);
+			_queryUri = null;
+		}
 		return _query;
 	}
 
 	public boolean hasQuery() {
+		if (_queryUri != null)
+			return _queryEnd > _queryStart;
 		return _query != null && _query.length() > 0;
 	}
 
@@ -538,9 +556,10 @@ public class HttpURI {
 	}
 
 	public void decodeQueryTo(MultiMap<String> parameters) {
-		if (_query == _fragment)
+		String query = getQuery();
+		if (query == null)
 			return;
-		UrlEncoded.decodeUtf8To(_query, parameters);
+		UrlEncoded.decodeUtf8To(query, parameters);
 	}
 
 	public void decodeQueryTo(MultiMap<String> parameters, String encoding) throws UnsupportedEncodingException {
@@ -548,13 +567,14 @@ public class HttpURI {
 	}
 
 	public void decodeQueryTo(MultiMap<String> parameters, Charset encoding) throws UnsupportedEncodingException {
-		if (_query == _fragment)
+		String query = getQuery();
+		if (query == null)
 			return;
 
 		if (encoding == null || StandardCharsets.UTF_8.equals(encoding))
-			UrlEncoded.decodeUtf8To(_query, parameters);
+			UrlEncoded.decodeUtf8To(query, parameters);
 		else
-			UrlEncoded.decodeTo(_query, parameters, encoding);
+			UrlEncoded.decodeTo(query, parameters, encoding);
 	}
 
 	public void clear() {
@@ -566,6 +586,7 @@ public class HttpURI {
 		_path = null;
 		_param = null;
 		_query = null;
+		_queryUri = null;
 		_fragment = null;
 
 		_decodedPath = null;
@@ -596,8 +617,9 @@ public class HttpURI {
 			if (_path != null)
 				out.append(_path);
 
-			if (_query != null)
-				out.append('?').append(_query);
+			String query = getQuery();
+			if (query != null)
+				out.append('?').append(query);
 
 			if (_fragment != null)
 				out.append('#').append(_fragment);
@@ -667,18 +689,21 @@ public class HttpURI {
 
 	public void setQuery(String query) {
 		_query = query;
+		_queryUri = null;
 		_uri = null;
 	}
 
 	public URI toURI() throws URISyntaxException {
-		return new URI(_scheme, null, _host, _port, _path, _query == null ? null : UrlEncoded.decodeString(_query),
+		String query = getQuery();
+		return new URI(_scheme, null, _host, _port, _path, query == null ? null : UrlEncoded.decodeString(query),
 				_fragment);
 	}
 
 	public String getPathQuery() {
-		if (_query == null)
+		String query = getQuery();
+		if (query == null)
 			return _path;
-		return _path + "?" + _query;
+		return _path + "?" + query;
 	}
 
 	public boolean hasAuthority() {
@@ -0,0 +1,704 @@
+package com.firefly.codec.http2.model;
+
+import com.firefly.codec.http2.decode.MultiPartParser;
+import com.firefly.utils.collection.LazyList;
+import com.firefly.utils.collection.MultiMap;
+import com.firefly.utils.io.ByteArrayOutputStream2;
+import com.firefly.utils.lang.QuotedStringTokenizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.MultipartConfigElement;
+import javax.servlet.http.Part;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * The multipart/form-data parser that is driven by the received content. It uses the push based {@link MultiPartParser},
+ * so the request body does not need to be buffered in a piped stream before parsing. The part content is kept in memory
+ * until it exceeds the file size threshold, and then it is written to a temporary file via a FileChannel.
+ * <p>
+ * A {@link PartListener} can consume the content of a part directly, such as streaming a large upload to a storage.
+ * In this case the part content is not stored.
+ * <p>
+ * The base64 and quoted-printable part content is decoded as it arrives. The parsing error is latched,
+ * and {@link #getErrorStatus()} tells the HTTP status that the request should be failed with.
+ *
+ * @author Pengtao Qiu
+ */
+public class MultiPartFormParser implements MultiPartParser.Handler {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    /**
+     * Receive the parsing events of the parts.
+     */
+    public interface PartListener {
+
+        /**
+         * The part headers are parsed.
+         *
+         * @param part The part. The part content is not received yet.
+         * @return If return true, the listener consumes the part content and the parser does not store it.
+         */
+        default boolean headerComplete(Part part) {
+            return false;
+        }
+
+        /**
+         * Receive the part content. It is called only if the {@link #headerComplete(Part)} returns true.
+         *
+         * @param part   The part.
+         * @param buffer The part content slice. It is only valid during this call.
+         * @param last   If it is true, the part is complete.
+         */
+        default void content(Part part, ByteBuffer buffer, boolean last) {
+        }
+
+        /**
+         * The part is complete.
+         *
+         * @param part The part.
+         */
+        default void partComplete(Part part) {
+        }
+    }
+
+    private final MultipartConfigElement config;
+    private final PartListener partListener;
+    private final MultiMap<Part> parts = new MultiMap<>();
+    private final MultiPartParser parser;
+    private final File tmpDir;
+    private MultiMap<String> headers;
+    private FormPart currentPart;
+    private boolean consumedByListener;
+    private boolean complete;
+    private long total;
+    private Exception err;
+    private int errorStatus;
+    private PartDecoder decoder;
+
+    public MultiPartFormParser(String contentType, MultipartConfigElement config, File contextTmpDir) {
+        this(contentType, config, contextTmpDir, null);
+    }
+
+    /**
+     * @param contentType   The Content-Type header.
+     * @param config        The multipart configuration.
+     * @param contextTmpDir The default temporary directory.
+     * @param partListener  The part listener. It can be null.
+     */
+    public MultiPartFormParser(String contentType, MultipartConfigElement config, File contextTmpDir,
+                               PartListener partListener) {
+        if (contextTmpDir == null) {
+            contextTmpDir = new File(System.getProperty("java.io.tmpdir"));
+        }
+        if (config == null) {
+            config = new MultipartConfigElement(contextTmpDir.getAbsolutePath());
+        }
+        this.config = config;
+        this.partListener = partListener;
+
+        if (config.getLocation() == null || config.getLocation().isEmpty()) {
+            tmpDir = contextTmpDir;
+        } else {
+            File f = new File(config.getLocation());
+            tmpDir = f.isAbsolute() ? f : new File(contextTmpDir, config.getLocation());
+        }
+
+        String boundary = null;
+        if (contentType != null && contentType.startsWith("multipart/form-data")) {
+            int start = contentType.indexOf("boundary=");
+            if (start >= 0) {
+                int end = contentType.indexOf(";", start);
+                end = (end < 0 ? contentType.length() : end);
+                boundary = QuotedStringTokenizer.unquote(value(contentType.substring(start, end)).trim());
+            }
+        }
+
+        if (boundary == null || boundary.isEmpty()) {
+            parser = null;
+            setError(new IOException("Missing multipart boundary"));
+        } else {
+            parser = new MultiPartParser(this, boundary);
+        }
+    }
+
+    /**
+     * Parse the received request content.
+     *
+     * @param buffer The request content.
+     * @param last   If it is true, there is no more content.
+     */
+    public void parse(ByteBuffer buffer, boolean last) {
+        if (parser == null || err != null || complete) {
+            return;
+        }
+
+        try {
+            total += buffer.remaining();
+            if (config.getMaxRequestSize() > 0 && total > config.getMaxRequestSize()) {
+                setError(new IllegalStateException("Request exceeds maxRequestSize (" + config.getMaxRequestSize() + ")"),
+                        HttpStatus.PAYLOAD_TOO_LARGE_413);
+                return;
+            }
+            parser.parse(buffer, last);
+        } catch (Exception e) {
+            setError(e);
+        }
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Get the latched parsing error.
+     *
+     * @return The parsing error, or null if the content is parsed successfully so far.
+     */
+    public Exception getError() {
+        return err;
+    }
+
+    /**
+     * Get the HTTP status of the parsing error. The request that exceeds the maxRequestSize or maxFileSize
+     * is 413, and the malformed content is 400.
+     *
+     * @return The HTTP status of the parsing error, or 0 if there is no error.
+     */
+    public int getErrorStatus() {
+        return errorStatus;
+    }
+
+    @Override
+    public void startPart() {
+        headers = new MultiMap<>();
+        currentPart = null;
+        consumedByListener = false;
+        decoder = null;
+    }
+
+    @Override
+    public void parsedField(String name, String value) {
+        headers.put(name.toLowerCase(Locale.ENGLISH), value);
+    }
+
+    @Override
+    public void headerComplete() {
+        String contentDisposition = headers.getValue("content-disposition", 0);
+        if (contentDisposition == null) {
+            setError(new IOException("Missing content-disposition"));
+            return;
+        }
+
+        QuotedStringTokenizer tok = new QuotedStringTokenizer(contentDisposition, ";", false, true);
+        boolean formData = false;
+        String name = null;
+        String filename = null;
+        while (tok.hasMoreTokens()) {
+            String t = tok.nextToken().trim();
+            String tl = t.toLowerCase(Locale.ENGLISH);
+            if (t.startsWith("form-data")) {
+                formData = true;
+            } else if (tl.startsWith("name=")) {
+                name = value(t);
+            } else if (tl.startsWith("filename=")) {
+                filename = filenameValue(t);
+            }
+        }
+
+        // the part that is not form data or has no name is ignored
+        if (!formData || name == null) {
+            return;
+        }
+
+        String transferEncoding = headers.getValue("content-transfer-encoding", 0);
+        if (transferEncoding != null) {
+            transferEncoding = transferEncoding.trim();
+            if ("base64".equalsIgnoreCase(transferEncoding)) {
+                decoder = new Base64PartDecoder();
+            } else if ("quoted-printable".equalsIgnoreCase(transferEncoding)) {
+                decoder = new QuotedPrintablePartDecoder();
+            } else if (!"binary".equalsIgnoreCase(transferEncoding)
+                    && !"8bit".equalsIgnoreCase(transferEncoding)
+                    && !"7bit".equalsIgnoreCase(transferEncoding)) {
+                setError(new IOException("Unsupported content-transfer-encoding: " + transferEncoding));
+                return;
+            }
+        }
+
+        currentPart = new FormPart(name, filename, headers.getValue("content-type", 0), headers);
+        parts.add(name, currentPart);
+        if (partListener != null) {
+            consumedByListener = partListener.headerComplete(currentPart);
+        }
+    }
+
+    @Override
+    public void content(ByteBuffer buffer, boolean last) {
+        if (currentPart == null) {
+            return;
+        }
+
+        try {
+            if (decoder != null) {
+                buffer = decoder.decode(buffer, last);
+            }
+            if (consumedByListener) {
+                currentPart.size += buffer.remaining();
+                checkFileSize(currentPart);
+                partListener.content(currentPart, buffer, last);
+            } else {
+                currentPart.write(buffer);
+                if (last) {
+                    currentPart.close();
+                }
+            }
+
+            if (last) {
+                FormPart part = currentPart;
+                currentPart = null;
+                if (partListener != null) {
+                    partListener.partComplete(part);
+                }
+            }
+        } catch (Exception e) {
+            setError(e);
+        }
+    }
+
+    @Override
+    public void messageComplete() {
+        complete = true;
+    }
+
+    @Override
+    public void earlyEOF() {
+        setError(new IOException("Incomplete multipart content"));
+    }
+
+    @Override
+    public void badMessage(String reason) {
+        setError(new IOException(reason));
+    }
+
+    private void setError(Exception e) {
+        setError(e, e instanceof MaxSizeExceededException ? HttpStatus.PAYLOAD_TOO_LARGE_413 : HttpStatus.BAD_REQUEST_400);
+    }
+
+    private void setError(Exception e, int status) {
+        if (err == null) {
+            log.warn("parse multipart content exception", e);
+            err = e;
+            errorStatus = status;
+        }
+        complete = true;
+        if (currentPart != null) {
+            try {
+                currentPart.close();
+            } catch (IOException ignored) {
+            }
+            currentPart = null;
+        }
+    }
+
+    private void checkFileSize(FormPart part) {
+        if (config.getMaxFileSize() > 0 && part.size > config.getMaxFileSize()) {
+            throw new MaxSizeExceededException("Multipart Mime part " + part.name + " exceeds max filesize");
+        }
+    }
+
+    /**
+     * Get the parsed parts.
+     *
+     * @return The parts.
+     * @throws IOException If the multipart content is illegal or incomplete.
+     */
+    public Collection<Part> getParts() throws IOException {
+        throwIfError();
+        List<Part> list = new ArrayList<>();
+        for (List<Part> o : parts.values()) {
+            List<Part> asList = LazyList.getList(o, false);
+            list.addAll(asList);
+        }
+        return list;
+    }
+
+    /**
+     * Get the named part.
+     *
+     * @param name The part name.
+     * @return The part.
+     * @throws IOException If the multipart content is illegal or incomplete.
+     */
+    public Part getPart(String name) throws IOException {
+        throwIfError();
+        return parts.getValue(name, 0);
+    }
+
+    /**
+     * Delete the temporary files of the parts, and clear out the parts list.
+     */
+    public void deleteParts() {
+        for (List<Part> o : parts.values()) {
+            List<Part> asList = LazyList.getList(o, false);
+            for (Part p : asList) {
+                try {
+                    ((FormPart) p).cleanUp();
+                } catch (Exception e) {
+                    log.warn("clean up multipart exception", e);
+                }
+            }
+        }
+        parts.clear();
+    }
+
+    /**
+     * Throws an exception if one has been latched.
+     *
+     * @throws IOException the exception (if present)
+     */
+    protected void throwIfError() throws IOException {
+        if (err == null && !complete) {
+            err = new IOException("Incomplete multipart content");
+        }
+        if (err != null) {
+            if (err instanceof IOException)
+                throw (IOException) err;
+            if (err instanceof IllegalStateException)
+                throw (IllegalStateException) err;
+            throw new IllegalStateException(err);
+        }
+    }
+
+    public class FormPart implements Part {
+        protected final String name;
+        protected final String filename;
+        protected final String contentType;
+        protected final MultiMap<String> headers;
+        protected ByteArrayOutputStream2 bout;
+        protected File file;
+        protected FileChannel channel;
+        protected long size;
+        protected boolean temporary = true;
+
+        public FormPart(String name, String filename, String contentType, MultiMap<String> headers) {
+            this.name = name;
+            this.filename = filename;
+            this.contentType = contentType;
+            this.headers = headers;
+        }
+
+        protected void write(ByteBuffer buffer) throws IOException {
+            int length = buffer.remaining();
+            if (length == 0) {
+                return;
+            }
+
+            size += length;
+            checkFileSize(this);
+            if (channel == null && config.getFileSizeThreshold() > 0 && size > config.getFileSizeThreshold()) {
+                createFile();
+            }
+
+            if (channel != null) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } else {
+                if (bout == null) {
+                    bout = new ByteArrayOutputStream2();
+                }
+                if (buffer.hasArray()) {
+                    bout.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+                    buffer.position(buffer.limit());
+                } else {
+                    while (buffer.hasRemaining()) {
+                        bout.write(buffer.get());
+                    }
+                }
+            }
+        }
+
+        protected void createFile() throws IOException {
+            if (!tmpDir.exists()) {
+                tmpDir.mkdirs();
+            }
+            file = File.createTempFile("MultiPart", "", tmpDir);
+            file.setReadable(false, false);
+            file.setReadable(true, true);
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+            if (bout != null) {
+                ByteBuffer buf = ByteBuffer.wrap(bout.getBuf(), 0, bout.getCount());
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+                bout = null;
+            }
+        }
+
+        protected void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (name == null)
+                return null;
+            return headers.getValue(name.toLowerCase(Locale.ENGLISH), 0);
+        }
+
+        @Override
+        public Collection<String> getHeaderNames() {
+            return headers.keySet();
+        }
+
+        @Override
+        public Collection<String> getHeaders(String name) {
+            return headers.getValues(name);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            if (file != null) {
+                return new BufferedInputStream(new FileInputStream(file));
+            } else if (bout != null) {
+                return new ByteArrayInputStream(bout.getBuf(), 0, bout.getCount());
+            } else {
+                return new ByteArrayInputStream(new byte[0]);
+            }
+        }
+
+        @Override
+        public String getSubmittedFileName() {
+            return filename;
+        }
+
+        public byte[] getBytes() {
+            if (bout != null)
+                return bout.toByteArray();
+            return null;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public void write(String fileName) throws IOException {
+            temporary = false;
+            if (file == null) {
+                file = new File(tmpDir, fileName);
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+                    if (bout != null) {
+                        bout.writeTo(out);
+                    }
+                } finally {
+                    bout = null;
+                }
+            } else {
+                Path src = file.toPath();
+                Path target = src.resolveSibling(fileName);
+                Files.move(src, target, StandardCopyOption.REPLACE_EXISTING);
+                file = target.toFile();
+            }
+        }
+
+        @Override
+        public void delete() throws IOException {
+            if (file != null && file.exists())
+                file.delete();
+        }
+
+        /**
+         * Only remove tmp files.
+         *
+         * @throws IOException if unable to delete the file
+         */
+        public void cleanUp() throws IOException {
+            close();
+            if (temporary && file != null && file.exists())
+                file.delete();
+        }
+
+        /**
+         * Get the file
+         *
+         * @return the file, if any, the data has been written to.
+         */
+        public File getFile() {
+            return file;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Part{n=%s,fn=%s,ct=%s,s=%d,t=%b,f=%s}", name, filename, contentType, size, temporary, file);
+        }
+    }
+
+    private static class MaxSizeExceededException extends IllegalStateException {
+        private MaxSizeExceededException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Decode the part content incrementally. The encoded unit that is split across the buffers is kept until
+     * the next buffer arrives.
+     */
+    private interface PartDecoder {
+        ByteBuffer decode(ByteBuffer buffer, boolean last) throws IOException;
+    }
+
+    private static class Base64PartDecoder implements PartDecoder {
+
+        private static final int[] DECODE_TABLE = new int[128];
+
+        static {
+            Arrays.fill(DECODE_TABLE, -1);
+            String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+            for (int i = 0; i < alphabet.length(); i++) {
+                DECODE_TABLE[alphabet.charAt(i)] = i;
+            }
+        }
+
+        private final int[] quantum = new int[4];
+        private int count;
+        private int padding;
+
+        @Override
+        public ByteBuffer decode(ByteBuffer buffer, boolean last) throws IOException {
+            byte[] out = new byte[(buffer.remaining() + count) / 4 * 3 + 3];
+            int length = 0;
+            while (buffer.hasRemaining()) {
+                int c = buffer.get() & 0xFF;
+                if (c == '\r' || c == '\n' || c == ' ' || c == '\t') {
+                    continue;
+                }
+                if (padding > 0 && c != '=') {
+                    throw new IOException("Illegal base64 content after the padding");
+                }
+                if (c == '=') {
+                    if (count < 2) {
+                        throw new IOException("Illegal base64 padding");
+                    }
+                    padding++;
+                    quantum[count++] = 0;
+                } else {
+                    int v = c < 128 ? DECODE_TABLE[c] : -1;
+                    if (v < 0) {
+                        throw new IOException("Illegal base64 character: " + c);
+                    }
+                    quantum[count++] = v;
+                }
+
+                if (count == 4) {
+                    int bits = (quantum[0] << 18) | (quantum[1] << 12) | (quantum[2] << 6) | quantum[3];
+                    out[length++] = (byte) (bits >> 16);
+                    if (padding < 2) {
+                        out[length++] = (byte) (bits >> 8);
+                    }
+                    if (padding < 1) {
+                        out[length++] = (byte) bits;
+                    }
+                    count = 0;
+                }
+            }
+            if (last && count != 0) {
+                throw new IOException("Truncated base64 content");
+            }
+            return ByteBuffer.wrap(out, 0, length);
+        }
+    }
+
+    private static class QuotedPrintablePartDecoder implements PartDecoder {
+
+        private final int[] escape = new int[2];
+        private int escapeLength = -1;
+
+        @Override
+        public ByteBuffer decode(ByteBuffer buffer, boolean last) throws IOException {
+            byte[] out = new byte[buffer.remaining()];
+            int length = 0;
+            while (buffer.hasRemaining()) {
+                int c = buffer.get() & 0xFF;
+                if (escapeLength < 0) {
+                    if (c == '=') {
+                        escapeLength = 0;
+                    } else {
+                        out[length++] = (byte) c;
+                    }
+                    continue;
+                }
+
+                if (escapeLength == 0 && c == '\n') {
+                    // the soft line break "=\n"
+                    escapeLength = -1;
+                    continue;
+                }
+                escape[escapeLength++] = c;
+                if (escapeLength == 2) {
+                    escapeLength = -1;
+                    if (escape[0] == '\r' && escape[1] == '\n') {
+                        // the soft line break "=\r\n"
+                        continue;
+                    }
+                    int high = Character.digit(escape[0], 16);
+                    int low = Character.digit(escape[1], 16);
+                    if (high < 0 || low < 0) {
+                        throw new IOException("Illegal quoted-printable escape: =" + (char) escape[0] + (char) escape[1]);
+                    }
+                    out[length++] = (byte) ((high << 4) | low);
+                }
+            }
+            if (last && escapeLength >= 0) {
+                throw new IOException("Truncated quoted-printable content");
+            }
+            return ByteBuffer.wrap(out, 0, length);
+        }
+    }
+
+    private static String value(String nameEqualsValue) {
+        int idx = nameEqualsValue.indexOf('=');
+        String value = nameEqualsValue.substring(idx + 1).trim();
+        return QuotedStringTokenizer.unquoteOnly(value);
+    }
+
+    private static String filenameValue(String nameEqualsValue) {
+        int idx = nameEqualsValue.indexOf('=');
+        String value = nameEqualsValue.substring(idx + 1).trim();
+
+        if (value.matches(".??[a-z,A-Z]\\:\\\\[^\\\\].*")) {
+            // incorrectly escaped IE filenames that have the whole path
+            char first = value.charAt(0);
+            if (first == '"' || first == '\'')
+                value = value.substring(1);
+            char last = value.charAt(value.length() - 1);
+            if (last == '"' || last == '\'')
+                value = value.substring(0, value.length() - 1);
+            return value;
+        } else {
+            return QuotedStringTokenizer.unquoteOnly(value, true);
+        }
+    }
+}
@@ -27,7 +27,7 @@ public class PreEncodedHttpField extends HttpField {
         super(header, name, value);
 
         for (HttpFieldPreEncoder e : __encoders) {
-            _encodedField[e.getHttpVersion() == HttpVersion.HTTP_2 ? 1 : 0] = e.getEncodedField(header, header.asString(), value);
+            _encodedField[e.getHttpVersion() == HttpVersion.HTTP_2 ? 1 : 0] = e.getEncodedField(header, name, value);
         }
     }
 
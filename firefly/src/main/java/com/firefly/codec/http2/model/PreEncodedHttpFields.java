@@ -0,0 +1,129 @@
+package com.firefly.codec.http2.model;
+
+import com.firefly.Version;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registry of the pre-encoded response fields. The {@link com.firefly.codec.http2.encode.HttpGenerator} and
+ * the {@link com.firefly.codec.http2.hpack.HpackEncoder} look up the registry by the header and the value,
+ * and copy the pre-encoded bytes to the output buffer instead of encoding the field for every response.
+ * <p>
+ * It also keeps a shared Date field that is updated once per second.
+ *
+ * @author Pengtao Qiu
+ */
+abstract public class PreEncodedHttpFields {
+
+    public static final PreEncodedHttpField SERVER = new PreEncodedHttpField(HttpHeader.SERVER, "Firefly " + Version.value);
+    public static final PreEncodedHttpField X_POWERED_BY = new PreEncodedHttpField(HttpHeader.X_POWERED_BY, "Firefly " + Version.value);
+
+    @SuppressWarnings("unchecked")
+    private static final Map<String, PreEncodedHttpField>[] registry = new Map[HttpHeader.values().length];
+
+    private static volatile DateField dateField;
+
+    static {
+        register(SERVER);
+        register(X_POWERED_BY);
+        for (MimeTypes.Type type : MimeTypes.Type.values()) {
+            register((PreEncodedHttpField) type.getContentTypeField());
+        }
+        register(HttpHeader.CONNECTION, HttpHeaderValue.KEEP_ALIVE.asString());
+        register(HttpHeader.CONNECTION, HttpHeaderValue.CLOSE.asString());
+        register(HttpHeader.ACCEPT_RANGES, "bytes");
+        register(HttpHeader.CACHE_CONTROL, "no-cache");
+        register(HttpHeader.CONTENT_ENCODING, "gzip");
+        register(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING.asString());
+    }
+
+    /**
+     * Register a pre-encoded field. The field value should be static, such as the server name or a common content type.
+     *
+     * @param header The field header.
+     * @param value  The field value.
+     * @return The pre-encoded field.
+     */
+    public static PreEncodedHttpField register(HttpHeader header, String value) {
+        return register(new PreEncodedHttpField(header, value));
+    }
+
+    /**
+     * Register a pre-encoded field. The field must have a known header.
+     *
+     * @param field The pre-encoded field.
+     * @return The registered field. If the same field has been registered, return the registered one.
+     */
+    public static synchronized PreEncodedHttpField register(PreEncodedHttpField field) {
+        HttpHeader header = field.getHeader();
+        if (header == null) {
+            throw new IllegalArgumentException("the pre-encoded field header is unknown: " + field.getName());
+        }
+
+        Map<String, PreEncodedHttpField> map = registry[header.ordinal()];
+        if (map == null) {
+            map = new ConcurrentHashMap<>();
+            registry[header.ordinal()] = map;
+        }
+        PreEncodedHttpField old = map.putIfAbsent(field.getValue(), field);
+        return old == null ? field : old;
+    }
+
+    /**
+     * Get the registered pre-encoded field.
+     *
+     * @param header The field header.
+     * @param value  The field value.
+     * @return The pre-encoded field, or null if the field is not registered.
+     */
+    public static PreEncodedHttpField get(HttpHeader header, String value) {
+        if (header == null || value == null) {
+            return null;
+        }
+
+        Map<String, PreEncodedHttpField> map = registry[header.ordinal()];
+        return map == null ? null : map.get(value);
+    }
+
+    /**
+     * Get the registered pre-encoded field that equals the field.
+     *
+     * @param field The field.
+     * @return The pre-encoded field, or the field itself if it is not registered.
+     */
+    public static HttpField preEncode(HttpField field) {
+        if (field instanceof PreEncodedHttpField) {
+            return field;
+        }
+        PreEncodedHttpField preEncoded = get(field.getHeader(), field.getValue());
+        return preEncoded == null ? field : preEncoded;
+    }
+
+    /**
+     * Get the pre-encoded Date field of the current second. All responses in the same second share the field.
+     *
+     * @return The Date field.
+     */
+    public static PreEncodedHttpField getDateField() {
+        long now = System.currentTimeMillis();
+        long seconds = now / 1000;
+        DateField df = dateField;
+        if (df == null || df.seconds != seconds) {
+            // the threads may create the field concurrently at the second boundary, but they create the same value
+            df = new DateField(seconds, new PreEncodedHttpField(HttpHeader.DATE, DateGenerator.formatDate(seconds * 1000)));
+            dateField = df;
+        }
+        return df.field;
+    }
+
+    private static class DateField {
+        final long seconds;
+        final PreEncodedHttpField field;
+
+        DateField(long seconds, PreEncodedHttpField field) {
+            this.seconds = seconds;
+            this.field = field;
+        }
+    }
+}
@@ -13,7 +13,7 @@ import com.firefly.utils.concurrent.Schedulers;
 
 abstract public class AbstractHTTP2Connection extends AbstractHTTPConnection {
 
-    public static final Scheduler scheduler = Schedulers.createScheduler();
+    public static final Scheduler scheduler = Schedulers.createTimingWheel();
 
     protected final HTTP2Session http2Session;
     protected final Parser parser;
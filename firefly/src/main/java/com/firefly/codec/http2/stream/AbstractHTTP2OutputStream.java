@@ -5,11 +5,13 @@ import com.firefly.codec.http2.frame.DataFrame;
 import com.firefly.codec.http2.frame.DisconnectFrame;
 import com.firefly.codec.http2.frame.Frame;
 import com.firefly.codec.http2.frame.HeadersFrame;
+import com.firefly.codec.http2.frame.PushPromiseFrame;
 import com.firefly.codec.http2.model.HttpFields;
 import com.firefly.codec.http2.model.HttpHeader;
 import com.firefly.codec.http2.model.HttpVersion;
 import com.firefly.codec.http2.model.MetaData;
 import com.firefly.utils.concurrent.Callback;
+import com.firefly.utils.concurrent.Promise;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -273,5 +275,53 @@ abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
 
     }
 
+    /**
+     * If return true, the remote endpoint accepts the server push, it does not disable the push
+     * by the SETTINGS_ENABLE_PUSH parameter.
+     *
+     * @return If return true, the server can push resources on this stream.
+     */
+    public boolean isPushEnabled() {
+        if (clientMode) {
+            return false;
+        }
+        Stream stream = getStream();
+        Session session = stream.getSession();
+        return !stream.isClosed() && !stream.isReset()
+                && session instanceof SessionSPI && ((SessionSPI) session).isPushEnabled();
+    }
+
+    /**
+     * Send a PUSH_PROMISE frame on this stream and create the pushed stream.
+     *
+     * @param request  The request of the pushed resource. It must have the scheme, authority and path.
+     * @param response The pushed response. It is sent when the output stream is committed.
+     * @param promise  It receives the output stream of the pushed response.
+     */
+    public void push(MetaData.Request request, MetaData.Response response, Promise<HTTPOutputStream> promise) {
+        if (!isPushEnabled()) {
+            promise.failed(new IllegalStateException("the server push is disabled on the stream " + getStream().getId()));
+            return;
+        }
+
+        Stream stream = getStream();
+        stream.push(new PushPromiseFrame(stream.getId(), 0, request), new Promise<Stream>() {
+            @Override
+            public void succeeded(Stream pushStream) {
+                promise.succeeded(new AbstractHTTP2OutputStream(response, false) {
+                    @Override
+                    protected Stream getStream() {
+                        return pushStream;
+                    }
+                });
+            }
+
+            @Override
+            public void failed(Throwable x) {
+                promise.failed(x);
+            }
+        }, new Stream.Listener.Adapter());
+    }
+
     abstract protected Stream getStream();
 }
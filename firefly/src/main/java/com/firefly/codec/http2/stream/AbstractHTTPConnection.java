@@ -5,13 +5,16 @@ import com.firefly.net.ByteBufferArrayOutputEntry;
 import com.firefly.net.ByteBufferOutputEntry;
 import com.firefly.net.SecureSession;
 import com.firefly.net.Session;
+import com.firefly.utils.function.Action0;
 import com.firefly.utils.function.Action1;
 import com.firefly.utils.function.Action2;
 import com.firefly.utils.io.IO;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 abstract public class AbstractHTTPConnection implements HTTPConnection {
 
@@ -21,6 +24,7 @@ abstract public class AbstractHTTPConnection implements HTTPConnection {
     protected volatile Object attachment;
     protected Action1<HTTPConnection> closedListener;
     protected Action2<HTTPConnection, Throwable> exceptionListener;
+    protected final List<Action1<HTTPConnection>> closeListeners = new CopyOnWriteArrayList<>();
 
     public AbstractHTTPConnection(SecureSession secureSession, Session tcpSession, HttpVersion httpVersion) {
         this.secureSession = secureSession;
@@ -150,12 +154,55 @@ abstract public class AbstractHTTPConnection implements HTTPConnection {
         return tcpSession.getRemoteAddress();
     }
 
+    @Override
+    public void suspendRead() {
+        tcpSession.suspendRead();
+    }
+
+    @Override
+    public void resumeRead() {
+        tcpSession.resumeRead();
+    }
+
+    @Override
+    public boolean isReadSuspended() {
+        return tcpSession.isReadSuspended();
+    }
+
+    @Override
+    public long getPendingOutputBytes() {
+        return tcpSession.getPendingOutputBytes();
+    }
+
+    @Override
+    public void onOutputDrained(long threshold, Action0 callback) {
+        tcpSession.onOutputDrained(threshold, callback);
+    }
+
     @Override
     public HTTPConnection close(Action1<HTTPConnection> closedListener) {
         this.closedListener = closedListener;
         return this;
     }
 
+    @Override
+    public HTTPConnection addCloseListener(Action1<HTTPConnection> closeListener) {
+        closeListeners.add(closeListener);
+        if (isClosed()) {
+            fireCloseListeners();
+        }
+        return this;
+    }
+
+    void fireCloseListeners() {
+        for (Action1<HTTPConnection> closeListener : closeListeners) {
+            // the listener is removed before it is called, so it is called once
+            if (closeListeners.remove(closeListener)) {
+                closeListener.call(this);
+            }
+        }
+    }
+
     @Override
     public HTTPConnection exception(Action2<HTTPConnection, Throwable> exceptionListener) {
         this.exceptionListener = exceptionListener;
@@ -40,6 +40,7 @@ public abstract class AbstractHTTPHandler implements Handler {
         log.info("The HTTP handler received the session {} closed event.", session.getSessionId());
         if (session.getAttachment() != null && session.getAttachment() instanceof AbstractHTTPConnection) {
             try (AbstractHTTPConnection httpConnection = (AbstractHTTPConnection) session.getAttachment()) {
+                httpConnection.fireCloseListeners();
                 if (httpConnection.getClosedListener() != null) {
                     httpConnection.getClosedListener().call(httpConnection);
                     log.info("The HTTP handler called connection {} closed listener.", session.getSessionId());
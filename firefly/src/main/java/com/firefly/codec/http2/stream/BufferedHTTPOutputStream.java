@@ -2,6 +2,7 @@ package com.firefly.codec.http2.stream;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 
 /**
  * @author Pengtao Qiu
@@ -43,7 +44,8 @@ public class BufferedHTTPOutputStream extends OutputStream {
 
         if (length >= buf.length) {
             flush();
-            output.write(array, offset, length);
+            // the HTTP output stream holds the buffer until it is written, the caller may reuse the array after returning
+            output.write(Arrays.copyOfRange(array, offset, offset + length));
             return;
         }
         if (length > buf.length - count) {
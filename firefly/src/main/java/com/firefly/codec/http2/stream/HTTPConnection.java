@@ -2,6 +2,7 @@ package com.firefly.codec.http2.stream;
 
 import com.firefly.codec.http2.model.HttpVersion;
 import com.firefly.net.Connection;
+import com.firefly.utils.function.Action0;
 import com.firefly.utils.function.Action1;
 import com.firefly.utils.function.Action2;
 
@@ -18,6 +19,59 @@ public interface HTTPConnection extends Connection {
 
     HTTPConnection close(Action1<HTTPConnection> closedCallback);
 
+    /**
+     * Add a listener that is called once when the connection is closed. Unlike the close(Action1) method,
+     * it does not replace the listeners that have been added. If the connection has been closed, the listener is called immediately.
+     *
+     * @param closeListener The connection close listener.
+     * @return HTTPConnection
+     */
+    default HTTPConnection addCloseListener(Action1<HTTPConnection> closeListener) {
+        return close(closeListener);
+    }
+
     HTTPConnection exception(Action2<HTTPConnection, Throwable> exceptionCallback);
 
+    /**
+     * Stop reading the data from the underlying TCP connection. All HTTP/2 streams of the connection stop receiving data.
+     * The connection that does not support it keeps reading.
+     */
+    default void suspendRead() {
+    }
+
+    /**
+     * Resume reading the data from the underlying TCP connection.
+     */
+    default void resumeRead() {
+    }
+
+    /**
+     * Whether reading the data from the underlying TCP connection is suspended.
+     *
+     * @return If return true, the connection does not read the data.
+     */
+    default boolean isReadSuspended() {
+        return false;
+    }
+
+    /**
+     * Get the size of the data that has been submitted to the underlying TCP connection but has not been written.
+     *
+     * @return The pending output bytes. The connection that does not track them returns 0.
+     */
+    default long getPendingOutputBytes() {
+        return 0;
+    }
+
+    /**
+     * Run the callback once when the pending output bytes are less than or equal to the threshold,
+     * or the connection is closed.
+     *
+     * @param threshold The pending output bytes threshold.
+     * @param callback  The callback.
+     */
+    default void onOutputDrained(long threshold, Action0 callback) {
+        callback.call();
+    }
+
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.firefly.core;
 
 import com.firefly.core.support.BeanDefinition;
+import com.firefly.core.support.BeanStartupReport;
 import com.firefly.core.support.exception.BeanDefinitionParsingException;
 import com.firefly.utils.VerifyUtils;
 import com.firefly.utils.lang.AbstractLifeCycle;
@@ -10,17 +11,28 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 abstract public class AbstractApplicationContext extends AbstractLifeCycle implements ApplicationContext {
 
     private static Logger log = LoggerFactory.getLogger("firefly-system");
 
+    /**
+     * The system property. If it is true, the independent beans are created in parallel along the dependency graph.
+     */
+    public static final String PARALLEL_STARTUP = "com.firefly.core.AbstractApplicationContext.parallelStartup";
+
     protected Map<String, Object> map = new HashMap<>();
     protected Set<String> errorMemo = new HashSet<>();
     protected List<BeanDefinition> beanDefinitions;
     protected List<Pair<Method, Object>> destroyedMethods = new ArrayList<>();
     protected List<Pair<Method, Object>> initMethods = new ArrayList<>();
+    protected BeanStartupReport startupReport;
 
     public AbstractApplicationContext() {
         this(null);
@@ -29,7 +41,17 @@ abstract public class AbstractApplicationContext extends AbstractLifeCycle imple
     public AbstractApplicationContext(String file) {
         beanDefinitions = getBeanDefinitions(file);
         beanDefinitionCheck(); // Conflicts check
-        addObjectToContext();
+        startupReport = new BeanStartupReport();
+        if (Boolean.getBoolean(PARALLEL_STARTUP)) {
+            parallelAddObjectToContext();
+        } else {
+            addObjectToContext();
+        }
+        startupReport.complete();
+        if (log.isDebugEnabled()) {
+            // the report has a line per bean, the application gets it by getStartupReport
+            log.debug("bean startup report: {}", startupReport);
+        }
         start();
         map = Collections.unmodifiableMap(map);
     }
@@ -64,6 +86,91 @@ abstract public class AbstractApplicationContext extends AbstractLifeCycle imple
         }
     }
 
+    private void parallelAddObjectToContext() {
+        // resolve the dependency graph, the beans in a cycle are created sequentially at last.
+        // a bean is scheduled after its dependencies are created, so the beans are injected without locks
+        Map<BeanDefinition, Set<BeanDefinition>> dependencies = new HashMap<>();
+        for (BeanDefinition beanDefinition : beanDefinitions) {
+            Set<BeanDefinition> set = new LinkedHashSet<>();
+            for (String key : getDependencies(beanDefinition)) {
+                BeanDefinition dependency = errorMemo.contains(key) ? null : lookupBeanDefinition(key);
+                if (dependency != null && dependency != beanDefinition) {
+                    set.add(dependency);
+                }
+            }
+            dependencies.put(beanDefinition, set);
+        }
+
+        map = Collections.synchronizedMap(map);
+        initMethods = Collections.synchronizedList(initMethods);
+        destroyedMethods = Collections.synchronizedList(destroyedMethods);
+
+        AtomicInteger threadId = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                r -> new Thread(r, "firefly-bean-startup-" + threadId.incrementAndGet()));
+        try {
+            Map<BeanDefinition, CompletableFuture<Void>> futures = new HashMap<>();
+            boolean progress = true;
+            while (progress) {
+                progress = false;
+                for (BeanDefinition beanDefinition : beanDefinitions) {
+                    if (futures.containsKey(beanDefinition) || !futures.keySet().containsAll(dependencies.get(beanDefinition))) {
+                        continue;
+                    }
+                    CompletableFuture<?>[] dependencyFutures = dependencies.get(beanDefinition).stream()
+                                                                           .map(futures::get)
+                                                                           .toArray(CompletableFuture[]::new);
+                    futures.put(beanDefinition, CompletableFuture.allOf(dependencyFutures)
+                                                                 .thenRunAsync(() -> inject(beanDefinition), executor));
+                    progress = true;
+                }
+            }
+            try {
+                CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else {
+                    throw e;
+                }
+            }
+
+            beanDefinitions.stream().filter(b -> !futures.containsKey(b)).forEach(this::inject);
+        } finally {
+            executor.shutdown();
+        }
+
+        map = new HashMap<>(map);
+        initMethods = new ArrayList<>(initMethods);
+        destroyedMethods = new ArrayList<>(destroyedMethods);
+
+        // the methods are added in the order of completion, sort them in the order of the sequential startup
+        List<BeanDefinition> sorted = new ArrayList<>();
+        Set<BeanDefinition> visited = new HashSet<>();
+        beanDefinitions.forEach(b -> sortByDependencies(b, dependencies, visited, sorted));
+        Map<Object, Integer> order = new IdentityHashMap<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            BeanDefinition beanDefinition = sorted.get(i);
+            String key = VerifyUtils.isNotEmpty(beanDefinition.getId()) ? beanDefinition.getId() : beanDefinition.getClassName();
+            Object instance = map.get(key);
+            if (instance != null) {
+                order.putIfAbsent(instance, i);
+            }
+        }
+        Comparator<Pair<Method, Object>> comparator = Comparator.comparingInt(p -> order.getOrDefault(p.second, Integer.MAX_VALUE));
+        initMethods.sort(comparator);
+        destroyedMethods.sort(comparator);
+    }
+
+    private void sortByDependencies(BeanDefinition beanDefinition, Map<BeanDefinition, Set<BeanDefinition>> dependencies,
+                                    Set<BeanDefinition> visited, List<BeanDefinition> sorted) {
+        if (visited.add(beanDefinition)) {
+            dependencies.get(beanDefinition).forEach(d -> sortByDependencies(d, dependencies, visited, sorted));
+            sorted.add(beanDefinition);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public <T> T getBean(Class<T> clazz) {
@@ -183,6 +290,10 @@ abstract public class AbstractApplicationContext extends AbstractLifeCycle imple
 
     protected BeanDefinition findBeanDefinition(String key) {
         check(key);
+        return lookupBeanDefinition(key);
+    }
+
+    private BeanDefinition lookupBeanDefinition(String key) {
         for (BeanDefinition beanDefinition : beanDefinitions) {
             if (key.equals(beanDefinition.getId())) {
                 return beanDefinition;
@@ -208,4 +319,23 @@ abstract public class AbstractApplicationContext extends AbstractLifeCycle imple
 
     abstract protected Object inject(BeanDefinition beanDef);
 
+    /**
+     * Get the keys of the beans that the bean depends on. The key is the bean id, class name or interface name.
+     *
+     * @param beanDef The bean definition.
+     * @return The dependency keys.
+     */
+    protected Collection<String> getDependencies(BeanDefinition beanDef) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Get the time of creating each bean.
+     *
+     * @return The bean startup report.
+     */
+    public BeanStartupReport getStartupReport() {
+        return startupReport;
+    }
+
 }
@@ -7,6 +7,9 @@ import com.firefly.annotation.Proxy;
 import com.firefly.core.support.BeanDefinition;
 import com.firefly.core.support.annotation.AnnotationBeanDefinition;
 import com.firefly.core.support.annotation.AnnotationBeanReader;
+import com.firefly.core.support.inject.BeanInjector;
+import com.firefly.core.support.inject.JavassistBeanInjectorFactory;
+import com.firefly.core.support.inject.ReflectionBeanInjector;
 import com.firefly.core.support.xml.*;
 import com.firefly.utils.ConvertUtils;
 import com.firefly.utils.ReflectUtils;
@@ -18,6 +21,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.*;
@@ -30,6 +34,11 @@ public class XmlApplicationContext extends AbstractApplicationContext {
 
     private static Logger log = LoggerFactory.getLogger("firefly-system");
 
+    /**
+     * The system property. If it is true, the context generates an injector class for each bean instead of using the Java reflection.
+     */
+    public static final String GENERATED_INJECTOR = "com.firefly.core.XmlApplicationContext.generatedInjector";
+
     public XmlApplicationContext() {
         this(null);
     }
@@ -66,6 +75,69 @@ public class XmlApplicationContext extends AbstractApplicationContext {
             return null;
     }
 
+    @Override
+    protected Collection<String> getDependencies(BeanDefinition beanDef) {
+        // the keys are in the order of injecting
+        Set<String> keys = new LinkedHashSet<>();
+        if (beanDef.getConstructor() != null && !(beanDef instanceof XmlBeanDefinition)) {
+            for (Class<?> type : beanDef.getConstructor().getParameterTypes()) {
+                keys.add(type.getName());
+            }
+        }
+        if (beanDef instanceof XmlBeanDefinition) {
+            ((XmlBeanDefinition) beanDef).getContructorParameters().forEach(node -> collectRefs(node, keys));
+        }
+        try {
+            Class<?> clazz = XmlApplicationContext.class.getClassLoader().loadClass(beanDef.getClassName());
+            keys.addAll(getProxyKeys(clazz));
+        } catch (Throwable t) {
+            log.error("load bean class exception", t);
+        }
+        if (beanDef instanceof XmlBeanDefinition) {
+            ((XmlBeanDefinition) beanDef).getProperties().values().forEach(node -> collectRefs(node, keys));
+        }
+        if (beanDef instanceof AnnotationBeanDefinition) {
+            AnnotationBeanDefinition annotationBeanDefinition = (AnnotationBeanDefinition) beanDef;
+            for (Field field : annotationBeanDefinition.getInjectFields()) {
+                String id = field.getAnnotation(Inject.class).value();
+                keys.add(VerifyUtils.isNotEmpty(id) ? id : field.getType().getName());
+            }
+            for (Method method : annotationBeanDefinition.getInjectMethods()) {
+                for (Class<?> type : method.getParameterTypes()) {
+                    keys.add(type.getName());
+                }
+            }
+        }
+        return keys;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void collectRefs(XmlManagedNode node, Set<String> keys) {
+        if (node instanceof ManagedRef) {
+            keys.add(((ManagedRef) node).getBeanName());
+        } else if (node instanceof ManagedList) {
+            ((ManagedList<XmlManagedNode>) node).forEach(n -> collectRefs(n, keys));
+        } else if (node instanceof ManagedArray) {
+            ((ManagedArray<XmlManagedNode>) node).forEach(n -> collectRefs(n, keys));
+        } else if (node instanceof ManagedMap) {
+            ((ManagedMap<XmlManagedNode, XmlManagedNode>) node).forEach((k, v) -> {
+                collectRefs(k, keys);
+                collectRefs(v, keys);
+            });
+        }
+    }
+
+    private BeanInjector createInjector(Class<?> clazz, Constructor<?> constructor, List<Field> fields, List<Method> methods) {
+        if (Boolean.getBoolean(GENERATED_INJECTOR)) {
+            try {
+                return JavassistBeanInjectorFactory.INSTANCE.createInjector(clazz, constructor, fields, methods);
+            } catch (Throwable t) {
+                log.warn("generate the injector of {} exception, use the reflection injector", clazz.getName(), t);
+            }
+        }
+        return new ReflectionBeanInjector(constructor, fields.toArray(new Field[0]), methods.toArray(new Method[0]));
+    }
+
     private Object getInstance(BeanDefinition beanDef) {
         if (StringUtils.hasText(beanDef.getId())) {
             return map.get(beanDef.getId());
@@ -88,21 +160,41 @@ public class XmlApplicationContext extends AbstractApplicationContext {
 
     private Object xmlInject(BeanDefinition beanDef) {
         Object instance = getInstance(beanDef);
-        if (instance == null) {
+        if (instance != null) {
+            return instance;
+        }
+
+        startupReport.begin();
+        try {
             final XmlBeanDefinition beanDefinition = (XmlBeanDefinition) beanDef;
             Class<?> clazz = null;
+            BeanInjector injector = null;
+            List<Method> methods = new ArrayList<>(beanDefinition.getInjectMethods());
+            final int setterOffset = methods.size();
+            final List<XmlManagedNode> setterValues = new ArrayList<>();
 
             try {
                 clazz = XmlApplicationContext.class.getClassLoader().loadClass(beanDefinition.getClassName());
+                ReflectUtils.getSetterMethods(clazz, (propertyName, method) -> {
+                    XmlManagedNode value = beanDefinition.getProperties().get(propertyName);
+                    if (value != null) {
+                        methods.add(method);
+                        setterValues.add(value);
+                    }
+                    return false;
+                });
+
                 if (beanDefinition.getContructorParameters().size() <= 0) {
-                    instance = clazz.newInstance();
+                    injector = createInjector(clazz, clazz.getDeclaredConstructor(), beanDefinition.getInjectFields(), methods);
+                    instance = injector.newInstance(new Object[0]);
                 } else {
+                    injector = createInjector(clazz, beanDefinition.getConstructor(), beanDefinition.getInjectFields(), methods);
                     List<Object> constructorParameters = new ArrayList<>();
                     for (int i = 0; i < beanDefinition.getContructorParameters().size(); i++) {
                         Object p = getInjectArg(beanDefinition.getContructorParameters().get(i), beanDefinition.getConstructor().getParameterTypes()[i]);
                         constructorParameters.add(p);
                     }
-                    instance = beanDefinition.getConstructor().newInstance(constructorParameters.toArray());
+                    instance = injector.newInstance(constructorParameters.toArray());
                 }
 
                 instance = createProxy(clazz, instance);
@@ -111,34 +203,42 @@ public class XmlApplicationContext extends AbstractApplicationContext {
             }
 
             if (instance != null) {
-                final Object obj = instance;
-                ReflectUtils.getSetterMethods(clazz, (propertyName, method) -> {
-                    XmlManagedNode value = beanDefinition.getProperties().get(propertyName);
-                    if (value != null) {
-                        try {
-                            method.invoke(obj, getInjectArg(value, method.getParameterTypes()[0]));
-                        } catch (Throwable t) {
-                            log.error("xml inject error", t);
-                        }
+                for (int i = 0; i < setterValues.size(); i++) {
+                    Method method = methods.get(setterOffset + i);
+                    try {
+                        injector.invokeMethod(instance, setterOffset + i,
+                                new Object[]{getInjectArg(setterValues.get(i), method.getParameterTypes()[0])});
+                    } catch (Throwable t) {
+                        log.error("xml inject error", t);
                     }
-                    return false;
-                });
+                }
             } else {
                 error("initialize XML bean exception, the instance is null");
             }
 
-            fieldInject(beanDefinition, instance);
-            methodInject(beanDefinition, instance);
+            fieldInject(beanDefinition, injector, instance);
+            methodInject(beanDefinition, injector, instance);
 
             addObjectToContext(beanDefinition, instance);
             return instance;
-        } else {
-            return instance;
+        } finally {
+            startupReport.end(beanDef);
         }
     }
 
     private Object createProxy(Class<?> clazz, Object srcObject) throws Throwable {
         Object instance = srcObject;
+        for (String key : getProxyKeys(clazz)) {
+            BeanDefinition b = findBeanDefinition(key);
+            if (b != null) {
+                instance = JavassistClassProxyFactory.INSTANCE.createProxy(instance, (ClassProxy) inject(b), null);
+            }
+        }
+        return instance;
+    }
+
+    private List<String> getProxyKeys(Class<?> clazz) {
+        List<String> keys = new ArrayList<>();
         List<Proxy> proxies = new ArrayList<>();
         for (Annotation annotation : clazz.getAnnotations()) {
             if (annotation.annotationType().equals(Proxy.class)) {
@@ -170,13 +270,10 @@ public class XmlApplicationContext extends AbstractApplicationContext {
                 } else {
                     key = p.proxyClass().getName();
                 }
-                BeanDefinition b = findBeanDefinition(key);
-                if (b != null) {
-                    instance = JavassistClassProxyFactory.INSTANCE.createProxy(instance, (ClassProxy) inject(b), null);
-                }
+                keys.add(key);
             }
         }
-        return instance;
+        return keys;
     }
 
     @SuppressWarnings("unchecked")
@@ -285,33 +382,39 @@ public class XmlApplicationContext extends AbstractApplicationContext {
 
     private Object annotationInject(BeanDefinition beanDef) {
         Object instance = getInstance(beanDef);
-        if (instance == null) {
+        if (instance != null) {
+            return instance;
+        }
+
+        startupReport.begin();
+        try {
             AnnotationBeanDefinition beanDefinition = (AnnotationBeanDefinition) beanDef;
+            Constructor<?> constructor = beanDefinition.getConstructor();
+            BeanInjector injector = createInjector(constructor.getDeclaringClass(), constructor,
+                    beanDefinition.getInjectFields(), beanDefinition.getInjectMethods());
             // constructor injecting
-            instance = constructorInject(beanDefinition);
+            instance = constructorInject(beanDefinition, injector);
             try {
                 instance = createProxy(instance.getClass(), instance);
             } catch (Throwable t) {
                 log.error("create proxy exception", t);
             }
-            fieldInject(beanDefinition, instance);
-            methodInject(beanDefinition, instance);
+            fieldInject(beanDefinition, injector, instance);
+            methodInject(beanDefinition, injector, instance);
             addObjectToContext(beanDefinition, instance);
             return instance;
-        } else {
-            return instance;
+        } finally {
+            startupReport.end(beanDef);
         }
     }
 
-    private Object constructorInject(AnnotationBeanDefinition beanDefinition) {
+    private Object constructorInject(AnnotationBeanDefinition beanDefinition, BeanInjector injector) {
         Class<?>[] params = beanDefinition.getConstructor().getParameterTypes();
         Object[] p = new Object[params.length];
         injectObject(params, p);
         Object instance = null;
         try {
-            instance = beanDefinition.getConstructor().newInstance(p);
-
-
+            instance = injector.newInstance(p);
         } catch (Throwable t) {
             log.error("constructor injecting error", t);
         }
@@ -332,9 +435,10 @@ public class XmlApplicationContext extends AbstractApplicationContext {
         }
     }
 
-    private void fieldInject(AnnotationBeanDefinition beanDefinition, final Object object) {
-        for (Field field : beanDefinition.getInjectFields()) {
-            field.setAccessible(true);
+    private void fieldInject(AnnotationBeanDefinition beanDefinition, BeanInjector injector, final Object object) {
+        List<Field> fields = beanDefinition.getInjectFields();
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
             Class<?> clazz = field.getType();
             String id = field.getAnnotation(Inject.class).value();
             String key = VerifyUtils.isNotEmpty(id) ? id : clazz.getName();
@@ -346,7 +450,7 @@ public class XmlApplicationContext extends AbstractApplicationContext {
             }
             if (instance != null) {
                 try {
-                    field.set(object, instance);
+                    injector.setField(object, i, instance);
                 } catch (Throwable t) {
                     log.error("field injecting error", t);
                 }
@@ -354,14 +458,15 @@ public class XmlApplicationContext extends AbstractApplicationContext {
         }
     }
 
-    private void methodInject(AnnotationBeanDefinition beanDefinition, final Object object) {
-        for (Method method : beanDefinition.getInjectMethods()) {
-            method.setAccessible(true);
+    private void methodInject(AnnotationBeanDefinition beanDefinition, BeanInjector injector, final Object object) {
+        List<Method> methods = beanDefinition.getInjectMethods();
+        for (int i = 0; i < methods.size(); i++) {
+            Method method = methods.get(i);
             Class<?>[] params = method.getParameterTypes();
             Object[] p = new Object[params.length];
             injectObject(params, p);
             try {
-                method.invoke(object, p);
+                injector.invokeMethod(object, i, p);
             } catch (Throwable t) {
                 log.error("method injecting error", t);
             }
@@ -0,0 +1,149 @@
+package com.firefly.core.support;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Record the time of creating and injecting each bean when the application context starts.
+ * The self time of a bean excludes the time of creating its dependencies.
+ *
+ * @author Pengtao Qiu
+ */
+public class BeanStartupReport {
+
+    private final List<Entry> entries = Collections.synchronizedList(new ArrayList<>());
+    private final ThreadLocal<Deque<long[]>> frames = ThreadLocal.withInitial(ArrayDeque::new);
+    private volatile long startTime = System.nanoTime();
+    private volatile long totalTime;
+
+    public static class Entry {
+        private final String name;
+        private final String className;
+        private final String threadName;
+        private final long totalTime;
+        private final long selfTime;
+
+        public Entry(String name, String className, String threadName, long totalTime, long selfTime) {
+            this.name = name;
+            this.className = className;
+            this.threadName = threadName;
+            this.totalTime = totalTime;
+            this.selfTime = selfTime;
+        }
+
+        /**
+         * Get the bean id or the class name if the id is empty.
+         *
+         * @return The bean name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        /**
+         * Get the name of the thread that creates the bean.
+         *
+         * @return The thread name.
+         */
+        public String getThreadName() {
+            return threadName;
+        }
+
+        /**
+         * Get the time (nanoseconds) of creating the bean and its dependencies.
+         *
+         * @return The total time.
+         */
+        public long getTotalTime() {
+            return totalTime;
+        }
+
+        /**
+         * Get the time (nanoseconds) of creating the bean, excluding its dependencies.
+         *
+         * @return The self time.
+         */
+        public long getSelfTime() {
+            return selfTime;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-48s %10.3f ms %10.3f ms  [%s]", name,
+                    selfTime / 1_000_000.0, totalTime / 1_000_000.0, threadName);
+        }
+    }
+
+    /**
+     * Start to create a bean in the current thread.
+     */
+    public void begin() {
+        frames.get().push(new long[]{System.nanoTime(), 0L});
+    }
+
+    /**
+     * The bean is created in the current thread.
+     *
+     * @param beanDefinition The bean definition.
+     */
+    public void end(BeanDefinition beanDefinition) {
+        Deque<long[]> stack = frames.get();
+        long[] frame = stack.pop();
+        long total = System.nanoTime() - frame[0];
+        long[] parent = stack.peek();
+        if (parent != null) {
+            parent[1] += total;
+        } else {
+            frames.remove();
+        }
+
+        String id = beanDefinition.getId();
+        String name = id != null && id.length() > 0 ? id : beanDefinition.getClassName();
+        entries.add(new Entry(name, beanDefinition.getClassName(), Thread.currentThread().getName(), total, total - frame[1]));
+    }
+
+    /**
+     * All beans are created.
+     */
+    public void complete() {
+        totalTime = System.nanoTime() - startTime;
+    }
+
+    /**
+     * Get the records in order of the bean creation.
+     *
+     * @return The records.
+     */
+    public List<Entry> getEntries() {
+        synchronized (entries) {
+            return new ArrayList<>(entries);
+        }
+    }
+
+    /**
+     * Get the time (nanoseconds) of creating all beans.
+     *
+     * @return The total time.
+     */
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    @Override
+    public String toString() {
+        List<Entry> list = getEntries();
+        list.sort(Comparator.comparingLong(Entry::getSelfTime).reversed());
+        StringBuilder s = new StringBuilder();
+        s.append("created ").append(list.size()).append(" beans in ")
+         .append(TimeUnit.NANOSECONDS.toMillis(totalTime)).append(" ms\n")
+         .append(String.format("%-48s %13s %13s  %s", "bean", "self", "total", "thread"));
+        for (Entry entry : list) {
+            s.append('\n').append(entry);
+        }
+        return s.toString();
+    }
+}
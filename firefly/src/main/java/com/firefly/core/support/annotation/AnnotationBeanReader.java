@@ -7,13 +7,15 @@ import com.firefly.utils.ReflectUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
 import java.net.JarURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 
 import static com.firefly.core.support.annotation.AnnotationBeanUtils.*;
 
@@ -48,11 +50,84 @@ public class AnnotationBeanReader extends AbstractBeanReader {
             log.debug("URL -> {}", url.toString());
             String protocol = url.getProtocol();
             if ("file".equals(protocol)) {
-                parseFile(url, packageDirName);
+                if (!parseFileIndex(url, packageName)) {
+                    parseFile(url, packageDirName);
+                }
             } else if ("jar".equals(protocol)) {
-                parseJar(url, packageDirName);
+                parseJar(url, packageName, packageDirName);
+            }
+        }
+    }
+
+    private boolean parseFileIndex(URL url, String packageName) {
+        try {
+            File root = new File(url.toURI());
+            for (int i = packageName.split("\\.").length; i > 0 && root != null; i--) {
+                root = root.getParentFile();
+            }
+            if (root == null) {
+                return false;
+            }
+
+            File index = new File(root, ComponentIndexProcessor.COMPONENT_INDEX);
+            if (!index.isFile()) {
+                return false;
+            }
+
+            // the classes are compiled without the processor, such as by the IDE, after the index is written
+            if (isModifiedAfter(new File(url.toURI()), index.lastModified())) {
+                log.info("the component index of [{}] is stale, scan the package", packageName);
+                return false;
+            }
+
+            List<String> classNames;
+            try (InputStream in = new FileInputStream(index)) {
+                classNames = readIndex(in, packageName);
+            }
+            for (String className : classNames) {
+                if (!new File(root, className.replace('.', '/') + ".class").isFile()) {
+                    log.info("the component index of [{}] is stale, scan the package", packageName);
+                    return false;
+                }
+            }
+            log.info("read component index of [{}]", packageName);
+            classNames.forEach(this::parseClass);
+            return true;
+        } catch (Throwable t) {
+            log.error("parse component index error", t);
+            return false;
+        }
+    }
+
+    private boolean isModifiedAfter(File path, long time) {
+        File[] files = path.listFiles();
+        if (files == null) {
+            return false;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                if (isModifiedAfter(file, time)) {
+                    return true;
+                }
+            } else if (file.getName().endsWith(".class") && file.lastModified() > time) {
+                return true;
             }
         }
+        return false;
+    }
+
+    private List<String> readIndex(InputStream in, String packageName) throws IOException {
+        String prefix = packageName + ".";
+        List<String> classNames = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String className = line.trim();
+            if (className.startsWith(prefix)) {
+                classNames.add(className);
+            }
+        }
+        return classNames;
     }
 
     private void parseFile(URL url, final String packageDirName) {
@@ -61,7 +136,11 @@ public class AnnotationBeanReader extends AbstractBeanReader {
             path.listFiles(file -> {
                 String name = file.getName();
                 if (name.endsWith(".class") && !name.contains("$")) {
-                    parseClass(packageDirName.replace('/', '.') + "." + name.substring(0, file.getName().length() - 6));
+                    try (InputStream in = new FileInputStream(file)) {
+                        parseClassFile(in);
+                    } catch (Throwable t) {
+                        log.error("parse class file error", t);
+                    }
                 } else if (file.isDirectory()) {
                     try {
                         parseFile(file.toURI().toURL(), packageDirName + "/" + name);
@@ -76,21 +155,43 @@ public class AnnotationBeanReader extends AbstractBeanReader {
         }
     }
 
-    private void parseJar(URL url, String packageDirName) {
+    private void parseJar(URL url, String packageName, String packageDirName) {
         try {
-            Enumeration<JarEntry> entries = ((JarURLConnection) url.openConnection()).getJarFile().entries();
+            JarFile jarFile = ((JarURLConnection) url.openConnection()).getJarFile();
+            JarEntry index = jarFile.getJarEntry(ComponentIndexProcessor.COMPONENT_INDEX);
+            if (index != null) {
+                log.info("read component index of [{}]", packageName);
+                try (InputStream in = jarFile.getInputStream(index)) {
+                    readIndex(in, packageName).forEach(this::parseClass);
+                }
+                return;
+            }
+
+            Enumeration<JarEntry> entries = jarFile.entries();
             while (entries.hasMoreElements()) {
-                String name = entries.nextElement().getName();
+                JarEntry entry = entries.nextElement();
+                String name = entry.getName();
                 if (!name.endsWith(".class") || name.contains("$") || !name.startsWith(packageDirName + "/")) {
                     continue;
                 }
-                parseClass(name.substring(0, name.length() - 6).replace('/', '.'));
+                try (InputStream in = jarFile.getInputStream(entry)) {
+                    parseClassFile(in);
+                } catch (Throwable t) {
+                    log.error("parse class file error", t);
+                }
             }
         } catch (IOException t) {
             log.error("parse jar error", t);
         }
     }
 
+    private void parseClassFile(InputStream in) throws IOException {
+        ClassFileMetadata metadata = ClassFileMetadata.read(new BufferedInputStream(in));
+        if (isCandidate(metadata)) {
+            parseClass(metadata.getClassName());
+        }
+    }
+
     private void parseClass(String className) {
         try {
             Class<?> c = AnnotationBeanReader.class.getClassLoader().loadClass(className);
@@ -103,6 +204,17 @@ public class AnnotationBeanReader extends AbstractBeanReader {
         }
     }
 
+    /**
+     * Whether the class may be a component. It is checked before the class is loaded,
+     * the subclass that overrides {@link #getBeanDefinition(Class)} should override it too.
+     *
+     * @param metadata The class file metadata.
+     * @return If true, the class is loaded and passed to {@link #getBeanDefinition(Class)}.
+     */
+    protected boolean isCandidate(ClassFileMetadata metadata) {
+        return metadata.hasAnnotation(Component.class.getName());
+    }
+
     protected BeanDefinition getBeanDefinition(Class<?> c) {
         if (c.isAnnotationPresent(Component.class)) {
             log.info("classes [{}]", c.getName());
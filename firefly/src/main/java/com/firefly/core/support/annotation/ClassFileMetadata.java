@@ -0,0 +1,226 @@
+package com.firefly.core.support.annotation;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Read the class name and the runtime visible class annotations from the class file bytes.
+ * The component scanner uses it to filter the candidate classes without loading them.
+ *
+ * @author Pengtao Qiu
+ */
+public class ClassFileMetadata {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELD_REF = 9;
+    private static final int CONSTANT_METHOD_REF = 10;
+    private static final int CONSTANT_INTERFACE_METHOD_REF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+
+    private final String className;
+    private final int accessFlags;
+    private final List<String> annotationNames;
+
+    private ClassFileMetadata(String className, int accessFlags, List<String> annotationNames) {
+        this.className = className;
+        this.accessFlags = accessFlags;
+        this.annotationNames = annotationNames;
+    }
+
+    /**
+     * Get the class name, such as "com.firefly.Foo".
+     *
+     * @return The class name.
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Get the access flags of the class.
+     *
+     * @return The access flags.
+     */
+    public int getAccessFlags() {
+        return accessFlags;
+    }
+
+    /**
+     * Get the class names of the runtime visible annotations that are declared on the class.
+     *
+     * @return The annotation class names.
+     */
+    public List<String> getAnnotationNames() {
+        return annotationNames;
+    }
+
+    /**
+     * Whether the annotation is declared on the class.
+     *
+     * @param annotationName The annotation class name.
+     * @return If true, the annotation is declared on the class.
+     */
+    public boolean hasAnnotation(String annotationName) {
+        return annotationNames.contains(annotationName);
+    }
+
+    /**
+     * Read the class file. The stream is not closed.
+     *
+     * @param inputStream The class file input stream.
+     * @return The class metadata.
+     * @throws IOException If the class file is malformed.
+     */
+    public static ClassFileMetadata read(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("The class file magic number is invalid");
+        }
+        in.readUnsignedShort(); // minor version
+        in.readUnsignedShort(); // major version
+
+        int constantPoolCount = in.readUnsignedShort();
+        String[] utf8 = new String[constantPoolCount];
+        int[] classNameIndex = new int[constantPoolCount];
+        for (int i = 1; i < constantPoolCount; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case CONSTANT_UTF8:
+                    utf8[i] = in.readUTF();
+                    break;
+                case CONSTANT_CLASS:
+                    classNameIndex[i] = in.readUnsignedShort();
+                    break;
+                case CONSTANT_STRING:
+                case CONSTANT_METHOD_TYPE:
+                case CONSTANT_MODULE:
+                case CONSTANT_PACKAGE:
+                    skip(in, 2);
+                    break;
+                case CONSTANT_METHOD_HANDLE:
+                    skip(in, 3);
+                    break;
+                case CONSTANT_INTEGER:
+                case CONSTANT_FLOAT:
+                case CONSTANT_FIELD_REF:
+                case CONSTANT_METHOD_REF:
+                case CONSTANT_INTERFACE_METHOD_REF:
+                case CONSTANT_NAME_AND_TYPE:
+                case CONSTANT_DYNAMIC:
+                case CONSTANT_INVOKE_DYNAMIC:
+                    skip(in, 4);
+                    break;
+                case CONSTANT_LONG:
+                case CONSTANT_DOUBLE:
+                    skip(in, 8);
+                    i++; // the 8 bytes constants take up two entries
+                    break;
+                default:
+                    throw new IOException("The constant pool tag is invalid: " + tag);
+            }
+        }
+
+        int accessFlags = in.readUnsignedShort();
+        String className = utf8[classNameIndex[in.readUnsignedShort()]].replace('/', '.');
+        in.readUnsignedShort(); // super class
+        skip(in, in.readUnsignedShort() * 2); // interfaces
+        skipMembers(in); // fields
+        skipMembers(in); // methods
+
+        List<String> annotationNames = Collections.emptyList();
+        int attributesCount = in.readUnsignedShort();
+        for (int i = 0; i < attributesCount; i++) {
+            String attributeName = utf8[in.readUnsignedShort()];
+            int length = in.readInt();
+            if (RUNTIME_VISIBLE_ANNOTATIONS.equals(attributeName)) {
+                int count = in.readUnsignedShort();
+                annotationNames = new ArrayList<>(count);
+                for (int j = 0; j < count; j++) {
+                    annotationNames.add(toClassName(utf8[in.readUnsignedShort()]));
+                    int pairs = in.readUnsignedShort();
+                    for (int k = 0; k < pairs; k++) {
+                        in.readUnsignedShort(); // element name
+                        skipElementValue(in);
+                    }
+                }
+            } else {
+                skip(in, length);
+            }
+        }
+        return new ClassFileMetadata(className, accessFlags, annotationNames);
+    }
+
+    private static String toClassName(String descriptor) {
+        // the annotation type descriptor is like "Lcom/firefly/annotation/Component;"
+        return descriptor.substring(1, descriptor.length() - 1).replace('/', '.');
+    }
+
+    private static void skipMembers(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            skip(in, 6); // access flags, name and descriptor
+            int attributesCount = in.readUnsignedShort();
+            for (int j = 0; j < attributesCount; j++) {
+                in.readUnsignedShort();
+                skip(in, in.readInt());
+            }
+        }
+    }
+
+    private static void skipElementValue(DataInputStream in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case 'e': // enum constant
+                skip(in, 4);
+                break;
+            case '@': // nested annotation
+                in.readUnsignedShort();
+                int pairs = in.readUnsignedShort();
+                for (int i = 0; i < pairs; i++) {
+                    in.readUnsignedShort();
+                    skipElementValue(in);
+                }
+                break;
+            case '[': // array
+                int count = in.readUnsignedShort();
+                for (int i = 0; i < count; i++) {
+                    skipElementValue(in);
+                }
+                break;
+            default: // constant value or class
+                skip(in, 2);
+                break;
+        }
+    }
+
+    private static void skip(DataInputStream in, int n) throws IOException {
+        while (n > 0) {
+            int skipped = in.skipBytes(n);
+            if (skipped <= 0) {
+                in.readByte(); // throws EOFException at the end of the stream
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.firefly.core.support.annotation;
+
+import com.firefly.annotation.Component;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The annotation processor writes the names of the classes that are annotated by {@link Component} to
+ * {@value #COMPONENT_INDEX}. The {@link AnnotationBeanReader} reads the index instead of scanning the packages.
+ * <p>
+ * The index is opt-in, the processor is not registered in META-INF/services. Enable it by the javac option
+ * <code>-processor com.firefly.core.support.annotation.ComponentIndexProcessor</code>, or by the
+ * <code>annotationProcessors</code> configuration of the maven compiler plugin.
+ * <p>
+ * The index is generated by the whole compilation, the incremental compilation of a part of sources creates
+ * an incomplete index. Enable it in the release build only, or delete the index after an incremental compilation.
+ * The reader scans the package directory instead when a class file is newer than the index
+ * or an indexed class file does not exist.
+ *
+ * @author Pengtao Qiu
+ */
+@SupportedAnnotationTypes("com.firefly.annotation.Component")
+public class ComponentIndexProcessor extends AbstractProcessor {
+
+    public static final String COMPONENT_INDEX = "META-INF/firefly/components.idx";
+
+    private final Set<String> components = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+        } else {
+            for (Element element : roundEnv.getElementsAnnotatedWith(Component.class)) {
+                // the scanner ignores the nested classes, so does the index
+                if (element.getKind() == ElementKind.CLASS
+                        && element.getEnclosingElement().getKind() == ElementKind.PACKAGE) {
+                    components.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+                }
+            }
+        }
+        return false;
+    }
+
+    private void writeIndex() {
+        if (components.isEmpty()) {
+            return;
+        }
+
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", COMPONENT_INDEX);
+            try (Writer writer = file.openWriter()) {
+                for (String component : components) {
+                    writer.write(component);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "write the component index " + COMPONENT_INDEX + " exception: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.firefly.core.support.inject;
+
+/**
+ * Create the bean instance and inject the dependencies. The injection points are indexed in the order of
+ * the fields and methods that are passed to the injector factory.
+ *
+ * @author Pengtao Qiu
+ */
+public interface BeanInjector {
+
+    /**
+     * Invoke the bean constructor.
+     *
+     * @param args The constructor arguments.
+     * @return The bean instance.
+     * @throws Throwable The constructor exception.
+     */
+    Object newInstance(Object[] args) throws Throwable;
+
+    /**
+     * Set the field value.
+     *
+     * @param bean  The bean instance.
+     * @param index The field index.
+     * @param value The field value.
+     * @throws Throwable The field access exception.
+     */
+    void setField(Object bean, int index, Object value) throws Throwable;
+
+    /**
+     * Invoke the injecting method.
+     *
+     * @param bean  The bean instance.
+     * @param index The method index.
+     * @param args  The method arguments.
+     * @throws Throwable The method exception.
+     */
+    void invokeMethod(Object bean, int index, Object[] args) throws Throwable;
+}
@@ -0,0 +1,236 @@
+package com.firefly.core.support.inject;
+
+import com.firefly.utils.StringUtils;
+import com.firefly.utils.exception.CommonRuntimeException;
+import javassist.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generate an injector class for each bean. The injector is defined in the package and the class loader of the bean,
+ * it invokes the constructor, sets the fields and calls the methods directly instead of the Java reflection.
+ * The private, final or static members can not be accessed by the generated code, the injector falls back to
+ * the {@link ReflectionBeanInjector} for them.
+ *
+ * @author Pengtao Qiu
+ */
+public class JavassistBeanInjectorFactory {
+
+    public static final JavassistBeanInjectorFactory INSTANCE = new JavassistBeanInjectorFactory();
+
+    private static final IdentityHashMap<Class<?>, String> primitiveWrapMap = new IdentityHashMap<>();
+    private static final AtomicInteger id = new AtomicInteger();
+
+    private final ClassPool classPool = new ClassPool(true);
+    private final Set<ClassLoader> classLoaders = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<List<Object>, Constructor<?>> injectorConstructors = new ConcurrentHashMap<>();
+
+    static {
+        primitiveWrapMap.put(short.class, Short.class.getName());
+        primitiveWrapMap.put(byte.class, Byte.class.getName());
+        primitiveWrapMap.put(int.class, Integer.class.getName());
+        primitiveWrapMap.put(char.class, Character.class.getName());
+        primitiveWrapMap.put(float.class, Float.class.getName());
+        primitiveWrapMap.put(double.class, Double.class.getName());
+        primitiveWrapMap.put(long.class, Long.class.getName());
+        primitiveWrapMap.put(boolean.class, Boolean.class.getName());
+    }
+
+    private JavassistBeanInjectorFactory() {
+
+    }
+
+    /**
+     * Generate the bean injector. The injector class is generated once for the same bean class and injection points,
+     * and it is not generated if the generated code can not access any injection point.
+     *
+     * @param beanClass   The bean class.
+     * @param constructor The bean constructor.
+     * @param fields      The injecting fields.
+     * @param methods     The injecting methods.
+     * @return The generated bean injector.
+     */
+    public BeanInjector createInjector(Class<?> beanClass, Constructor<?> constructor, List<Field> fields, List<Method> methods) {
+        Field[] fieldArray = fields.toArray(new Field[0]);
+        Method[] methodArray = methods.toArray(new Method[0]);
+        String packageName = getPackageName(beanClass);
+        boolean accessible = isAccessibleConstructor(packageName, constructor)
+                || Arrays.stream(fieldArray).anyMatch(f -> isAccessibleField(packageName, f))
+                || Arrays.stream(methodArray).anyMatch(m -> isAccessibleMethod(packageName, m));
+        if (!accessible) {
+            return new ReflectionBeanInjector(constructor, fieldArray, methodArray);
+        }
+
+        try {
+            List<Object> key = Arrays.asList(beanClass, constructor, fields, methods);
+            Constructor<?> injectorConstructor = injectorConstructors.get(key);
+            if (injectorConstructor == null) {
+                injectorConstructor = generateInjector(beanClass, packageName, constructor, fieldArray, methodArray)
+                        .getConstructor(Constructor.class, Field[].class, Method[].class);
+                injectorConstructors.put(key, injectorConstructor);
+            }
+            return (BeanInjector) injectorConstructor.newInstance(constructor, fieldArray, methodArray);
+        } catch (Throwable t) {
+            throw new CommonRuntimeException(t);
+        }
+    }
+
+    private synchronized Class<?> generateInjector(Class<?> beanClass, String packageName, Constructor<?> constructor,
+                                                   Field[] fieldArray, Method[] methodArray) throws Throwable {
+        ClassLoader classLoader = beanClass.getClassLoader();
+        if (classLoaders.add(classLoader)) {
+            classPool.appendClassPath(new LoaderClassPath(classLoader));
+        }
+        if (classLoaders.add(ReflectionBeanInjector.class.getClassLoader())) {
+            classPool.appendClassPath(new LoaderClassPath(ReflectionBeanInjector.class.getClassLoader()));
+        }
+
+        CtClass cc = classPool.makeClass(beanClass.getName() + "$FireflyInjector" + id.incrementAndGet());
+        cc.setSuperclass(classPool.get(ReflectionBeanInjector.class.getName()));
+
+        CtConstructor ctConstructor = new CtConstructor(new CtClass[]{
+                classPool.get(Constructor.class.getName()),
+                classPool.get(Field[].class.getName()),
+                classPool.get(Method[].class.getName())}, cc);
+        ctConstructor.setBody("{super($1, $2, $3);}");
+        cc.addConstructor(ctConstructor);
+
+        if (isAccessibleConstructor(packageName, constructor)) {
+            cc.addMethod(CtMethod.make(createNewInstanceCode(beanClass, constructor), cc));
+        }
+        cc.addMethod(CtMethod.make(createSetFieldCode(beanClass, packageName, fieldArray), cc));
+        cc.addMethod(CtMethod.make(createInvokeMethodCode(beanClass, packageName, methodArray), cc));
+
+        Class<?> injectorClass = cc.toClass(classLoader, beanClass.getProtectionDomain());
+        cc.detach();
+        return injectorClass;
+    }
+
+    private String createNewInstanceCode(Class<?> beanClass, Constructor<?> constructor) {
+        StringBuilder code = new StringBuilder();
+        code.append("public Object newInstance(Object[] args) throws Throwable {\n")
+            .append(StringUtils.replace("\treturn new {}(", getTypeName(beanClass)));
+        Class<?>[] parameterTypes = constructor.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                code.append(", ");
+            }
+            code.append(cast(parameterTypes[i], "args[" + i + "]"));
+        }
+        code.append(");\n")
+            .append("}");
+        return code.toString();
+    }
+
+    private String createSetFieldCode(Class<?> beanClass, String packageName, Field[] fields) {
+        StringBuilder code = new StringBuilder();
+        code.append("public void setField(Object bean, int index, Object value) throws Throwable {\n")
+            .append("\tswitch (index) {\n");
+        for (int i = 0; i < fields.length; i++) {
+            Field field = fields[i];
+            if (!isAccessibleField(packageName, field)) {
+                continue;
+            }
+            code.append("\t\tcase ").append(i).append(": ")
+                .append(StringUtils.replace("(({})bean).{} = ", getTypeName(beanClass), field.getName()))
+                .append(cast(field.getType(), "value")).append("; return;\n");
+        }
+        code.append("\t\tdefault: super.setField(bean, index, value);\n")
+            .append("\t}\n")
+            .append("}");
+        return code.toString();
+    }
+
+    private String createInvokeMethodCode(Class<?> beanClass, String packageName, Method[] methods) {
+        StringBuilder code = new StringBuilder();
+        code.append("public void invokeMethod(Object bean, int index, Object[] args) throws Throwable {\n")
+            .append("\tswitch (index) {\n");
+        for (int i = 0; i < methods.length; i++) {
+            Method method = methods[i];
+            if (!isAccessibleMethod(packageName, method)) {
+                continue;
+            }
+            code.append("\t\tcase ").append(i).append(": ")
+                .append(StringUtils.replace("(({})bean).{}(", getTypeName(beanClass), method.getName()));
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            for (int j = 0; j < parameterTypes.length; j++) {
+                if (j > 0) {
+                    code.append(", ");
+                }
+                code.append(cast(parameterTypes[j], "args[" + j + "]"));
+            }
+            code.append("); return;\n");
+        }
+        code.append("\t\tdefault: super.invokeMethod(bean, index, args);\n")
+            .append("\t}\n")
+            .append("}");
+        return code.toString();
+    }
+
+    private static String cast(Class<?> type, String value) {
+        if (type.isPrimitive()) {
+            return StringUtils.replace("(({}){}).{}Value()", primitiveWrapMap.get(type), value, type.getName());
+        } else {
+            return StringUtils.replace("({}){}", getTypeName(type), value);
+        }
+    }
+
+    private static String getTypeName(Class<?> type) {
+        return type.isArray() ? getTypeName(type.getComponentType()) + "[]" : type.getName();
+    }
+
+    private static String getPackageName(Class<?> c) {
+        String name = c.getName();
+        int i = name.lastIndexOf('.');
+        return i < 0 ? "" : name.substring(0, i);
+    }
+
+    private static boolean isAccessibleConstructor(String packageName, Constructor<?> constructor) {
+        return constructor != null && isAccessible(packageName, constructor, constructor.getParameterTypes());
+    }
+
+    private static boolean isAccessibleField(String packageName, Field field) {
+        return !Modifier.isFinal(field.getModifiers()) && !Modifier.isStatic(field.getModifiers())
+                && isAccessible(packageName, field, field.getType());
+    }
+
+    private static boolean isAccessibleMethod(String packageName, Method method) {
+        return !Modifier.isStatic(method.getModifiers()) && isAccessible(packageName, method, method.getParameterTypes());
+    }
+
+    private static boolean isAccessible(String packageName, Member member, Class<?>... types) {
+        int modifiers = member.getModifiers();
+        if (Modifier.isPrivate(modifiers)) {
+            return false;
+        }
+
+        Class<?> declaringClass = member.getDeclaringClass();
+        boolean samePackage = packageName.equals(getPackageName(declaringClass));
+        if (!samePackage && !(Modifier.isPublic(modifiers) && isAccessible(packageName, declaringClass))) {
+            return false;
+        }
+        for (Class<?> type : types) {
+            if (!isAccessible(packageName, type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAccessible(String packageName, Class<?> type) {
+        if (type.isArray()) {
+            return isAccessible(packageName, type.getComponentType());
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+
+        int modifiers = type.getModifiers();
+        boolean accessible = packageName.equals(getPackageName(type)) ? !Modifier.isPrivate(modifiers) : Modifier.isPublic(modifiers);
+        Class<?> enclosingClass = type.getEnclosingClass();
+        return accessible && (enclosingClass == null || isAccessible(packageName, enclosingClass));
+    }
+}
@@ -0,0 +1,53 @@
+package com.firefly.core.support.inject;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * The bean injector uses the Java reflection. It is also the super class of the generated injectors,
+ * the generated injectors use it to access the private members.
+ *
+ * @author Pengtao Qiu
+ */
+public class ReflectionBeanInjector implements BeanInjector {
+
+    protected final Constructor<?> constructor;
+    protected final Field[] fields;
+    protected final Method[] methods;
+
+    public ReflectionBeanInjector(Constructor<?> constructor, Field[] fields, Method[] methods) {
+        this.constructor = constructor;
+        this.fields = fields;
+        this.methods = methods;
+    }
+
+    @Override
+    public Object newInstance(Object[] args) throws Throwable {
+        try {
+            constructor.setAccessible(true);
+            return constructor.newInstance(args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void setField(Object bean, int index, Object value) throws Throwable {
+        Field field = fields[index];
+        field.setAccessible(true);
+        field.set(bean, value);
+    }
+
+    @Override
+    public void invokeMethod(Object bean, int index, Object[] args) throws Throwable {
+        Method method = methods[index];
+        method.setAccessible(true);
+        try {
+            method.invoke(bean, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
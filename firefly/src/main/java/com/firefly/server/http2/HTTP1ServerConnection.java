@@ -111,7 +111,7 @@ public class HTTP1ServerConnection extends AbstractHTTP1Connection implements HT
         HTTP1ServerResponseOutputStream(MetaData.Response response, HTTP1ServerConnection connection) {
             super(response, false);
             this.connection = connection;
-            httpGenerator = new HttpGenerator(true, true);
+            httpGenerator = new HttpGenerator(true, true, true);
         }
 
         HTTP1ServerConnection getHTTP1ServerConnection() {
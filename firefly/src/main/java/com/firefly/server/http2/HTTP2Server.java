@@ -77,6 +77,9 @@ public class HTTP2Server extends AbstractLifeCycle {
         if (server != null) {
             server.stop();
         }
+        if (http2Configuration.isSecureConnectionEnabled()) {
+            http2Configuration.getSecureSessionFactory().stop();
+        }
         ShutdownHelper.destroy();
     }
 
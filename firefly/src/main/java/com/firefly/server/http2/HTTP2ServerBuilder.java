@@ -1,7 +1,11 @@
 package com.firefly.server.http2;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.firefly.codec.http2.model.BadMessageException;
+import com.firefly.codec.http2.model.HttpHeader;
 import com.firefly.codec.http2.model.HttpMethod;
+import com.firefly.codec.http2.model.HttpStatus;
 import com.firefly.net.SecureSessionFactory;
 import com.firefly.server.http2.router.Handler;
 import com.firefly.server.http2.router.Router;
@@ -10,14 +14,15 @@ import com.firefly.server.http2.router.RoutingContext;
 import com.firefly.server.http2.router.handler.body.HTTPBodyConfiguration;
 import com.firefly.server.http2.router.handler.error.AbstractErrorResponseHandler;
 import com.firefly.server.http2.router.handler.error.DefaultErrorResponseHandlerLoader;
+import com.firefly.server.http2.router.handler.metric.PrometheusMetricHandler;
 import com.firefly.server.http2.router.impl.RoutingContextImpl;
+import com.firefly.utils.concurrent.AdaptiveConcurrencyLimiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * @author Pengtao Qiu
@@ -31,6 +36,9 @@ public class HTTP2ServerBuilder {
     private SimpleHTTPServer server;
     private RouterManager routerManager;
     private Router currentRouter;
+    private AbstractErrorResponseHandler errorResponseHandler;
+    private final Map<Router, AdaptiveConcurrencyLimiter> concurrencyLimiters = new ConcurrentHashMap<>();
+    private final Map<Router, RouterLatencyMetric> latencyMetrics = new ConcurrentHashMap<>();
 
     public HTTP2ServerBuilder httpsServer() {
         SimpleHTTPServerConfiguration configuration = new SimpleHTTPServerConfiguration();
@@ -52,6 +60,7 @@ public class HTTP2ServerBuilder {
     public HTTP2ServerBuilder httpServer(SimpleHTTPServerConfiguration serverConfiguration,
                                          HTTPBodyConfiguration httpBodyConfiguration) {
         AbstractErrorResponseHandler handler = DefaultErrorResponseHandlerLoader.getInstance().getHandler();
+        errorResponseHandler = handler;
         server = new SimpleHTTPServer(serverConfiguration);
         server.badMessage((status, reason, request) -> {
             RoutingContext ctx = new RoutingContextImpl(request, Collections.emptyNavigableSet());
@@ -88,16 +97,37 @@ public class HTTP2ServerBuilder {
 
     public HTTP2ServerBuilder listen(String host, int port) {
         check();
-        server.headerComplete(routerManager::accept).listen(host, port);
+        server.headerComplete(this::accept).listen(host, port);
         return this;
     }
 
     public HTTP2ServerBuilder listen() {
         check();
-        server.headerComplete(routerManager::accept).listen();
+        server.headerComplete(this::accept).listen();
         return this;
     }
 
+    protected void accept(SimpleRequest request) {
+        if (concurrencyLimiters.isEmpty()) {
+            routerManager.accept(request);
+            return;
+        }
+
+        NavigableSet<RouterManager.RouterMatchResult> routers = routerManager.findRouter(
+                request.getMethod(),
+                request.getURI().getPath(),
+                request.getFields().get(HttpHeader.CONTENT_TYPE),
+                request.getFields().get(HttpHeader.ACCEPT));
+        // check the router concurrency limits before the body handler reads the request body
+        for (RouterManager.RouterMatchResult result : routers) {
+            AdaptiveConcurrencyLimiter limiter = concurrencyLimiters.get(result.getRouter());
+            if (limiter != null && !server.acquireConcurrencyPermit(request, limiter)) {
+                return;
+            }
+        }
+        new RoutingContextImpl(request, routers).next();
+    }
+
     public HTTP2ServerBuilder stop() {
         check();
         server.stop();
@@ -170,11 +200,59 @@ public class HTTP2ServerBuilder {
         return this;
     }
 
+    /**
+     * Limit the concurrency of current router adaptively. The concurrency limit is adjusted by the handler latency,
+     * and the excess requests are responded 503 before the request body is read.
+     *
+     * @param maxConcurrencyLimit The max concurrency limit of current router.
+     * @return HTTP2ServerBuilder
+     */
+    public HTTP2ServerBuilder concurrencyLimit(int maxConcurrencyLimit) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(Math.min(20, maxConcurrencyLimit), 1, maxConcurrencyLimit);
+        String prefix = "http2.SimpleHTTPServer.router." + currentRouter.getId() + ".concurrency";
+        MetricRegistry metrics = server.getConfiguration().getTcpConfiguration().getMetricReporterFactory().getMetricRegistry();
+        metrics.remove(prefix + ".limit");
+        metrics.register(prefix + ".limit", (Gauge<Integer>) limiter::getLimit);
+        metrics.remove(prefix + ".inFlight");
+        metrics.register(prefix + ".inFlight", (Gauge<Integer>) limiter::getInFlight);
+        concurrencyLimiters.put(currentRouter, limiter);
+        return this;
+    }
+
     public HTTP2ServerBuilder handler(Handler handler) {
-        currentRouter.handler(ctx -> handlerWrap(handler, ctx));
+        currentRouter.handler(latencyWrap(ctx -> handlerWrap(handler, ctx)));
         return this;
     }
 
+    /**
+     * Record the latency histograms of current router. The request is recorded by the last router that handles it.
+     * The handlers of a router share the latency metric of the router.
+     *
+     * @param handler The handler of current router.
+     * @return The handler that records the latency.
+     */
+    protected Handler latencyWrap(Handler handler) {
+        RouterLatencyMetric latencyMetric = latencyMetrics.computeIfAbsent(currentRouter, router -> new RouterLatencyMetric(
+                server.getConfiguration().getTcpConfiguration().getMetricReporterFactory().getMetricRegistry(),
+                router.getId()));
+        return ctx -> {
+            latencyMetric.record(ctx.getRequest());
+            handler.handle(ctx);
+        };
+    }
+
+    /**
+     * Register a new router that exports the server metrics in the Prometheus text format.
+     *
+     * @param path The metrics path, such as "/metrics".
+     * @return HTTP2ServerBuilder
+     */
+    public HTTP2ServerBuilder prometheusMetrics(String path) {
+        check();
+        MetricRegistry metrics = server.getConfiguration().getTcpConfiguration().getMetricReporterFactory().getMetricRegistry();
+        return router().get(path).handler(new PrometheusMetricHandler(metrics));
+    }
+
     protected void handlerWrap(Handler handler, RoutingContext ctx) {
         try {
             currentCtx.set(ctx);
@@ -188,10 +266,48 @@ public class HTTP2ServerBuilder {
     }
 
     public HTTP2ServerBuilder asyncHandler(Handler handler) {
-        currentRouter.handler(ctx -> {
+        currentRouter.handler(latencyWrap(ctx -> {
             ctx.getResponse().setAsynchronous(true);
             server.getHandlerExecutorService().execute(() -> handlerWrap(handler, ctx));
-        });
+        }));
+        return this;
+    }
+
+    /**
+     * Register a named handler executor group. Use {@link #asyncHandler(String, Handler)} to bind the handler of
+     * current router to this group.
+     *
+     * @param groupConfiguration The executor group configuration.
+     * @return HTTP2ServerBuilder
+     */
+    public HTTP2ServerBuilder handlerExecutorGroup(HandlerExecutorGroupConfiguration groupConfiguration) {
+        check();
+        server.registerHandlerExecutorGroup(groupConfiguration);
+        return this;
+    }
+
+    /**
+     * Run the handler in the named executor group. If the group is saturated, the rejection policy of the group
+     * decides to respond 503 or run the handler in the caller thread.
+     *
+     * @param groupName The executor group name.
+     * @param handler   The handler.
+     * @return HTTP2ServerBuilder
+     */
+    public HTTP2ServerBuilder asyncHandler(String groupName, Handler handler) {
+        check();
+        HandlerExecutorGroup group = server.getHandlerExecutorGroup(groupName);
+        if (group == null) {
+            throw new IllegalArgumentException("the handler executor group " + groupName + " is not found");
+        }
+        currentRouter.handler(latencyWrap(ctx -> {
+            ctx.getResponse().setAsynchronous(true);
+            if (!group.execute(() -> handlerWrap(handler, ctx))) {
+                ctx.put(HttpHeader.RETRY_AFTER, String.valueOf(group.getConfiguration().getRetryAfter()));
+                errorResponseHandler.render(ctx, HttpStatus.SERVICE_UNAVAILABLE_503,
+                        new RejectedExecutionException("the handler executor group " + groupName + " is saturated"));
+            }
+        }));
         return this;
     }
 
@@ -46,8 +46,12 @@ public class HTTP2ServerRequestHandler extends ServerSessionListener.Adapter {
             @Override
             protected synchronized void commit(final boolean endStream) throws IOException {
                 if (!committed) {
-                    info.getFields().put(HttpHeader.X_POWERED_BY, X_POWERED_BY_VALUE);
-                    info.getFields().put(HttpHeader.SERVER, SERVER_VALUE);
+                    HttpFields fields = info.getFields();
+                    fields.put(PreEncodedHttpFields.X_POWERED_BY);
+                    fields.put(PreEncodedHttpFields.SERVER);
+                    if (!fields.contains(HttpHeader.DATE)) {
+                        fields.add(PreEncodedHttpFields.getDateField());
+                    }
                 }
 
                 super.commit(endStream);
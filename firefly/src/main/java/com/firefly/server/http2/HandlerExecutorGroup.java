@@ -0,0 +1,123 @@
+package com.firefly.server.http2;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.firefly.server.http2.HandlerExecutorGroupConfiguration.RejectionPolicy;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bulkhead for the asynchronous handlers. It runs at most maxConcurrency handlers at the same time and
+ * keeps at most queueSize handlers waiting. The overflowed handlers are handled by the rejection policy.
+ *
+ * @author Pengtao Qiu
+ */
+public class HandlerExecutorGroup {
+
+    private final HandlerExecutorGroupConfiguration configuration;
+    private final ThreadPoolExecutor executor;
+    private final Timer queueWaitTimer;
+    private final Timer executionTimer;
+    private final Meter rejectedMeter;
+
+    public HandlerExecutorGroup(HandlerExecutorGroupConfiguration configuration, MetricRegistry metrics) {
+        if (configuration.getName() == null || configuration.getName().isEmpty()) {
+            throw new IllegalArgumentException("the executor group name is empty");
+        }
+        if (configuration.getMaxConcurrency() <= 0) {
+            throw new IllegalArgumentException("the max concurrency must be greater than 0");
+        }
+        if (configuration.getQueueSize() < 0) {
+            throw new IllegalArgumentException("the queue size must not be less than 0");
+        }
+
+        this.configuration = configuration;
+        AtomicInteger threadId = new AtomicInteger();
+        BlockingQueue<Runnable> queue = configuration.getQueueSize() == 0
+                ? new SynchronousQueue<>()
+                : new ArrayBlockingQueue<>(configuration.getQueueSize());
+        executor = new ThreadPoolExecutor(configuration.getMaxConcurrency(), configuration.getMaxConcurrency(),
+                60L, TimeUnit.SECONDS, queue,
+                r -> new Thread(r, "firefly-http-server-handler-" + configuration.getName() + "-" + threadId.getAndIncrement()),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+
+        String prefix = "http2.SimpleHTTPServer.executorGroup." + configuration.getName();
+        queueWaitTimer = metrics.timer(prefix + ".queueWait");
+        executionTimer = metrics.timer(prefix + ".execution");
+        rejectedMeter = metrics.meter(prefix + ".rejected");
+        // the groups that have the same name share the metrics, and the gauges report the latest group
+        metrics.remove(prefix + ".queueSize");
+        metrics.register(prefix + ".queueSize", (Gauge<Integer>) () -> executor.getQueue().size());
+        metrics.remove(prefix + ".activeCount");
+        metrics.register(prefix + ".activeCount", (Gauge<Integer>) executor::getActiveCount);
+    }
+
+    public HandlerExecutorGroupConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    public String getName() {
+        return configuration.getName();
+    }
+
+    /**
+     * Submit a handler task to this group.
+     *
+     * @param task The handler task.
+     * @return If return false, the group is saturated and the rejection policy is SERVICE_UNAVAILABLE.
+     * The caller should respond 503.
+     */
+    public boolean execute(Runnable task) {
+        long enqueueTime = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                queueWaitTimer.update(start - enqueueTime, TimeUnit.NANOSECONDS);
+                try {
+                    task.run();
+                } finally {
+                    executionTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejectedMeter.mark();
+            if (configuration.getRejectionPolicy() == RejectionPolicy.CALLER_RUNS && !executor.isShutdown()) {
+                long start = System.nanoTime();
+                try {
+                    task.run();
+                } finally {
+                    executionTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+                return true;
+            } else {
+                return false;
+            }
+        }
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "HandlerExecutorGroup{" +
+                "configuration=" + configuration +
+                ", activeCount=" + executor.getActiveCount() +
+                ", queueSize=" + executor.getQueue().size() +
+                '}';
+    }
+}
@@ -0,0 +1,138 @@
+package com.firefly.server.http2;
+
+/**
+ * The configuration of a named handler executor group. The asynchronous handlers of a router can be bound to a group,
+ * so that a slow downstream only exhausts the threads and the queue of its own group.
+ *
+ * @author Pengtao Qiu
+ */
+public class HandlerExecutorGroupConfiguration {
+
+    public enum RejectionPolicy {
+        /**
+         * Respond 503 Service Unavailable with a Retry-After header.
+         */
+        SERVICE_UNAVAILABLE,
+
+        /**
+         * Run the handler in the caller thread.
+         */
+        CALLER_RUNS
+    }
+
+    private String name;
+    private int maxConcurrency = Runtime.getRuntime().availableProcessors();
+    private int queueSize = 1024;
+    private RejectionPolicy rejectionPolicy = RejectionPolicy.SERVICE_UNAVAILABLE;
+    private int retryAfter = 1;
+
+    public HandlerExecutorGroupConfiguration() {
+    }
+
+    public HandlerExecutorGroupConfiguration(String name, int maxConcurrency, int queueSize) {
+        this.name = name;
+        this.maxConcurrency = maxConcurrency;
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Get the executor group name.
+     *
+     * @return The executor group name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Set the executor group name. The routers use this name to bind the group.
+     *
+     * @param name The executor group name.
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the max number of handlers that run concurrently in this group.
+     *
+     * @return The max concurrency. The default value is the processor number.
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Set the max number of handlers that run concurrently in this group.
+     *
+     * @param maxConcurrency The max concurrency.
+     */
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Get the capacity of the waiting queue. When the queue is full, the rejection policy will be applied.
+     *
+     * @return The waiting queue capacity. The default value is 1024.
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Set the capacity of the waiting queue. When the queue is full, the rejection policy will be applied.
+     *
+     * @param queueSize The waiting queue capacity.
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Get the rejection policy.
+     *
+     * @return The rejection policy. The default value is SERVICE_UNAVAILABLE.
+     */
+    public RejectionPolicy getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+    /**
+     * Set the rejection policy.
+     *
+     * @param rejectionPolicy The rejection policy.
+     */
+    public void setRejectionPolicy(RejectionPolicy rejectionPolicy) {
+        this.rejectionPolicy = rejectionPolicy;
+    }
+
+    /**
+     * Get the Retry-After header value of the 503 response.
+     *
+     * @return The Retry-After value. The time unit is second. The default value is 1.
+     */
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Set the Retry-After header value of the 503 response.
+     *
+     * @param retryAfter The Retry-After value. The time unit is second.
+     */
+    public void setRetryAfter(int retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+
+    @Override
+    public String toString() {
+        return "HandlerExecutorGroupConfiguration{" +
+                "name='" + name + '\'' +
+                ", maxConcurrency=" + maxConcurrency +
+                ", queueSize=" + queueSize +
+                ", rejectionPolicy=" + rejectionPolicy +
+                ", retryAfter=" + retryAfter +
+                '}';
+    }
+}
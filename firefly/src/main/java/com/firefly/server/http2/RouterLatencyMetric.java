@@ -0,0 +1,56 @@
+package com.firefly.server.http2;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.firefly.net.metric.HdrHistogramReservoir;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latency histograms of a router. The latency is measured from the request header is complete
+ * to the response is complete, and the time to first byte is measured from the request header is complete
+ * to the response header is committed. The request is recorded by the last router that handles it.
+ * <p>
+ * The response records the latency when it is closed by the {@link SimpleResponse}, and it records the time to
+ * first byte when a write, a flush or the close of the SimpleResponse finds the response committed.
+ * It does not add the response callbacks, so the recording does not wrap the response output stream.
+ *
+ * @author Pengtao Qiu
+ */
+public class RouterLatencyMetric {
+
+    private final Timer latency;
+    private final Timer timeToFirstByte;
+
+    public RouterLatencyMetric(MetricRegistry metrics, int routerId) {
+        String prefix = "http2.SimpleHTTPServer.router." + routerId;
+        latency = metrics.timer(prefix + ".latency", HdrHistogramReservoir::newTimer);
+        timeToFirstByte = metrics.timer(prefix + ".ttfb", HdrHistogramReservoir::newTimer);
+    }
+
+    /**
+     * Record the latency of the request by this router. The response reports the latency to the last router
+     * that handles the request.
+     *
+     * @param request The request.
+     */
+    void record(SimpleRequest request) {
+        request.getResponse().latencyMetric = this;
+    }
+
+    void recordTimeToFirstByte(long startTime) {
+        timeToFirstByte.update(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+
+    void recordLatency(long startTime) {
+        latency.update(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+
+    public Timer getLatency() {
+        return latency;
+    }
+
+    public Timer getTimeToFirstByte() {
+        return timeToFirstByte;
+    }
+}
@@ -1,7 +1,12 @@
 package com.firefly.server.http2;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.firefly.codec.http2.model.HttpHeader;
+import com.firefly.codec.http2.model.HttpStatus;
 import com.firefly.codec.http2.stream.HTTPConnection;
+import com.firefly.utils.concurrent.AdaptiveConcurrencyLimiter;
 import com.firefly.utils.function.Action1;
 import com.firefly.utils.function.Action2;
 import com.firefly.utils.function.Action3;
@@ -10,6 +15,9 @@ import com.firefly.utils.lang.AbstractLifeCycle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinWorkerThread;
@@ -27,7 +35,11 @@ public class SimpleHTTPServer extends AbstractLifeCycle {
     private Action1<SimpleRequest> earlyEof;
     private Action1<HTTPConnection> acceptConnection;
     private Meter requestMeter;
+    private Meter rejectedRequestMeter;
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
     private final ExecutorService handlerExecutorService;
+    private final Map<String, HandlerExecutorGroup> handlerExecutorGroups = new ConcurrentHashMap<>();
+    private final Map<HTTPConnection, Set<SimpleResponse>> limitedResponses = new ConcurrentHashMap<>();
     Action2<SimpleRequest, HTTPServerConnection> tunnel;
 
     public SimpleHTTPServer() {
@@ -36,10 +48,9 @@ public class SimpleHTTPServer extends AbstractLifeCycle {
 
     public SimpleHTTPServer(SimpleHTTPServerConfiguration configuration) {
         this.configuration = configuration;
-        requestMeter = this.configuration.getTcpConfiguration()
-                                         .getMetricReporterFactory()
-                                         .getMetricRegistry()
-                                         .meter("http2.SimpleHTTPServer.request.count");
+        MetricRegistry metrics = this.configuration.getTcpConfiguration().getMetricReporterFactory().getMetricRegistry();
+        requestMeter = metrics.meter("http2.SimpleHTTPServer.request.count");
+        rejectedRequestMeter = metrics.meter("http2.SimpleHTTPServer.request.rejected.count");
         handlerExecutorService = new ForkJoinPool(defaultPoolSize, pool -> {
             ForkJoinWorkerThread workerThread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
             workerThread.setName("firefly-http-server-handler-pool-" + workerThread.getPoolIndex());
@@ -80,6 +91,29 @@ public class SimpleHTTPServer extends AbstractLifeCycle {
         return handlerExecutorService;
     }
 
+    /**
+     * Register a named handler executor group. The asynchronous handlers bound to this group run in its own
+     * bounded thread pool and queue.
+     *
+     * @param groupConfiguration The executor group configuration.
+     * @return SimpleHTTPServer
+     */
+    public SimpleHTTPServer registerHandlerExecutorGroup(HandlerExecutorGroupConfiguration groupConfiguration) {
+        handlerExecutorGroups.compute(groupConfiguration.getName(), (name, group) -> {
+            if (group != null) {
+                throw new IllegalArgumentException("the handler executor group " + name + " exists");
+            }
+            return new HandlerExecutorGroup(groupConfiguration, configuration.getTcpConfiguration()
+                                                                             .getMetricReporterFactory()
+                                                                             .getMetricRegistry());
+        });
+        return this;
+    }
+
+    public HandlerExecutorGroup getHandlerExecutorGroup(String name) {
+        return handlerExecutorGroups.get(name);
+    }
+
     public SimpleHTTPServerConfiguration getConfiguration() {
         return configuration;
     }
@@ -96,6 +130,15 @@ public class SimpleHTTPServer extends AbstractLifeCycle {
 
     @Override
     protected void init() {
+        if (configuration.isConcurrencyLimitEnabled()) {
+            concurrencyLimiter = new AdaptiveConcurrencyLimiter(configuration.getInitialConcurrencyLimit(),
+                    configuration.getMinConcurrencyLimit(), configuration.getMaxConcurrencyLimit());
+            MetricRegistry metrics = configuration.getTcpConfiguration().getMetricReporterFactory().getMetricRegistry();
+            metrics.remove("http2.SimpleHTTPServer.concurrency.limit");
+            metrics.register("http2.SimpleHTTPServer.concurrency.limit", (Gauge<Integer>) concurrencyLimiter::getLimit);
+            metrics.remove("http2.SimpleHTTPServer.concurrency.inFlight");
+            metrics.register("http2.SimpleHTTPServer.concurrency.inFlight", (Gauge<Integer>) concurrencyLimiter::getInFlight);
+        }
         http2Server = new HTTP2Server(configuration.getHost(), configuration.getPort(), configuration,
                 new ServerHTTPHandler.Adapter().acceptHTTPTunnelConnection((request, response, out, connection) -> {
                     SimpleRequest r = new SimpleRequest(request, response, out, connection);
@@ -107,6 +150,9 @@ public class SimpleHTTPServer extends AbstractLifeCycle {
                 }).headerComplete((request, response, out, connection) -> {
                     SimpleRequest r = new SimpleRequest(request, response, out, connection);
                     request.setAttachment(r);
+                    if (concurrencyLimiter != null && !acquireConcurrencyPermit(r, concurrencyLimiter)) {
+                        return false;
+                    }
                     if (headerComplete != null) {
                         headerComplete.call(r);
                     }
@@ -117,7 +163,7 @@ public class SimpleHTTPServer extends AbstractLifeCycle {
                     if (r.content != null) {
                         r.content.call(buffer);
                     } else {
-                        r.requestBody.add(buffer);
+                        r.getRequestBody().add(buffer);
                     }
                     return false;
                 }).contentComplete((request, response, out, connection) -> {
@@ -136,6 +182,9 @@ public class SimpleHTTPServer extends AbstractLifeCycle {
                     }
                     return true;
                 }).badMessage((status, reason, request, response, out, connection) -> {
+                    if (request.getAttachment() != null) {
+                        ((SimpleRequest) request.getAttachment()).getResponse().abort();
+                    }
                     if (badMessage != null) {
                         if (request.getAttachment() != null) {
                             SimpleRequest r = (SimpleRequest) request.getAttachment();
@@ -147,6 +196,9 @@ public class SimpleHTTPServer extends AbstractLifeCycle {
                         }
                     }
                 }).earlyEOF((request, response, out, connection) -> {
+                    if (request.getAttachment() != null) {
+                        ((SimpleRequest) request.getAttachment()).getResponse().abort();
+                    }
                     if (earlyEof != null) {
                         if (request.getAttachment() != null) {
                             SimpleRequest r = (SimpleRequest) request.getAttachment();
@@ -161,10 +213,76 @@ public class SimpleHTTPServer extends AbstractLifeCycle {
         http2Server.start();
     }
 
+    /**
+     * Acquire a concurrency permit before the request body is read. The permit is released when the response
+     * is closed, or without a latency sample when the request is aborted by the stream reset, bad message, early EOF
+     * or connection close. If the limiter rejects the request, it responds 503 and discards the request body.
+     *
+     * @param r       The request.
+     * @param limiter The concurrency limiter.
+     * @return If return true, the request acquires the permit.
+     */
+    boolean acquireConcurrencyPermit(SimpleRequest r, AdaptiveConcurrencyLimiter limiter) {
+        SimpleResponse response = r.getResponse();
+        if (limiter.tryAcquire()) {
+            long start = System.nanoTime();
+            Set<SimpleResponse> responses = getLimitedResponses(r.getConnection());
+            response.closeCallback(() -> {
+                responses.remove(response);
+                if (response.isAborted()) {
+                    limiter.release();
+                } else {
+                    limiter.release(System.nanoTime() - start, false);
+                }
+            });
+            responses.add(response);
+            if (r.getConnection().isClosed()) {
+                // the connection is closed before the response is tracked
+                response.abort();
+            }
+            return true;
+        } else {
+            rejectedRequestMeter.mark();
+            // release the permits that the request has acquired from the other limiters
+            response.abort();
+            // discard the request body of the rejected request
+            r.content = buffer -> {
+            };
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE_503)
+                    .put(HttpHeader.RETRY_AFTER, "1")
+                    .end();
+            return false;
+        }
+    }
+
+    private Set<SimpleResponse> getLimitedResponses(HTTPConnection connection) {
+        Set<SimpleResponse> responses = limitedResponses.get(connection);
+        if (responses == null) {
+            Set<SimpleResponse> newResponses = ConcurrentHashMap.newKeySet();
+            responses = limitedResponses.putIfAbsent(connection, newResponses);
+            if (responses == null) {
+                responses = newResponses;
+                // the client disconnects without the stream reset or early EOF, abort the responses that hold permits
+                connection.addCloseListener(c -> {
+                    Set<SimpleResponse> aborted = limitedResponses.remove(c);
+                    if (aborted != null) {
+                        aborted.forEach(SimpleResponse::abort);
+                    }
+                });
+            }
+        }
+        return responses;
+    }
+
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
     @Override
     protected void destroy() {
         try {
             handlerExecutorService.shutdown();
+            handlerExecutorGroups.values().forEach(HandlerExecutorGroup::shutdown);
         } catch (Exception e) {
             log.warn("simple http server handler pool shutdown exception", e);
         } finally {
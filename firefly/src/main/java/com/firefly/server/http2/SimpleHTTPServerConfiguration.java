@@ -6,6 +6,10 @@ public class SimpleHTTPServerConfiguration extends HTTP2Configuration {
 
     private String host;
     private int port;
+    private boolean concurrencyLimitEnabled;
+    private int initialConcurrencyLimit = 20;
+    private int minConcurrencyLimit = 1;
+    private int maxConcurrencyLimit = 1000;
 
     /**
      * Get the HTTP server host name.
@@ -43,4 +47,78 @@ public class SimpleHTTPServerConfiguration extends HTTP2Configuration {
         this.port = port;
     }
 
+    /**
+     * If the concurrencyLimitEnabled is true, the server adjusts the allowed in-flight requests by the request latency,
+     * and responds 503 to the excess requests before their bodies are read.
+     *
+     * @return The default value is false.
+     */
+    public boolean isConcurrencyLimitEnabled() {
+        return concurrencyLimitEnabled;
+    }
+
+    /**
+     * If the concurrencyLimitEnabled is true, the server adjusts the allowed in-flight requests by the request latency,
+     * and responds 503 to the excess requests before their bodies are read.
+     *
+     * @param concurrencyLimitEnabled Enable the adaptive concurrency limit.
+     */
+    public void setConcurrencyLimitEnabled(boolean concurrencyLimitEnabled) {
+        this.concurrencyLimitEnabled = concurrencyLimitEnabled;
+    }
+
+    /**
+     * Get the initial concurrency limit.
+     *
+     * @return The initial concurrency limit. The default value is 20.
+     */
+    public int getInitialConcurrencyLimit() {
+        return initialConcurrencyLimit;
+    }
+
+    /**
+     * Set the initial concurrency limit.
+     *
+     * @param initialConcurrencyLimit The initial concurrency limit.
+     */
+    public void setInitialConcurrencyLimit(int initialConcurrencyLimit) {
+        this.initialConcurrencyLimit = initialConcurrencyLimit;
+    }
+
+    /**
+     * Get the min concurrency limit.
+     *
+     * @return The min concurrency limit. The default value is 1.
+     */
+    public int getMinConcurrencyLimit() {
+        return minConcurrencyLimit;
+    }
+
+    /**
+     * Set the min concurrency limit.
+     *
+     * @param minConcurrencyLimit The min concurrency limit.
+     */
+    public void setMinConcurrencyLimit(int minConcurrencyLimit) {
+        this.minConcurrencyLimit = minConcurrencyLimit;
+    }
+
+    /**
+     * Get the max concurrency limit.
+     *
+     * @return The max concurrency limit. The default value is 1000.
+     */
+    public int getMaxConcurrencyLimit() {
+        return maxConcurrencyLimit;
+    }
+
+    /**
+     * Set the max concurrency limit.
+     *
+     * @param maxConcurrencyLimit The max concurrency limit.
+     */
+    public void setMaxConcurrencyLimit(int maxConcurrencyLimit) {
+        this.maxConcurrencyLimit = maxConcurrencyLimit;
+    }
+
 }
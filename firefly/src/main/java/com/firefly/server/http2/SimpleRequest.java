@@ -14,11 +14,9 @@ import com.firefly.utils.json.JsonObject;
 import com.firefly.utils.lang.GenericTypeReference;
 
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Spliterator;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
@@ -30,12 +28,16 @@ public class SimpleRequest {
     Action1<ByteBuffer> content;
     Action1<SimpleRequest> contentComplete;
     Action1<SimpleRequest> messageComplete;
-    List<ByteBuffer> requestBody = new ArrayList<>();
+    List<ByteBuffer> requestBody;
 
     List<Cookie> cookies;
     String stringBody;
 
-    final ConcurrentHashMap<String, Object> attributes = new ConcurrentHashMap<>();
+    private static final AtomicReferenceFieldUpdater<SimpleRequest, ConcurrentHashMap> attributesUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(SimpleRequest.class, ConcurrentHashMap.class, "attributes");
+
+    volatile ConcurrentHashMap<String, Object> attributes;
+    final long headerCompleteTime = System.nanoTime();
 
     public SimpleRequest(Request request, Response response,
                          HTTPOutputStream output,
@@ -44,6 +46,7 @@ public class SimpleRequest {
         response.setStatus(HttpStatus.OK_200);
         response.setHttpVersion(HttpVersion.HTTP_1_1);
         this.response = new SimpleResponse(response, output, request.getURI());
+        this.response.startTime = headerCompleteTime;
         this.connection = connection;
     }
 
@@ -88,19 +91,29 @@ public class SimpleRequest {
     }
 
     public Object get(String key) {
-        return attributes.get(key);
+        return attributes != null ? attributes.get(key) : null;
     }
 
     public Object put(String key, Object value) {
-        return attributes.put(key, value);
+        return getAttributes().put(key, value);
     }
 
     public Object remove(String key) {
-        return attributes.remove(key);
+        return attributes != null ? attributes.remove(key) : null;
     }
 
+    /**
+     * Get the attributes of the request. The attributes are created when they are used at the first time.
+     *
+     * @return The attributes of the request.
+     */
     public ConcurrentHashMap<String, Object> getAttributes() {
-        return attributes;
+        ConcurrentHashMap<String, Object> map = attributes;
+        if (map == null) {
+            attributesUpdater.compareAndSet(this, null, new ConcurrentHashMap<>(4));
+            map = attributes;
+        }
+        return map;
     }
 
     @Override
@@ -125,7 +138,20 @@ public class SimpleRequest {
         return connection;
     }
 
+    /**
+     * Get the time when the request header is complete. It is the value of the System.nanoTime(),
+     * and it is used to measure the request latency.
+     *
+     * @return The nanosecond time when the request header is complete.
+     */
+    public long getHeaderCompleteTime() {
+        return headerCompleteTime;
+    }
+
     public List<ByteBuffer> getRequestBody() {
+        if (requestBody == null) {
+            requestBody = new ArrayList<>();
+        }
         return requestBody;
     }
 
@@ -146,7 +172,7 @@ public class SimpleRequest {
 
     public String getStringBody(String charset) {
         if (stringBody == null) {
-            stringBody = BufferUtils.toString(requestBody, charset);
+            stringBody = BufferUtils.toString(getRequestBody(), charset);
             return stringBody;
         } else {
             return stringBody;
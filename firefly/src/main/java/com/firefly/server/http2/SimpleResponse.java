@@ -2,14 +2,21 @@ package com.firefly.server.http2;
 
 import com.firefly.codec.http2.model.*;
 import com.firefly.codec.http2.model.MetaData.Response;
+import com.firefly.codec.http2.stream.AbstractHTTP2OutputStream;
 import com.firefly.codec.http2.stream.BufferedHTTPOutputStream;
 import com.firefly.codec.http2.stream.HTTPOutputStream;
+import com.firefly.utils.concurrent.Promise;
+import com.firefly.utils.function.Action0;
+import com.firefly.utils.function.Action1;
 import com.firefly.utils.io.IO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Spliterator;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -19,13 +26,20 @@ public class SimpleResponse implements Closeable {
     private static Logger log = LoggerFactory.getLogger("firefly-system");
 
     final Response response;
-    final HTTPOutputStream output;
+    HTTPOutputStream output;
     final HttpURI uri;
     PrintWriter printWriter;
     BufferedHTTPOutputStream bufferedOutputStream;
     int bufferSize = 8 * 1024;
     String characterEncoding = "UTF-8";
     boolean asynchronous;
+    volatile boolean aborted;
+
+    // the latency is reported to the last router that handles the request
+    volatile RouterLatencyMetric latencyMetric;
+    long startTime;
+    private boolean firstByteRecorded;
+    private boolean latencyRecorded;
 
     public SimpleResponse(Response response, HTTPOutputStream output, HttpURI uri) {
         this.output = output;
@@ -85,6 +99,208 @@ public class SimpleResponse implements Closeable {
         this.asynchronous = asynchronous;
     }
 
+    /**
+     * Set the response complete callback. It will be called once when the response output stream is closed.
+     * The callback must be set before the response body is written.
+     *
+     * @param closeCallback The response complete callback.
+     * @return SimpleResponse
+     */
+    public synchronized SimpleResponse closeCallback(Action0 closeCallback) {
+        getCallbackOutputStream().closeCallbacks.add(closeCallback);
+        return this;
+    }
+
+    /**
+     * Set the response commit callback. It will be called once when the response header is committed,
+     * such as the first body bytes are written or the response is closed without the body.
+     * The callback must be set before the response body is written.
+     *
+     * @param commitCallback The response commit callback.
+     * @return SimpleResponse
+     */
+    public synchronized SimpleResponse commitCallback(Action0 commitCallback) {
+        getCallbackOutputStream().commitCallbacks.add(commitCallback);
+        return this;
+    }
+
+    /**
+     * Set the response content callback. It will be called with a read-only view of every body buffer
+     * before the buffer is written to the connection, such as the cache handler records the response body.
+     * The callback must not keep the view after it returns, because the buffer is handed off to the connection.
+     * The callback must be set before the response body is written.
+     *
+     * @param contentCallback The response content callback.
+     * @return SimpleResponse
+     */
+    public synchronized SimpleResponse contentCallback(Action1<ByteBuffer> contentCallback) {
+        getCallbackOutputStream().contentCallbacks.add(contentCallback);
+        return this;
+    }
+
+    /**
+     * If return true, the response is sent by an HTTP/2 stream and the client accepts the server push.
+     *
+     * @return If return true, the server can push resources with this response.
+     */
+    public boolean isPushEnabled() {
+        AbstractHTTP2OutputStream http2Output = getHTTP2OutputStream();
+        return http2Output != null && http2Output.isPushEnabled();
+    }
+
+    /**
+     * Push a resource that is associated with this response. The PUSH_PROMISE frame should be sent before
+     * the response body that refers to the resource.
+     *
+     * @param request  The request of the pushed resource. It must have the scheme, authority and path.
+     * @param response The pushed response. It is sent when the output stream is committed.
+     * @param promise  It receives the output stream of the pushed response,
+     *                 or fails if the server push is not enabled.
+     */
+    public void push(MetaData.Request request, Response response, Promise<HTTPOutputStream> promise) {
+        AbstractHTTP2OutputStream http2Output = getHTTP2OutputStream();
+        if (http2Output == null) {
+            promise.failed(new IllegalStateException("the server push needs HTTP/2 -> " + uri));
+        } else {
+            http2Output.push(request, response, promise);
+        }
+    }
+
+    private AbstractHTTP2OutputStream getHTTP2OutputStream() {
+        HTTPOutputStream out = output instanceof CloseCallbackOutputStream ? ((CloseCallbackOutputStream) output).output : output;
+        return out instanceof AbstractHTTP2OutputStream ? (AbstractHTTP2OutputStream) out : null;
+    }
+
+    private CloseCallbackOutputStream getCallbackOutputStream() {
+        if (output instanceof CloseCallbackOutputStream) {
+            return (CloseCallbackOutputStream) output;
+        } else {
+            if (bufferedOutputStream != null || printWriter != null) {
+                throw new IllegalStateException("the response output stream has been created -> " + uri);
+            }
+            CloseCallbackOutputStream out = new CloseCallbackOutputStream(response, output);
+            output = out;
+            return out;
+        }
+    }
+
+    /**
+     * If return true, the response is aborted because the connection is broken before the response is complete.
+     * The close callbacks can use it to distinguish the aborted response.
+     *
+     * @return If return true, the response is aborted.
+     */
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    synchronized void abort() {
+        aborted = true;
+        if (output instanceof CloseCallbackOutputStream) {
+            ((CloseCallbackOutputStream) output).fireCloseCallbacks();
+        }
+    }
+
+    private static class CloseCallbackOutputStream extends HTTPOutputStream {
+
+        private final HTTPOutputStream output;
+        private final List<Action0> closeCallbacks = new ArrayList<>(2);
+        private final List<Action0> commitCallbacks = new ArrayList<>(1);
+        private final List<Action1<ByteBuffer>> contentCallbacks = new ArrayList<>(1);
+        private boolean callbacksFired;
+        private volatile boolean commitCallbacksFired;
+
+        private CloseCallbackOutputStream(Response response, HTTPOutputStream output) {
+            super(response, false);
+            this.output = output;
+        }
+
+        @Override
+        public void commit() throws IOException {
+            output.commit();
+            fireCommitCallbacks();
+        }
+
+        @Override
+        public void write(ByteBuffer data) throws IOException {
+            fireContentCallbacks(data);
+            output.write(data);
+            if (!commitCallbacksFired) {
+                fireCommitCallbacks();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            output.flush();
+        }
+
+        @Override
+        public synchronized boolean isClosed() {
+            return output.isClosed();
+        }
+
+        @Override
+        public synchronized boolean isCommitted() {
+            return output.isCommitted();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (closed) {
+                return;
+            }
+
+            try {
+                output.close();
+                fireCommitCallbacks();
+            } finally {
+                closed = true;
+                fireCloseCallbacks();
+            }
+        }
+
+        private void fireContentCallbacks(ByteBuffer data) {
+            for (Action1<ByteBuffer> contentCallback : contentCallbacks) {
+                try {
+                    contentCallback.call(data.asReadOnlyBuffer());
+                } catch (Exception e) {
+                    log.error("response content callback exception", e);
+                }
+            }
+        }
+
+        private synchronized void fireCommitCallbacks() {
+            if (commitCallbacksFired) {
+                return;
+            }
+
+            commitCallbacksFired = true;
+            for (Action0 commitCallback : commitCallbacks) {
+                try {
+                    commitCallback.call();
+                } catch (Exception e) {
+                    log.error("response commit callback exception", e);
+                }
+            }
+        }
+
+        private synchronized void fireCloseCallbacks() {
+            if (callbacksFired) {
+                return;
+            }
+
+            callbacksFired = true;
+            for (Action0 closeCallback : closeCallbacks) {
+                try {
+                    closeCallback.call();
+                } catch (Exception e) {
+                    log.error("response close callback exception", e);
+                }
+            }
+        }
+    }
+
     public synchronized OutputStream getOutputStream() {
         if (printWriter != null) {
             throw new IllegalStateException("the response has used print writer -> " + uri);
@@ -136,12 +352,21 @@ public class SimpleResponse implements Closeable {
     }
 
     public synchronized void close() throws IOException {
-        if (bufferedOutputStream != null) {
-            bufferedOutputStream.close();
-        } else if (printWriter != null) {
-            printWriter.close();
-        } else {
-            getOutputStream().close();
+        try {
+            if (bufferedOutputStream != null) {
+                bufferedOutputStream.close();
+            } else if (printWriter != null) {
+                printWriter.close();
+            } else {
+                getOutputStream().close();
+            }
+        } finally {
+            RouterLatencyMetric metric = latencyMetric;
+            if (metric != null && !latencyRecorded && !aborted) {
+                latencyRecorded = true;
+                recordTimeToFirstByte();
+                metric.recordLatency(startTime);
+            }
         }
     }
 
@@ -151,6 +376,15 @@ public class SimpleResponse implements Closeable {
         } else if (printWriter != null) {
             printWriter.flush();
         }
+        recordTimeToFirstByte();
+    }
+
+    private synchronized void recordTimeToFirstByte() {
+        RouterLatencyMetric metric = latencyMetric;
+        if (metric != null && !firstByteRecorded && output.isCommitted()) {
+            firstByteRecorded = true;
+            metric.recordTimeToFirstByte(startTime);
+        }
     }
 
     public boolean isCommitted() {
@@ -199,6 +433,7 @@ public class SimpleResponse implements Closeable {
 
     public SimpleResponse write(String value) {
         getPrintWriter().print(value);
+        recordTimeToFirstByte();
         return this;
     }
 
@@ -217,6 +452,7 @@ public class SimpleResponse implements Closeable {
         } catch (IOException e) {
             log.error("write data exception " + uri, e);
         }
+        recordTimeToFirstByte();
         return this;
     }
 
@@ -227,4 +463,28 @@ public class SimpleResponse implements Closeable {
     public SimpleResponse end(byte[] b) {
         return write(b).end();
     }
+
+    /**
+     * Write the buffer to the HTTP output stream without copying. The buffer is handed off to the connection,
+     * the caller must not modify it after this method returns. The data buffered by the output stream
+     * and the print writer is flushed first.
+     *
+     * @param buffer The data.
+     * @return SimpleResponse
+     */
+    public synchronized SimpleResponse write(ByteBuffer buffer) {
+        try {
+            if (printWriter != null) {
+                printWriter.flush();
+            }
+            if (bufferedOutputStream != null) {
+                bufferedOutputStream.flush();
+            }
+            output.write(buffer);
+        } catch (IOException e) {
+            log.error("write data exception " + uri, e);
+        }
+        recordTimeToFirstByte();
+        return this;
+    }
 }
@@ -1,6 +1,12 @@
 package com.firefly.server.http2.router.handler.body;
 
+import com.firefly.codec.http2.model.MultiPartFormParser;
+import com.firefly.server.http2.router.RoutingContext;
+import com.firefly.utils.function.Func1;
+
 import javax.servlet.MultipartConfigElement;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 /**
  * @author Pengtao Qiu
@@ -12,7 +18,9 @@ public class HTTPBodyConfiguration {
     private int maxFileSize = 64 * 1024 * 1024;
     private String tempFilePath = System.getProperty("java.io.tmpdir");
     private String charset = "UTF-8";
-    private MultipartConfigElement multipartConfigElement = new MultipartConfigElement(tempFilePath, maxFileSize, maxRequestSize, bodyBufferThreshold);
+    private Charset charsetInstance = StandardCharsets.UTF_8;
+    private MultipartConfigElement multipartConfigElement;
+    private Func1<RoutingContext, MultiPartFormParser.PartListener> partListenerFactory;
 
     public int getBodyBufferThreshold() {
         return bodyBufferThreshold;
@@ -22,10 +30,22 @@ public class HTTPBodyConfiguration {
         this.bodyBufferThreshold = bodyBufferThreshold;
     }
 
+    /**
+     * Get the max size of the request body. If the body exceeds it, the server responds 413 Payload Too Large.
+     *
+     * @return The max request size. If it is less than or equal to 0, the request size is not limited.
+     */
     public int getMaxRequestSize() {
         return maxRequestSize;
     }
 
+    /**
+     * Set the max size of the request body. The request that declares the larger content length is rejected
+     * before the body is received, and the chunked request is rejected as soon as the received content exceeds it.
+     * It also limits the multipart request if the multipart config element is not set.
+     *
+     * @param maxRequestSize The max request size. If it is less than or equal to 0, the request size is not limited.
+     */
     public void setMaxRequestSize(int maxRequestSize) {
         this.maxRequestSize = maxRequestSize;
     }
@@ -42,15 +62,60 @@ public class HTTPBodyConfiguration {
         return charset;
     }
 
+    /**
+     * Set the charset of the query string, the form and the string body.
+     *
+     * @param charset The charset name. It is resolved immediately, so the unsupported charset fails here
+     *                instead of failing every request.
+     */
     public void setCharset(String charset) {
+        this.charsetInstance = Charset.forName(charset);
         this.charset = charset;
     }
 
+    /**
+     * Get the resolved charset. It is resolved once when the charset name is set.
+     *
+     * @return The charset of the query string, the form and the string body.
+     */
+    public Charset getCharsetInstance() {
+        return charsetInstance;
+    }
+
+    /**
+     * Get the multipart config element. If it is not set, the element is derived from the temp file path,
+     * the max request size and the body buffer threshold, so it follows the changes of these values.
+     *
+     * @return The multipart config element.
+     */
     public MultipartConfigElement getMultipartConfigElement() {
-        return multipartConfigElement;
+        if (multipartConfigElement != null) {
+            return multipartConfigElement;
+        }
+        return new MultipartConfigElement(tempFilePath, maxFileSize, maxRequestSize, bodyBufferThreshold);
     }
 
     public void setMultipartConfigElement(MultipartConfigElement multipartConfigElement) {
         this.multipartConfigElement = multipartConfigElement;
     }
+
+    /**
+     * Get the factory of the multipart part listener.
+     *
+     * @return The part listener factory. The default value is null.
+     */
+    public Func1<RoutingContext, MultiPartFormParser.PartListener> getPartListenerFactory() {
+        return partListenerFactory;
+    }
+
+    /**
+     * Set the factory of the multipart part listener. The factory is called for every multipart/form-data request,
+     * and the created listener receives the parts while the request body is being parsed,
+     * so it can stream the part content to a storage without buffering the whole part.
+     *
+     * @param partListenerFactory The part listener factory. It can return null.
+     */
+    public void setPartListenerFactory(Func1<RoutingContext, MultiPartFormParser.PartListener> partListenerFactory) {
+        this.partListenerFactory = partListenerFactory;
+    }
 }
@@ -1,14 +1,13 @@
 package com.firefly.server.http2.router.handler.body;
 
-import com.firefly.codec.http2.encode.UrlEncoded;
 import com.firefly.codec.http2.model.*;
+import com.firefly.net.BufferPool;
+import com.firefly.net.buffer.ThreadSafeIOBufferPool;
 import com.firefly.server.http2.SimpleRequest;
 import com.firefly.server.http2.router.Handler;
 import com.firefly.server.http2.router.RoutingContext;
 import com.firefly.server.http2.router.impl.RoutingContextImpl;
-import com.firefly.utils.StringUtils;
 import com.firefly.utils.io.BufferUtils;
-import com.firefly.utils.io.ByteArrayPipedStream;
 import com.firefly.utils.io.FilePipedStream;
 import com.firefly.utils.io.IO;
 import org.slf4j.Logger;
@@ -16,9 +15,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.Charset;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author Pengtao Qiu
@@ -27,6 +24,8 @@ public class HTTPBodyHandler implements Handler {
 
     private static final Logger log = LoggerFactory.getLogger("firefly-system");
 
+    private static final BufferPool bufferPool = new ThreadSafeIOBufferPool(false);
+
     private HTTPBodyConfiguration configuration;
 
     public HTTPBodyHandler() {
@@ -50,21 +49,34 @@ public class HTTPBodyHandler implements Handler {
         RoutingContextImpl ctx = (RoutingContextImpl) context;
         SimpleRequest request = ctx.getRequest();
         HTTPBodyHandlerSPIImpl httpBodyHandlerSPI = new HTTPBodyHandlerSPIImpl();
-        httpBodyHandlerSPI.urlEncodedMap = new UrlEncoded();
-        httpBodyHandlerSPI.charset = configuration.getCharset();
+        // the query string and the form are decoded when the parameters are accessed
+        httpBodyHandlerSPI.request = request;
+        httpBodyHandlerSPI.charset = configuration.getCharsetInstance();
         ctx.setHTTPBodyHandlerSPI(httpBodyHandlerSPI);
 
-        if (StringUtils.hasText(request.getURI().getQuery())) {
-            httpBodyHandlerSPI.urlEncodedMap.decode(request.getURI().getQuery(), Charset.forName(configuration.getCharset()));
-        }
-
         if (ctx.isAsynchronousRead()) { // receive content event has been listened
             ctx.next();
             return;
         }
 
+        long maxRequestSize = configuration.getMaxRequestSize();
+        if (!isChunked(request) && maxRequestSize > 0 && request.getContentLength() > maxRequestSize) {
+            log.warn("the request content length {} exceeds the max request size {}", request.getContentLength(), maxRequestSize);
+            responsePayloadTooLarge(ctx);
+            return;
+        }
+
+        String contentType = MimeTypes.getContentTypeMIMEType(request.getFields().get(HttpHeader.CONTENT_TYPE));
+        if ("multipart/form-data".equalsIgnoreCase(contentType)
+                && (isChunked(request) || request.getContentLength() > 0)) {
+            parseMultiPart(ctx, request, httpBodyHandlerSPI);
+            return;
+        }
+
+        HybridPipedStream hybridPipedStream = null;
         if (isChunked(request)) {
-            httpBodyHandlerSPI.pipedStream = new ByteArrayPipedStream(4 * 1024);
+            hybridPipedStream = new HybridPipedStream(bufferPool, configuration.getBodyBufferThreshold(), configuration.getTempFilePath());
+            httpBodyHandlerSPI.pipedStream = hybridPipedStream;
         } else {
             long contentLength = request.getContentLength();
             if (contentLength <= 0) { // no content
@@ -74,56 +86,113 @@ public class HTTPBodyHandler implements Handler {
                 if (contentLength > configuration.getBodyBufferThreshold()) {
                     httpBodyHandlerSPI.pipedStream = new FilePipedStream(configuration.getTempFilePath());
                 } else {
-                    httpBodyHandlerSPI.pipedStream = new ByteArrayPipedStream((int) contentLength);
+                    hybridPipedStream = new HybridPipedStream(bufferPool, (int) contentLength, configuration.getTempFilePath());
+                    httpBodyHandlerSPI.pipedStream = hybridPipedStream;
                 }
             }
         }
 
-        AtomicLong chunkedEncodingContentLength = new AtomicLong();
+        // delete the temp file when the response is complete, the pooled buffer is not returned until the body input stream is closed
+        ctx.getResponse().closeCallback(() -> IO.close(httpBodyHandlerSPI.pipedStream));
+
+        HybridPipedStream stream = hybridPipedStream;
+        AtomicBoolean rejected = new AtomicBoolean(false);
         ctx.content(buf -> {
             if (log.isDebugEnabled()) {
                 log.debug("http body handler received content size -> {}", buf.remaining());
             }
 
+            if (rejected.get()) {
+                return;
+            }
+
             try {
-                if (isChunked(request)) {
-                    if (chunkedEncodingContentLength.addAndGet(buf.remaining()) > configuration.getBodyBufferThreshold()
-                            && httpBodyHandlerSPI.pipedStream instanceof ByteArrayPipedStream) {
-                        // chunked encoding content dump to temp file
-                        IO.close(httpBodyHandlerSPI.pipedStream.getOutputStream());
-                        FilePipedStream filePipedStream = new FilePipedStream(configuration.getTempFilePath());
-                        IO.copy(httpBodyHandlerSPI.pipedStream.getInputStream(), filePipedStream.getOutputStream());
-                        filePipedStream.getOutputStream().write(BufferUtils.toArray(buf));
-                        httpBodyHandlerSPI.pipedStream = filePipedStream;
+                if (stream != null) {
+                    if (maxRequestSize > 0 && stream.getSize() + buf.remaining() > maxRequestSize) {
+                        // the chunked content size is unknown until it is received, reject it as early as possible
+                        log.warn("the request content exceeds the max request size {}", maxRequestSize);
+                        rejected.set(true);
+                        IO.close(stream);
+                        responsePayloadTooLarge(ctx);
                     } else {
-                        httpBodyHandlerSPI.pipedStream.getOutputStream().write(BufferUtils.toArray(buf));
+                        stream.write(buf);
                     }
                 } else {
-                    httpBodyHandlerSPI.pipedStream.getOutputStream().write(BufferUtils.toArray(buf));
+                    BufferUtils.writeTo(buf, httpBodyHandlerSPI.pipedStream.getOutputStream());
                 }
             } catch (IOException e) {
                 log.error("http server receives http body exception", e);
             }
         }).contentComplete(req -> {
+            if (rejected.get()) {
+                return;
+            }
+
             try {
-                String contentType = MimeTypes.getContentTypeMIMEType(request.getFields().get(HttpHeader.CONTENT_TYPE));
                 httpBodyHandlerSPI.pipedStream.getOutputStream().close();
-                if ("application/x-www-form-urlencoded".equalsIgnoreCase(contentType)) {
-                    try (InputStream inputStream = httpBodyHandlerSPI.pipedStream.getInputStream()) {
-                        httpBodyHandlerSPI.urlEncodedMap.decode(IO.toString(inputStream, configuration.getCharset()),
-                                Charset.forName(configuration.getCharset()));
-                    }
-                } else if ("multipart/form-data".equalsIgnoreCase(contentType)) {
-                    httpBodyHandlerSPI.multiPartInputStreamParser = new MultiPartInputStreamParser(
-                            httpBodyHandlerSPI.getInputStream(),
-                            request.getFields().get(HttpHeader.CONTENT_TYPE),
-                            configuration.getMultipartConfigElement(),
-                            new File(configuration.getTempFilePath()));
-                }
             } catch (IOException e) {
                 log.error("http server ends receiving data exception", e);
             }
-        }).messageComplete(req -> ctx.next());
+        }).messageComplete(req -> {
+            if (!rejected.get()) {
+                ctx.next();
+            }
+        });
+    }
+
+    protected void responsePayloadTooLarge(RoutingContext ctx) {
+        responseBadRequestBody(ctx, HttpStatus.PAYLOAD_TOO_LARGE_413);
+    }
+
+    protected void responseBadRequestBody(RoutingContext ctx, int status) {
+        if (ctx.getHttpVersion() != HttpVersion.HTTP_2) {
+            // the rest of the request body is not read, so the connection can not be reused
+            ctx.put(HttpHeader.CONNECTION, HttpHeaderValue.CLOSE.asString());
+        }
+        ctx.setStatus(status).end();
+    }
+
+    protected void parseMultiPart(RoutingContextImpl ctx, SimpleRequest request, HTTPBodyHandlerSPIImpl httpBodyHandlerSPI) {
+        MultiPartFormParser.PartListener partListener = null;
+        if (configuration.getPartListenerFactory() != null) {
+            partListener = configuration.getPartListenerFactory().call(ctx);
+        }
+
+        // parse the multipart content when it arrives, so the body is not buffered in a piped stream
+        MultiPartFormParser parser = new MultiPartFormParser(
+                request.getFields().get(HttpHeader.CONTENT_TYPE),
+                configuration.getMultipartConfigElement(),
+                new File(configuration.getTempFilePath()),
+                partListener);
+        httpBodyHandlerSPI.multiPartFormParser = parser;
+        ctx.getResponse().closeCallback(parser::deleteParts);
+        AtomicBoolean rejected = new AtomicBoolean(false);
+        ctx.content(buf -> {
+            if (log.isDebugEnabled()) {
+                log.debug("http body handler received multipart content size -> {}", buf.remaining());
+            }
+            if (!rejected.get()) {
+                parser.parse(buf, false);
+                rejectIfError(ctx, parser, rejected);
+            }
+        }).contentComplete(req -> {
+            if (!rejected.get()) {
+                parser.parse(BufferUtils.EMPTY_BUFFER, true);
+                rejectIfError(ctx, parser, rejected);
+            }
+        }).messageComplete(req -> {
+            if (!rejected.get()) {
+                ctx.next();
+            }
+        });
+    }
+
+    private void rejectIfError(RoutingContext ctx, MultiPartFormParser parser, AtomicBoolean rejected) {
+        if (parser.getError() != null && rejected.compareAndSet(false, true)) {
+            // the oversized or malformed upload fails the request instead of looking like a request without parts
+            parser.deleteParts();
+            responseBadRequestBody(ctx, parser.getErrorStatus());
+        }
     }
 
     public boolean isChunked(SimpleRequest request) {
@@ -1,7 +1,10 @@
 package com.firefly.server.http2.router.handler.body;
 
-import com.firefly.codec.http2.encode.UrlEncoded;
-import com.firefly.codec.http2.model.MultiPartInputStreamParser;
+import com.firefly.codec.http2.encode.ParameterMap;
+import com.firefly.codec.http2.model.HttpHeader;
+import com.firefly.codec.http2.model.MimeTypes;
+import com.firefly.codec.http2.model.MultiPartFormParser;
+import com.firefly.server.http2.SimpleRequest;
 import com.firefly.server.http2.router.spi.HTTPBodyHandlerSPI;
 import com.firefly.utils.io.IO;
 import com.firefly.utils.io.PipedStream;
@@ -30,35 +33,65 @@ public class HTTPBodyHandlerSPIImpl implements HTTPBodyHandlerSPI {
     private static final Logger log = LoggerFactory.getLogger("firefly-system");
 
     PipedStream pipedStream;
-    MultiPartInputStreamParser multiPartInputStreamParser;
-    UrlEncoded urlEncodedMap;
-    String charset;
+    MultiPartFormParser multiPartFormParser;
+    SimpleRequest request;
+    Charset charset;
+    private ParameterMap parameterMap;
     private BufferedReader bufferedReader;
     private String stringBody;
 
 
     @Override
     public String getParameter(String name) {
-        return urlEncodedMap.getString(name);
+        return hasParameters() ? getParameters().getString(name) : null;
     }
 
     @Override
     public List<String> getParameterValues(String name) {
-        return urlEncodedMap.getValues(name);
+        return hasParameters() ? getParameters().getValues(name) : null;
     }
 
     @Override
     public Map<String, List<String>> getParameterMap() {
-        return urlEncodedMap;
+        return getParameters();
+    }
+
+    private boolean hasParameters() {
+        return parameterMap != null || request.getURI().hasQuery() || isFormContent();
+    }
+
+    private boolean isFormContent() {
+        return pipedStream != null && "application/x-www-form-urlencoded".equalsIgnoreCase(
+                MimeTypes.getContentTypeMIMEType(request.getFields().get(HttpHeader.CONTENT_TYPE)));
+    }
+
+    /**
+     * Get the parameters of the query string and the form. The query string and the form are read and decoded
+     * when the parameters are accessed first time, so the handler that does not read the parameters does not decode them.
+     * The form content is the string body, it is read once for the parameters and the string body.
+     *
+     * @return The parameter map.
+     */
+    ParameterMap getParameters() {
+        if (parameterMap == null) {
+            parameterMap = new ParameterMap();
+            if (request.getURI().hasQuery()) {
+                parameterMap.decode(request.getURI().getQuery(), charset);
+            }
+            if (isFormContent()) {
+                parameterMap.decode(getStringBody(charset), charset);
+            }
+        }
+        return parameterMap;
     }
 
     @Override
     public Collection<Part> getParts() {
-        if (multiPartInputStreamParser == null) {
+        if (multiPartFormParser == null) {
             return null;
         } else {
             try {
-                return multiPartInputStreamParser.getParts();
+                return multiPartFormParser.getParts();
             } catch (IOException e) {
                 log.error("get multi part exception", e);
                 return null;
@@ -68,11 +101,11 @@ public class HTTPBodyHandlerSPIImpl implements HTTPBodyHandlerSPI {
 
     @Override
     public Part getPart(String name) {
-        if (multiPartInputStreamParser == null) {
+        if (multiPartFormParser == null) {
             return null;
         } else {
             try {
-                return multiPartInputStreamParser.getPart(name);
+                return multiPartFormParser.getPart(name);
             } catch (IOException e) {
                 log.error("get multi part exception", e);
                 return null;
@@ -115,6 +148,10 @@ public class HTTPBodyHandlerSPIImpl implements HTTPBodyHandlerSPI {
 
     @Override
     public String getStringBody(String charset) {
+        return getStringBody(Charset.forName(charset));
+    }
+
+    private String getStringBody(Charset charset) {
         if (stringBody != null) {
             return stringBody;
         } else {
@@ -122,7 +159,7 @@ public class HTTPBodyHandlerSPIImpl implements HTTPBodyHandlerSPI {
                 return null;
             } else {
                 try (InputStream inputStream = getInputStream()) {
-                    stringBody = IO.toString(inputStream, Charset.forName(charset));
+                    stringBody = IO.toString(inputStream, charset);
                     return stringBody;
                 } catch (IOException e) {
                     log.error("get string body exception", e);
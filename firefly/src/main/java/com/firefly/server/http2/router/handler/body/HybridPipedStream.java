@@ -0,0 +1,252 @@
+package com.firefly.server.http2.router.handler.body;
+
+import com.firefly.net.BufferPool;
+import com.firefly.utils.io.BufferUtils;
+import com.firefly.utils.io.FilePipedStream;
+import com.firefly.utils.io.PipedStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The piped stream keeps the data in a pooled buffer. When the data size exceeds the threshold,
+ * the data is moved to a temp file and the buffer is returned to the pool.
+ * <p>
+ * The piped stream and its input stream hold the references of the buffer, the buffer is returned to the pool
+ * once when both of them are closed. So the buffer is not reused while the input stream is read
+ * after the piped stream is closed.
+ *
+ * @author Pengtao Qiu
+ */
+public class HybridPipedStream implements PipedStream {
+
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+
+    private final BufferPool bufferPool;
+    private final int threshold;
+    private final String tempdir;
+    private ByteBuffer buffer;
+    private FilePipedStream filePipedStream;
+    private OutputStream out;
+    private InputStream in;
+    private long size;
+    private boolean outputClosed;
+    private boolean closed;
+    private int references = 1;
+
+    /**
+     * Create a hybrid piped stream.
+     *
+     * @param bufferPool The buffer pool.
+     * @param threshold  The max data size in memory. If the data size exceeds it, the data is moved to a temp file.
+     * @param tempdir    The temp file directory.
+     */
+    public HybridPipedStream(BufferPool bufferPool, int threshold, String tempdir) {
+        this.bufferPool = bufferPool;
+        this.threshold = threshold;
+        this.tempdir = tempdir;
+    }
+
+    /**
+     * Write the data. The data is copied, the caller can reuse the buffer after it returns.
+     *
+     * @param src The data.
+     * @throws IOException If the temp file writes failure.
+     */
+    public void write(ByteBuffer src) throws IOException {
+        if (outputClosed) {
+            throw new IOException("the output stream is closed");
+        }
+
+        int length = src.remaining();
+        size += length;
+        if (filePipedStream != null) {
+            BufferUtils.writeTo(src, filePipedStream.getOutputStream());
+        } else if (size > threshold) {
+            filePipedStream = new FilePipedStream(tempdir);
+            OutputStream fileOutput = filePipedStream.getOutputStream();
+            if (buffer != null) {
+                buffer.flip();
+                BufferUtils.writeTo(buffer, fileOutput);
+                releaseBuffer();
+            }
+            BufferUtils.writeTo(src, fileOutput);
+        } else {
+            ensureCapacity(length);
+            buffer.put(src);
+        }
+    }
+
+    private void ensureCapacity(int length) {
+        if (buffer == null) {
+            buffer = bufferPool.acquire(Math.min(Math.max(length, INITIAL_BUFFER_SIZE), threshold));
+        } else if (buffer.remaining() < length) {
+            int capacity = Math.min(Math.max(buffer.position() + length, buffer.capacity() * 2), threshold);
+            ByteBuffer newBuffer = bufferPool.acquire(capacity);
+            buffer.flip();
+            newBuffer.put(buffer);
+            releaseBuffer();
+            buffer = newBuffer;
+        }
+    }
+
+    private void releaseBuffer() {
+        if (buffer != null) {
+            bufferPool.release(buffer);
+            buffer = null;
+        }
+    }
+
+    private synchronized void dereference() {
+        if (--references == 0) {
+            releaseBuffer();
+        }
+    }
+
+    /**
+     * Get the size of the written data.
+     *
+     * @return The data size.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Whether the data is in memory.
+     *
+     * @return If return true, the data is in the pooled buffer, otherwise it is in the temp file.
+     */
+    public boolean isInMemory() {
+        return filePipedStream == null;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        if (out == null) {
+            out = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    HybridPipedStream.this.write(ByteBuffer.wrap(new byte[]{(byte) b}));
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    HybridPipedStream.this.write(ByteBuffer.wrap(b, off, len));
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    if (filePipedStream != null) {
+                        filePipedStream.getOutputStream().flush();
+                    }
+                }
+
+                @Override
+                public void close() throws IOException {
+                    closeOutput();
+                }
+            };
+        }
+        return out;
+    }
+
+    private void closeOutput() throws IOException {
+        if (!outputClosed) {
+            outputClosed = true;
+            if (filePipedStream != null) {
+                filePipedStream.getOutputStream().close();
+            }
+        }
+    }
+
+    @Override
+    public synchronized InputStream getInputStream() throws IOException {
+        if (in == null) {
+            if (closed) {
+                throw new IOException("the piped stream is closed");
+            }
+            closeOutput();
+            if (filePipedStream != null) {
+                in = filePipedStream.getInputStream();
+            } else {
+                if (buffer != null) {
+                    buffer.flip();
+                }
+                references++;
+                in = new BufferInputStream();
+            }
+        }
+        return in;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            outputClosed = true;
+        }
+        // the buffer is returned to the pool after the input stream is closed
+        dereference();
+        if (filePipedStream != null) {
+            filePipedStream.close();
+        }
+    }
+
+    private class BufferInputStream extends InputStream {
+
+        private boolean released;
+
+        @Override
+        public int read() {
+            if (buffer == null || !buffer.hasRemaining()) {
+                return -1;
+            }
+            return buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (buffer == null || !buffer.hasRemaining()) {
+                return -1;
+            }
+            int length = Math.min(len, buffer.remaining());
+            buffer.get(b, off, length);
+            return length;
+        }
+
+        @Override
+        public long skip(long n) {
+            if (buffer == null || n <= 0) {
+                return 0;
+            }
+            int length = (int) Math.min(n, buffer.remaining());
+            buffer.position(buffer.position() + length);
+            return length;
+        }
+
+        @Override
+        public int available() {
+            return buffer == null ? 0 : buffer.remaining();
+        }
+
+        @Override
+        public void close() {
+            synchronized (HybridPipedStream.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            dereference();
+        }
+    }
+}
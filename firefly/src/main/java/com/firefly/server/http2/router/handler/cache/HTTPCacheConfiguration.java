@@ -0,0 +1,172 @@
+package com.firefly.server.http2.router.handler.cache;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class HTTPCacheConfiguration {
+
+    private int maxEntries = 1024;
+    private int maxEntrySize = 1024 * 1024;
+    private long maxBytes = 64 * 1024 * 1024;
+    private long fillTimeout = 10 * 1000L;
+    private long defaultMaxAge;
+    private long defaultStaleWhileRevalidate;
+    private boolean offHeap;
+    private Executor revalidationExecutor = ForkJoinPool.commonPool();
+
+    /**
+     * Get the maximum number of the cached responses.
+     *
+     * @return The maximum number of the cached responses. The default value is 1024.
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Set the maximum number of the cached responses. The cache evicts the responses by the W-TinyLFU policy.
+     *
+     * @param maxEntries The maximum number of the cached responses. The default value is 1024.
+     */
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Get the maximum body size of a cached response.
+     *
+     * @return The maximum body size. The default value is 1MB.
+     */
+    public int getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    /**
+     * Set the maximum body size of a cached response. The larger response is not cached.
+     *
+     * @param maxEntrySize The maximum body size. The default value is 1MB.
+     */
+    public void setMaxEntrySize(int maxEntrySize) {
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    /**
+     * Get the maximum total body bytes of the cached responses.
+     *
+     * @return The maximum total body bytes. The default value is 64MB.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Set the maximum total body bytes of the cached responses. If the cached bodies exceed it,
+     * the earliest stored responses are evicted.
+     *
+     * @param maxBytes The maximum total body bytes. The default value is 64MB.
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get the max time that the concurrent misses wait for the response of the first request.
+     *
+     * @return The fill timeout (millisecond). The default value is 10 seconds.
+     */
+    public long getFillTimeout() {
+        return fillTimeout;
+    }
+
+    /**
+     * Set the max time that the concurrent misses wait for the response of the first request.
+     * If it expires, the waiting requests run the following handlers by themselves.
+     *
+     * @param fillTimeout The fill timeout (millisecond). The default value is 10 seconds.
+     *                    If it is less than or equal to 0, the requests wait until the response is complete.
+     */
+    public void setFillTimeout(long fillTimeout) {
+        this.fillTimeout = fillTimeout;
+    }
+
+    /**
+     * Get the freshness lifetime of the response that has no Cache-Control max-age and Expires header.
+     *
+     * @return The freshness lifetime (second). The default value is 0.
+     */
+    public long getDefaultMaxAge() {
+        return defaultMaxAge;
+    }
+
+    /**
+     * Set the freshness lifetime of the response that has no Cache-Control max-age and Expires header.
+     * If it is 0, only the response that has the explicit freshness lifetime is cached.
+     *
+     * @param defaultMaxAge The freshness lifetime (second). The default value is 0.
+     */
+    public void setDefaultMaxAge(long defaultMaxAge) {
+        this.defaultMaxAge = defaultMaxAge;
+    }
+
+    /**
+     * Get the stale-while-revalidate time of the response that has no Cache-Control stale-while-revalidate directive.
+     *
+     * @return The stale-while-revalidate time (second). The default value is 0.
+     */
+    public long getDefaultStaleWhileRevalidate() {
+        return defaultStaleWhileRevalidate;
+    }
+
+    /**
+     * Set the stale-while-revalidate time of the response that has no Cache-Control stale-while-revalidate directive.
+     * In this time after the response becomes stale, the requests get the stale response,
+     * and the following handlers refresh it in the background.
+     *
+     * @param defaultStaleWhileRevalidate The stale-while-revalidate time (second). The default value is 0.
+     */
+    public void setDefaultStaleWhileRevalidate(long defaultStaleWhileRevalidate) {
+        this.defaultStaleWhileRevalidate = defaultStaleWhileRevalidate;
+    }
+
+    /**
+     * Get the executor that runs the following handlers to refresh the stale-while-revalidate response.
+     *
+     * @return The revalidation executor. The default value is the common fork join pool.
+     */
+    public Executor getRevalidationExecutor() {
+        return revalidationExecutor;
+    }
+
+    /**
+     * Set the executor that runs the following handlers to refresh the stale-while-revalidate response.
+     * If the handlers block, such as querying the database, use a dedicated thread pool.
+     *
+     * @param revalidationExecutor The revalidation executor. The default value is the common fork join pool.
+     */
+    public void setRevalidationExecutor(Executor revalidationExecutor) {
+        this.revalidationExecutor = revalidationExecutor;
+    }
+
+    /**
+     * If return true, the cached response body is stored in the direct buffer.
+     *
+     * @return If return true, the cached response body is stored in the direct buffer. The default value is false.
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Store the cached response body in the direct buffer. It reduces the heap size and the GC pause,
+     * and the body is written to the socket without copying it to a temporary direct buffer.
+     *
+     * @param offHeap If it is true, the cached response body is stored in the direct buffer.
+     *                The default value is false.
+     */
+    public void setOffHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+}
@@ -0,0 +1,721 @@
+package com.firefly.server.http2.router.handler.cache;
+
+import com.firefly.codec.http2.model.*;
+import com.firefly.codec.http2.stream.HTTPOutputStream;
+import com.firefly.server.http2.SimpleRequest;
+import com.firefly.server.http2.SimpleResponse;
+import com.firefly.server.http2.router.Handler;
+import com.firefly.server.http2.router.RoutingContext;
+import com.firefly.server.http2.router.impl.RoutingContextImpl;
+import com.firefly.utils.collection.ConcurrentLinkedHashMap.MapEventListener;
+import com.firefly.utils.collection.TinyLFUCache;
+import com.firefly.utils.concurrent.Scheduler;
+import com.firefly.utils.concurrent.Schedulers;
+import com.firefly.utils.io.IO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The HTTP response cache handler. It caches the complete GET responses (status, headers and body)
+ * that the following handlers generate, and the cache key consists of the method, host, URI and the request headers
+ * that the response Vary header lists.
+ * <p>
+ * The freshness lifetime is computed from the Cache-Control s-maxage and max-age directives, or the Expires header.
+ * The responses that have the Set-Cookie header or the Cache-Control no-store, no-cache and private directives
+ * are not cached. The cached response answers the conditional request with 304 by its ETag and Last-Modified headers.
+ * <p>
+ * The concurrent misses of the same key are collapsed, only one request runs the following handlers,
+ * and the other requests wait for its response. If the first request does not complete in the fill timeout,
+ * or it is aborted, the waiting requests run the following handlers by themselves. When the response is stale
+ * but it is still in the stale-while-revalidate time, the requests get the stale response immediately,
+ * and the following handlers refresh it once in the background by the revalidation executor.
+ * <p>
+ * The cache is bounded by the number of the responses and the total body bytes. The responses are evicted by
+ * the W-TinyLFU policy when the number exceeds the maxEntries, and the earliest stored responses are evicted
+ * when the body bytes exceed the maxBytes.
+ * <p>
+ * The handler should be bound to a router after the HTTP body handler and before the application handlers,
+ * such as <code>router().path("/api/*").handler(cacheHandler)</code>.
+ *
+ * @author Pengtao Qiu
+ */
+public class HTTPCacheHandler implements Handler {
+
+    private static final Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private static final Set<Integer> cacheableStatuses = new HashSet<>(Arrays.asList(
+            HttpStatus.OK_200, HttpStatus.NON_AUTHORITATIVE_INFORMATION_203, HttpStatus.NO_CONTENT_204,
+            HttpStatus.MULTIPLE_CHOICES_300, HttpStatus.MOVED_PERMANENTLY_301, HttpStatus.PERMANENT_REDIRECT_308,
+            HttpStatus.NOT_FOUND_404, HttpStatus.METHOD_NOT_ALLOWED_405, HttpStatus.GONE_410,
+            HttpStatus.URI_TOO_LONG_414, HttpStatus.NOT_IMPLEMENTED_501));
+
+    private final HTTPCacheConfiguration configuration;
+    private final TinyLFUCache<String, CachedResponse> responses;
+    private final TinyLFUCache<String, List<String>> varyIndex;
+    private final ConcurrentHashMap<String, Fill> fills = new ConcurrentHashMap<>();
+    private final Scheduler scheduler = Schedulers.createTimingWheel();
+
+    // the cached responses in the stored order, it bounds the total body bytes
+    private final LinkedHashMap<String, CachedResponse> storedResponses = new LinkedHashMap<>();
+    private long storedBytes; // guarded by storedResponses
+
+    public HTTPCacheHandler() {
+        this(new HTTPCacheConfiguration());
+    }
+
+    public HTTPCacheHandler(HTTPCacheConfiguration configuration) {
+        this.configuration = configuration;
+        responses = new TinyLFUCache<>(configuration.getMaxEntries(), new MapEventListener<String, CachedResponse>() {
+            @Override
+            public boolean onEliminateEntry(String key, CachedResponse value) {
+                release(key, value);
+                return true;
+            }
+
+            @Override
+            public CachedResponse onGetEntry(String key, CachedResponse value) {
+                return value;
+            }
+
+            @Override
+            public CachedResponse onPutEntry(String key, CachedResponse value, CachedResponse previousValue) {
+                return previousValue;
+            }
+
+            @Override
+            public CachedResponse onRemoveEntry(String key, CachedResponse value) {
+                release(key, value);
+                return value;
+            }
+        });
+        varyIndex = new TinyLFUCache<>(configuration.getMaxEntries());
+    }
+
+    public HTTPCacheConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Get the number of the requests that are answered by the cached responses.
+     *
+     * @return The hit count.
+     */
+    public long getHitCount() {
+        return responses.getHitCount();
+    }
+
+    /**
+     * Get the number of the requests that do not find the cached responses.
+     *
+     * @return The miss count.
+     */
+    public long getMissCount() {
+        return responses.getMissCount();
+    }
+
+    /**
+     * Get the total body bytes of the cached responses.
+     *
+     * @return The total body bytes.
+     */
+    public long getCachedBytes() {
+        synchronized (storedResponses) {
+            return storedBytes;
+        }
+    }
+
+    /**
+     * Remove all cached responses.
+     */
+    public void clear() {
+        // the cache evicts the entries in its eviction lock and the eviction callback locks the stored responses,
+        // so the cache is not cleared in the stored responses lock
+        responses.clear();
+        synchronized (storedResponses) {
+            storedResponses.clear();
+            storedBytes = 0;
+        }
+        varyIndex.clear();
+    }
+
+    /**
+     * Stop the timer of the fill timeouts.
+     */
+    public void stop() {
+        scheduler.stop();
+    }
+
+    @Override
+    public void handle(RoutingContext ctx) {
+        SimpleRequest request = ctx.getRequest();
+        if (!isCacheableRequest(request)) {
+            ctx.next();
+            return;
+        }
+
+        String primaryKey = getPrimaryKey(request);
+        String key = getVariantKey(primaryKey, request);
+        long now = System.currentTimeMillis();
+
+        if (isNoCacheRequest(request)) {
+            // the client requires the response from the origin handler, it refreshes the cached response
+            fetch(ctx, primaryKey, key, null);
+            return;
+        }
+
+        CachedResponse cached = responses.get(key);
+        if (cached != null) {
+            if (cached.isFresh(now)) {
+                serve(ctx, cached, now);
+                return;
+            }
+            if (!cached.isStaleWhileRevalidate(now)) {
+                responses.remove(key);
+                cached = null;
+            }
+        }
+
+        Fill fill = new Fill();
+        Fill currentFill = fills.putIfAbsent(key, fill);
+        if (currentFill == null) {
+            long timeout = configuration.getFillTimeout();
+            if (timeout > 0) {
+                fill.setTimer(scheduler.schedule(() -> expire(primaryKey, key, fill), timeout, TimeUnit.MILLISECONDS));
+            }
+            if (cached != null) {
+                serve(ctx, cached, now);
+                revalidate(ctx, primaryKey, key, fill);
+            } else {
+                fetch(ctx, primaryKey, key, fill);
+            }
+        } else if (cached != null) {
+            // another request is revalidating the response
+            serve(ctx, cached, now);
+        } else if (!currentFill.addWaiter(ctx)) {
+            // the fill completes concurrently, look up the cache again
+            handle(ctx);
+        }
+    }
+
+    private void fetch(RoutingContext ctx, String primaryKey, String key, Fill fill) {
+        SimpleResponse response = ctx.getResponse();
+        Capture capture = new Capture();
+        response.contentCallback(capture::content)
+                .closeCallback(() -> complete(ctx, primaryKey, key, fill, capture));
+        ctx.next();
+    }
+
+    /**
+     * Run the following handlers to refresh the stale response in the background. The response of the handlers
+     * is only captured, the client has got the stale response.
+     */
+    private void revalidate(RoutingContext ctx, String primaryKey, String key, Fill fill) {
+        RoutingContextImpl background;
+        try {
+            MetaData.Request request = new MetaData.Request(ctx.getRequest().getRequest());
+            // the handlers return the complete response
+            request.getFields().remove(HttpHeader.IF_NONE_MATCH);
+            request.getFields().remove(HttpHeader.IF_MODIFIED_SINCE);
+            MetaData.Response response = new MetaData.Response(HttpVersion.HTTP_1_1, HttpStatus.OK_200, new HttpFields());
+            SimpleRequest simpleRequest = new SimpleRequest(request, response, new DiscardOutputStream(response),
+                    ctx.getRequest().getConnection());
+            background = ((RoutingContextImpl) ctx).copy(simpleRequest);
+        } catch (Throwable t) {
+            log.error("create the revalidation request of " + primaryKey + " exception", t);
+            expire(primaryKey, key, fill);
+            return;
+        }
+
+        try {
+            configuration.getRevalidationExecutor().execute(() -> {
+                try {
+                    fetch(background, primaryKey, key, fill);
+                    SimpleResponse response = background.getResponse();
+                    if (!response.isAsynchronous()) {
+                        IO.close(response);
+                    }
+                } catch (Throwable t) {
+                    log.error("revalidate the response of " + primaryKey + " exception", t);
+                    expire(primaryKey, key, fill);
+                }
+            });
+        } catch (Throwable t) {
+            log.error("submit the revalidation of " + primaryKey + " exception", t);
+            expire(primaryKey, key, fill);
+        }
+    }
+
+    private void complete(RoutingContext ctx, String primaryKey, String key, Fill fill, Capture capture) {
+        CachedResponse cached = null;
+        try {
+            if (!ctx.getResponse().isAborted()) {
+                cached = store(ctx, primaryKey, capture);
+                if (cached == null) {
+                    // the origin handler does not allow caching the response anymore
+                    responses.remove(key);
+                }
+            }
+        } catch (Throwable t) {
+            log.error("cache the response of " + primaryKey + " exception", t);
+        }
+
+        if (fill != null) {
+            fills.remove(key, fill);
+            for (RoutingContext waiter : fill.complete()) {
+                resume(waiter, primaryKey, cached);
+            }
+        }
+    }
+
+    private void expire(String primaryKey, String key, Fill fill) {
+        fills.remove(key, fill);
+        List<RoutingContext> waiters = fill.complete();
+        if (!waiters.isEmpty()) {
+            log.warn("fill the response of {} timeout, {} waiting requests run the handlers", primaryKey, waiters.size());
+        }
+        for (RoutingContext waiter : waiters) {
+            resume(waiter, primaryKey, null);
+        }
+    }
+
+    private void resume(RoutingContext ctx, String primaryKey, CachedResponse cached) {
+        if (ctx.getResponse().isAborted() || ctx.getRequest().getConnection().isClosed()) {
+            // the client is gone while it waits for the fill
+            return;
+        }
+
+        try {
+            if (cached != null && cached.key.equals(getVariantKey(primaryKey, ctx.getRequest()))) {
+                serve(ctx, cached, System.currentTimeMillis());
+            } else {
+                // the response can not be shared, the waiter runs the following handlers by itself
+                SimpleResponse response = ctx.getResponse();
+                response.setAsynchronous(false);
+                ctx.next();
+                if (!response.isAsynchronous()) {
+                    IO.close(response);
+                }
+            }
+        } catch (Throwable t) {
+            log.error("resume the request " + primaryKey + " exception", t);
+            ctx.fail(t);
+        }
+    }
+
+    private CachedResponse store(RoutingContext ctx, String primaryKey, Capture capture) {
+        SimpleResponse response = ctx.getResponse();
+        if (capture.overflow || !cacheableStatuses.contains(response.getStatus())) {
+            return null;
+        }
+
+        HttpFields fields = response.getFields();
+        if (fields.contains(HttpHeader.SET_COOKIE)) {
+            return null;
+        }
+
+        Map<String, String> cacheControl = parseCacheControl(fields);
+        if (cacheControl.containsKey("no-store") || cacheControl.containsKey("no-cache")
+                || cacheControl.containsKey("private")) {
+            return null;
+        }
+
+        List<String> vary = fields.getCSV(HttpHeader.VARY, false).stream()
+                                  .map(v -> v.trim().toLowerCase(Locale.ENGLISH))
+                                  .distinct().sorted()
+                                  .collect(Collectors.toList());
+        if (vary.contains("*")) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        long date = getDate(fields, HttpHeader.DATE, now);
+        long freshness;
+        long sMaxAge = getSeconds(cacheControl, "s-maxage");
+        long maxAge = getSeconds(cacheControl, "max-age");
+        if (sMaxAge >= 0) {
+            freshness = sMaxAge * 1000;
+        } else if (maxAge >= 0) {
+            freshness = maxAge * 1000;
+        } else if (fields.contains(HttpHeader.EXPIRES)) {
+            // the invalid date means the response has expired
+            freshness = getDate(fields, HttpHeader.EXPIRES, date) - date;
+        } else {
+            freshness = configuration.getDefaultMaxAge() * 1000;
+        }
+        long staleWhileRevalidate = getSeconds(cacheControl, "stale-while-revalidate");
+        if (staleWhileRevalidate < 0) {
+            staleWhileRevalidate = configuration.getDefaultStaleWhileRevalidate();
+        }
+
+        long age = Math.max(0, getSeconds(fields.get(HttpHeader.AGE)) * 1000) + Math.max(0, now - date);
+        long expiredTime = now + freshness - age;
+        long staleTime = expiredTime + staleWhileRevalidate * 1000;
+        if (staleTime <= now) {
+            return null;
+        }
+
+        if (vary.isEmpty()) {
+            varyIndex.remove(primaryKey);
+        } else {
+            varyIndex.put(primaryKey, vary);
+        }
+        String key = getVariantKey(primaryKey, ctx.getRequest());
+
+        HttpFields cachedFields = new HttpFields(fields);
+        cachedFields.remove(HttpHeader.CONTENT_LENGTH);
+        cachedFields.remove(HttpHeader.TRANSFER_ENCODING);
+        cachedFields.remove(HttpHeader.CONNECTION);
+        cachedFields.remove(HttpHeader.AGE);
+
+        CachedResponse cached = new CachedResponse(key, response.getStatus(), response.getReason(), cachedFields,
+                capture.getBody(configuration.isOffHeap()), now - age, expiredTime, staleTime,
+                fields.get(HttpHeader.ETAG), getDate(fields, HttpHeader.LAST_MODIFIED, -1));
+        if (!put(cached)) {
+            responses.remove(key);
+        }
+        return cached;
+    }
+
+    /**
+     * Store the response and evict the earliest stored responses if the total body bytes exceed the maxBytes.
+     *
+     * @param cached The response.
+     * @return If return false, the response body exceeds the maxBytes and it is not stored.
+     */
+    private boolean put(CachedResponse cached) {
+        int size = cached.body.remaining();
+        if (size > configuration.getMaxBytes()) {
+            return false;
+        }
+
+        synchronized (storedResponses) {
+            CachedResponse previous = storedResponses.remove(cached.key);
+            if (previous != null) {
+                storedBytes -= previous.body.remaining();
+            }
+            storedResponses.put(cached.key, cached);
+            storedBytes += size;
+            responses.put(cached.key, cached);
+
+            Iterator<CachedResponse> iterator = storedResponses.values().iterator();
+            while (storedBytes > configuration.getMaxBytes() && iterator.hasNext()) {
+                CachedResponse eldest = iterator.next();
+                iterator.remove();
+                storedBytes -= eldest.body.remaining();
+                responses.remove(eldest.key);
+            }
+        }
+        return true;
+    }
+
+    private void release(String key, CachedResponse value) {
+        if (value == null) {
+            return;
+        }
+
+        synchronized (storedResponses) {
+            if (storedResponses.get(key) == value) {
+                storedResponses.remove(key);
+                storedBytes -= value.body.remaining();
+            }
+        }
+    }
+
+    private void serve(RoutingContext ctx, CachedResponse cached, long now) {
+        SimpleResponse response = ctx.getResponse();
+        HttpFields fields = response.getFields();
+        for (String name : cached.fields.getFieldNamesCollection()) {
+            fields.remove(name);
+        }
+        fields.addAll(cached.fields);
+        fields.put(HttpHeader.AGE, String.valueOf(Math.max(0, now - cached.responseTime) / 1000));
+
+        if (isNotModified(ctx.getRequest(), cached)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED_304);
+            response.setReason(HttpStatus.getMessage(HttpStatus.NOT_MODIFIED_304));
+            ctx.end();
+            return;
+        }
+
+        response.setStatus(cached.status);
+        response.setReason(cached.reason);
+        fields.put(HttpHeader.CONTENT_LENGTH, String.valueOf(cached.body.remaining()));
+        if (cached.body.hasRemaining()) {
+            // the duplicate shares the cached content, the connection only reads it
+            response.write(cached.body.duplicate());
+        }
+        ctx.end();
+    }
+
+    private boolean isNotModified(SimpleRequest request, CachedResponse cached) {
+        String ifNoneMatch = request.getFields().get(HttpHeader.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            if (cached.etag == null) {
+                return false;
+            }
+            String etag = stripWeak(cached.etag);
+            for (String tag : request.getFields().getCSV(HttpHeader.IF_NONE_MATCH, true)) {
+                if (tag.equals("*") || stripWeak(tag).equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        if (cached.lastModified > 0) {
+            long ifModifiedSince = getDate(request.getFields(), HttpHeader.IF_MODIFIED_SINCE, -1);
+            return ifModifiedSince > 0 && cached.lastModified <= ifModifiedSince;
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static boolean isCacheableRequest(SimpleRequest request) {
+        if (!HttpMethod.GET.is(request.getMethod())) {
+            return false;
+        }
+
+        HttpFields fields = request.getFields();
+        // the shared cache does not store the authorized response
+        return !fields.contains(HttpHeader.AUTHORIZATION) && !parseCacheControl(fields).containsKey("no-store");
+    }
+
+    private static boolean isNoCacheRequest(SimpleRequest request) {
+        HttpFields fields = request.getFields();
+        Map<String, String> cacheControl = parseCacheControl(fields);
+        return cacheControl.containsKey("no-cache")
+                || getSeconds(cacheControl, "max-age") == 0
+                || fields.contains(HttpHeader.PRAGMA, "no-cache");
+    }
+
+    private static String getPrimaryKey(SimpleRequest request) {
+        HttpURI uri = request.getURI();
+        String host = request.getFields().get(HttpHeader.HOST);
+        if (host == null && uri.getHost() != null) {
+            host = uri.getPort() > 0 ? uri.getHost() + ":" + uri.getPort() : uri.getHost();
+        }
+        return request.getMethod() + " " + (host != null ? host : "") + uri.getPathQuery();
+    }
+
+    private String getVariantKey(String primaryKey, SimpleRequest request) {
+        List<String> vary = varyIndex.get(primaryKey);
+        if (vary == null) {
+            return primaryKey;
+        }
+
+        StringBuilder key = new StringBuilder(primaryKey);
+        for (String name : vary) {
+            key.append('\n').append(name).append(':');
+            List<String> values = request.getFields().getValuesList(name);
+            if (!values.isEmpty()) {
+                key.append(String.join(",", values));
+            }
+        }
+        return key.toString();
+    }
+
+    private static Map<String, String> parseCacheControl(HttpFields fields) {
+        List<String> directives = fields.getCSV(HttpHeader.CACHE_CONTROL, false);
+        if (directives.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> map = new HashMap<>();
+        for (String directive : directives) {
+            int i = directive.indexOf('=');
+            if (i < 0) {
+                map.put(directive.trim().toLowerCase(Locale.ENGLISH), "");
+            } else {
+                String value = directive.substring(i + 1).trim();
+                if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+                    value = value.substring(1, value.length() - 1);
+                }
+                map.put(directive.substring(0, i).trim().toLowerCase(Locale.ENGLISH), value);
+            }
+        }
+        return map;
+    }
+
+    private static long getSeconds(Map<String, String> cacheControl, String name) {
+        return getSeconds(cacheControl.get(name));
+    }
+
+    private static long getSeconds(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long getDate(HttpFields fields, HttpHeader header, long defaultValue) {
+        String value = fields.get(header);
+        if (value == null) {
+            return defaultValue;
+        }
+        long date = DateParser.parseDate(value);
+        return date == -1 ? defaultValue : date;
+    }
+
+    /**
+     * The requests that wait for the response of the same key.
+     */
+    private static class Fill {
+        private final List<RoutingContext> waiters = new ArrayList<>();
+        private boolean done;
+        private Scheduler.Future timer;
+
+        private synchronized void setTimer(Scheduler.Future timer) {
+            this.timer = timer;
+        }
+
+        private synchronized boolean addWaiter(RoutingContext ctx) {
+            if (done) {
+                return false;
+            }
+            // the server does not close the response when the request is complete, the fill completes it
+            SimpleResponse response = ctx.getResponse();
+            response.setAsynchronous(true);
+            response.closeCallback(() -> {
+                if (response.isAborted()) {
+                    // the stream is reset or the connection is broken, the fill does not hold the request
+                    removeWaiter(ctx);
+                }
+            });
+            waiters.add(ctx);
+            return true;
+        }
+
+        private synchronized void removeWaiter(RoutingContext ctx) {
+            waiters.remove(ctx);
+        }
+
+        /**
+         * Complete the fill once, by the response or the fill timeout.
+         *
+         * @return The waiting requests.
+         */
+        private synchronized List<RoutingContext> complete() {
+            if (done) {
+                return Collections.emptyList();
+            }
+            done = true;
+            if (timer != null) {
+                timer.cancel();
+            }
+            return new ArrayList<>(waiters);
+        }
+    }
+
+    /**
+     * The output of the background revalidation, the response is captured by the content callback.
+     */
+    private static class DiscardOutputStream extends HTTPOutputStream {
+
+        private DiscardOutputStream(MetaData.Response response) {
+            super(response, false);
+        }
+
+        @Override
+        public synchronized void commit() {
+            committed = true;
+        }
+
+        @Override
+        public synchronized void write(ByteBuffer data) {
+            committed = true;
+        }
+
+        @Override
+        public synchronized void close() {
+            committed = true;
+            closed = true;
+        }
+    }
+
+    /**
+     * Record the response body that the following handlers write.
+     */
+    private class Capture {
+        private final List<ByteBuffer> buffers = new ArrayList<>(2);
+        private int size;
+        private boolean overflow;
+
+        private void content(ByteBuffer buffer) {
+            if (overflow) {
+                return;
+            }
+
+            int remaining = buffer.remaining();
+            if (size + remaining > configuration.getMaxEntrySize()) {
+                overflow = true;
+                buffers.clear();
+                return;
+            }
+            ByteBuffer copy = ByteBuffer.allocate(remaining);
+            copy.put(buffer).flip();
+            buffers.add(copy);
+            size += remaining;
+        }
+
+        private ByteBuffer getBody(boolean offHeap) {
+            if (!offHeap && buffers.size() == 1) {
+                return buffers.get(0);
+            }
+
+            ByteBuffer body = offHeap ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+            for (ByteBuffer buffer : buffers) {
+                body.put(buffer);
+            }
+            body.flip();
+            return body;
+        }
+    }
+
+    private static class CachedResponse {
+        private final String key;
+        private final int status;
+        private final String reason;
+        private final HttpFields fields;
+        private final ByteBuffer body;
+        private final long responseTime;
+        private final long expiredTime;
+        private final long staleTime;
+        private final String etag;
+        private final long lastModified;
+
+        private CachedResponse(String key, int status, String reason, HttpFields fields, ByteBuffer body,
+                               long responseTime, long expiredTime, long staleTime, String etag, long lastModified) {
+            this.key = key;
+            this.status = status;
+            this.reason = reason;
+            this.fields = fields;
+            this.body = body;
+            this.responseTime = responseTime;
+            this.expiredTime = expiredTime;
+            this.staleTime = staleTime;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        private boolean isFresh(long now) {
+            return now < expiredTime;
+        }
+
+        private boolean isStaleWhileRevalidate(long now) {
+            return now < staleTime;
+        }
+    }
+}
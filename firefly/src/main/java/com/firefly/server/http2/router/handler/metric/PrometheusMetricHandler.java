@@ -0,0 +1,174 @@
+package com.firefly.server.http2.router.handler.metric;
+
+import com.codahale.metrics.*;
+import com.firefly.codec.http2.model.HttpHeader;
+import com.firefly.net.metric.HdrHistogramReservoir;
+import com.firefly.server.http2.router.Handler;
+import com.firefly.server.http2.router.RoutingContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export the metrics of the metric registry in the Prometheus text format.
+ * <p>
+ * The gauges and the counters are exported as the gauges, the meters are exported as the counters,
+ * and the histograms and the timers are exported as the summaries. The timer values are converted to seconds.
+ * The _sum of a summary is the cumulative sum if the metric is created by the {@link HdrHistogramReservoir},
+ * otherwise it is estimated by the snapshot mean and the count.
+ * The metric names are converted to the Prometheus names, the characters that are not letters or digits
+ * are replaced by the underscore. If the samples of two metrics get the same Prometheus name, only the metric
+ * whose registry name is first in the order of the registry is exported.
+ *
+ * @author Pengtao Qiu
+ */
+public class PrometheusMetricHandler implements Handler {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.75, 0.95, 0.99, 0.999};
+    private static final double NANOSECONDS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final MetricRegistry metricRegistry;
+
+    public PrometheusMetricHandler(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    @Override
+    public void handle(RoutingContext ctx) {
+        ctx.getResponse().setCharacterEncoding("UTF-8");
+        ctx.put(HttpHeader.CONTENT_TYPE, CONTENT_TYPE).end(export(metricRegistry));
+    }
+
+    /**
+     * Export the metrics in the Prometheus text format.
+     *
+     * @param metricRegistry The metric registry.
+     * @return The metrics text.
+     */
+    public static String export(MetricRegistry metricRegistry) {
+        StringBuilder s = new StringBuilder(4096);
+        Set<String> sampleNames = new HashSet<>();
+        for (Map.Entry<String, Metric> entry : metricRegistry.getMetrics().entrySet()) {
+            String name = toPrometheusName(entry.getKey());
+            Metric metric = entry.getValue();
+            if (metric instanceof Gauge) {
+                Object value = ((Gauge<?>) metric).getValue();
+                if (value instanceof Number) {
+                    if (reserve(sampleNames, entry.getKey(), name)) {
+                        appendType(s, name, "gauge");
+                        appendSample(s, name, ((Number) value).doubleValue());
+                    }
+                } else if (value instanceof Boolean) {
+                    if (reserve(sampleNames, entry.getKey(), name)) {
+                        appendType(s, name, "gauge");
+                        appendSample(s, name, (Boolean) value ? 1 : 0);
+                    }
+                }
+            } else if (metric instanceof Counter) {
+                // the codahale counter can be decreased
+                if (reserve(sampleNames, entry.getKey(), name)) {
+                    appendType(s, name, "gauge");
+                    appendSample(s, name, ((Counter) metric).getCount());
+                }
+            } else if (metric instanceof Timer) {
+                String summary = name + "_seconds";
+                if (!reserve(sampleNames, entry.getKey(), summary, summary + "_sum", summary + "_count")) {
+                    continue;
+                }
+                Timer timer = (Timer) metric;
+                Snapshot snapshot = timer.getSnapshot();
+                double sum = timer instanceof HdrHistogramReservoir.HdrTimer
+                        ? ((HdrHistogramReservoir.HdrTimer) timer).getSum()
+                        : snapshot.getMean() * timer.getCount();
+                appendSummary(s, summary, snapshot, timer.getCount(), sum, NANOSECONDS_PER_SECOND);
+            } else if (metric instanceof Histogram) {
+                if (!reserve(sampleNames, entry.getKey(), name, name + "_sum", name + "_count")) {
+                    continue;
+                }
+                Histogram histogram = (Histogram) metric;
+                Snapshot snapshot = histogram.getSnapshot();
+                double sum = histogram instanceof HdrHistogramReservoir.HdrHistogram
+                        ? ((HdrHistogramReservoir.HdrHistogram) histogram).getSum()
+                        : snapshot.getMean() * histogram.getCount();
+                appendSummary(s, name, snapshot, histogram.getCount(), sum, 1D);
+            } else if (metric instanceof Meter) {
+                String total = name + "_total";
+                if (reserve(sampleNames, entry.getKey(), total)) {
+                    appendType(s, total, "counter");
+                    appendSample(s, total, ((Meter) metric).getCount());
+                }
+            }
+        }
+        return s.toString();
+    }
+
+    private static boolean reserve(Set<String> sampleNames, String metricName, String... names) {
+        for (String name : names) {
+            if (sampleNames.contains(name)) {
+                log.warn("The metric {} is not exported, the Prometheus name {} is already used", metricName, name);
+                return false;
+            }
+        }
+        for (String name : names) {
+            sampleNames.add(name);
+        }
+        return true;
+    }
+
+    private static void appendSummary(StringBuilder s, String name, Snapshot snapshot, long count, double sum, double divisor) {
+        appendType(s, name, "summary");
+        for (double quantile : QUANTILES) {
+            s.append(name).append("{quantile=\"").append(quantile).append("\"} ");
+            appendValue(s, snapshot.getValue(quantile) / divisor);
+            s.append('\n');
+        }
+        appendSample(s, name + "_sum", sum / divisor);
+        appendSample(s, name + "_count", count);
+    }
+
+    private static void appendType(StringBuilder s, String name, String type) {
+        s.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void appendSample(StringBuilder s, String name, double value) {
+        s.append(name).append(' ');
+        appendValue(s, value);
+        s.append('\n');
+    }
+
+    private static void appendValue(StringBuilder s, double value) {
+        if (Double.isNaN(value)) {
+            s.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            s.append(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            s.append((long) value);
+        } else {
+            s.append(value);
+        }
+    }
+
+    public static String toPrometheusName(String name) {
+        StringBuilder s = new StringBuilder(name.length() + 1);
+        if (name.isEmpty() || Character.isDigit(name.charAt(0))) {
+            s.append('_');
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_') {
+                s.append(c);
+            } else {
+                s.append('_');
+            }
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,205 @@
+package com.firefly.server.http2.router.handler.proxy;
+
+import com.firefly.client.http2.SimpleHTTPClientConfiguration;
+import com.firefly.server.http2.router.RoutingContext;
+import com.firefly.utils.function.Func1;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class ReverseProxyConfiguration {
+
+    private List<String> upstreams = new ArrayList<>();
+    private int numberOfReplicas = 16;
+    private Func1<RoutingContext, Object> hashKey = ctx -> {
+        InetSocketAddress address = ctx.getRequest().getConnection().getRemoteAddress();
+        return address != null ? address.getAddress().getHostAddress() : "";
+    };
+    private long writeBufferHighWatermark = 256 * 1024;
+    private long writeBufferLowWatermark = 64 * 1024;
+    private long connectTimeout = 10 * 1000L;
+    private long requestTimeout = 60 * 1000L;
+    private long responseTimeout = 30 * 1000L;
+    private SimpleHTTPClientConfiguration clientConfiguration = new SimpleHTTPClientConfiguration();
+
+    /**
+     * Get the upstream servers.
+     *
+     * @return The upstream server URLs, such as "http://127.0.0.1:8080".
+     */
+    public List<String> getUpstreams() {
+        return upstreams;
+    }
+
+    /**
+     * Set the upstream servers. The requests are distributed to the upstream servers by the consistent hash
+     * of the hash key.
+     *
+     * @param upstreams The upstream server URLs, such as "http://127.0.0.1:8080".
+     */
+    public void setUpstreams(List<String> upstreams) {
+        this.upstreams = upstreams;
+    }
+
+    /**
+     * Get the virtual node number of every upstream server in the consistent hash circle.
+     *
+     * @return The virtual node number. The default value is 16.
+     */
+    public int getNumberOfReplicas() {
+        return numberOfReplicas;
+    }
+
+    /**
+     * Set the virtual node number of every upstream server in the consistent hash circle.
+     * The more virtual nodes, the more even the requests are distributed.
+     *
+     * @param numberOfReplicas The virtual node number. The default value is 16.
+     */
+    public void setNumberOfReplicas(int numberOfReplicas) {
+        this.numberOfReplicas = numberOfReplicas;
+    }
+
+    /**
+     * Get the function that computes the hash key of the request.
+     *
+     * @return The hash key function. The default key is the client IP address.
+     */
+    public Func1<RoutingContext, Object> getHashKey() {
+        return hashKey;
+    }
+
+    /**
+     * Set the function that computes the hash key of the request. The requests that have the same key
+     * are sent to the same upstream server.
+     *
+     * @param hashKey The hash key function. The default key is the client IP address.
+     */
+    public void setHashKey(Func1<RoutingContext, Object> hashKey) {
+        this.hashKey = hashKey;
+    }
+
+    /**
+     * Get the high watermark of the pending output bytes. If the pending output bytes of a connection exceed it,
+     * the proxy stops reading the other side until the pending output bytes drop to the low watermark.
+     *
+     * @return The high watermark. The default value is 256KB.
+     */
+    public long getWriteBufferHighWatermark() {
+        return writeBufferHighWatermark;
+    }
+
+    /**
+     * Set the high watermark of the pending output bytes. If the pending output bytes of a connection exceed it,
+     * the proxy stops reading the other side until the pending output bytes drop to the low watermark.
+     * The HTTP/2 client connection is shared by many streams, so it is not suspended. If the request body of
+     * an HTTP/2 client buffered by the proxy exceeds it, the proxy responds 502 instead.
+     *
+     * @param writeBufferHighWatermark The high watermark. The default value is 256KB.
+     */
+    public void setWriteBufferHighWatermark(long writeBufferHighWatermark) {
+        this.writeBufferHighWatermark = writeBufferHighWatermark;
+    }
+
+    /**
+     * Get the low watermark of the pending output bytes.
+     *
+     * @return The low watermark. The default value is 64KB.
+     */
+    public long getWriteBufferLowWatermark() {
+        return writeBufferLowWatermark;
+    }
+
+    /**
+     * Set the low watermark of the pending output bytes. When the pending output bytes drop to it,
+     * the proxy resumes reading the other side.
+     *
+     * @param writeBufferLowWatermark The low watermark. The default value is 64KB.
+     */
+    public void setWriteBufferLowWatermark(long writeBufferLowWatermark) {
+        this.writeBufferLowWatermark = writeBufferLowWatermark;
+    }
+
+    /**
+     * Get the max time of getting a connection of the upstream server.
+     *
+     * @return The connect timeout (millisecond). The default value is 10 seconds.
+     */
+    public long getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * Set the max time of getting a connection of the upstream server. If it expires, the proxy responds 504.
+     *
+     * @param connectTimeout The connect timeout (millisecond). The default value is 10 seconds.
+     *                       If it is less than or equal to 0, the proxy never times out.
+     */
+    public void setConnectTimeout(long connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * Get the max time of forwarding the request and its body to the upstream server.
+     *
+     * @return The request timeout (millisecond). The default value is 60 seconds.
+     */
+    public long getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /**
+     * Set the max time of forwarding the request and its body to the upstream server. It starts when the proxy
+     * receives the request, so the slow client that sends the body slowly can not hold the upstream connection.
+     * If it expires, the proxy responds 504 and closes the upstream connection.
+     *
+     * @param requestTimeout The request timeout (millisecond). The default value is 60 seconds.
+     *                       If it is less than or equal to 0, the proxy never times out.
+     */
+    public void setRequestTimeout(long requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Get the max time of waiting for the response header of the upstream server after the request is forwarded.
+     *
+     * @return The response timeout (millisecond). The default value is 30 seconds.
+     */
+    public long getResponseTimeout() {
+        return responseTimeout;
+    }
+
+    /**
+     * Set the max time of waiting for the response header of the upstream server after the request is forwarded.
+     * The response body is streamed, so it is not limited. If it expires, the proxy responds 504
+     * and closes the upstream connection.
+     *
+     * @param responseTimeout The response timeout (millisecond). The default value is 30 seconds.
+     *                        If it is less than or equal to 0, the proxy never times out.
+     */
+    public void setResponseTimeout(long responseTimeout) {
+        this.responseTimeout = responseTimeout;
+    }
+
+    /**
+     * Get the HTTP client configuration. The client keeps the connection pool of every upstream server.
+     *
+     * @return The HTTP client configuration.
+     */
+    public SimpleHTTPClientConfiguration getClientConfiguration() {
+        return clientConfiguration;
+    }
+
+    /**
+     * Set the HTTP client configuration. The client keeps the connection pool of every upstream server.
+     *
+     * @param clientConfiguration The HTTP client configuration.
+     */
+    public void setClientConfiguration(SimpleHTTPClientConfiguration clientConfiguration) {
+        this.clientConfiguration = clientConfiguration;
+    }
+}
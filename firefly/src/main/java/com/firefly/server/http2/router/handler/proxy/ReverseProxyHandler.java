@@ -0,0 +1,495 @@
+package com.firefly.server.http2.router.handler.proxy;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.firefly.client.http2.HTTPClientConnection;
+import com.firefly.client.http2.SimpleHTTPClient;
+import com.firefly.codec.http2.model.*;
+import com.firefly.codec.http2.stream.HTTPConnection;
+import com.firefly.codec.http2.stream.HTTPOutputStream;
+import com.firefly.net.metric.HdrHistogramReservoir;
+import com.firefly.server.http2.SimpleRequest;
+import com.firefly.server.http2.SimpleResponse;
+import com.firefly.server.http2.router.Handler;
+import com.firefly.server.http2.router.RoutingContext;
+import com.firefly.server.http2.router.handler.error.AbstractErrorResponseHandler;
+import com.firefly.server.http2.router.handler.error.DefaultErrorResponseHandlerLoader;
+import com.firefly.utils.collection.ConsistentHash;
+import com.firefly.utils.concurrent.Promise;
+import com.firefly.utils.concurrent.Scheduler;
+import com.firefly.utils.concurrent.Schedulers;
+import com.firefly.utils.io.EofException;
+import com.firefly.utils.io.IO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * The reverse proxy handler. It forwards the request to an upstream server that is selected by the consistent hash,
+ * and streams the request and response bodies between the client and the upstream server. The body buffers
+ * are handed off to the other connection without copying. The upstream connections are kept alive
+ * in the connection pools of the HTTP client.
+ * <p>
+ * If the pending output bytes of a connection exceed the high watermark, the proxy stops reading the other
+ * HTTP/1 connection until the pending output bytes drop to the low watermark. The HTTP/2 connection is not suspended,
+ * because it is shared by many streams, and the HTTP/2 session has acknowledged the received data before the handler
+ * sees it, so the flow control window can not hold the client back. If the request body of an HTTP/2 client
+ * that waits to be written exceeds the high watermark, the proxy responds 502 instead of buffering it.
+ * <p>
+ * The upstream connect, request and response timeouts are checked by a timing wheel. If one of them expires,
+ * the proxy responds 504.
+ * <p>
+ * The handler must receive the request before the HTTP body handler buffers the body, so it should be bound to
+ * a router whose id is less than 0, such as <code>router(-1)</code>.
+ *
+ * @author Pengtao Qiu
+ */
+public class ReverseProxyHandler implements Handler {
+
+    private static final Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private static final Set<String> hopByHopHeaders = new HashSet<>(Arrays.asList(
+            "connection", "keep-alive", "proxy-authenticate", "proxy-authorization", "proxy-connection",
+            "te", "trailer", "transfer-encoding", "upgrade"));
+
+    private final ReverseProxyConfiguration configuration;
+    private final SimpleHTTPClient client;
+    private final ConsistentHash<Upstream> upstreams;
+    private final AbstractErrorResponseHandler errorResponseHandler;
+    private final Scheduler scheduler = Schedulers.createTimingWheel();
+
+    public ReverseProxyHandler(ReverseProxyConfiguration configuration) {
+        this(configuration, new SimpleHTTPClient(configuration.getClientConfiguration()));
+    }
+
+    public ReverseProxyHandler(ReverseProxyConfiguration configuration, SimpleHTTPClient client) {
+        if (configuration.getUpstreams() == null || configuration.getUpstreams().isEmpty()) {
+            throw new IllegalArgumentException("the upstream servers are empty");
+        }
+
+        this.configuration = configuration;
+        this.client = client;
+        MetricRegistry metrics = configuration.getClientConfiguration().getTcpConfiguration()
+                                              .getMetricReporterFactory().getMetricRegistry();
+        List<Upstream> nodes = configuration.getUpstreams().stream()
+                                            .map(url -> new Upstream(url, metrics))
+                                            .collect(Collectors.toList());
+        upstreams = new ConsistentHash<>(null, configuration.getNumberOfReplicas(), null, nodes);
+        errorResponseHandler = DefaultErrorResponseHandlerLoader.getInstance().getHandler();
+    }
+
+    public ReverseProxyConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    public SimpleHTTPClient getClient() {
+        return client;
+    }
+
+    /**
+     * Stop the HTTP client, close the upstream connections and cancel the timeouts.
+     */
+    public void stop() {
+        client.stop();
+        scheduler.stop();
+    }
+
+    @Override
+    public void handle(RoutingContext ctx) {
+        Upstream upstream = upstreams.get(configuration.getHashKey().call(ctx));
+        new Exchange(ctx, upstream).start();
+    }
+
+    private static boolean isHopByHop(HttpField field, Set<String> connectionTokens) {
+        String name = field.getName().toLowerCase(Locale.ENGLISH);
+        return hopByHopHeaders.contains(name) || connectionTokens.contains(name);
+    }
+
+    private static Set<String> getConnectionTokens(HttpFields fields) {
+        List<String> values = fields.getCSV(HttpHeader.CONNECTION, false);
+        if (values.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return values.stream().map(v -> v.toLowerCase(Locale.ENGLISH)).collect(Collectors.toSet());
+    }
+
+    private static boolean hasBody(SimpleRequest request) {
+        long contentLength = request.getContentLength();
+        if (contentLength >= 0) {
+            return contentLength > 0;
+        }
+        if (request.getHttpVersion() == HttpVersion.HTTP_2) {
+            // the HTTP/2 request may send the data frames without the content length
+            return !HttpMethod.GET.is(request.getMethod()) && !HttpMethod.HEAD.is(request.getMethod());
+        }
+        return request.getFields().contains(HttpHeader.TRANSFER_ENCODING);
+    }
+
+    /**
+     * The forwarding state of a request.
+     */
+    private class Exchange {
+
+        private final RoutingContext ctx;
+        private final SimpleRequest request;
+        private final SimpleResponse response;
+        private final HTTPConnection downstream;
+        private final Upstream upstream;
+        private final long startTime = System.nanoTime();
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+        private volatile HTTPClientConnection upstreamConnection;
+        private volatile Scheduler.Future connectTimer;
+        private volatile Scheduler.Future requestTimer;
+        private volatile Scheduler.Future responseTimer;
+        private volatile boolean responseStarted;
+
+        // the request body that is received before the upstream output stream is ready, guarded by this
+        private final List<ByteBuffer> pendingBody = new LinkedList<>();
+        private long pendingBodyBytes;
+        private boolean bodyComplete;
+        private HTTPOutputStream upstreamOutput;
+
+        private Exchange(RoutingContext ctx, Upstream upstream) {
+            this.ctx = ctx;
+            this.request = ctx.getRequest();
+            this.response = ctx.getResponse();
+            this.downstream = request.getConnection();
+            this.upstream = upstream;
+        }
+
+        private void start() {
+            response.setAsynchronous(true);
+            upstream.requests.mark();
+            upstream.active.inc();
+            connectTimer = schedule(configuration.getConnectTimeout(), "connect the upstream server timeout");
+            requestTimer = schedule(configuration.getRequestTimeout(), "forward the request timeout");
+
+            SimpleHTTPClient.RequestBuilder builder;
+            try {
+                String pathQuery = request.getURI().getPathQuery();
+                builder = client.request(request.getMethod(), new URL(upstream.url + (pathQuery != null ? pathQuery : "/")));
+            } catch (MalformedURLException e) {
+                fail(e);
+                return;
+            }
+
+            copyRequestHeaders(builder);
+            boolean body = hasBody(request);
+            builder.connection(new Promise<HTTPClientConnection>() {
+                @Override
+                public void succeeded(HTTPClientConnection connection) {
+                    cancel(connectTimer);
+                    upstreamConnection = connection;
+                    if (completed.get()) {
+                        // the exchange has timed out before the connection is ready
+                        closeUpstream();
+                    } else if (!body) {
+                        requestForwarded();
+                    }
+                }
+
+                @Override
+                public void failed(Throwable x) {
+                    fail(x);
+                }
+            });
+
+            if (body) {
+                ctx.content(this::requestContent)
+                   .messageComplete(req -> requestComplete());
+                builder.output(new Promise<HTTPOutputStream>() {
+                    @Override
+                    public void succeeded(HTTPOutputStream output) {
+                        outputReady(output);
+                    }
+
+                    @Override
+                    public void failed(Throwable x) {
+                        fail(x);
+                    }
+                });
+            }
+
+            builder.headerComplete(this::responseHeader)
+                   .content(this::responseContent)
+                   .messageComplete(resp -> responseComplete())
+                   .badMessage((status, reason, resp) -> fail(new BadMessageException(status, reason)))
+                   .earlyEof(resp -> fail(new EofException("the upstream server closes the connection")))
+                   .end();
+        }
+
+        private void copyRequestHeaders(SimpleHTTPClient.RequestBuilder builder) {
+            HttpFields fields = request.getFields();
+            Set<String> connectionTokens = getConnectionTokens(fields);
+            for (HttpField field : fields) {
+                if (field.getHeader() != HttpHeader.HOST && !isHopByHop(field, connectionTokens)) {
+                    builder.add(field);
+                }
+            }
+
+            InetSocketAddress remoteAddress = downstream.getRemoteAddress();
+            if (remoteAddress != null) {
+                String forwardedFor = fields.get(HttpHeader.X_FORWARDED_FOR);
+                String clientAddress = remoteAddress.getAddress().getHostAddress();
+                builder.put(HttpHeader.X_FORWARDED_FOR,
+                        forwardedFor != null ? forwardedFor + ", " + clientAddress : clientAddress);
+            }
+            String host = fields.get(HttpHeader.HOST);
+            if (host != null) {
+                builder.put(HttpHeader.X_FORWARDED_HOST, host);
+            }
+            builder.put(HttpHeader.X_FORWARDED_PROTO, downstream.isEncrypted() ? "https" : "http");
+        }
+
+        private void requestContent(ByteBuffer buffer) {
+            if (completed.get()) {
+                // the exchange has failed, drop the rest of the request body
+                return;
+            }
+
+            HTTPOutputStream output;
+            boolean overflow = false;
+            synchronized (this) {
+                output = upstreamOutput;
+                if (output == null) {
+                    pendingBody.add(buffer);
+                    pendingBodyBytes += buffer.remaining();
+                    if (pendingBodyBytes > configuration.getWriteBufferHighWatermark()) {
+                        if (canSuspend(downstream)) {
+                            // resume reading when the upstream output stream is ready
+                            downstream.suspendRead();
+                        } else {
+                            overflow = true;
+                        }
+                    }
+                    if (!overflow) {
+                        return;
+                    }
+                }
+            }
+
+            if (!overflow) {
+                write(output, buffer);
+                if (canSuspend(downstream)) {
+                    applyBackpressure(upstreamConnection, downstream);
+                    return;
+                }
+                HTTPClientConnection connection = upstreamConnection;
+                overflow = connection != null
+                        && connection.getPendingOutputBytes() > configuration.getWriteBufferHighWatermark();
+            }
+            if (overflow) {
+                fail(new IllegalStateException("the request body of the HTTP/2 client exceeds the high watermark"));
+            }
+        }
+
+        private void requestComplete() {
+            HTTPOutputStream output;
+            synchronized (this) {
+                bodyComplete = true;
+                output = upstreamOutput;
+            }
+            if (output != null) {
+                IO.close(output);
+                requestForwarded();
+            }
+        }
+
+        /**
+         * The request and its body have been written to the upstream server, start waiting for the response.
+         */
+        private void requestForwarded() {
+            cancel(requestTimer);
+            if (responseStarted) {
+                return;
+            }
+            responseTimer = schedule(configuration.getResponseTimeout(), "wait for the upstream response timeout");
+            if (completed.get() || responseStarted) {
+                cancel(responseTimer);
+            }
+        }
+
+        private void outputReady(HTTPOutputStream output) {
+            boolean complete;
+            synchronized (this) {
+                for (ByteBuffer buffer : pendingBody) {
+                    write(output, buffer);
+                }
+                pendingBody.clear();
+                pendingBodyBytes = 0;
+                upstreamOutput = output;
+                complete = bodyComplete;
+            }
+
+            if (complete) {
+                IO.close(output);
+                requestForwarded();
+            } else if (downstream.getHttpVersion() != HttpVersion.HTTP_2) {
+                downstream.resumeRead();
+            }
+        }
+
+        private void write(HTTPOutputStream output, ByteBuffer buffer) {
+            try {
+                output.write(buffer);
+            } catch (IOException e) {
+                log.error("write the request body to the upstream server {} exception", upstream.name, e);
+            }
+        }
+
+        private void responseHeader(MetaData.Response upstreamResponse) {
+            responseStarted = true;
+            cancel(responseTimer);
+            if (completed.get()) {
+                return;
+            }
+
+            response.setStatus(upstreamResponse.getStatus());
+            response.setReason(upstreamResponse.getReason());
+            HttpFields fields = upstreamResponse.getFields();
+            Set<String> connectionTokens = getConnectionTokens(fields);
+            for (HttpField field : fields) {
+                if (!isHopByHop(field, connectionTokens)) {
+                    response.getFields().add(field);
+                }
+            }
+        }
+
+        private void responseContent(ByteBuffer buffer) {
+            if (completed.get()) {
+                return;
+            }
+            if (downstream.isClosed()) {
+                // the client is gone, the rest of the response can not be forwarded
+                IO.close(upstreamConnection);
+                return;
+            }
+            response.write(buffer);
+            applyBackpressure(downstream, upstreamConnection);
+        }
+
+        private void responseComplete() {
+            if (completed.compareAndSet(false, true)) {
+                cancelTimers();
+                upstream.active.dec();
+                upstream.responseTime.update(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                ctx.end();
+            }
+        }
+
+        private void fail(Throwable t) {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+
+            cancelTimers();
+            upstream.active.dec();
+            upstream.errors.mark();
+            log.warn("proxy the request {} to the upstream server {} exception. {}",
+                    request.getURI(), upstream.name, t.getMessage());
+            // the upstream connection may have a partial request or response
+            closeUpstream();
+            if (downstream.getHttpVersion() != HttpVersion.HTTP_2) {
+                downstream.resumeRead();
+            }
+            if (response.isCommitted()) {
+                // the status line has been sent, the client detects the truncated response by the closed connection
+                IO.close(downstream);
+            } else {
+                int status = t instanceof TimeoutException ? HttpStatus.GATEWAY_TIMEOUT_504 : HttpStatus.BAD_GATEWAY_502;
+                errorResponseHandler.render(ctx, status, t);
+            }
+        }
+
+        private void closeUpstream() {
+            HTTPClientConnection connection = upstreamConnection;
+            if (connection != null && connection.getHttpVersion() != HttpVersion.HTTP_2) {
+                // the HTTP/2 upstream connection is shared by the other exchanges
+                IO.close(connection);
+            }
+        }
+
+        private Scheduler.Future schedule(long timeout, String message) {
+            if (timeout <= 0) {
+                return null;
+            }
+            return scheduler.schedule(() -> fail(new TimeoutException(message)), timeout, TimeUnit.MILLISECONDS);
+        }
+
+        private void cancel(Scheduler.Future timer) {
+            if (timer != null) {
+                timer.cancel();
+            }
+        }
+
+        private void cancelTimers() {
+            cancel(connectTimer);
+            cancel(requestTimer);
+            cancel(responseTimer);
+        }
+
+        /**
+         * Stop reading the reader connection if the writer connection has too many pending output bytes.
+         */
+        private void applyBackpressure(HTTPConnection writer, HTTPConnection reader) {
+            if (writer == null || reader == null || !canSuspend(reader)) {
+                return;
+            }
+
+            if (writer.getPendingOutputBytes() > configuration.getWriteBufferHighWatermark()) {
+                reader.suspendRead();
+                writer.onOutputDrained(configuration.getWriteBufferLowWatermark(), reader::resumeRead);
+            }
+        }
+
+        private boolean canSuspend(HTTPConnection connection) {
+            return connection.getHttpVersion() != HttpVersion.HTTP_2;
+        }
+    }
+
+    /**
+     * The upstream server and its metrics.
+     */
+    private static class Upstream {
+        private final String url;
+        private final String name;
+        private final Meter requests;
+        private final Meter errors;
+        private final Counter active;
+        private final Timer responseTime;
+
+        private Upstream(String url, MetricRegistry metrics) {
+            try {
+                URL u = new URL(url);
+                int port = u.getPort() < 0 ? u.getDefaultPort() : u.getPort();
+                this.url = u.getProtocol() + "://" + u.getHost() + ":" + port;
+                this.name = u.getHost() + ":" + port;
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException("the upstream server url is illegal " + url, e);
+            }
+
+            String prefix = "http2.ReverseProxyHandler.upstream." + name;
+            requests = metrics.meter(prefix + ".requests");
+            errors = metrics.meter(prefix + ".errors");
+            active = metrics.counter(prefix + ".active");
+            responseTime = metrics.timer(prefix + ".response.time", HdrHistogramReservoir::newTimer);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
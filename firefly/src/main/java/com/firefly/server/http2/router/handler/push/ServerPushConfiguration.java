@@ -0,0 +1,191 @@
+package com.firefly.server.http2.router.handler.push;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class ServerPushConfiguration {
+
+    private String rootPath;
+    private long associatePeriod = 4000L;
+    private int maxAssociations = 16;
+    private int minAssociatedConnections = 3;
+    private long associationTimeToLive = 10 * 60 * 1000L;
+    private long fileCheckPeriod = 1000L;
+    private Executor executor = ForkJoinPool.commonPool();
+    private long maxPushBytesPerConnection = 1024 * 1024;
+    private int maxPrimaryResources = 1024;
+
+    /**
+     * Get the root path of the pushed static files.
+     *
+     * @return The root path of the pushed static files.
+     */
+    public String getRootPath() {
+        return rootPath;
+    }
+
+    /**
+     * Set the root path of the pushed static files. It is usually the same as the root path of the static file handler.
+     *
+     * @param rootPath The root path of the pushed static files.
+     */
+    public void setRootPath(String rootPath) {
+        this.rootPath = rootPath;
+    }
+
+    /**
+     * Get the period that the subresource requests are associated with the primary resource.
+     *
+     * @return The associate period (millisecond). The default value is 4000ms.
+     */
+    public long getAssociatePeriod() {
+        return associatePeriod;
+    }
+
+    /**
+     * Set the period that the subresource requests are associated with the primary resource.
+     * If a request refers to a primary resource that is requested in this period,
+     * the request path is learned as a subresource of the primary resource.
+     *
+     * @param associatePeriod The associate period (millisecond). The default value is 4000ms.
+     */
+    public void setAssociatePeriod(long associatePeriod) {
+        this.associatePeriod = associatePeriod;
+    }
+
+    /**
+     * Get the maximum number of the learned subresources of a primary resource.
+     *
+     * @return The maximum number of the learned subresources. The default value is 16.
+     */
+    public int getMaxAssociations() {
+        return maxAssociations;
+    }
+
+    /**
+     * Set the maximum number of the learned subresources of a primary resource.
+     *
+     * @param maxAssociations The maximum number of the learned subresources. The default value is 16.
+     */
+    public void setMaxAssociations(int maxAssociations) {
+        this.maxAssociations = maxAssociations;
+    }
+
+    /**
+     * Get the minimum number of the distinct connections that request a subresource before it is pushed.
+     *
+     * @return The minimum number of the distinct connections. The default value is 3.
+     */
+    public int getMinAssociatedConnections() {
+        return minAssociatedConnections;
+    }
+
+    /**
+     * Set the minimum number of the distinct connections that request a subresource before it is pushed.
+     * The Referer header is sent by the client, so a client can not make the server push a resource
+     * to the other clients by the forged Referer headers of one connection.
+     *
+     * @param minAssociatedConnections The minimum number of the distinct connections. The default value is 3.
+     */
+    public void setMinAssociatedConnections(int minAssociatedConnections) {
+        this.minAssociatedConnections = minAssociatedConnections;
+    }
+
+    /**
+     * Get the time that a learned subresource is kept after it is requested last time.
+     *
+     * @return The association time to live (millisecond). The default value is 10 minutes.
+     */
+    public long getAssociationTimeToLive() {
+        return associationTimeToLive;
+    }
+
+    /**
+     * Set the time that a learned subresource is kept after it is requested last time. The subresource that
+     * the page does not depend on anymore is not pushed after it expires, and it is learned again
+     * if the page still depends on it.
+     *
+     * @param associationTimeToLive The association time to live (millisecond). The default value is 10 minutes.
+     */
+    public void setAssociationTimeToLive(long associationTimeToLive) {
+        this.associationTimeToLive = associationTimeToLive;
+    }
+
+    /**
+     * Get the period that the metadata of a pushed file is cached.
+     *
+     * @return The file check period (millisecond). The default value is 1000ms.
+     */
+    public long getFileCheckPeriod() {
+        return fileCheckPeriod;
+    }
+
+    /**
+     * Set the period that the metadata of a pushed file is cached. The handler checks the file existence,
+     * length and last modified time once in this period instead of on every page request.
+     *
+     * @param fileCheckPeriod The file check period (millisecond). The default value is 1000ms.
+     */
+    public void setFileCheckPeriod(long fileCheckPeriod) {
+        this.fileCheckPeriod = fileCheckPeriod;
+    }
+
+    /**
+     * Get the executor that reads the pushed files.
+     *
+     * @return The executor that reads the pushed files. The default value is the common fork join pool.
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Set the executor that reads the pushed files. The files are read out of the HTTP/2 session thread.
+     *
+     * @param executor The executor that reads the pushed files. The default value is the common fork join pool.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Get the maximum bytes that are pushed on a connection.
+     *
+     * @return The maximum pushed bytes of a connection. The default value is 1MB.
+     */
+    public long getMaxPushBytesPerConnection() {
+        return maxPushBytesPerConnection;
+    }
+
+    /**
+     * Set the maximum bytes that are pushed on a connection. The pushed resources compete with the
+     * requested resources for the bandwidth, and the resources that exceed it are not pushed.
+     *
+     * @param maxPushBytesPerConnection The maximum pushed bytes of a connection. The default value is 1MB.
+     */
+    public void setMaxPushBytesPerConnection(long maxPushBytesPerConnection) {
+        this.maxPushBytesPerConnection = maxPushBytesPerConnection;
+    }
+
+    /**
+     * Get the maximum number of the primary resources that are tracked.
+     *
+     * @return The maximum number of the primary resources. The default value is 1024.
+     */
+    public int getMaxPrimaryResources() {
+        return maxPrimaryResources;
+    }
+
+    /**
+     * Set the maximum number of the primary resources that are tracked. The primary resources are evicted
+     * by the W-TinyLFU policy.
+     *
+     * @param maxPrimaryResources The maximum number of the primary resources. The default value is 1024.
+     */
+    public void setMaxPrimaryResources(int maxPrimaryResources) {
+        this.maxPrimaryResources = maxPrimaryResources;
+    }
+}
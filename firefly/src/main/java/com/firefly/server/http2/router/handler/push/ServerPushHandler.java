@@ -0,0 +1,360 @@
+package com.firefly.server.http2.router.handler.push;
+
+import com.firefly.codec.http2.model.*;
+import com.firefly.codec.http2.stream.HTTPConnection;
+import com.firefly.codec.http2.stream.HTTPOutputStream;
+import com.firefly.net.buffer.FileRegion;
+import com.firefly.server.http2.SimpleResponse;
+import com.firefly.server.http2.router.Handler;
+import com.firefly.server.http2.router.RoutingContext;
+import com.firefly.utils.StringUtils;
+import com.firefly.utils.collection.TinyLFUCache;
+import com.firefly.utils.concurrent.Callback;
+import com.firefly.utils.concurrent.Promise;
+import com.firefly.utils.io.IO;
+import com.firefly.utils.lang.URIUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The HTTP/2 server push handler. It pushes the static files that the page (primary resource) depends on
+ * before the page response is sent.
+ * <p>
+ * The dependencies are learned from the requests. When a request refers to a primary resource by the Referer header
+ * in the associate period after the primary resource is requested, its path is associated with the primary resource.
+ * The associated path is pushed after it is requested by the minAssociatedConnections distinct connections,
+ * so a client can not poison the pushed resources by the forged Referer headers, and the associations that
+ * are not requested in the associationTimeToLive are dropped.
+ * The dependencies are also declared by the <code>Link: &lt;/app.css&gt;; rel=preload</code> headers
+ * of the primary response, and they are pushed on the following requests of the primary resource.
+ * <p>
+ * The handler does not push when the client disables the push by the SETTINGS_ENABLE_PUSH parameter,
+ * or when the primary request is conditional, because the client likely has cached the subresources.
+ * A resource is pushed once on a connection, and the pushed bytes of a connection are bounded
+ * by the maxPushBytesPerConnection. The pushed files are streamed by the executor of the configuration
+ * with the ETag and Last-Modified headers, and their metadata is cached for the fileCheckPeriod.
+ * <p>
+ * The handler should be bound to a router before the static file handler and the template handlers,
+ * such as <code>router().get("*").handler(pushHandler)</code>.
+ *
+ * @author Pengtao Qiu
+ */
+public class ServerPushHandler implements Handler {
+
+    private static final Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private final ServerPushConfiguration configuration;
+    private final TinyLFUCache<String, PrimaryResource> primaryResources;
+    private final TinyLFUCache<String, PushedFile> pushedFiles;
+    private final Map<HTTPConnection, PushState> pushStates = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public ServerPushHandler(String rootPath) {
+        this(new ServerPushConfiguration());
+        configuration.setRootPath(rootPath);
+    }
+
+    public ServerPushHandler(ServerPushConfiguration configuration) {
+        this.configuration = configuration;
+        primaryResources = new TinyLFUCache<>(configuration.getMaxPrimaryResources());
+        pushedFiles = new TinyLFUCache<>(configuration.getMaxPrimaryResources());
+    }
+
+    public ServerPushConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Get the subresources of the primary resource. They consist of the preloaded resources
+     * and the learned resources that are requested by enough distinct connections.
+     *
+     * @param path The path of the primary resource.
+     * @return The paths of the subresources.
+     */
+    public Set<String> getSubresources(String path) {
+        PrimaryResource primary = primaryResources.get(path);
+        return primary != null ? primary.getSubresources(System.currentTimeMillis(), configuration) : Collections.emptySet();
+    }
+
+    @Override
+    public void handle(RoutingContext ctx) {
+        if (!HttpMethod.GET.is(ctx.getMethod()) || ctx.getHttpVersion() != HttpVersion.HTTP_2) {
+            ctx.next();
+            return;
+        }
+
+        String path = ctx.getURI().getPath();
+        if (!StringUtils.hasText(path)) {
+            ctx.next();
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        String referrerPath = getReferrerPath(ctx);
+        if (referrerPath != null) {
+            // the subresource request
+            if (!referrerPath.equals(path)) {
+                PrimaryResource primary = primaryResources.get(referrerPath);
+                if (primary != null && now - primary.timestamp < configuration.getAssociatePeriod()) {
+                    primary.associate(path, ctx.getRequest().getConnection().getSessionId(), now, configuration);
+                }
+            }
+            ctx.next();
+            return;
+        }
+
+        PrimaryResource primary = primaryResources.get(path, k -> new PrimaryResource());
+        primary.timestamp = now;
+        SimpleResponse response = ctx.getResponse();
+        if (response.isPushEnabled() && !isConditional(ctx)) {
+            primary.getSubresources(now, configuration).forEach(resource -> push(ctx, resource));
+        }
+        response.commitCallback(() -> primary.preloads = parsePreloads(response.getFields().getValuesList("Link")));
+        ctx.next();
+    }
+
+    protected void push(RoutingContext ctx, String path) {
+        String canonicalPath = URIUtils.canonicalPath(path);
+        if (canonicalPath == null) {
+            return;
+        }
+        PushedFile file = getPushedFile(canonicalPath);
+        if (file == null) {
+            return;
+        }
+
+        HTTPConnection connection = ctx.getRequest().getConnection();
+        PushState state = pushStates.computeIfAbsent(connection, c -> new PushState());
+        if (!state.reserve(canonicalPath, file.length, configuration.getMaxPushBytesPerConnection())) {
+            return;
+        }
+
+        HttpURI uri = ctx.getURI();
+        MetaData.Request request = new MetaData.Request(HttpMethod.GET.asString(),
+                new HttpURI(uri.getScheme(), uri.getHost(), uri.getPort(), canonicalPath),
+                HttpVersion.HTTP_2, new HttpFields());
+        HttpFields fields = new HttpFields();
+        if (StringUtils.hasText(file.mimeType)) {
+            fields.put(HttpHeader.CONTENT_TYPE, file.mimeType);
+        }
+        fields.put(HttpHeader.CONTENT_LENGTH, String.valueOf(file.length));
+        fields.put(HttpHeader.ETAG, file.etag);
+        fields.put(HttpHeader.LAST_MODIFIED, file.lastModifiedDate);
+        MetaData.Response response = new MetaData.Response(HttpVersion.HTTP_2, HttpStatus.OK_200, fields);
+        ctx.getResponse().push(request, response, new Promise<HTTPOutputStream>() {
+            @Override
+            public void succeeded(HTTPOutputStream output) {
+                // the promise completes in the HTTP/2 session thread, the file is read by the executor
+                configuration.getExecutor().execute(() -> write(output, file, canonicalPath));
+            }
+
+            @Override
+            public void failed(Throwable x) {
+                if (log.isDebugEnabled()) {
+                    log.debug("push the resource {} failure. {}", canonicalPath, x.getMessage());
+                }
+            }
+        });
+    }
+
+    protected void write(HTTPOutputStream output, PushedFile file, String path) {
+        if (file.length == 0) {
+            IO.close(output);
+            return;
+        }
+
+        try (FileRegion fileRegion = new FileRegion(file.file, 0, file.length)) {
+            long count = fileRegion.transferTo(Callback.NOOP, (buf, callback, c) -> output.write(buf));
+            if (count < file.length) {
+                log.warn("the pushed resource {} is truncated, the length is {}, the content is {}", path, file.length, count);
+            }
+        } catch (IOException e) {
+            log.error("push the resource " + path + " exception", e);
+        } finally {
+            IO.close(output);
+        }
+    }
+
+    /**
+     * Get the metadata of the pushed file. It is checked once in the fileCheckPeriod.
+     *
+     * @param path The canonical path of the file.
+     * @return The metadata of the file, or null if the file does not exist.
+     */
+    protected PushedFile getPushedFile(String path) {
+        long now = System.currentTimeMillis();
+        PushedFile file = pushedFiles.get(path);
+        if (file == null || now - file.checkTime >= configuration.getFileCheckPeriod()) {
+            file = new PushedFile(new File(configuration.getRootPath(), path), now);
+            pushedFiles.put(path, file);
+        }
+        return file.exists ? file : null;
+    }
+
+    protected boolean isConditional(RoutingContext ctx) {
+        HttpFields fields = ctx.getFields();
+        return fields.containsKey(HttpHeader.IF_NONE_MATCH.asString())
+                || fields.containsKey(HttpHeader.IF_MODIFIED_SINCE.asString());
+    }
+
+    protected String getReferrerPath(RoutingContext ctx) {
+        String referer = ctx.getFields().get(HttpHeader.REFERER);
+        if (!StringUtils.hasText(referer)) {
+            return null;
+        }
+
+        // the navigation request is a primary request even if it has the Referer header
+        String accept = ctx.getFields().get(HttpHeader.ACCEPT);
+        if (accept != null && accept.contains("text/html")) {
+            return null;
+        }
+
+        HttpURI referrerURI = new HttpURI(referer);
+        HttpURI uri = ctx.getURI();
+        if (referrerURI.getHost() != null && uri.getHost() != null
+                && (!referrerURI.getHost().equalsIgnoreCase(uri.getHost()) || referrerURI.getPort() != uri.getPort())) {
+            return null;
+        }
+        return referrerURI.getPath();
+    }
+
+    /**
+     * Parse the preloaded paths from the Link headers, such as <code>&lt;/app.css&gt;; rel=preload; as=style</code>.
+     * The links that have the nopush parameter or the other origin are ignored.
+     *
+     * @param links The values of the Link headers.
+     * @return The preloaded paths.
+     */
+    public static List<String> parsePreloads(List<String> links) {
+        if (links == null || links.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<String> preloads = new ArrayList<>();
+        for (String link : links) {
+            for (String value : StringUtils.split(link, ',')) {
+                String[] params = StringUtils.split(value, ';');
+                if (params.length < 2) {
+                    continue;
+                }
+                String target = params[0].trim();
+                if (!target.startsWith("<") || !target.endsWith(">")) {
+                    continue;
+                }
+                String path = target.substring(1, target.length() - 1).trim();
+                if (!path.startsWith("/") || path.startsWith("//")) {
+                    continue;
+                }
+
+                boolean preload = false;
+                boolean nopush = false;
+                for (int i = 1; i < params.length; i++) {
+                    String param = params[i].trim().replace("\"", "").toLowerCase();
+                    if (param.equals("nopush")) {
+                        nopush = true;
+                    } else if (param.startsWith("rel=")) {
+                        preload = Arrays.asList(StringUtils.split(param.substring(4), ' ')).contains("preload");
+                    }
+                }
+                if (preload && !nopush) {
+                    preloads.add(path);
+                }
+            }
+        }
+        return preloads;
+    }
+
+    private static class PrimaryResource {
+        private volatile long timestamp;
+        private volatile List<String> preloads = Collections.emptyList();
+        private final Map<String, Association> associations = new ConcurrentHashMap<>();
+
+        private void associate(String path, int connectionId, long now, ServerPushConfiguration configuration) {
+            associations.values().removeIf(a -> a.isExpired(now, configuration.getAssociationTimeToLive()));
+            Association association = associations.get(path);
+            if (association == null) {
+                if (associations.size() >= configuration.getMaxAssociations()) {
+                    return;
+                }
+                association = associations.computeIfAbsent(path, k -> new Association());
+            }
+            association.observe(connectionId, now, configuration.getMinAssociatedConnections());
+        }
+
+        private Set<String> getSubresources(long now, ServerPushConfiguration configuration) {
+            Set<String> subresources = new LinkedHashSet<>(preloads);
+            associations.forEach((path, association) -> {
+                if (!association.isExpired(now, configuration.getAssociationTimeToLive())
+                        && association.getConnections() >= configuration.getMinAssociatedConnections()) {
+                    subresources.add(path);
+                }
+            });
+            return subresources;
+        }
+    }
+
+    /**
+     * The distinct connections that request a subresource with the Referer of the primary resource.
+     */
+    private static class Association {
+        private final Set<Integer> connectionIds = new HashSet<>();
+        private volatile long lastTime;
+
+        private synchronized void observe(int connectionId, long now, int minConnections) {
+            lastTime = now;
+            if (connectionIds.size() < minConnections) {
+                connectionIds.add(connectionId);
+            }
+        }
+
+        private synchronized int getConnections() {
+            return connectionIds.size();
+        }
+
+        private boolean isExpired(long now, long timeToLive) {
+            return now - lastTime >= timeToLive;
+        }
+    }
+
+    /**
+     * The cached metadata of a pushed file.
+     */
+    protected static class PushedFile {
+        private final File file;
+        private final long checkTime;
+        private final boolean exists;
+        private final long length;
+        private final String mimeType;
+        private final String etag;
+        private final String lastModifiedDate;
+
+        private PushedFile(File file, long checkTime) {
+            this.file = file;
+            this.checkTime = checkTime;
+            this.exists = file.isFile();
+            this.length = exists ? file.length() : 0;
+            long lastModified = exists ? file.lastModified() : 0;
+            this.mimeType = MimeTypes.getDefaultMimeByExtension(file.getName());
+            this.etag = "W/\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"";
+            this.lastModifiedDate = DateGenerator.formatDate(lastModified);
+        }
+    }
+
+    private static class PushState {
+        private final Set<String> pushedPaths = new HashSet<>();
+        private long pushedBytes;
+
+        private synchronized boolean reserve(String path, long length, long maxPushBytes) {
+            if (pushedPaths.contains(path) || pushedBytes + length > maxPushBytes) {
+                return false;
+            }
+            pushedPaths.add(path);
+            pushedBytes += length;
+            return true;
+        }
+    }
+}
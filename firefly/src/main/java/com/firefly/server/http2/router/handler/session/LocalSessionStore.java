@@ -25,7 +25,7 @@ public class LocalSessionStore extends AbstractLifeCycle implements SessionStore
     private static Logger log = LoggerFactory.getLogger("firefly-system");
 
     private final ConcurrentMap<String, HTTPSession> map = new ConcurrentHashMap<>();
-    private final Scheduler scheduler = Schedulers.createScheduler();
+    private final Scheduler scheduler = Schedulers.createTimingWheel(100, TimeUnit.MILLISECONDS);
 
     public LocalSessionStore() {
         start();
@@ -12,6 +12,14 @@ import java.util.*;
  */
 abstract public class AbstractPatternMatcher implements Matcher {
 
+    private static final String[] PARAM_NAMES = new String[16];
+
+    static {
+        for (int i = 0; i < PARAM_NAMES.length; i++) {
+            PARAM_NAMES[i] = "param" + i;
+        }
+    }
+
     protected Map<PatternRule, Set<Router>> patternMap;
 
     protected static class PatternRule {
@@ -55,23 +63,30 @@ abstract public class AbstractPatternMatcher implements Matcher {
             return null;
         }
 
-        Set<Router> routers = new HashSet<>();
-        Map<Router, Map<String, String>> parameters = new HashMap<>();
-
-        patternMap.forEach((rule, routerSet) -> {
-            String[] strings = rule.pattern.match(v);
+        // the result is created when the first rule matches, most requests match a few rules
+        Set<Router> routers = null;
+        Map<Router, Map<String, String>> parameters = null;
+        for (Map.Entry<PatternRule, Set<Router>> e : patternMap.entrySet()) {
+            String[] strings = e.getKey().pattern.match(v);
             if (strings != null) {
+                if (routers == null) {
+                    routers = new HashSet<>();
+                    parameters = new HashMap<>();
+                }
+                Set<Router> routerSet = e.getValue();
                 routers.addAll(routerSet);
                 if (strings.length > 0) {
                     Map<String, String> param = new HashMap<>();
                     for (int i = 0; i < strings.length; i++) {
-                        param.put("param" + i, strings[i]);
+                        param.put(i < PARAM_NAMES.length ? PARAM_NAMES[i] : "param" + i, strings[i]);
+                    }
+                    for (Router router : routerSet) {
+                        parameters.put(router, param);
                     }
-                    routerSet.forEach(router -> parameters.put(router, param));
                 }
             }
-        });
-        if (routers.isEmpty()) {
+        }
+        if (routers == null) {
             return null;
         } else {
             return new MatchResult(routers, parameters, getMatchType());
@@ -88,30 +88,45 @@ public class RouterManagerImpl implements RouterManager {
         findRouter(accept, Matcher.MatchType.ACCEPT, routerMatchTypes, routerParameters);
 
         NavigableSet<RouterMatchResult> ret = new TreeSet<>();
-        routerMatchTypes.entrySet()
-                        .stream()
-                        .filter(e -> e.getKey().isEnable())
-                        .filter(e -> e.getKey().getMatchTypes().equals(e.getValue()))
-                        .map(e -> new RouterMatchResult(e.getKey(), routerParameters.get(e.getKey()), e.getValue()))
-                        .forEach(ret::add);
+        for (Map.Entry<Router, Set<Matcher.MatchType>> e : routerMatchTypes.entrySet()) {
+            Router router = e.getKey();
+            if (router.isEnable() && router.getMatchTypes().equals(e.getValue())) {
+                ret.add(new RouterMatchResult(router, routerParameters.get(router), e.getValue()));
+            }
+        }
         return ret;
     }
 
     private void findRouter(String value, Matcher.MatchType matchType,
                             Map<Router, Set<Matcher.MatchType>> routerMatchTypes,
                             Map<Router, Map<String, String>> routerParameters) {
-        matcherMap.get(matchType)
-                  .stream()
-                  .map(m -> m.match(value))
-                  .filter(Objects::nonNull)
-                  .forEach(result -> result.getRouters().forEach(router -> {
-                      routerMatchTypes.computeIfAbsent(router, k -> new HashSet<>())
-                                      .add(result.getMatchType());
-                      if (!CollectionUtils.isEmpty(result.getParameters())) {
-                          routerParameters.computeIfAbsent(router, k -> new HashMap<>())
-                                          .putAll(result.getParameters().get(router));
-                      }
-                  }));
+        // it is called for every request, so it uses the loops instead of the streams and lambdas
+        for (Matcher matcher : matcherMap.get(matchType)) {
+            Matcher.MatchResult result = matcher.match(value);
+            if (result == null) {
+                continue;
+            }
+
+            for (Router router : result.getRouters()) {
+                Set<Matcher.MatchType> matchTypes = routerMatchTypes.get(router);
+                if (matchTypes == null) {
+                    matchTypes = EnumSet.noneOf(Matcher.MatchType.class);
+                    routerMatchTypes.put(router, matchTypes);
+                }
+                matchTypes.add(result.getMatchType());
+                if (!CollectionUtils.isEmpty(result.getParameters())) {
+                    Map<String, String> parameters = result.getParameters().get(router);
+                    if (parameters != null) {
+                        Map<String, String> map = routerParameters.get(router);
+                        if (map == null) {
+                            map = new HashMap<>();
+                            routerParameters.put(router, map);
+                        }
+                        map.putAll(parameters);
+                    }
+                }
+            }
+        }
     }
 
     @Override
@@ -3,6 +3,7 @@ package com.firefly.server.http2.router.impl;
 import com.firefly.server.http2.SimpleRequest;
 import com.firefly.server.http2.SimpleResponse;
 import com.firefly.server.http2.router.HTTPSession;
+import com.firefly.server.http2.router.Handler;
 import com.firefly.server.http2.router.RouterManager;
 import com.firefly.server.http2.router.RoutingContext;
 import com.firefly.server.http2.router.handler.template.TemplateHandlerSPILoader;
@@ -30,13 +31,14 @@ import java.util.concurrent.ConcurrentLinkedDeque;
  */
 public class RoutingContextImpl implements RoutingContext {
 
+    // the routing context is confined to the thread that calls the handlers,
+    // the asynchronous handlers are called after the handlers are handed off to the other thread
     private final SimpleRequest request;
     private final NavigableSet<RouterManager.RouterMatchResult> routers;
-    private volatile RouterManager.RouterMatchResult current;
-    private volatile HTTPBodyHandlerSPI httpBodyHandlerSPI;
-    private volatile HTTPSessionHandlerSPI httpSessionHandlerSPI;
-    private final TemplateHandlerSPI templateHandlerSPI = TemplateHandlerSPILoader.getInstance().getTemplateHandlerSPI();
-    private volatile boolean asynchronousRead;
+    private RouterManager.RouterMatchResult current;
+    private HTTPBodyHandlerSPI httpBodyHandlerSPI;
+    private HTTPSessionHandlerSPI httpSessionHandlerSPI;
+    private boolean asynchronousRead;
     private volatile ConcurrentLinkedDeque<Promise<?>> handlerPromiseQueue;
 
     public RoutingContextImpl(SimpleRequest request, NavigableSet<RouterManager.RouterMatchResult> routers) {
@@ -81,7 +83,8 @@ public class RoutingContextImpl implements RoutingContext {
 
     @Override
     public String getRouterParameter(String name) {
-        return current.getParameters().get(name);
+        Map<String, String> parameters = current.getParameters();
+        return parameters != null ? parameters.get(name) : null;
     }
 
     @Override
@@ -110,18 +113,34 @@ public class RoutingContextImpl implements RoutingContext {
         return asynchronousRead;
     }
 
+    /**
+     * Create a routing context that runs the remaining handlers of this context for another request,
+     * such as the background revalidation of the cached response. It shares the body and session handler SPIs.
+     *
+     * @param request The request.
+     * @return The new routing context.
+     */
+    public RoutingContextImpl copy(SimpleRequest request) {
+        RoutingContextImpl ctx = new RoutingContextImpl(request, new TreeSet<>(routers));
+        ctx.httpBodyHandlerSPI = httpBodyHandlerSPI;
+        ctx.httpSessionHandlerSPI = httpSessionHandlerSPI;
+        return ctx;
+    }
+
     @Override
     public boolean next() {
         current = routers.pollFirst();
-        return Optional.ofNullable(current)
-                       .map(RouterManager.RouterMatchResult::getRouter)
-                       .map(c -> (RouterImpl) c)
-                       .map(RouterImpl::getHandler)
-                       .map(handler -> {
-                           handler.handle(this);
-                           return true;
-                       })
-                       .orElse(false);
+        if (current == null) {
+            return false;
+        }
+
+        Handler handler = ((RouterImpl) current.getRouter()).getHandler();
+        if (handler == null) {
+            return false;
+        }
+
+        handler.handle(this);
+        return true;
     }
 
     @Override
@@ -172,23 +191,19 @@ public class RoutingContextImpl implements RoutingContext {
 
     @Override
     public String getParameter(String name) {
-        return Optional.ofNullable(httpBodyHandlerSPI)
-                       .map(s -> s.getParameter(name))
-                       .orElse(null);
+        return httpBodyHandlerSPI != null ? httpBodyHandlerSPI.getParameter(name) : null;
     }
 
     @Override
     public List<String> getParameterValues(String name) {
-        return Optional.ofNullable(httpBodyHandlerSPI)
-                       .map(s -> s.getParameterValues(name))
-                       .orElse(Collections.emptyList());
+        List<String> values = httpBodyHandlerSPI != null ? httpBodyHandlerSPI.getParameterValues(name) : null;
+        return values != null ? values : Collections.emptyList();
     }
 
     @Override
     public Map<String, List<String>> getParameterMap() {
-        return Optional.ofNullable(httpBodyHandlerSPI)
-                       .map(HTTPBodyHandlerSPI::getParameterMap)
-                       .orElse(Collections.emptyMap());
+        Map<String, List<String>> map = httpBodyHandlerSPI != null ? httpBodyHandlerSPI.getParameterMap() : null;
+        return map != null ? map : Collections.emptyMap();
     }
 
     @Override
@@ -335,16 +350,20 @@ public class RoutingContextImpl implements RoutingContext {
 
     @Override
     public void renderTemplate(String resourceName, Object scope) {
-        templateHandlerSPI.renderTemplate(this, resourceName, scope);
+        getTemplateHandlerSPI().renderTemplate(this, resourceName, scope);
     }
 
     @Override
     public void renderTemplate(String resourceName, Object[] scopes) {
-        templateHandlerSPI.renderTemplate(this, resourceName, scopes);
+        getTemplateHandlerSPI().renderTemplate(this, resourceName, scopes);
     }
 
     @Override
     public void renderTemplate(String resourceName, List<Object> scopes) {
-        templateHandlerSPI.renderTemplate(this, resourceName, scopes);
+        getTemplateHandlerSPI().renderTemplate(this, resourceName, scopes);
+    }
+
+    private TemplateHandlerSPI getTemplateHandlerSPI() {
+        return TemplateHandlerSPILoader.getInstance().getTemplateHandlerSPI();
     }
 }
@@ -27,6 +27,7 @@ public class MockSessionFactory {
         public Object attachment;
         public boolean isOpen = true;
         public final LinkedList<ByteBuffer> outboundData;
+        public final LinkedList<ByteBuffer> inboundData = new LinkedList<>();
 
         public AbstractMockSession(LinkedList<ByteBuffer> outboundData) {
             this.outboundData = outboundData;
@@ -50,6 +51,11 @@ public class MockSessionFactory {
             }
         }
 
+        @Override
+        public void decode(ByteBuffer buffer) {
+            inboundData.offer(buffer);
+        }
+
         @Override
         public boolean isOpen() {
             return isOpen;
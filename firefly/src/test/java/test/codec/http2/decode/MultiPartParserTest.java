@@ -0,0 +1,228 @@
+package test.codec.http2.decode;
+
+import com.firefly.codec.http2.decode.MultiPartParser;
+import com.firefly.codec.http2.model.MultiPartFormParser;
+import com.firefly.utils.io.BufferUtils;
+import com.firefly.utils.io.IO;
+import org.junit.Test;
+
+import javax.servlet.MultipartConfigElement;
+import javax.servlet.http.Part;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class MultiPartParserTest {
+
+    private static final String BOUNDARY = "AaB03x";
+
+    private String createMultiPart(String fileContent) {
+        return "preamble\r\n" +
+                "--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"field1\"\r\n" +
+                "\r\n" +
+                "Joe Blow\r\n" +
+                "--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"file1\"; filename=\"poem.txt\"\r\n" +
+                "Content-Type: text/plain\r\n" +
+                "\r\n" +
+                fileContent + "\r\n" +
+                "--" + BOUNDARY + "--\r\n" +
+                "epilogue";
+    }
+
+    @Test
+    public void testSplitBuffers() {
+        String fileContent = "line1\r\n--AaB03 is not a boundary\r\n-\r\nline3";
+        byte[] data = createMultiPart(fileContent).getBytes(StandardCharsets.UTF_8);
+
+        // the delimiter may be split at any position
+        for (int chunkSize = 1; chunkSize <= data.length; chunkSize++) {
+            List<String> fields = new ArrayList<>();
+            List<String> contents = new ArrayList<>();
+            StringBuilder content = new StringBuilder();
+            boolean[] complete = new boolean[1];
+            MultiPartParser parser = new MultiPartParser(new MultiPartParser.Handler() {
+                @Override
+                public void parsedField(String name, String value) {
+                    fields.add(name + ": " + value);
+                }
+
+                @Override
+                public void content(ByteBuffer buffer, boolean last) {
+                    content.append(BufferUtils.toString(buffer, StandardCharsets.UTF_8));
+                    if (last) {
+                        contents.add(content.toString());
+                        content.setLength(0);
+                    }
+                }
+
+                @Override
+                public void messageComplete() {
+                    complete[0] = true;
+                }
+            }, BOUNDARY);
+
+            for (int i = 0; i < data.length; i += chunkSize) {
+                int len = Math.min(chunkSize, data.length - i);
+                parser.parse(ByteBuffer.wrap(data, i, len), i + len == data.length);
+            }
+
+            assertThat(complete[0], is(true));
+            assertThat(fields.size(), is(3));
+            assertThat(fields.get(2), is("Content-Type: text/plain"));
+            assertThat(contents.size(), is(2));
+            assertThat(contents.get(0), is("Joe Blow"));
+            assertThat(contents.get(1), is(fileContent));
+        }
+    }
+
+    @Test
+    public void testIncomplete() {
+        String data = "--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"field1\"\r\n" +
+                "\r\n" +
+                "Joe Blow";
+        boolean[] earlyEOF = new boolean[1];
+        MultiPartParser parser = new MultiPartParser(new MultiPartParser.Handler() {
+            @Override
+            public void earlyEOF() {
+                earlyEOF[0] = true;
+            }
+        }, BOUNDARY);
+        parser.parse(BufferUtils.toBuffer(data, StandardCharsets.UTF_8), true);
+        assertThat(earlyEOF[0], is(true));
+    }
+
+    @Test
+    public void testFormParserSpoolsToFile() throws IOException {
+        StringBuilder fileContent = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            fileContent.append("the file content line ").append(i).append("\r\n");
+        }
+        byte[] data = createMultiPart(fileContent.toString()).getBytes(StandardCharsets.UTF_8);
+
+        File tmpDir = new File(System.getProperty("java.io.tmpdir"));
+        MultipartConfigElement config = new MultipartConfigElement(tmpDir.getAbsolutePath(), 64 * 1024, 128 * 1024, 1024);
+        MultiPartFormParser parser = new MultiPartFormParser("multipart/form-data; boundary=" + BOUNDARY, config, tmpDir);
+        for (int i = 0; i < data.length; i += 100) {
+            int len = Math.min(100, data.length - i);
+            parser.parse(ByteBuffer.wrap(data, i, len), false);
+        }
+        parser.parse(BufferUtils.EMPTY_BUFFER, true);
+
+        assertThat(parser.getParts().size(), is(2));
+        Part field = parser.getPart("field1");
+        assertThat(((MultiPartFormParser.FormPart) field).getFile(), nullValue());
+        assertThat(new String(((MultiPartFormParser.FormPart) field).getBytes(), StandardCharsets.UTF_8), is("Joe Blow"));
+
+        MultiPartFormParser.FormPart file = (MultiPartFormParser.FormPart) parser.getPart("file1");
+        assertThat(file.getSubmittedFileName(), is("poem.txt"));
+        assertThat(file.getContentType(), is("text/plain"));
+        assertThat(file.getFile(), notNullValue());
+        assertThat(file.getSize(), is((long) fileContent.length()));
+        try (InputStream in = file.getInputStream()) {
+            assertThat(IO.toString(in, "UTF-8"), is(fileContent.toString()));
+        }
+
+        File spooled = file.getFile();
+        parser.deleteParts();
+        assertThat(spooled.exists(), is(false));
+    }
+
+    @Test
+    public void testPartListener() throws IOException {
+        byte[] data = createMultiPart("streaming content").getBytes(StandardCharsets.UTF_8);
+        StringBuilder received = new StringBuilder();
+        List<String> completedParts = new ArrayList<>();
+        MultiPartFormParser parser = new MultiPartFormParser("multipart/form-data; boundary=" + BOUNDARY,
+                null, null, new MultiPartFormParser.PartListener() {
+            @Override
+            public boolean headerComplete(Part part) {
+                return part.getSubmittedFileName() != null;
+            }
+
+            @Override
+            public void content(Part part, ByteBuffer buffer, boolean last) {
+                received.append(BufferUtils.toString(buffer, StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public void partComplete(Part part) {
+                completedParts.add(part.getName());
+            }
+        });
+        parser.parse(ByteBuffer.wrap(data), true);
+
+        assertThat(received.toString(), is("streaming content"));
+        assertThat(completedParts, is(Arrays.asList("field1", "file1")));
+        assertThat(parser.getPart("file1").getSize(), is(17L));
+        assertThat(((MultiPartFormParser.FormPart) parser.getPart("file1")).getBytes(), nullValue());
+    }
+
+    @Test
+    public void testMaxRequestSize() {
+        byte[] data = createMultiPart("the content is too large").getBytes(StandardCharsets.UTF_8);
+        MultipartConfigElement config = new MultipartConfigElement(null, 1024, 64, 1024);
+        MultiPartFormParser parser = new MultiPartFormParser("multipart/form-data; boundary=" + BOUNDARY, config, null);
+        parser.parse(ByteBuffer.wrap(data), true);
+        try {
+            parser.getParts();
+            fail("the request exceeds max request size");
+        } catch (IllegalStateException | IOException e) {
+            assertThat(e.getMessage(), containsString("maxRequestSize"));
+        }
+        assertThat(parser.getErrorStatus(), is(413));
+    }
+
+    @Test
+    public void testContentTransferEncoding() throws IOException {
+        String data = "--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"base64\"\r\n" +
+                "Content-Transfer-Encoding: base64\r\n" +
+                "\r\n" +
+                "aGVsbG8g\r\nd29ybGQ=\r\n" +
+                "--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"qp\"\r\n" +
+                "Content-Transfer-Encoding: quoted-printable\r\n" +
+                "\r\n" +
+                "caf=C3=A9 soft=\r\nbreak\r\n" +
+                "--" + BOUNDARY + "--\r\n";
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        MultiPartFormParser parser = new MultiPartFormParser("multipart/form-data; boundary=" + BOUNDARY, null, null);
+        // the encoded units are split across the buffers
+        for (byte b : bytes) {
+            parser.parse(ByteBuffer.wrap(new byte[]{b}), false);
+        }
+        parser.parse(BufferUtils.EMPTY_BUFFER, true);
+
+        assertThat(new String(((MultiPartFormParser.FormPart) parser.getPart("base64")).getBytes(), StandardCharsets.UTF_8), is("hello world"));
+        assertThat(new String(((MultiPartFormParser.FormPart) parser.getPart("qp")).getBytes(), StandardCharsets.UTF_8), is("café softbreak"));
+    }
+
+    @Test
+    public void testIllegalBase64() {
+        String data = "--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"base64\"\r\n" +
+                "Content-Transfer-Encoding: base64\r\n" +
+                "\r\n" +
+                "aGVsb*8=\r\n" +
+                "--" + BOUNDARY + "--\r\n";
+        MultiPartFormParser parser = new MultiPartFormParser("multipart/form-data; boundary=" + BOUNDARY, null, null);
+        parser.parse(BufferUtils.toBuffer(data, StandardCharsets.UTF_8), true);
+        assertThat(parser.getError(), notNullValue());
+        assertThat(parser.getErrorStatus(), is(400));
+    }
+}
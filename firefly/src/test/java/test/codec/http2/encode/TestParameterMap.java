@@ -0,0 +1,128 @@
+package test.codec.http2.encode;
+
+import com.firefly.codec.http2.encode.ParameterMap;
+import com.firefly.codec.http2.encode.UrlEncoded;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestParameterMap {
+
+    @Test
+    public void testDecode() {
+        ParameterMap map = new ParameterMap();
+        map.decode("name=Pengtao&age=18&tag=a&tag=b+c&flag&empty=&=x&%E4%BD%A0=%E5%A5%BD", StandardCharsets.UTF_8);
+
+        Assert.assertThat(map.getString("name"), is("Pengtao"));
+        Assert.assertThat(map.getString("age"), is("18"));
+        Assert.assertThat(map.getString("tag"), is("a,b c"));
+        Assert.assertThat(map.getValues("tag"), is(Arrays.asList("a", "b c")));
+        Assert.assertThat(map.getString("flag"), is(""));
+        Assert.assertThat(map.getString("empty"), is(""));
+        Assert.assertThat(map.getString(""), is("x"));
+        Assert.assertThat(map.getString("你"), is("好"));
+        Assert.assertThat(map.getString("none"), nullValue());
+        Assert.assertThat(map.getValues("none"), nullValue());
+        Assert.assertThat(map.size(), is(7));
+    }
+
+    @Test
+    public void testSameAsUrlEncoded() {
+        String[] contents = {
+                "a=1", "a=1&b=2&a=3", "a&&b=&c", "x=%20y+z&%41=%42", "k=v=w&&k2", "p=%E4%B8%AD%E6%96%87"
+        };
+        for (Charset charset : Arrays.asList(StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1)) {
+            for (String content : contents) {
+                ParameterMap map = new ParameterMap();
+                map.decode(content, charset);
+                UrlEncoded urlEncoded = new UrlEncoded();
+                urlEncoded.decode(content, charset);
+
+                Assert.assertThat(content, new HashMap<>(map), is(new HashMap<String, List<String>>(urlEncoded)));
+                for (String name : urlEncoded.keySet()) {
+                    Assert.assertThat(map.getString(name), is(urlEncoded.getString(name)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMapOperations() {
+        ParameterMap map = new ParameterMap();
+        for (int i = 0; i < 10; i++) {
+            map.add("p" + i, String.valueOf(i));
+        }
+        Assert.assertThat(map.size(), is(10));
+        Assert.assertThat(map.getString("p9"), is("9"));
+
+        Assert.assertThat(map.remove("p0"), is(Collections.singletonList("0")));
+        Assert.assertThat(map.containsKey("p0"), is(false));
+        Assert.assertThat(map.getString("p1"), is("1"));
+        Assert.assertThat(map.size(), is(9));
+
+        Assert.assertThat(map.put("p1", Arrays.asList("x", "y")), is(Collections.singletonList("1")));
+        map.add("p1", "z");
+        Assert.assertThat(map.get("p1"), is(Arrays.asList("x", "y", "z")));
+
+        int count = 0;
+        for (Map.Entry<String, List<String>> entry : map.entrySet()) {
+            Assert.assertThat(map.get(entry.getKey()), is(entry.getValue()));
+            count++;
+        }
+        Assert.assertThat(count, is(9));
+
+        map.clear();
+        Assert.assertThat(map.isEmpty(), is(true));
+        Assert.assertThat(map.getString("p1"), nullValue());
+    }
+
+    @Test
+    public void testManyParameters() {
+        int count = 100 * 1000;
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            content.append('p').append(i).append('=').append(i).append('&');
+        }
+
+        // the names are indexed by the hash map, the decoding is not quadratic
+        ParameterMap map = new ParameterMap();
+        map.decode(content.toString(), StandardCharsets.UTF_8);
+        Assert.assertThat(map.size(), is(count));
+        Assert.assertThat(map.getString("p0"), is("0"));
+        Assert.assertThat(map.getString("p" + (count - 1)), is(String.valueOf(count - 1)));
+
+        for (int i = 0; i < count - 8; i++) {
+            map.remove("p" + (count - 1 - i));
+        }
+        Assert.assertThat(map.size(), is(8));
+        Assert.assertThat(map.getString("p7"), is("7"));
+        Assert.assertThat(map.containsKey("p8"), is(false));
+        map.add("p8", "x");
+        map.add("p9", "y");
+        Assert.assertThat(map.getString("p8"), is("x"));
+        Assert.assertThat(map.getString("p9"), is("y"));
+    }
+
+    @Test
+    public void testMutableValues() {
+        ParameterMap map = new ParameterMap();
+        map.decode("a=1", StandardCharsets.UTF_8);
+        List<String> values = map.getValues("a");
+        values.add("2");
+        Assert.assertThat(map.getString("a"), is("1,2"));
+        map.get("a").remove("1");
+        Assert.assertThat(map.getValues("a"), is(Collections.singletonList("2")));
+    }
+}
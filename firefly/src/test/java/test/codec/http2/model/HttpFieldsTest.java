@@ -8,11 +8,17 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.hamcrest.Matchers;
 import org.junit.Assert;
@@ -555,4 +561,81 @@ public class HttpFieldsTest {
 
 		assertFalse(header.containsKey("n11"));
 	}
+
+	@Test
+	public void testManyFieldsLookup() throws Exception {
+		HttpFields header = new HttpFields(4);
+		for (int i = 0; i < 24; i++)
+			header.add("X-Field-" + i, "v" + i);
+		header.add(HttpHeader.CONTENT_TYPE, "text/plain");
+		header.add("cookie", "a=1");
+		header.add(HttpHeader.COOKIE, "b=2");
+		header.add("COOKIE", "c=3");
+
+		for (int i = 0; i < 24; i++) {
+			assertEquals("v" + i, header.get("x-field-" + i));
+			assertTrue(header.containsKey("X-FIELD-" + i));
+		}
+		assertEquals("text/plain", header.get(HttpHeader.CONTENT_TYPE));
+		assertEquals("text/plain", header.get("content-type"));
+		assertEquals(Arrays.asList("a=1", "b=2", "c=3"), header.getValuesList(HttpHeader.COOKIE));
+		assertEquals(Arrays.asList("a=1", "b=2", "c=3"), header.getValuesList("Cookie"));
+		assertEquals(Arrays.asList("a=1", "b=2", "c=3"), Collections.list(header.getValues("Cookie")));
+		assertNull(header.get("X-Field-24"));
+		assertFalse(header.contains(HttpHeader.ACCEPT));
+
+		// the lookups see the removed and replaced fields
+		header.remove("X-Field-3");
+		header.remove(HttpHeader.COOKIE);
+		header.put("x-field-10", "replaced");
+		assertNull(header.get("X-Field-3"));
+		assertEquals("v4", header.get("X-Field-4"));
+		assertEquals("replaced", header.get("X-Field-10"));
+		assertTrue(header.getValuesList(HttpHeader.COOKIE).isEmpty());
+		assertEquals("text/plain", header.get(HttpHeader.CONTENT_TYPE));
+
+		header.add("Cookie", "d=4");
+		assertEquals(Collections.singletonList("d=4"), header.getValuesList(HttpHeader.COOKIE));
+
+		Iterator<HttpField> iterator = header.iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().getName().equals("X-Field-0"))
+				iterator.remove();
+		}
+		assertNull(header.get("X-Field-0"));
+		assertEquals("v1", header.get("X-Field-1"));
+
+		header.clear();
+		assertNull(header.get("X-Field-1"));
+		assertNull(header.get(HttpHeader.CONTENT_TYPE));
+	}
+
+	@Test
+	public void testConcurrentLookup() throws Exception {
+		HttpFields header = new HttpFields();
+		for (int i = 0; i < 24; i++)
+			header.add("X-Field-" + i, "v" + i);
+		header.remove("X-Field-0");
+		HttpFields copy = new HttpFields(header);
+
+		// the lookups do not modify the fields, so a fields that is no longer modified can be shared
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<Boolean>> results = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			results.add(executor.submit(() -> {
+				for (int n = 0; n < 10000; n++) {
+					for (int i = 1; i < 24; i++) {
+						if (!("v" + i).equals(header.get("x-field-" + i)) || !("v" + i).equals(copy.get("X-FIELD-" + i)))
+							return false;
+					}
+					if (header.containsKey("X-Field-0") || copy.containsKey("X-Field-0"))
+						return false;
+				}
+				return true;
+			}));
+		}
+		for (Future<Boolean> result : results)
+			assertTrue(result.get());
+		executor.shutdown();
+	}
 }
@@ -0,0 +1,103 @@
+package test.codec.http2.model;
+
+import com.firefly.codec.http2.encode.HttpGenerator;
+import com.firefly.codec.http2.hpack.HpackDecoder;
+import com.firefly.codec.http2.hpack.HpackEncoder;
+import com.firefly.codec.http2.model.*;
+import com.firefly.utils.io.BufferUtils;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestPreEncodedHttpFields {
+
+    @Test
+    public void testRegistry() {
+        HttpField json = PreEncodedHttpFields.get(HttpHeader.CONTENT_TYPE, "application/json");
+        assertThat(json, instanceOf(PreEncodedHttpField.class));
+        assertThat(json.getValue(), is("application/json"));
+        assertThat(PreEncodedHttpFields.get(HttpHeader.CONTENT_TYPE, "application/x-unknown"), nullValue());
+
+        HttpField field = new HttpField(HttpHeader.CONTENT_TYPE, "application/json");
+        assertThat(PreEncodedHttpFields.preEncode(field) == json, is(true));
+
+        PreEncodedHttpField custom = PreEncodedHttpFields.register(HttpHeader.CACHE_CONTROL, "max-age=3600");
+        assertThat(PreEncodedHttpFields.register(HttpHeader.CACHE_CONTROL, "max-age=3600") == custom, is(true));
+        assertThat(PreEncodedHttpFields.get(HttpHeader.CACHE_CONTROL, "max-age=3600") == custom, is(true));
+    }
+
+    @Test
+    public void testDateField() {
+        long seconds = System.currentTimeMillis() / 1000;
+        HttpField date = PreEncodedHttpFields.getDateField();
+        HttpField again = PreEncodedHttpFields.getDateField();
+        if (System.currentTimeMillis() / 1000 == seconds) {
+            assertThat(date == again, is(true));
+        }
+        assertThat(date.getHeader(), is(HttpHeader.DATE));
+        assertThat(date.getValue(), endsWith("GMT"));
+    }
+
+    @Test
+    public void testHttpGenerator() throws Exception {
+        ByteBuffer header = BufferUtils.allocate(8096);
+        ByteBuffer content = BufferUtils.toBuffer("0123456789");
+        HttpGenerator gen = new HttpGenerator(true, false, true);
+
+        MetaData.Response info = new MetaData.Response(HttpVersion.HTTP_1_1, 200, null, new HttpFields(), 10);
+        info.getFields().put(HttpHeader.CONTENT_TYPE, "application/json");
+        info.getFields().add("X-Custom", "custom");
+        HttpGenerator.Result result = gen.generateResponse(info, false, header, null, content, true);
+        assertThat(result, is(HttpGenerator.Result.FLUSH));
+
+        String response = BufferUtils.toString(header);
+        assertThat(response, containsString("Content-Type: application/json\r\n"));
+        assertThat(response, containsString("X-Custom: custom\r\n"));
+        assertThat(response, containsString("Date: "));
+        assertThat(response, containsString("Server: "));
+
+        // the Date field set by the application is not replaced
+        header = BufferUtils.allocate(8096);
+        content = BufferUtils.toBuffer("0123456789");
+        gen = new HttpGenerator(true, false, true);
+        info = new MetaData.Response(HttpVersion.HTTP_1_1, 200, null, new HttpFields(), 10);
+        info.getFields().put(HttpHeader.DATE, DateGenerator.__01Jan1970);
+        gen.generateResponse(info, false, header, null, content, true);
+        response = BufferUtils.toString(header);
+        assertThat(response, containsString("Date: " + DateGenerator.__01Jan1970 + "\r\n"));
+        assertThat(response.indexOf("Date: "), is(response.lastIndexOf("Date: ")));
+    }
+
+    @Test
+    public void testHpackEncoder() throws Exception {
+        HpackEncoder encoder = new HpackEncoder();
+        HpackDecoder decoder = new HpackDecoder(4096, 8192);
+        ByteBuffer buffer = BufferUtils.allocate(16 * 1024);
+
+        for (int i = 0; i < 2; i++) {
+            HttpFields fields = new HttpFields();
+            fields.put(HttpHeader.CONTENT_TYPE, "application/json");
+            fields.add(PreEncodedHttpFields.SERVER);
+            fields.add(PreEncodedHttpFields.getDateField());
+            MetaData.Response response = new MetaData.Response(HttpVersion.HTTP_2, 200, fields);
+
+            BufferUtils.clearToFill(buffer);
+            encoder.encode(buffer, response);
+            BufferUtils.flipToFlush(buffer, 0);
+            MetaData.Response decoded = (MetaData.Response) decoder.decode(buffer);
+            assertThat(decoded.getFields().get(HttpHeader.CONTENT_TYPE), is("application/json"));
+            assertThat(decoded.getFields().get(HttpHeader.SERVER), is(PreEncodedHttpFields.SERVER.getValue()));
+            assertThat(decoded.getFields().get(HttpHeader.DATE), notNullValue());
+        }
+
+        // the Date field is a literal without indexing, so it is not added to the dynamic table
+        assertThat(encoder.getHpackContext().get(PreEncodedHttpFields.getDateField()), nullValue());
+        assertThat(encoder.getHpackContext().get(PreEncodedHttpFields.SERVER), notNullValue());
+    }
+}
@@ -0,0 +1,20 @@
+package test.component4;
+
+import com.firefly.annotation.Component;
+import com.firefly.annotation.InitialMethod;
+import com.firefly.annotation.Inject;
+
+/**
+ * @author Pengtao Qiu
+ */
+@Component
+public class Controller {
+
+    @Inject
+    private Service service;
+
+    @InitialMethod
+    public void init() {
+        StartupOrder.initialized.add("controller");
+    }
+}
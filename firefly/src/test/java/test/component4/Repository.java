@@ -0,0 +1,16 @@
+package test.component4;
+
+import com.firefly.annotation.Component;
+import com.firefly.annotation.InitialMethod;
+
+/**
+ * @author Pengtao Qiu
+ */
+@Component
+public class Repository {
+
+    @InitialMethod
+    public void init() {
+        StartupOrder.initialized.add("repository");
+    }
+}
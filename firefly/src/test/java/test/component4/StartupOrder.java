@@ -0,0 +1,13 @@
+package test.component4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class StartupOrder {
+
+    public static final List<String> initialized = Collections.synchronizedList(new ArrayList<>());
+}
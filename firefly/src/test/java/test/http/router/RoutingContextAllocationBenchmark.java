@@ -0,0 +1,67 @@
+package test.http.router;
+
+import com.firefly.codec.http2.model.*;
+import com.firefly.server.http2.SimpleRequest;
+import com.firefly.server.http2.router.RouterManager;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measure the allocated bytes of routing a request, from the SimpleRequest is created to the handler is called.
+ * The handler reads the query parameter and the attributes like the common handlers do.
+ *
+ * @author Pengtao Qiu
+ */
+public class RoutingContextAllocationBenchmark {
+
+    private static final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static long allocatedBytes() {
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static MetaData.Request createRequest(String uri) {
+        HttpFields fields = new HttpFields();
+        fields.put(HttpHeader.HOST, "www.fireflysource.com");
+        fields.put(HttpHeader.ACCEPT, "*/*");
+        MetaData.Request request = new MetaData.Request("GET", new HttpURI(uri), HttpVersion.HTTP_1_1, fields);
+        request.getURI().getPath();
+        request.getURI().getQuery();
+        return request;
+    }
+
+    private static long benchmark(RouterManager routerManager, MetaData.Request request, int times) {
+        MetaData.Response response = new MetaData.Response(HttpVersion.HTTP_1_1, 200, new HttpFields());
+        long start = allocatedBytes();
+        for (int i = 0; i < times; i++) {
+            routerManager.accept(new SimpleRequest(request, response, null, null));
+        }
+        return (allocatedBytes() - start) / times;
+    }
+
+    public static void main(String[] args) {
+        final int times = 1000 * 1000;
+        int[] result = new int[1];
+        RouterManager routerManager = RouterManager.create();
+        routerManager.register().get("/hello").handler(ctx -> {
+            ctx.setAttribute("user", "firefly");
+            String name = ctx.getParameter("name");
+            result[0] += name != null ? name.length() : 0;
+            result[0] += ctx.getAttribute("user") != null ? 1 : 0;
+        });
+        MetaData.Request get = createRequest("/hello");
+        MetaData.Request getWithQuery = createRequest("/hello?name=firefly");
+
+        System.out.println("warm up start");
+        benchmark(routerManager, get, times);
+        benchmark(routerManager, getWithQuery, times);
+        System.out.println("warm up end");
+
+        System.out.println("GET /hello, " + benchmark(routerManager, get, times) + " bytes/request");
+        System.out.println("GET /hello?name=firefly, " + benchmark(routerManager, getWithQuery, times) + " bytes/request");
+        if (result[0] == 0) {
+            throw new IllegalStateException("the handler is not called");
+        }
+    }
+}
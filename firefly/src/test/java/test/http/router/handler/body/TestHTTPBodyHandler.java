@@ -7,17 +7,22 @@ import com.firefly.codec.http2.model.HttpHeader;
 import com.firefly.codec.http2.model.HttpStatus;
 import com.firefly.codec.http2.stream.HTTPOutputStream;
 import com.firefly.server.http2.HTTP2ServerBuilder;
+import com.firefly.server.http2.SimpleHTTPServerConfiguration;
+import com.firefly.server.http2.router.handler.body.HTTPBodyConfiguration;
 import com.firefly.utils.concurrent.Promise;
 import org.junit.Assert;
 import org.junit.Test;
 import test.http.router.handler.AbstractHTTPHandlerTest;
 
-import java.io.IOException;
+import java.io.*;
+import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Phaser;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
 
 /**
@@ -147,6 +152,116 @@ public class TestHTTPBodyHandler extends AbstractHTTPHandlerTest {
         testPostBigDataUsingChunkedEncoding(server, client);
     }
 
+    @Test
+    public void testPostChunkedDataExceedsMaxRequestSize() throws IOException {
+        HTTPBodyConfiguration bodyConfiguration = new HTTPBodyConfiguration();
+        bodyConfiguration.setBodyBufferThreshold(4 * 1024);
+        bodyConfiguration.setMaxRequestSize(64 * 1024);
+        HTTP2ServerBuilder server = $.httpServer(new SimpleHTTPServerConfiguration(), bodyConfiguration);
+        server.router().post("/bigData").handler(ctx -> {
+            Assert.fail("the request exceeds the max request size");
+            ctx.end();
+        }).listen(host, port);
+
+        // the client reads the response after the request is sent, so the request is sent by the socket
+        try (Socket socket = new Socket(host, port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write($.string.getBytes("POST /bigData HTTP/1.1\r\nHost: " + host + "\r\nTransfer-Encoding: chunked\r\n\r\n"));
+            byte[] chunk = new byte[4 * 1024];
+            try {
+                for (int i = 0; i < 64; i++) {
+                    out.write($.string.getBytes(Integer.toHexString(chunk.length) + "\r\n"));
+                    out.write(chunk);
+                    out.write($.string.getBytes("\r\n"));
+                }
+                out.write($.string.getBytes("0\r\n\r\n"));
+            } catch (IOException e) {
+                System.out.println("the server closes the connection: " + e.getMessage());
+            }
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            Assert.assertThat(reader.readLine(), is("HTTP/1.1 413 Payload Too Large"));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testPostMultiPartExceedsMaxRequestSize() throws IOException {
+        HTTPBodyConfiguration bodyConfiguration = new HTTPBodyConfiguration();
+        // the multipart limit follows the max request size that is set after the configuration is created
+        bodyConfiguration.setMaxRequestSize(1024);
+        HTTP2ServerBuilder server = $.httpServer(new SimpleHTTPServerConfiguration(), bodyConfiguration);
+        server.router().post("/upload").handler(ctx -> {
+            Assert.fail("the upload exceeds the max request size");
+            ctx.end();
+        }).listen(host, port);
+
+        try (Socket socket = new Socket(host, port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            // the request is rejected by the content length before the body is sent
+            out.write($.string.getBytes("POST /upload HTTP/1.1\r\nHost: " + host + "\r\n" +
+                    "Content-Type: multipart/form-data; boundary=AaB03x\r\n" +
+                    "Content-Length: 4096\r\n\r\n"));
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            Assert.assertThat(reader.readLine(), is("HTTP/1.1 413 Payload Too Large"));
+        }
+
+        try (Socket socket = new Socket(host, port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write($.string.getBytes("POST /upload HTTP/1.1\r\nHost: " + host + "\r\n" +
+                    "Content-Type: multipart/form-data; boundary=AaB03x\r\n" +
+                    "Transfer-Encoding: chunked\r\n\r\n"));
+            String part = "--AaB03x\r\nContent-Disposition: form-data; name=\"file\"; filename=\"a.txt\"\r\n\r\n";
+            byte[] content = new byte[2048];
+            Arrays.fill(content, (byte) 'a');
+            try {
+                out.write($.string.getBytes(Integer.toHexString(part.length()) + "\r\n" + part + "\r\n"));
+                out.write($.string.getBytes(Integer.toHexString(content.length) + "\r\n"));
+                out.write(content);
+                out.write($.string.getBytes("\r\n0\r\n\r\n"));
+            } catch (IOException e) {
+                System.out.println("the server closes the connection: " + e.getMessage());
+            }
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            Assert.assertThat(reader.readLine(), is("HTTP/1.1 413 Payload Too Large"));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testPostMalformedMultiPart() throws IOException {
+        HTTP2ServerBuilder server = $.httpServer();
+        server.router().post("/upload").handler(ctx -> {
+            Assert.fail("the multipart content is malformed");
+            ctx.end();
+        }).listen(host, port);
+
+        String body = "--AaB03x\r\n" +
+                "Content-Type: text/plain\r\n" +
+                "\r\n" +
+                "the part has no content disposition\r\n" +
+                "--AaB03x--\r\n";
+        try (Socket socket = new Socket(host, port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write($.string.getBytes("POST /upload HTTP/1.1\r\nHost: " + host + "\r\n" +
+                    "Content-Type: multipart/form-data; boundary=AaB03x\r\n" +
+                    "Content-Length: " + body.length() + "\r\n\r\n" + body));
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            Assert.assertThat(reader.readLine(), is("HTTP/1.1 400 Bad Request"));
+        } finally {
+            server.stop();
+        }
+    }
+
     @Test
     public void testPostForm() {
         Phaser phaser = new Phaser(3);
@@ -155,6 +270,8 @@ public class TestHTTPBodyHandler extends AbstractHTTPHandlerTest {
         httpServer.router().post("/content/form").handler(ctx -> {
             Assert.assertThat(ctx.getParameter("name"), is("你的名字"));
             Assert.assertThat(ctx.getParameter("intro"), is("我要送些东西给你 我的孩子 因为我们同是漂泊在世界的溪流中的"));
+            // the form content is read once for the parameters and the string body
+            Assert.assertThat(ctx.getStringBody(), containsString("name="));
             ctx.end("server received form data");
             phaser.arrive();
         }).listen(host, port);
@@ -182,6 +299,8 @@ public class TestHTTPBodyHandler extends AbstractHTTPHandlerTest {
         httpServer.router().get("/query").handler(ctx -> {
             Assert.assertThat(ctx.getParameter("name"), is("你的名字"));
             Assert.assertThat(ctx.getParameter("intro"), is("我要送些东西给你 我的孩子 因为我们同是漂泊在世界的溪流中的"));
+            // the form content is read once for the parameters and the string body
+            Assert.assertThat(ctx.getStringBody(), containsString("name="));
             ctx.end("server received form data");
             phaser.arrive();
         }).listen(host, port);
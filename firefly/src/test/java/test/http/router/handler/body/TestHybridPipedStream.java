@@ -0,0 +1,85 @@
+package test.http.router.handler.body;
+
+import com.firefly.net.BufferPool;
+import com.firefly.net.buffer.IOBufferPool;
+import com.firefly.server.http2.router.handler.body.HybridPipedStream;
+import com.firefly.utils.io.IO;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.is;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestHybridPipedStream {
+
+    @Test
+    public void testInMemory() throws Exception {
+        BufferPool bufferPool = new IOBufferPool(false);
+        HybridPipedStream stream = new HybridPipedStream(bufferPool, 1024, System.getProperty("java.io.tmpdir"));
+        try (OutputStream out = stream.getOutputStream()) {
+            out.write("hello ".getBytes(StandardCharsets.UTF_8));
+            stream.write(ByteBuffer.wrap("world".getBytes(StandardCharsets.UTF_8)));
+        }
+        Assert.assertThat(stream.isInMemory(), is(true));
+        Assert.assertThat(stream.getSize(), is(11L));
+        Assert.assertThat(bufferPool.size(), is(0));
+
+        try (InputStream in = stream.getInputStream()) {
+            Assert.assertThat(IO.toString(in, StandardCharsets.UTF_8), is("hello world"));
+        }
+        // the buffer is returned to the pool when both the input stream and the piped stream are closed
+        Assert.assertThat(bufferPool.size(), is(0));
+        stream.close();
+        Assert.assertThat(bufferPool.size(), is(1));
+    }
+
+    @Test
+    public void testReadAfterClose() throws Exception {
+        BufferPool bufferPool = new IOBufferPool(false);
+        HybridPipedStream stream = new HybridPipedStream(bufferPool, 1024, System.getProperty("java.io.tmpdir"));
+        stream.write(ByteBuffer.wrap("hello world".getBytes(StandardCharsets.UTF_8)));
+        InputStream in = stream.getInputStream();
+        Assert.assertThat(in.read(), is((int) 'h'));
+
+        // the input stream still holds the buffer after the piped stream is closed
+        stream.close();
+        stream.close();
+        Assert.assertThat(bufferPool.size(), is(0));
+        Assert.assertThat(IO.toString(in, StandardCharsets.UTF_8), is("ello world"));
+
+        // the buffer is returned once
+        in.close();
+        in.close();
+        Assert.assertThat(bufferPool.size(), is(1));
+    }
+
+    @Test
+    public void testSpillToFile() throws Exception {
+        BufferPool bufferPool = new IOBufferPool(false);
+        HybridPipedStream stream = new HybridPipedStream(bufferPool, 8 * 1024, System.getProperty("java.io.tmpdir"));
+        StringBuilder data = new StringBuilder();
+        try (OutputStream out = stream.getOutputStream()) {
+            for (int i = 0; i < 10000; i++) {
+                String s = "data " + i + "\r\n";
+                data.append(s);
+                out.write(s.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        Assert.assertThat(stream.isInMemory(), is(false));
+        Assert.assertThat(stream.getSize(), is((long) data.length()));
+        // the buffer is returned to the pool when the data is moved to the temp file
+        Assert.assertThat(bufferPool.size() > 0, is(true));
+
+        try (InputStream in = stream.getInputStream()) {
+            Assert.assertThat(IO.toString(in, StandardCharsets.UTF_8), is(data.toString()));
+        }
+        stream.close();
+    }
+}
@@ -0,0 +1,222 @@
+package test.http.router.handler.cache;
+
+import com.firefly.client.http2.SimpleHTTPClient;
+import com.firefly.client.http2.SimpleResponse;
+import com.firefly.codec.http2.model.HttpHeader;
+import com.firefly.codec.http2.model.HttpStatus;
+import com.firefly.server.http2.HTTP2ServerBuilder;
+import com.firefly.server.http2.router.RoutingContext;
+import com.firefly.server.http2.router.handler.cache.HTTPCacheConfiguration;
+import com.firefly.server.http2.router.handler.cache.HTTPCacheHandler;
+import org.junit.Assert;
+import org.junit.Test;
+import test.http.router.handler.AbstractHTTPHandlerTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestHTTPCacheHandler extends AbstractHTTPHandlerTest {
+
+    @Test
+    public void testCache() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        AtomicInteger noStoreExecutions = new AtomicInteger();
+        HTTP2ServerBuilder server = new HTTP2ServerBuilder().httpServer();
+        server.router().path("*").handler(new HTTPCacheHandler())
+              .router().get("/catalog").handler(ctx -> ctx.put(HttpHeader.CACHE_CONTROL, "public, max-age=60")
+                                                          .put(HttpHeader.ETAG, "\"v1\"")
+                                                          .end("catalog " + executions.incrementAndGet()))
+              .router().get("/noStore").handler(ctx -> ctx.put(HttpHeader.CACHE_CONTROL, "no-store")
+                                                          .end("noStore " + noStoreExecutions.incrementAndGet()))
+              .listen(host, port);
+        SimpleHTTPClient client = new SimpleHTTPClient();
+
+        for (int i = 0; i < 3; i++) {
+            SimpleResponse response = client.get(uri + "/catalog").submit().get();
+            Assert.assertThat(response.getStatus(), is(HttpStatus.OK_200));
+            Assert.assertThat(response.getStringBody(), is("catalog 1"));
+            Assert.assertThat(response.getFields().get(HttpHeader.ETAG), is("\"v1\""));
+        }
+        Assert.assertThat(executions.get(), is(1));
+
+        SimpleResponse notModified = client.get(uri + "/catalog").put(HttpHeader.IF_NONE_MATCH, "\"v1\"").submit().get();
+        Assert.assertThat(notModified.getStatus(), is(HttpStatus.NOT_MODIFIED_304));
+        Assert.assertThat(notModified.getFields().get(HttpHeader.AGE), notNullValue());
+
+        // the client requires the origin response
+        SimpleResponse reload = client.get(uri + "/catalog").put(HttpHeader.CACHE_CONTROL, "no-cache").submit().get();
+        Assert.assertThat(reload.getStringBody(), is("catalog 2"));
+        Assert.assertThat(client.get(uri + "/catalog").submit().get().getStringBody(), is("catalog 2"));
+
+        for (int i = 1; i <= 2; i++) {
+            Assert.assertThat(client.get(uri + "/noStore").submit().get().getStringBody(), is("noStore " + i));
+        }
+
+        client.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testVary() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        HTTP2ServerBuilder server = new HTTP2ServerBuilder().httpServer();
+        server.router().path("*").handler(new HTTPCacheHandler())
+              .router().get("/hello").handler(ctx -> {
+            executions.incrementAndGet();
+            ctx.put(HttpHeader.CACHE_CONTROL, "max-age=60")
+               .put(HttpHeader.VARY, "Accept-Language")
+               .end("hello " + ctx.getFields().get(HttpHeader.ACCEPT_LANGUAGE));
+        }).listen(host, port);
+        SimpleHTTPClient client = new SimpleHTTPClient();
+
+        for (int i = 0; i < 2; i++) {
+            for (String language : new String[]{"en", "fr"}) {
+                SimpleResponse response = client.get(uri + "/hello").put(HttpHeader.ACCEPT_LANGUAGE, language).submit().get();
+                Assert.assertThat(response.getStringBody(), is("hello " + language));
+            }
+        }
+        Assert.assertThat(executions.get(), is(2));
+
+        client.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testCoalescing() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        HTTPCacheConfiguration config = new HTTPCacheConfiguration();
+        config.setOffHeap(true);
+        HTTP2ServerBuilder server = new HTTP2ServerBuilder().httpServer();
+        server.router().path("*").handler(new HTTPCacheHandler(config))
+              .router().get("/config").handler(ctx -> {
+            int i = executions.incrementAndGet();
+            delay(ctx, 500, () -> ctx.put(HttpHeader.CACHE_CONTROL, "max-age=60").end("config " + i));
+        }).listen(host, port);
+        SimpleHTTPClient client = new SimpleHTTPClient();
+
+        List<CompletableFuture<SimpleResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(client.get(uri + "/config").submit());
+        }
+        for (CompletableFuture<SimpleResponse> future : futures) {
+            SimpleResponse response = future.get(5, TimeUnit.SECONDS);
+            Assert.assertThat(response.getStatus(), is(HttpStatus.OK_200));
+            Assert.assertThat(response.getStringBody(), is("config 1"));
+        }
+        // the concurrent misses run the origin handler once
+        Assert.assertThat(executions.get(), is(1));
+
+        client.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testStaleWhileRevalidate() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        HTTP2ServerBuilder server = new HTTP2ServerBuilder().httpServer();
+        server.router().path("*").handler(new HTTPCacheHandler())
+              .router().get("/stale").handler(ctx -> {
+            int i = executions.incrementAndGet();
+            delay(ctx, i == 1 ? 0 : 500, () -> ctx.put(HttpHeader.CACHE_CONTROL, "max-age=1, stale-while-revalidate=30")
+                                                .end("stale " + i));
+        }).listen(host, port);
+        SimpleHTTPClient client = new SimpleHTTPClient();
+
+        Assert.assertThat(client.get(uri + "/stale").submit().get().getStringBody(), is("stale 1"));
+        Thread.sleep(1500);
+
+        // the requests get the stale response without waiting, and the origin handler refreshes it in the background
+        Assert.assertThat(client.get(uri + "/stale").submit().get(300, TimeUnit.MILLISECONDS).getStringBody(), is("stale 1"));
+        Assert.assertThat(client.get(uri + "/stale").submit().get(300, TimeUnit.MILLISECONDS).getStringBody(), is("stale 1"));
+        Thread.sleep(1000);
+        Assert.assertThat(client.get(uri + "/stale").submit().get().getStringBody(), is("stale 2"));
+        Assert.assertThat(executions.get(), is(2));
+
+        client.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testFillTimeout() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        HTTPCacheConfiguration config = new HTTPCacheConfiguration();
+        config.setFillTimeout(300);
+        HTTPCacheHandler cacheHandler = new HTTPCacheHandler(config);
+        HTTP2ServerBuilder server = new HTTP2ServerBuilder().httpServer();
+        server.router().path("*").handler(cacheHandler)
+              .router().get("/slow").handler(ctx -> {
+            int i = executions.incrementAndGet();
+            delay(ctx, i == 1 ? 2000 : 0, () -> ctx.put(HttpHeader.CACHE_CONTROL, "max-age=60").end("slow " + i));
+        }).listen(host, port);
+        SimpleHTTPClient client = new SimpleHTTPClient();
+
+        CompletableFuture<SimpleResponse> first = client.get(uri + "/slow").submit();
+        Thread.sleep(100);
+        // the waiting request runs the origin handler after the fill timeout
+        SimpleResponse second = client.get(uri + "/slow").submit().get(1, TimeUnit.SECONDS);
+        Assert.assertThat(second.getStringBody(), is("slow 2"));
+        Assert.assertThat(first.get(5, TimeUnit.SECONDS).getStringBody(), is("slow 1"));
+        Assert.assertThat(executions.get(), is(2));
+
+        client.stop();
+        server.stop();
+        cacheHandler.stop();
+    }
+
+    @Test
+    public void testMaxBytes() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        HTTPCacheConfiguration config = new HTTPCacheConfiguration();
+        config.setMaxBytes(10);
+        HTTPCacheHandler cacheHandler = new HTTPCacheHandler(config);
+        HTTP2ServerBuilder server = new HTTP2ServerBuilder().httpServer();
+        server.router().path("*").handler(cacheHandler)
+              .router().get("/bytes").handler(ctx -> {
+            executions.incrementAndGet();
+            ctx.put(HttpHeader.CACHE_CONTROL, "max-age=60").end("123456");
+        }).listen(host, port);
+        SimpleHTTPClient client = new SimpleHTTPClient();
+
+        for (String query : new String[]{"a", "a", "b", "b"}) {
+            Assert.assertThat(client.get(uri + "/bytes?k=" + query).submit().get().getStringBody(), is("123456"));
+        }
+        Assert.assertThat(executions.get(), is(2));
+        Assert.assertThat(cacheHandler.getCachedBytes(), is(6L));
+
+        // the response of a is evicted by the total body bytes
+        client.get(uri + "/bytes?k=a").submit().get();
+        Assert.assertThat(executions.get(), is(3));
+        Assert.assertThat(cacheHandler.getCachedBytes(), is(6L));
+
+        cacheHandler.clear();
+        Assert.assertThat(cacheHandler.getCachedBytes(), is(0L));
+
+        client.stop();
+        server.stop();
+        cacheHandler.stop();
+    }
+
+    private static void delay(RoutingContext ctx, long millis, Runnable task) {
+        if (millis <= 0) {
+            task.run();
+            return;
+        }
+
+        ctx.getResponse().setAsynchronous(true);
+        new Thread(() -> {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException ignored) {
+            }
+            task.run();
+        }).start();
+    }
+}
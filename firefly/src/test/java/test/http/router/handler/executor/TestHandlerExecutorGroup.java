@@ -0,0 +1,101 @@
+package test.http.router.handler.executor;
+
+import com.codahale.metrics.MetricRegistry;
+import com.firefly.$;
+import com.firefly.client.http2.SimpleResponse;
+import com.firefly.codec.http2.model.HttpHeader;
+import com.firefly.codec.http2.model.HttpStatus;
+import com.firefly.server.http2.HTTP2ServerBuilder;
+import com.firefly.server.http2.HandlerExecutorGroup;
+import com.firefly.server.http2.HandlerExecutorGroupConfiguration;
+import com.firefly.server.http2.HandlerExecutorGroupConfiguration.RejectionPolicy;
+import org.junit.Assert;
+import org.junit.Test;
+import test.http.router.handler.AbstractHTTPHandlerTest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestHandlerExecutorGroup extends AbstractHTTPHandlerTest {
+
+    @Test
+    public void testRejectionPolicy() throws Exception {
+        MetricRegistry metrics = new MetricRegistry();
+        HandlerExecutorGroupConfiguration c = new HandlerExecutorGroupConfiguration("test-reject", 1, 0);
+        HandlerExecutorGroup group = new HandlerExecutorGroup(c, metrics);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Assert.assertThat(group.execute(() -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+        }), is(true));
+        Assert.assertThat(running.await(2, TimeUnit.SECONDS), is(true));
+        Assert.assertThat(group.execute(() -> {
+        }), is(false));
+        Assert.assertThat(metrics.meter("http2.SimpleHTTPServer.executorGroup.test-reject.rejected").getCount(), is(1L));
+
+        c.setRejectionPolicy(RejectionPolicy.CALLER_RUNS);
+        Thread caller = Thread.currentThread();
+        Thread[] executed = new Thread[1];
+        Assert.assertThat(group.execute(() -> executed[0] = Thread.currentThread()), is(true));
+        Assert.assertThat(executed[0], is(caller));
+
+        release.countDown();
+        group.shutdown();
+    }
+
+    @Test
+    public void testSameNameGroups() {
+        MetricRegistry metrics = new MetricRegistry();
+        HandlerExecutorGroup first = new HandlerExecutorGroup(new HandlerExecutorGroupConfiguration("shared", 1, 4), metrics);
+        HandlerExecutorGroup second = new HandlerExecutorGroup(new HandlerExecutorGroupConfiguration("shared", 2, 4), metrics);
+        Assert.assertThat((Integer) metrics.getGauges().get("http2.SimpleHTTPServer.executorGroup.shared.activeCount").getValue(), is(0));
+        first.shutdown();
+        second.shutdown();
+    }
+
+    @Test
+    public void testServiceUnavailable() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        HandlerExecutorGroupConfiguration c = new HandlerExecutorGroupConfiguration("slow", 1, 0);
+        c.setRetryAfter(3);
+
+        HTTP2ServerBuilder httpServer = $.httpServer();
+        httpServer.handlerExecutorGroup(c)
+                  .router().get("/slow").asyncHandler("slow", ctx -> {
+                      running.countDown();
+                      try {
+                          release.await();
+                      } catch (InterruptedException ignored) {
+                      }
+                      ctx.end("slow");
+                  })
+                  .router().get("/fast").asyncHandler(ctx -> ctx.end("fast"))
+                  .listen(host, port);
+
+        CompletableFuture<SimpleResponse> slow = $.httpClient().get(uri + "/slow").submit();
+        Assert.assertThat(running.await(2, TimeUnit.SECONDS), is(true));
+
+        SimpleResponse rejected = $.httpClient().get(uri + "/slow").submit().get(2, TimeUnit.SECONDS);
+        Assert.assertThat(rejected.getStatus(), is(HttpStatus.SERVICE_UNAVAILABLE_503));
+        Assert.assertThat(rejected.getFields().get(HttpHeader.RETRY_AFTER), is("3"));
+
+        SimpleResponse fast = $.httpClient().get(uri + "/fast").submit().get(2, TimeUnit.SECONDS);
+        Assert.assertThat(fast.getStringBody(), is("fast"));
+
+        release.countDown();
+        Assert.assertThat(slow.get(2, TimeUnit.SECONDS).getStringBody(), is("slow"));
+        httpServer.stop();
+    }
+}
@@ -0,0 +1,119 @@
+package test.http.router.handler.limit;
+
+import com.firefly.$;
+import com.firefly.client.http2.SimpleResponse;
+import com.firefly.codec.http2.model.HttpStatus;
+import com.firefly.server.http2.HTTP2ServerBuilder;
+import com.firefly.server.http2.SimpleHTTPServerConfiguration;
+import com.firefly.server.http2.router.handler.body.HTTPBodyConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+import test.http.router.handler.AbstractHTTPHandlerTest;
+
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestConcurrencyLimit extends AbstractHTTPHandlerTest {
+
+    @Test
+    public void testServerConcurrencyLimit() throws Exception {
+        SimpleHTTPServerConfiguration configuration = new SimpleHTTPServerConfiguration();
+        configuration.setConcurrencyLimitEnabled(true);
+        configuration.setInitialConcurrencyLimit(1);
+        configuration.setMinConcurrencyLimit(1);
+        configuration.setMaxConcurrencyLimit(1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        HTTP2ServerBuilder httpServer = $.httpServer(configuration, new HTTPBodyConfiguration());
+        httpServer.router().get("/slow").asyncHandler(ctx -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+            ctx.end("slow");
+        }).listen(host, port);
+
+        CompletableFuture<SimpleResponse> slow = $.httpClient().get(uri + "/slow").submit();
+        Assert.assertThat(running.await(2, TimeUnit.SECONDS), is(true));
+        Assert.assertThat(httpServer.getServer().getConcurrencyLimiter().getInFlight(), is(1));
+
+        SimpleResponse rejected = $.httpClient().get(uri + "/slow").submit().get(2, TimeUnit.SECONDS);
+        Assert.assertThat(rejected.getStatus(), is(HttpStatus.SERVICE_UNAVAILABLE_503));
+
+        release.countDown();
+        Assert.assertThat(slow.get(2, TimeUnit.SECONDS).getStringBody(), is("slow"));
+        httpServer.stop();
+    }
+
+    @Test
+    public void testReleasePermitOnConnectionClose() throws Exception {
+        SimpleHTTPServerConfiguration configuration = new SimpleHTTPServerConfiguration();
+        configuration.setConcurrencyLimitEnabled(true);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        HTTP2ServerBuilder httpServer = $.httpServer(configuration, new HTTPBodyConfiguration());
+        httpServer.router().get("/slow").asyncHandler(ctx -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+            ctx.end("slow");
+        }).listen(host, port);
+
+        try (Socket socket = new Socket(host, port)) {
+            socket.getOutputStream().write(("GET /slow HTTP/1.1\r\nHost: " + host + ":" + port + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().flush();
+            Assert.assertThat(running.await(2, TimeUnit.SECONDS), is(true));
+            Assert.assertThat(httpServer.getServer().getConcurrencyLimiter().getInFlight(), is(1));
+        }
+
+        // the client disconnects after the message is complete, the handler still holds the response
+        long deadline = System.currentTimeMillis() + 2000;
+        while (httpServer.getServer().getConcurrencyLimiter().getInFlight() != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertThat(httpServer.getServer().getConcurrencyLimiter().getInFlight(), is(0));
+        release.countDown();
+        httpServer.stop();
+    }
+
+    @Test
+    public void testRouterConcurrencyLimit() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        HTTP2ServerBuilder httpServer = $.httpServer();
+        httpServer.router().get("/slow").concurrencyLimit(1).asyncHandler(ctx -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+            ctx.end("slow");
+        }).router().get("/fast").handler(ctx -> ctx.end("fast")).listen(host, port);
+
+        CompletableFuture<SimpleResponse> slow = $.httpClient().get(uri + "/slow").submit();
+        Assert.assertThat(running.await(2, TimeUnit.SECONDS), is(true));
+
+        SimpleResponse rejected = $.httpClient().get(uri + "/slow").submit().get(2, TimeUnit.SECONDS);
+        Assert.assertThat(rejected.getStatus(), is(HttpStatus.SERVICE_UNAVAILABLE_503));
+        SimpleResponse fast = $.httpClient().get(uri + "/fast").submit().get(2, TimeUnit.SECONDS);
+        Assert.assertThat(fast.getStringBody(), is("fast"));
+
+        release.countDown();
+        Assert.assertThat(slow.get(2, TimeUnit.SECONDS).getStringBody(), is("slow"));
+        httpServer.stop();
+    }
+}
@@ -0,0 +1,84 @@
+package test.http.router.handler.metric;
+
+import com.codahale.metrics.MetricRegistry;
+import com.firefly.$;
+import com.firefly.client.http2.SimpleHTTPClient;
+import com.firefly.client.http2.SimpleHTTPClientConfiguration;
+import com.firefly.client.http2.SimpleResponse;
+import com.firefly.server.http2.HTTP2ServerBuilder;
+import com.firefly.server.http2.router.handler.metric.PrometheusMetricHandler;
+import org.junit.Assert;
+import org.junit.Test;
+import test.http.router.handler.AbstractHTTPHandlerTest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestPrometheusMetricHandler extends AbstractHTTPHandlerTest {
+
+    @Test
+    public void test() throws Exception {
+        HTTP2ServerBuilder httpServer = $.httpServer();
+        httpServer.router(100).get("/hello").handler(ctx -> ctx.end("hello"))
+                  .router(101).get("/hello").asyncHandler(ctx -> ctx.end("async hello"))
+                  .router(102).get("/next").handler(ctx -> {
+                      // the output stream is created before the next router records the latency
+                      ctx.getResponse().getOutputStream();
+                      ctx.next();
+                  })
+                  .router(103).get("/next").handler(ctx -> ctx.getResponse().end("next".getBytes(StandardCharsets.UTF_8)))
+                  .prometheusMetrics("/metrics")
+                  .listen(host, port);
+
+        SimpleHTTPClientConfiguration clientConfiguration = new SimpleHTTPClientConfiguration();
+        SimpleHTTPClient client = new SimpleHTTPClient(clientConfiguration);
+        for (int i = 0; i < 5; i++) {
+            Assert.assertThat(client.get(uri + "/hello").submit().get(2, TimeUnit.SECONDS).getStringBody(), is("hello"));
+        }
+        Assert.assertThat(client.get(uri + "/next").submit().get(2, TimeUnit.SECONDS).getStringBody(), is("next"));
+
+        SimpleResponse response = client.get(uri + "/metrics").submit().get(2, TimeUnit.SECONDS);
+        Assert.assertThat(response.getFields().get("Content-Type"), is(PrometheusMetricHandler.CONTENT_TYPE));
+        String metrics = response.getStringBody();
+        Assert.assertThat(metrics, containsString("# TYPE http2_SimpleHTTPServer_router_100_latency_seconds summary"));
+        Assert.assertThat(metrics, containsString("http2_SimpleHTTPServer_router_100_latency_seconds_count 5"));
+        Assert.assertThat(metrics, containsString("http2_SimpleHTTPServer_router_100_latency_seconds_sum "));
+        Assert.assertThat(metrics, containsString("http2_SimpleHTTPServer_router_103_latency_seconds_count 1"));
+        Assert.assertThat(metrics, containsString("http2_SimpleHTTPServer_router_103_ttfb_seconds_count 1"));
+        Assert.assertThat(metrics, containsString("http2_SimpleHTTPServer_router_102_latency_seconds_count 0"));
+        Assert.assertThat(metrics, containsString("http2_SimpleHTTPServer_router_100_ttfb_seconds_count 5"));
+        Assert.assertThat(metrics, containsString("http2_SimpleHTTPServer_router_101_latency_seconds_count 0"));
+        Assert.assertThat(metrics, containsString("# TYPE http2_SimpleHTTPServer_request_count_total counter"));
+
+        MetricRegistry clientMetrics = clientConfiguration.getTcpConfiguration().getMetricReporterFactory().getMetricRegistry();
+        String origin = "http2_SimpleHTTPClient_origin_" + host + "_" + port;
+        Assert.assertThat(PrometheusMetricHandler.export(clientMetrics), containsString(origin + "_response_time_seconds_count 7"));
+        Assert.assertThat(PrometheusMetricHandler.export(clientMetrics), containsString(origin + "_ttfb_seconds_count 7"));
+
+        client.stop();
+        httpServer.stop();
+    }
+
+    @Test
+    public void testNameCollision() {
+        MetricRegistry metrics = new MetricRegistry();
+        metrics.counter("request.count").inc();
+        metrics.counter("request_count").inc(2);
+        metrics.histogram("response").update(1);
+        metrics.counter("response.count").inc(3);
+
+        String text = PrometheusMetricHandler.export(metrics);
+        Assert.assertThat(text.split("# TYPE request_count gauge", -1).length, is(2));
+        Assert.assertThat(text, containsString("request_count 1\n"));
+        Assert.assertThat(text, not(containsString("request_count 2\n")));
+        Assert.assertThat(text, containsString("response_count 1\n"));
+        Assert.assertThat(text, not(containsString("# TYPE response_count gauge")));
+    }
+}
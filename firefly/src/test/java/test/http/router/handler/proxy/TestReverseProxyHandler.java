@@ -0,0 +1,140 @@
+package test.http.router.handler.proxy;
+
+import com.codahale.metrics.MetricRegistry;
+import com.firefly.client.http2.SimpleHTTPClient;
+import com.firefly.client.http2.SimpleResponse;
+import com.firefly.codec.http2.model.HttpHeader;
+import com.firefly.codec.http2.model.HttpStatus;
+import com.firefly.server.http2.HTTP2ServerBuilder;
+import com.firefly.server.http2.router.handler.proxy.ReverseProxyConfiguration;
+import com.firefly.server.http2.router.handler.proxy.ReverseProxyHandler;
+import org.junit.Assert;
+import org.junit.Test;
+import test.http.router.handler.AbstractHTTPHandlerTest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestReverseProxyHandler extends AbstractHTTPHandlerTest {
+
+    @Test
+    public void test() throws Exception {
+        int upstreamPort1 = port + 1;
+        int upstreamPort2 = port + 2;
+        HTTP2ServerBuilder upstream1 = createUpstream("upstream1", upstreamPort1);
+        HTTP2ServerBuilder upstream2 = createUpstream("upstream2", upstreamPort2);
+
+        ReverseProxyConfiguration config = new ReverseProxyConfiguration();
+        config.setUpstreams(Arrays.asList("http://" + host + ":" + upstreamPort1, "http://" + host + ":" + upstreamPort2));
+        ReverseProxyHandler proxy = new ReverseProxyHandler(config);
+        HTTP2ServerBuilder server = createProxy(proxy);
+        SimpleHTTPClient client = new SimpleHTTPClient();
+
+        Set<String> upstreams = new HashSet<>();
+        for (int i = 0; i < 5; i++) {
+            SimpleResponse response = client.get(uri + "/hello?i=" + i).submit().get();
+            Assert.assertThat(response.getStatus(), is(HttpStatus.OK_200));
+            Assert.assertThat(response.getStringBody(), startsWith("upstream"));
+            Assert.assertThat(response.getStringBody(), endsWith("/hello?i=" + i));
+            Assert.assertThat(response.getFields().get("X-Upstream-Forwarded-Proto"), is("http"));
+            Assert.assertThat(response.getFields().get("X-Upstream-Forwarded-Host"), is(host));
+            upstreams.add(response.getFields().get("X-Upstream-Name"));
+        }
+        // the same client address is always sent to the same upstream server
+        Assert.assertThat(upstreams.size(), is(1));
+
+        StringBuilder bigData = new StringBuilder();
+        for (int i = 0; i < 200 * 1024; i++) {
+            bigData.append(i);
+        }
+        SimpleResponse response = client.post(uri + "/echo")
+                                        .put(HttpHeader.CONTENT_LENGTH, String.valueOf(bigData.length()))
+                                        .body(bigData.toString())
+                                        .submit().get();
+        Assert.assertThat(response.getStatus(), is(HttpStatus.OK_200));
+        Assert.assertThat(response.getStringBody().length(), is(bigData.length()));
+        Assert.assertThat(response.getStringBody(), is(bigData.toString()));
+
+        String name = upstreams.iterator().next().equals("upstream1") ? host + ":" + upstreamPort1 : host + ":" + upstreamPort2;
+        MetricRegistry metrics = config.getClientConfiguration().getTcpConfiguration().getMetricReporterFactory().getMetricRegistry();
+        Assert.assertThat(metrics.meter("http2.ReverseProxyHandler.upstream." + name + ".requests").getCount(), is(6L));
+        Assert.assertThat(metrics.meter("http2.ReverseProxyHandler.upstream." + name + ".errors").getCount(), is(0L));
+        Assert.assertThat(metrics.counter("http2.ReverseProxyHandler.upstream." + name + ".active").getCount(), is(0L));
+        Assert.assertThat(metrics.timer("http2.ReverseProxyHandler.upstream." + name + ".response.time").getCount(), is(6L));
+
+        client.stop();
+        server.stop();
+        proxy.stop();
+        upstream1.stop();
+        upstream2.stop();
+    }
+
+    @Test
+    public void testBadGateway() throws Exception {
+        ReverseProxyConfiguration config = new ReverseProxyConfiguration();
+        config.setUpstreams(Collections.singletonList("http://" + host + ":" + (port + 1)));
+        ReverseProxyHandler proxy = new ReverseProxyHandler(config);
+        HTTP2ServerBuilder server = createProxy(proxy);
+        SimpleHTTPClient client = new SimpleHTTPClient();
+
+        SimpleResponse response = client.get(uri + "/hello").submit().get();
+        Assert.assertThat(response.getStatus(), is(HttpStatus.BAD_GATEWAY_502));
+        MetricRegistry metrics = config.getClientConfiguration().getTcpConfiguration().getMetricReporterFactory().getMetricRegistry();
+        Assert.assertThat(metrics.meter("http2.ReverseProxyHandler.upstream." + host + ":" + (port + 1) + ".errors").getCount(), is(1L));
+
+        client.stop();
+        server.stop();
+        proxy.stop();
+    }
+
+    @Test
+    public void testResponseTimeout() throws Exception {
+        int upstreamPort = port + 1;
+        HTTP2ServerBuilder upstream = new HTTP2ServerBuilder().httpServer();
+        // the upstream server never responds
+        upstream.router().get("/slow").handler(ctx -> ctx.getResponse().setAsynchronous(true))
+                .listen(host, upstreamPort);
+
+        ReverseProxyConfiguration config = new ReverseProxyConfiguration();
+        config.setUpstreams(Collections.singletonList("http://" + host + ":" + upstreamPort));
+        config.setResponseTimeout(500);
+        ReverseProxyHandler proxy = new ReverseProxyHandler(config);
+        HTTP2ServerBuilder server = createProxy(proxy);
+        SimpleHTTPClient client = new SimpleHTTPClient();
+
+        SimpleResponse response = client.get(uri + "/slow").submit().get();
+        Assert.assertThat(response.getStatus(), is(HttpStatus.GATEWAY_TIMEOUT_504));
+        MetricRegistry metrics = config.getClientConfiguration().getTcpConfiguration().getMetricReporterFactory().getMetricRegistry();
+        Assert.assertThat(metrics.meter("http2.ReverseProxyHandler.upstream." + host + ":" + upstreamPort + ".errors").getCount(), is(1L));
+        Assert.assertThat(metrics.counter("http2.ReverseProxyHandler.upstream." + host + ":" + upstreamPort + ".active").getCount(), is(0L));
+
+        client.stop();
+        server.stop();
+        proxy.stop();
+        upstream.stop();
+    }
+
+    private HTTP2ServerBuilder createProxy(ReverseProxyHandler proxy) {
+        HTTP2ServerBuilder server = new HTTP2ServerBuilder().httpServer();
+        server.router(-1).path("*").handler(proxy).listen(host, port);
+        return server;
+    }
+
+    private HTTP2ServerBuilder createUpstream(String name, int upstreamPort) {
+        HTTP2ServerBuilder upstream = new HTTP2ServerBuilder().httpServer();
+        upstream.router().get("/hello").handler(ctx -> ctx.put("X-Upstream-Name", name)
+                                                           .put("X-Upstream-Forwarded-Proto", ctx.getFields().get(HttpHeader.X_FORWARDED_PROTO))
+                                                           .put("X-Upstream-Forwarded-Host", ctx.getFields().get(HttpHeader.X_FORWARDED_HOST))
+                                                           .end(name + " " + ctx.getURI().getPathQuery()))
+                .router().post("/echo").handler(ctx -> ctx.end(ctx.getStringBody()))
+                .listen(host, upstreamPort);
+        return upstream;
+    }
+}
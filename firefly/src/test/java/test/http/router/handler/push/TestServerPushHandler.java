@@ -0,0 +1,227 @@
+package test.http.router.handler.push;
+
+import com.firefly.$;
+import com.firefly.client.http2.HTTP2Client;
+import com.firefly.client.http2.HTTP2ClientConnection;
+import com.firefly.codec.http2.frame.DataFrame;
+import com.firefly.codec.http2.frame.HeadersFrame;
+import com.firefly.codec.http2.frame.PushPromiseFrame;
+import com.firefly.codec.http2.model.*;
+import com.firefly.codec.http2.stream.HTTP2Configuration;
+import com.firefly.codec.http2.stream.Stream;
+import com.firefly.server.http2.HTTP2ServerBuilder;
+import com.firefly.server.http2.router.handler.file.StaticFileHandler;
+import com.firefly.server.http2.router.handler.push.ServerPushConfiguration;
+import com.firefly.server.http2.router.handler.push.ServerPushHandler;
+import com.firefly.utils.concurrent.Callback;
+import com.firefly.utils.concurrent.FuturePromise;
+import com.firefly.utils.io.BufferUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import test.http.router.handler.AbstractHTTPHandlerTest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestServerPushHandler extends AbstractHTTPHandlerTest {
+
+    private Path rootPath;
+    private HTTP2Client client;
+
+    @Before
+    public void createFiles() throws IOException {
+        rootPath = Files.createTempDirectory("push");
+        Files.write(rootPath.resolve("index.html"), "<html>index</html>".getBytes(StandardCharsets.UTF_8));
+        Files.write(rootPath.resolve("app.css"), "body {}".getBytes(StandardCharsets.UTF_8));
+        Files.write(rootPath.resolve("app.js"), "var app;".getBytes(StandardCharsets.UTF_8));
+        Files.write(rootPath.resolve("big.js"), new byte[4096]);
+
+        HTTP2Configuration configuration = new HTTP2Configuration();
+        configuration.setProtocol(HttpVersion.HTTP_2.asString());
+        client = new HTTP2Client(configuration);
+    }
+
+    @After
+    public void deleteFiles() throws IOException {
+        client.stop();
+        try (java.util.stream.Stream<Path> files = Files.list(rootPath)) {
+            files.forEach(file -> file.toFile().delete());
+        }
+        Files.delete(rootPath);
+    }
+
+    @Test
+    public void testLearnSubresources() throws Exception {
+        ServerPushHandler pushHandler = new ServerPushHandler(rootPath.toString());
+        HTTP2ServerBuilder server = $.plaintextHTTP2Server();
+        server.router().get("*").handler(pushHandler)
+              .router().get("*").handler(new StaticFileHandler(rootPath.toString()))
+              .listen(host, port);
+
+        // the subresources are pushed after the distinct connections request them
+        for (int i = 0; i < pushHandler.getConfiguration().getMinAssociatedConnections(); i++) {
+            Assert.assertThat(pushHandler.getSubresources("/index.html"), empty());
+            HTTP2ClientConnection connection = connect();
+            Assert.assertThat(request(connection, "/index.html", page()).pushes.keySet(), empty());
+            Assert.assertThat(request(connection, "/app.css", subresource()).pushes.keySet(), empty());
+            Assert.assertThat(request(connection, "/app.js", subresource()).pushes.keySet(), empty());
+        }
+        Assert.assertThat(pushHandler.getSubresources("/index.html"), containsInAnyOrder("/app.css", "/app.js"));
+
+        HTTP2ClientConnection connection = connect();
+        Exchange exchange = request(connection, "/index.html", page());
+        Assert.assertThat(exchange.body.get(2, TimeUnit.SECONDS), is("<html>index</html>"));
+        Assert.assertThat(exchange.pushes.keySet(), containsInAnyOrder("/app.css", "/app.js"));
+        Assert.assertThat(exchange.pushes.get("/app.css").get(2, TimeUnit.SECONDS), is("body {}"));
+        Assert.assertThat(exchange.pushes.get("/app.js").get(2, TimeUnit.SECONDS), is("var app;"));
+        HttpFields pushedFields = exchange.pushedFields.get("/app.css");
+        Assert.assertThat(pushedFields.get(HttpHeader.ETAG), startsWith("W/\""));
+        Assert.assertThat(pushedFields.get(HttpHeader.LAST_MODIFIED), notNullValue());
+        Assert.assertThat(pushedFields.get(HttpHeader.CONTENT_LENGTH), is("7"));
+
+        // the resources are pushed once on a connection
+        Assert.assertThat(request(connection, "/index.html", page()).pushes.keySet(), empty());
+
+        // the client has cached the page and its subresources
+        HttpFields conditional = page();
+        conditional.put(HttpHeader.IF_NONE_MATCH, "\"v1\"");
+        Assert.assertThat(request(connect(), "/index.html", conditional).pushes.keySet(), empty());
+
+        server.stop();
+    }
+
+    @Test
+    public void testForgedReferer() throws Exception {
+        ServerPushHandler pushHandler = new ServerPushHandler(rootPath.toString());
+        HTTP2ServerBuilder server = $.plaintextHTTP2Server();
+        server.router().get("*").handler(pushHandler)
+              .router().get("*").handler(new StaticFileHandler(rootPath.toString()))
+              .listen(host, port);
+
+        // one connection can not make the server push a resource to the other clients
+        HTTP2ClientConnection connection = connect();
+        for (int i = 0; i < 5; i++) {
+            request(connection, "/index.html", page());
+            request(connection, "/big.js", subresource());
+        }
+        Assert.assertThat(pushHandler.getSubresources("/index.html"), empty());
+        Assert.assertThat(request(connect(), "/index.html", page()).pushes.keySet(), empty());
+
+        server.stop();
+    }
+
+    @Test
+    public void testPreload() throws Exception {
+        ServerPushConfiguration configuration = new ServerPushConfiguration();
+        configuration.setRootPath(rootPath.toString());
+        configuration.setMaxPushBytesPerConnection(1024);
+        HTTP2ServerBuilder server = $.plaintextHTTP2Server();
+        server.router().get("*").handler(new ServerPushHandler(configuration))
+              .router().get("/page").handler(ctx -> ctx.put("Link", "</app.css>; rel=preload; as=style, </big.js>; rel=preload")
+                                                       .add("Link", "</app.js>; rel=preload; nopush")
+                                                       .end("page"))
+              .listen(host, port);
+
+        HTTP2ClientConnection connection = connect();
+        Assert.assertThat(request(connection, "/page", page()).pushes.keySet(), empty());
+
+        // the big.js exceeds the maximum pushed bytes of the connection
+        Exchange exchange = request(connection, "/page", page());
+        Assert.assertThat(exchange.body.get(2, TimeUnit.SECONDS), is("page"));
+        Assert.assertThat(exchange.pushes.keySet(), contains("/app.css"));
+        Assert.assertThat(exchange.pushes.get("/app.css").get(2, TimeUnit.SECONDS), is("body {}"));
+
+        server.stop();
+    }
+
+    @Test
+    public void testParsePreloads() {
+        Assert.assertThat(ServerPushHandler.parsePreloads(Arrays.asList(
+                "</a.css>; rel=preload; as=style, <//cdn.com/b.js>; rel=preload, </c.js>; rel=\"preload\"",
+                "</d.js>; rel=prefetch, </e.js>; rel=preload; nopush, <http://cdn.com/f.js>; rel=preload")),
+                contains("/a.css", "/c.js"));
+    }
+
+    private HttpFields page() {
+        HttpFields fields = new HttpFields();
+        fields.put(HttpHeader.ACCEPT, "text/html");
+        return fields;
+    }
+
+    private HttpFields subresource() {
+        HttpFields fields = new HttpFields();
+        fields.put(HttpHeader.ACCEPT, "*/*");
+        fields.put(HttpHeader.REFERER, uri + "/index.html");
+        return fields;
+    }
+
+    private HTTP2ClientConnection connect() throws Exception {
+        return (HTTP2ClientConnection) client.connect(host, port).get(2, TimeUnit.SECONDS);
+    }
+
+    private Exchange request(HTTP2ClientConnection connection, String path, HttpFields fields) throws Exception {
+        Exchange exchange = new Exchange();
+        MetaData.Request request = new MetaData.Request(HttpMethod.GET.asString(),
+                new HttpURI("http", host, port, path), HttpVersion.HTTP_2, fields);
+        FuturePromise<Stream> promise = new FuturePromise<>();
+        connection.getHttp2Session().newStream(new HeadersFrame(request, null, true), promise, exchange.listener(exchange.body));
+        promise.get(2, TimeUnit.SECONDS);
+        exchange.body.get(2, TimeUnit.SECONDS);
+        return exchange;
+    }
+
+    private static class Exchange {
+        private final CompletableFuture<String> body = new CompletableFuture<>();
+        private final Map<String, CompletableFuture<String>> pushes = new ConcurrentHashMap<>();
+        private final Map<String, HttpFields> pushedFields = new ConcurrentHashMap<>();
+
+        private Stream.Listener listener(CompletableFuture<String> future) {
+            return listener(null, future);
+        }
+
+        private Stream.Listener listener(String pushedPath, CompletableFuture<String> future) {
+            StringBuilder content = new StringBuilder();
+            return new Stream.Listener.Adapter() {
+                @Override
+                public void onHeaders(Stream stream, HeadersFrame frame) {
+                    if (pushedPath != null && frame.getMetaData().isResponse()) {
+                        pushedFields.put(pushedPath, frame.getMetaData().getFields());
+                    }
+                    if (frame.isEndStream()) {
+                        future.complete(content.toString());
+                    }
+                }
+
+                @Override
+                public Stream.Listener onPush(Stream stream, PushPromiseFrame frame) {
+                    CompletableFuture<String> pushed = new CompletableFuture<>();
+                    String path = ((MetaData.Request) frame.getMetaData()).getURI().getPath();
+                    pushes.put(path, pushed);
+                    return listener(path, pushed);
+                }
+
+                @Override
+                public void onData(Stream stream, DataFrame frame, Callback callback) {
+                    content.append(BufferUtils.toString(frame.getData(), StandardCharsets.UTF_8));
+                    callback.succeeded();
+                    if (frame.isEndStream()) {
+                        future.complete(content.toString());
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package test.ioc;
+
+import com.firefly.core.support.BeanDefinition;
+import com.firefly.core.support.annotation.AnnotationBeanReader;
+import com.firefly.core.support.annotation.ClassFileMetadata;
+import com.firefly.core.support.annotation.ComponentIndexProcessor;
+import org.junit.Test;
+import test.component.FieldInject;
+import test.component.impl.AddServiceImpl;
+import test.component.impl.FieldInjectImpl;
+import test.component.impl.MethodInjectImpl;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestComponentIndex {
+
+    private static ClassFileMetadata read(Class<?> c) throws IOException {
+        try (InputStream in = c.getResourceAsStream(c.getName().substring(c.getName().lastIndexOf('.') + 1) + ".class")) {
+            return ClassFileMetadata.read(in);
+        }
+    }
+
+    @Test
+    public void testClassFileMetadata() throws IOException {
+        ClassFileMetadata metadata = read(FieldInjectImpl.class);
+        assertThat(metadata.getClassName(), is(FieldInjectImpl.class.getName()));
+        assertThat(metadata.hasAnnotation("com.firefly.annotation.Component"), is(true));
+
+        metadata = read(FieldInject.class);
+        assertThat(metadata.getClassName(), is(FieldInject.class.getName()));
+        assertThat(metadata.getAnnotationNames().isEmpty(), is(true));
+
+        // the annotation element values are skipped
+        metadata = read(Annotated.class);
+        assertThat(metadata.getAnnotationNames(), is(Arrays.asList(
+                Sample.class.getName(), Deprecated.class.getName())));
+    }
+
+    @Test
+    public void testProcessor() throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            return; // runs on a JRE
+        }
+
+        Path dir = Files.createTempDirectory("firefly-component-index");
+        Path source = dir.resolve("test/index/IndexedComponent.java");
+        Files.createDirectories(source.getParent());
+        Files.write(source, ("package test.index;\n" +
+                "@com.firefly.annotation.Component(\"indexedComponent\")\n" +
+                "public class IndexedComponent {\n" +
+                "    @com.firefly.annotation.Component public static class Nested {}\n" +
+                "}\n").getBytes(StandardCharsets.UTF_8));
+
+        int result = compiler.run(null, null, null,
+                "-classpath", System.getProperty("java.class.path"),
+                "-processor", ComponentIndexProcessor.class.getName(),
+                "-d", dir.toString(), source.toString());
+        assertThat(result, is(0));
+
+        File index = dir.resolve(ComponentIndexProcessor.COMPONENT_INDEX).toFile();
+        assertThat(index.isFile(), is(true));
+        List<String> lines = Files.readAllLines(index.toPath(), StandardCharsets.UTF_8);
+        assertThat(lines, is(Arrays.asList("test.index.IndexedComponent")));
+    }
+
+    @Test
+    public void testReadIndex() throws Exception {
+        File root = new File(FieldInjectImpl.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        File index = new File(root, ComponentIndexProcessor.COMPONENT_INDEX);
+        File classFile = new File(root, MethodInjectImpl.class.getName().replace('.', '/') + ".class");
+        long lastModified = classFile.lastModified();
+        Files.createDirectories(index.getParentFile().toPath());
+        try {
+            // the reader loads the indexed classes only
+            Files.write(index.toPath(), (FieldInjectImpl.class.getName() + "\n").getBytes(StandardCharsets.UTF_8));
+            index.setLastModified(lastModified + 1000);
+            assertThat(getClassNames(), is(Arrays.asList(FieldInjectImpl.class.getName())));
+
+            // an indexed class file does not exist
+            Files.write(index.toPath(), ("test.component.impl.Deleted\n" + FieldInjectImpl.class.getName() + "\n").getBytes(StandardCharsets.UTF_8));
+            index.setLastModified(lastModified + 1000);
+            assertThat(getClassNames(), containsInAnyOrder(AddServiceImpl.class.getName(),
+                    FieldInjectImpl.class.getName(), MethodInjectImpl.class.getName()));
+
+            // a class file is compiled after the index
+            Files.write(index.toPath(), (FieldInjectImpl.class.getName() + "\n").getBytes(StandardCharsets.UTF_8));
+            index.setLastModified(lastModified - 1000);
+            assertThat(getClassNames(), containsInAnyOrder(AddServiceImpl.class.getName(),
+                    FieldInjectImpl.class.getName(), MethodInjectImpl.class.getName()));
+        } finally {
+            Files.deleteIfExists(index.toPath());
+        }
+    }
+
+    private static List<String> getClassNames() {
+        return new AnnotationBeanReader("component-index-config.xml").loadBeanDefinitions().stream()
+                                                                     .map(BeanDefinition::getClassName)
+                                                                     .collect(Collectors.toList());
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Sample {
+        String[] value();
+
+        ElementType type();
+
+        Deprecated nested();
+
+        Class<?> clazz();
+
+        long number();
+    }
+
+    @Sample(value = {"a", "b"}, type = ElementType.TYPE,
+            nested = @Deprecated, clazz = String.class, number = 10L)
+    @Deprecated
+    public static class Annotated {
+        private long field = 1L;
+        private double ratio = 0.5;
+
+        public long getField() {
+            return field + (long) ratio;
+        }
+    }
+}
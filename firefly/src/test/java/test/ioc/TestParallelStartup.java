@@ -0,0 +1,128 @@
+package test.ioc;
+
+import com.firefly.core.AbstractApplicationContext;
+import com.firefly.core.XmlApplicationContext;
+import com.firefly.core.support.BeanStartupReport;
+import com.firefly.core.support.inject.BeanInjector;
+import com.firefly.core.support.inject.JavassistBeanInjectorFactory;
+import com.firefly.core.support.inject.ReflectionBeanInjector;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import test.component.FieldInject;
+import test.component3.Person;
+import test.component3.PersonService;
+import test.component4.Controller;
+import test.component4.StartupOrder;
+import test.mixed.Food;
+import test.mixed.FoodService;
+import test.mixed.FoodService2;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestParallelStartup {
+
+    @Before
+    public void before() {
+        System.setProperty(AbstractApplicationContext.PARALLEL_STARTUP, "true");
+        System.setProperty(XmlApplicationContext.GENERATED_INJECTOR, "true");
+    }
+
+    @After
+    public void after() {
+        System.clearProperty(AbstractApplicationContext.PARALLEL_STARTUP);
+        System.clearProperty(XmlApplicationContext.GENERATED_INJECTOR);
+    }
+
+    @Test
+    public void testMixedBeans() {
+        XmlApplicationContext context = new XmlApplicationContext("mixed-config.xml");
+        FoodService2 foodService2 = context.getBean("foodService2");
+        Food food = foodService2.getFood("apple");
+        Assert.assertThat(food.getPrice(), is(5.3));
+
+        FoodService foodService = context.getBean("foodService");
+        food = foodService.getFood("strawberry");
+        Assert.assertThat(food.getPrice(), is(10.00));
+    }
+
+    @Test
+    public void testXmlBeans() {
+        XmlApplicationContext context = new XmlApplicationContext();
+        Person person = context.getBean("person");
+        Assert.assertThat(person.getName(), is("Jack"));
+        Assert.assertThat(person.getAge(), is(12));
+
+        PersonService personService = context.getBean("personService");
+        Assert.assertThat(personService.isInitial(), is(true));
+        Assert.assertThat(personService.getTestList().size(), greaterThan(0));
+    }
+
+    @Test
+    public void testStartupReport() {
+        XmlApplicationContext context = new XmlApplicationContext("annotation-config.xml");
+        FieldInject fieldInject = context.getBean("fieldInject");
+        Assert.assertThat(fieldInject.add(5, 4), is(9));
+
+        BeanStartupReport report = context.getStartupReport();
+        Assert.assertThat(report.getEntries().size(), greaterThan(0));
+        Assert.assertThat(report.getTotalTime(), greaterThan(0L));
+        for (BeanStartupReport.Entry entry : report.getEntries()) {
+            Assert.assertThat(entry.getSelfTime(), lessThanOrEqualTo(entry.getTotalTime()));
+        }
+        Assert.assertThat(report.getEntries().stream().anyMatch(e -> e.getName().equals("fieldInject")), is(true));
+        Assert.assertThat(report.toString(), containsString("fieldInject"));
+    }
+
+    @Test
+    public void testInitialMethodOrder() {
+        System.clearProperty(AbstractApplicationContext.PARALLEL_STARTUP);
+        StartupOrder.initialized.clear();
+        new XmlApplicationContext("startup-order-config.xml");
+        List<String> sequential = new ArrayList<>(StartupOrder.initialized);
+        Assert.assertThat(sequential.indexOf("repository"), lessThan(sequential.indexOf("service")));
+        Assert.assertThat(sequential.indexOf("service"), lessThan(sequential.indexOf("controller")));
+
+        // the initial methods are invoked in the order of the sequential startup
+        System.setProperty(AbstractApplicationContext.PARALLEL_STARTUP, "true");
+        for (int i = 0; i < 5; i++) {
+            StartupOrder.initialized.clear();
+            new XmlApplicationContext("startup-order-config.xml");
+            Assert.assertThat(StartupOrder.initialized, is(sequential));
+        }
+    }
+
+    @Test
+    public void testGeneratedInjectorCache() throws Throwable {
+        Constructor<?> constructor = Controller.class.getConstructor();
+        List<Field> fields = Collections.singletonList(Controller.class.getDeclaredField("service"));
+        BeanInjector injector = JavassistBeanInjectorFactory.INSTANCE.createInjector(Controller.class, constructor, fields, Collections.emptyList());
+        BeanInjector again = JavassistBeanInjectorFactory.INSTANCE.createInjector(Controller.class, constructor, fields, Collections.emptyList());
+        Assert.assertThat(injector.getClass() == again.getClass(), is(true));
+        Assert.assertThat(injector.getClass() == ReflectionBeanInjector.class, is(false));
+        Assert.assertThat(injector.newInstance(new Object[0]), instanceOf(Controller.class));
+
+        // the generated code can not access the private constructor and fields
+        constructor = PrivateBean.class.getDeclaredConstructor();
+        fields = Collections.singletonList(PrivateBean.class.getDeclaredField("value"));
+        Assert.assertThat(JavassistBeanInjectorFactory.INSTANCE.createInjector(PrivateBean.class, constructor,
+                fields, Collections.emptyList()).getClass() == ReflectionBeanInjector.class, is(true));
+    }
+
+    private static class PrivateBean {
+        private Object value;
+
+        private PrivateBean() {
+        }
+    }
+}